@@ -0,0 +1,59 @@
+package org.example.shoppingmall.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 缓存过期策略配置，前缀 app.cache.expiry
+ * <p>
+ * 为列出的缓存区域设置软过期 + 过期抖动，例如：
+ * <pre>
+ * app.cache.expiry.caches.productIdPages.soft-ttl=50m
+ * app.cache.expiry.caches.productIdPages.stale-window=10m
+ * app.cache.expiry.caches.productIdPages.jitter=10m
+ * </pre>
+ * Redis 中条目的实际过期时间为 softTtl + staleWindow + [0, jitter) 的随机值，
+ * 同一批写入的条目不会在同一时刻一起过期；剩余寿命进入最后 staleWindow 时视为"陈旧"，
+ * 读取方继续拿到旧值，同时由一个后台任务重新加载（见 {@link StaleWhileRevalidateCache}）。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.expiry")
+public class CacheExpiryProperties {
+
+    /** 各缓存区域的过期策略，key 为缓存名称；未列出的缓存使用 RedisConfig 中的默认 TTL */
+    private Map<String, Policy> caches = new LinkedHashMap<>();
+
+    /** 后台刷新线程数 */
+    private int refreshThreads = 2;
+
+    /** 后台刷新任务的排队上限，队列满时放弃本次刷新，继续返回旧值 */
+    private int refreshQueueCapacity = 200;
+
+    @Data
+    public static class Policy {
+        /** 软过期时间：超过后仍可返回旧值，但会触发后台刷新 */
+        private Duration softTtl = Duration.ofMinutes(50);
+
+        /** 软过期之后允许继续返回旧值的时长 */
+        private Duration staleWindow = Duration.ofMinutes(10);
+
+        /** 硬过期时间上的随机抖动上限，为 0 时不抖动 */
+        private Duration jitter = Duration.ZERO;
+
+        /**
+         * 为一次写入计算 Redis 中的实际过期时间。
+         */
+        public Duration nextHardTtl() {
+            Duration hardTtl = softTtl.plus(staleWindow);
+            long jitterMillis = jitter.toMillis();
+            return jitterMillis > 0 ? hardTtl.plusMillis(ThreadLocalRandom.current().nextLong(jitterMillis)) : hardTtl;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.shoppingmall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存的跨节点失效通知 (Redis Pub/Sub)
+ * <p>
+ * 任一节点写入或删除缓存后广播 "节点ID|操作|缓存名|键"，其他节点收到后只删除自己的本地副本，
+ * 下次读取时再从 Redis 取最新值。消息丢失时由本地缓存的过期时间兜底。
+ * <p>
+ * 其他按节点维护的内存结构（如商品搜索索引）也可以通过 {@link #subscribe}/{@link #publish(String, String)}
+ * 借用同一个频道广播 "节点ID|M|主题|内容"，消息丢失时由订阅方自己的定时同步兜底。
+ */
+@Slf4j
+public class CacheInvalidationBus implements MessageListener {
+
+    private static final String OP_EVICT = "E";
+    private static final String OP_CLEAR = "C";
+    private static final String OP_MESSAGE = "M";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<String>> subscribers = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    void register(TwoLevelCache cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    /**
+     * 订阅一个主题，只会收到其他节点发布的消息。
+     */
+    public void subscribe(String topic, Consumer<String> handler) {
+        subscribers.put(topic, handler);
+    }
+
+    /**
+     * 向其他节点广播一条主题消息，发送失败只记录日志。
+     */
+    public void publish(String topic, String payload) {
+        publish(nodeId + "|" + OP_MESSAGE + "|" + topic + "|" + payload);
+    }
+
+    void publishEvict(String cacheName, String key) {
+        publish(nodeId + "|" + OP_EVICT + "|" + cacheName + "|" + key);
+    }
+
+    void publishClear(String cacheName) {
+        publish(nodeId + "|" + OP_CLEAR + "|" + cacheName + "|");
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            // 通知失败不影响本次写操作，其他节点的本地副本会在过期后自然失效
+            log.warn("发送本地缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (OP_MESSAGE.equals(parts[1])) {
+            Consumer<String> handler = subscribers.get(parts[2]);
+            if (handler != null) {
+                try {
+                    handler.accept(parts[3]);
+                } catch (Exception e) {
+                    log.warn("处理跨节点消息失败: topic={}, error={}", parts[2], e.getMessage());
+                }
+            }
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[2]);
+        if (cache == null) {
+            return;
+        }
+        if (OP_CLEAR.equals(parts[1])) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[3]);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.shoppingmall.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 缓存加载的跨节点短锁 (Redis SET NX PX)
+ * <p>
+ * 锁的值是随机令牌，释放时用脚本比较后再删除，避免锁过期后误删其他节点重新获取的锁。
+ */
+public class CacheLoadLock {
+
+    private static final String KEY_PREFIX = "cache:lock:";
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public CacheLoadLock(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 尝试获取锁，成功返回令牌，锁已被其他节点持有时返回 null。
+     */
+    public String tryLock(String cacheName, String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey(cacheName, key), token, ttl);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    public void unlock(String cacheName, String key, String token) {
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lockKey(cacheName, key)), token);
+    }
+
+    private static String lockKey(String cacheName, String key) {
+        return KEY_PREFIX + cacheName + ":" + key;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.shoppingmall.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.example.shoppingmall.cache.codec.BinaryCodec;
+
+import java.time.Duration;
+
+/**
+ * 单个缓存区域的存储策略，在 {@link CachePolicyRegistry} 中按缓存名称登记
+ */
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class CachePolicy {
+
+    /**
+     * 条目在 Redis 中的过期时间。配置了软过期 (app.cache.expiry.caches) 的缓存以软过期策略计算的时间为准。
+     */
+    @Builder.Default
+    private final Duration ttl = Duration.ofHours(1);
+
+    /** 是否缓存 null 结果；关闭时 null 结果直接丢弃，避免随机 id 的扫描请求把空值写满 Redis */
+    @Builder.Default
+    private final boolean cacheNullValues = false;
+
+    /** 缓存区域最多保留的键数量，超出时淘汰最早写入的键；0 表示不限制 */
+    @Builder.Default
+    private final long maxKeys = 0;
+
+    /** 序列化结果达到该字节数时压缩后再写入 Redis；小于 0 表示不压缩 */
+    @Builder.Default
+    private final int compressThreshold = -1;
+
+    @Builder.Default
+    private final CacheSerializer serializer = CacheSerializer.GENERIC_JSON;
+
+    /** 值类型，serializer 为 JSON 或 BINARY 时必填 */
+    @ToString.Exclude
+    private final JavaType valueType;
+
+    /** 二进制编解码器，serializer 为 BINARY 时必填 */
+    @ToString.Exclude
+    private final BinaryCodec<?> binaryCodec;
+
+    public boolean isCompressionEnabled() {
+        return compressThreshold >= 0;
+    }
+
+    public boolean isKeyLimited() {
+        return maxKeys > 0;
+    }
+}
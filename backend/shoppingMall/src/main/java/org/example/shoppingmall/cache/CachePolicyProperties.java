@@ -0,0 +1,39 @@
+package org.example.shoppingmall.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存策略的配置覆盖，前缀 app.cache.policy
+ * <p>
+ * 代码中登记的策略（见 RedisConfig#cachePolicyRegistry）是默认值，这里只需写要调整的项，例如：
+ * <pre>
+ * app.cache.policy.caches.productDetail.ttl=15m
+ * app.cache.policy.caches.productDetail.max-keys=50000
+ * </pre>
+ * 值类型不能在配置中修改。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.policy")
+public class CachePolicyProperties {
+
+    private Map<String, Override> caches = new LinkedHashMap<>();
+
+    /**
+     * 未设置的字段保持 null，表示沿用代码中登记的值。
+     */
+    @Data
+    public static class Override {
+        private Duration ttl;
+        private Boolean cacheNullValues;
+        private Long maxKeys;
+        private Integer compressThreshold;
+        private CacheSerializer serializer;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.shoppingmall.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存策略登记表
+ * <p>
+ * 各缓存区域的 TTL、是否缓存 null、键数量上限、压缩阈值和序列化方式集中登记在这里，
+ * RedisCacheManager 和 {@link TwoLevelCacheManager} 都按它来创建缓存。未登记的缓存使用默认策略。
+ * 登记时会合并 app.cache.policy.caches.* 中的配置覆盖。
+ */
+public class CachePolicyRegistry {
+
+    private final CachePolicy defaultPolicy;
+    private final CachePolicyProperties overrides;
+    private final Map<String, CachePolicy> policies = new LinkedHashMap<>();
+
+    public CachePolicyRegistry(CachePolicy defaultPolicy, CachePolicyProperties overrides) {
+        this.defaultPolicy = defaultPolicy;
+        this.overrides = overrides;
+    }
+
+    public CachePolicyRegistry register(String cacheName, CachePolicy policy) {
+        CachePolicy merged = applyOverride(policy, overrides.getCaches().get(cacheName));
+        if (merged.getSerializer() != CacheSerializer.GENERIC_JSON && merged.getValueType() == null) {
+            throw new IllegalStateException("缓存 " + cacheName + " 使用 " + merged.getSerializer() + " 序列化，必须声明值类型");
+        }
+        if (merged.getSerializer() == CacheSerializer.BINARY && merged.getBinaryCodec() == null) {
+            throw new IllegalStateException("缓存 " + cacheName + " 使用二进制序列化，必须声明编解码器");
+        }
+        policies.put(cacheName, merged);
+        return this;
+    }
+
+    /**
+     * 取缓存区域的策略，未登记时返回默认策略。
+     */
+    public CachePolicy policyFor(String cacheName) {
+        return policies.getOrDefault(cacheName, defaultPolicy);
+    }
+
+    public CachePolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * 已登记的策略，按登记顺序。
+     */
+    public Map<String, CachePolicy> getPolicies() {
+        return Collections.unmodifiableMap(policies);
+    }
+
+    private static CachePolicy applyOverride(CachePolicy policy, CachePolicyProperties.Override override) {
+        if (override == null) {
+            return policy;
+        }
+        CachePolicy.CachePolicyBuilder builder = policy.toBuilder();
+        if (override.getTtl() != null) {
+            builder.ttl(override.getTtl());
+        }
+        if (override.getCacheNullValues() != null) {
+            builder.cacheNullValues(override.getCacheNullValues());
+        }
+        if (override.getMaxKeys() != null) {
+            builder.maxKeys(override.getMaxKeys());
+        }
+        if (override.getCompressThreshold() != null) {
+            builder.compressThreshold(override.getCompressThreshold());
+        }
+        if (override.getSerializer() != null) {
+            builder.serializer(override.getSerializer());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.shoppingmall.cache;
+
+/**
+ * 缓存值在 Redis 中的序列化方式
+ */
+public enum CacheSerializer {
+
+    /** 按缓存策略声明的值类型 (JavaType) 做 JSON 序列化，反序列化得到准确的 DTO 类型 */
+    JSON,
+
+    /** 不声明值类型的通用 JSON，只适合值本身是 Map/List/基本类型的缓存 */
+    GENERIC_JSON,
+
+    /**
+     * 按缓存策略声明的 {@link org.example.shoppingmall.cache.codec.BinaryCodec} 做紧凑二进制编码，
+     * 压缩由编码内部完成；仍能读取切换前写入的 JSON 数据
+     */
+    BINARY
+}
@@ -0,0 +1,173 @@
+package org.example.shoppingmall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.dto.CategoryDTO;
+import org.example.shoppingmall.exception.ApiException;
+import org.example.shoppingmall.service.BannerService;
+import org.example.shoppingmall.service.CategoryService;
+import org.example.shoppingmall.service.ProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动预热：在应用报告就绪（readiness = ACCEPTING_TRAFFIC）之前把热点数据加载进 Redis 和本地缓存，
+ * 避免发布后最初几分钟的请求全部未命中。
+ * <p>
+ * 预热内容：首页轮播图、全部分类、首页推荐商品，以及 {@link HotKeyRecorder} 记录的上次运行中最热的商品列表页和商品详情；
+ * 没有记录时退回到各分类的第一页。所有加载都通过 Service 代理调用，与线上请求写入同一批缓存键。
+ * <p>
+ * 加载任务在 concurrency 个线程中并行执行，避免启动瞬间压垮数据库；超过 timeout 仍未完成的任务被放弃，
+ * 单个任务失败只记录日志，不影响启动。
+ */
+@Slf4j
+@Component
+public class CacheWarmup implements ApplicationRunner {
+
+    private final BannerService bannerService;
+    private final CategoryService categoryService;
+    private final ProductService productService;
+    private final HotKeyRecorder hotKeyRecorder;
+    private final boolean enabled;
+    private final int concurrency;
+    private final Duration timeout;
+    private final int featuredPageSize;
+    private final int topPages;
+    private final int topProducts;
+
+    public CacheWarmup(BannerService bannerService, CategoryService categoryService, ProductService productService,
+                       HotKeyRecorder hotKeyRecorder,
+                       @Value("${app.cache.warmup.enabled:true}") boolean enabled,
+                       @Value("${app.cache.warmup.concurrency:4}") int concurrency,
+                       @Value("${app.cache.warmup.timeout:60s}") Duration timeout,
+                       @Value("${app.cache.warmup.featured-page-size:8}") int featuredPageSize,
+                       @Value("${app.cache.warmup.top-pages:100}") int topPages,
+                       @Value("${app.cache.warmup.top-products:200}") int topProducts) {
+        this.bannerService = bannerService;
+        this.categoryService = categoryService;
+        this.productService = productService;
+        this.hotKeyRecorder = hotKeyRecorder;
+        this.enabled = enabled;
+        this.concurrency = Math.max(1, concurrency);
+        this.timeout = timeout;
+        this.featuredPageSize = featuredPageSize;
+        this.topPages = topPages;
+        this.topProducts = topProducts;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            log.info("缓存预热未启用");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "cache-warmup-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            tasks.add(submit(executor, "首页轮播图", bannerService::getHomeBanners, succeeded, failed));
+            tasks.add(submit(executor, "首页推荐商品",
+                    () -> productService.getProducts(null, null, 1, featuredPageSize, "default", "desc", null, null, "featured"),
+                    succeeded, failed));
+
+            List<HotKeyRecorder.PageKey> pages = hotKeyRecorder.topPages(topPages);
+            if (pages.isEmpty()) {
+                // 没有上次运行的记录：先加载分类（同时写入分类缓存），再预热每个分类的第一页
+                pages = firstPageOfEachCategory(succeeded, failed);
+            } else {
+                tasks.add(submit(executor, "商品分类", categoryService::getAllCategories, succeeded, failed));
+            }
+            for (HotKeyRecorder.PageKey page : pages) {
+                tasks.add(submit(executor, "商品列表 " + page, () -> loadPage(page), succeeded, failed));
+            }
+            for (Long productId : hotKeyRecorder.topProducts(topProducts)) {
+                tasks.add(submit(executor, "商品详情 " + productId, () -> loadProduct(productId), succeeded, failed));
+            }
+            awaitAll(tasks, start);
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("缓存预热结束: 成功={}, 失败={}, 耗时={}ms", succeeded.get(), failed.get(), System.currentTimeMillis() - start);
+    }
+
+    private List<HotKeyRecorder.PageKey> firstPageOfEachCategory(AtomicInteger succeeded, AtomicInteger failed) {
+        List<HotKeyRecorder.PageKey> pages = new ArrayList<>();
+        try {
+            for (CategoryDTO category : categoryService.getAllCategories()) {
+                pages.add(new HotKeyRecorder.PageKey(true, category.getId().intValue(), 1, 10, "default", "desc", null));
+            }
+            succeeded.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.warn("缓存预热失败: 商品分类, error={}", e.getMessage());
+        }
+        return pages;
+    }
+
+    private void awaitAll(List<CompletableFuture<Void>> tasks, long start) {
+        long deadline = start + timeout.toMillis();
+        for (CompletableFuture<Void> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("缓存预热超时 ({})，剩余任务放弃，直接开始接收流量", timeout);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 单个任务的异常已在 submit 中记录
+            }
+        }
+    }
+
+    private CompletableFuture<Void> submit(ExecutorService executor, String name, Runnable loader,
+                                           AtomicInteger succeeded, AtomicInteger failed) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                loader.run();
+                succeeded.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.warn("缓存预热失败: {}, error={}", name, e.getMessage());
+            }
+        }, executor);
+    }
+
+    private void loadPage(HotKeyRecorder.PageKey page) {
+        if (page.cards()) {
+            productService.getProductCards(null, page.categoryId(), page.pageNum(), page.pageSize(),
+                    page.sort(), page.order(), null, null, page.type());
+        } else {
+            productService.getProducts(null, page.categoryId(), page.pageNum(), page.pageSize(),
+                    page.sort(), page.order(), null, null, page.type());
+        }
+    }
+
+    private void loadProduct(Long productId) {
+        try {
+            productService.getProductById(productId);
+        } catch (ApiException e) {
+            // 上次运行后被删除的商品
+            log.debug("跳过不存在的热点商品: {}", productId);
+        }
+    }
+}
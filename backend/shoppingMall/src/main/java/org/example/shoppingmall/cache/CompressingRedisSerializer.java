@@ -0,0 +1,61 @@
+package org.example.shoppingmall.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 超过阈值时 GZIP 压缩的序列化器包装
+ * <p>
+ * 读取时按 GZIP 头 (0x1F 0x8B) 判断是否压缩过，因此同一个缓存中压缩和未压缩的值可以共存，
+ * 调整阈值或开启压缩后无需清空已有缓存。被包装的序列化器输出不能以 0x1F 0x8B 开头（JSON 不会）。
+ */
+public class CompressingRedisSerializer<T> implements RedisSerializer<T> {
+
+    private static final byte GZIP_MAGIC_0 = (byte) 0x1F;
+    private static final byte GZIP_MAGIC_1 = (byte) 0x8B;
+
+    private final RedisSerializer<T> delegate;
+    private final int threshold;
+
+    public CompressingRedisSerializer(RedisSerializer<T> delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes == null || bytes.length < threshold) {
+            return bytes;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new SerializationException("压缩缓存值失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (isCompressed(bytes)) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                return delegate.deserialize(gzip.readAllBytes());
+            } catch (IOException e) {
+                throw new SerializationException("解压缓存值失败", e);
+            }
+        }
+        return delegate.deserialize(bytes);
+    }
+
+    static boolean isCompressed(byte[] bytes) {
+        return bytes != null && bytes.length > 2 && bytes[0] == GZIP_MAGIC_0 && bytes[1] == GZIP_MAGIC_1;
+    }
+}
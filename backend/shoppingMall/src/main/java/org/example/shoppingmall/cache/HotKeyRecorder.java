@@ -0,0 +1,215 @@
+package org.example.shoppingmall.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点键记录：统计本进程内访问最多的商品详情和商品列表页，定时累加到 Redis 有序集合，
+ * 供下次启动时的 {@link CacheWarmup} 预热。
+ * <p>
+ * 请求线程只在本地计数（每类最多跟踪 max-tracked 个不同的键，超出后新键不再计数）；
+ * 定时任务和应用关闭时把计数 ZINCRBY 到 cache:hot:{类别}，只保留排名前 max-keys 个。
+ * 列表页只记录不带关键词和价格区间的浏览页，这类组合有限且可以原样重放。
+ */
+@Slf4j
+@Component
+public class HotKeyRecorder {
+
+    public static final String PRODUCTS = "products";
+    public static final String PAGES = "pages";
+
+    private static final String KEY_PREFIX = "cache:hot:";
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final int maxTracked;
+    private final int maxKeys;
+    private final Duration retention;
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    public HotKeyRecorder(StringRedisTemplate redisTemplate,
+                          @Value("${app.cache.warmup.record.enabled:true}") boolean enabled,
+                          @Value("${app.cache.warmup.record.max-tracked:10000}") int maxTracked,
+                          @Value("${app.cache.warmup.record.max-keys:1000}") int maxKeys,
+                          @Value("${app.cache.warmup.record.retention:7d}") Duration retention) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.maxTracked = maxTracked;
+        this.maxKeys = maxKeys;
+        this.retention = retention;
+    }
+
+    /**
+     * 记录一次商品详情访问。
+     */
+    public void recordProduct(Long productId) {
+        if (productId != null) {
+            record(PRODUCTS, productId.toString());
+        }
+    }
+
+    /**
+     * 记录一次商品列表访问，参数与 ProductService#getProducts / getProductCards 相同。
+     */
+    public void recordPage(boolean cards, String keyword, Integer categoryId, int pageNum, int pageSize,
+                           String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        if (StringUtils.hasText(keyword) || minPrice != null || maxPrice != null) {
+            return;
+        }
+        PageKey page = new PageKey(cards, categoryId, pageNum, pageSize, sort, order, type);
+        if (page.isReplayable()) {
+            record(PAGES, page.encode());
+        }
+    }
+
+    private void record(String category, String key) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, LongAdder> counts = counters.computeIfAbsent(category, c -> new ConcurrentHashMap<>());
+        LongAdder adder = counts.get(key);
+        if (adder == null) {
+            if (counts.size() >= maxTracked) {
+                return;
+            }
+            adder = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    /**
+     * 上次及更早运行中访问最多的商品ID，按热度降序。
+     */
+    public List<Long> topProducts(int limit) {
+        List<Long> ids = new ArrayList<>();
+        for (String member : top(PRODUCTS, limit)) {
+            try {
+                ids.add(Long.parseLong(member));
+            } catch (NumberFormatException e) {
+                log.debug("忽略无法解析的热点商品ID: {}", member);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 上次及更早运行中访问最多的商品列表页，按热度降序。
+     */
+    public List<PageKey> topPages(int limit) {
+        List<PageKey> pages = new ArrayList<>();
+        for (String member : top(PAGES, limit)) {
+            PageKey page = PageKey.decode(member);
+            if (page != null) {
+                pages.add(page);
+            }
+        }
+        return pages;
+    }
+
+    private List<String> top(String category, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        try {
+            Set<String> members = redisTemplate.opsForZSet().reverseRange(KEY_PREFIX + category, 0, limit - 1);
+            return members == null ? List.of() : new ArrayList<>(members);
+        } catch (Exception e) {
+            log.warn("读取热点键 {} 失败: {}", category, e.getMessage());
+            return List.of();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.cache.warmup.record.flush-interval:PT5M}",
+            fixedDelayString = "${app.cache.warmup.record.flush-interval:PT5M}")
+    public void flush() {
+        for (String category : List.of(PRODUCTS, PAGES)) {
+            Map<String, LongAdder> counts = counters.remove(category);
+            if (counts == null || counts.isEmpty()) {
+                continue;
+            }
+            byte[] key = (KEY_PREFIX + category).getBytes(StandardCharsets.UTF_8);
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    RedisZSetCommands zSet = connection.zSetCommands();
+                    counts.forEach((member, count) -> zSet.zIncrBy(key, count.sum(), member.getBytes(StandardCharsets.UTF_8)));
+                    // 只保留分数最高的 maxKeys 个
+                    zSet.zRemRange(key, 0, -maxKeys - 1L);
+                    connection.keyCommands().expire(key, retention.getSeconds());
+                    return null;
+                });
+                log.debug("热点键 {} 已写入 Redis: {} 个", category, counts.size());
+            } catch (Exception e) {
+                log.warn("写入热点键 {} 失败: {}", category, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 可重放的商品列表请求。
+     */
+    public record PageKey(boolean cards, Integer categoryId, int pageNum, int pageSize,
+                          String sort, String order, String type) {
+
+        boolean isReplayable() {
+            return pageNum > 0 && pageSize > 0
+                    && safe(sort) && safe(order) && safe(type);
+        }
+
+        String encode() {
+            return String.join(SEPARATOR, cards ? "cards" : "products",
+                    categoryId == null ? "" : categoryId.toString(),
+                    Integer.toString(pageNum), Integer.toString(pageSize),
+                    nullToEmpty(sort), nullToEmpty(order), nullToEmpty(type));
+        }
+
+        static PageKey decode(String value) {
+            String[] parts = value.split("\\|", -1);
+            if (parts.length != 7) {
+                return null;
+            }
+            try {
+                return new PageKey("cards".equals(parts[0]),
+                        parts[1].isEmpty() ? null : Integer.valueOf(parts[1]),
+                        Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+                        emptyToNull(parts[4]), emptyToNull(parts[5]), emptyToNull(parts[6]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static boolean safe(String value) {
+            return value == null || (value.length() <= 32 && !value.contains(SEPARATOR));
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.shoppingmall.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本地一级缓存 (L1) 配置，前缀 app.cache.local
+ * <p>
+ * 只有在 caches 中列出的缓存区域才会在 Redis 前加一层进程内缓存，例如：
+ * <pre>
+ * app.cache.local.caches.productIdPages.max-weight=20000
+ * app.cache.local.caches.productIdPages.expire-after-write=60s
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.local")
+public class LocalCacheProperties {
+
+    /** 总开关，关闭后所有缓存直接访问 Redis */
+    private boolean enabled = true;
+
+    /** 跨节点失效通知使用的 Redis 频道 */
+    private String invalidationChannel = "cache:l1:invalidate";
+
+    /** 各缓存区域的本地缓存规格，key 为缓存名称 */
+    private Map<String, Spec> caches = new LinkedHashMap<>();
+
+    @Data
+    public static class Spec {
+        /**
+         * 最大权重。单个对象权重为 1，分页结果/集合按其中元素个数计，
+         * 因此近似于"最多缓存多少个商品对象"，而不是条目数。
+         */
+        private long maxWeight = 10_000;
+
+        /** 写入后的本地过期时间，作为丢失失效通知时的兜底 */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+    }
+}
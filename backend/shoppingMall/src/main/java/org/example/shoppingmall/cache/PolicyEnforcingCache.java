@@ -0,0 +1,182 @@
+package org.example.shoppingmall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * 在 Redis 缓存上执行 {@link CachePolicy} 中 RedisCacheConfiguration 无法表达的部分
+ * <ul>
+ *   <li>cacheNullValues = false 时丢弃 null 结果，而不是像 RedisCache 那样抛出异常；</li>
+ *   <li>maxKeys &gt; 0 时用有序集合 cache:keys:{缓存名} 记录键的写入时间，超出上限后删除最早写入的键。</li>
+ * </ul>
+ * 被淘汰的键只从 Redis 删除，其他节点本地 L1 中的副本由 L1 的过期时间兜底。
+ * 绕过 Cache 接口批量写入的 {@link ProductEntryCache} 在同一个管道里登记键，超限时同样调用 {@link #evictOldest}。
+ */
+@Slf4j
+public class PolicyEnforcingCache implements Cache {
+
+    private static final String KEYS_PREFIX = "cache:keys:";
+
+    private final Cache delegate;
+    private final CachePolicy policy;
+    private final StringRedisTemplate redisTemplate;
+    private final String keysKey;
+
+    public PolicyEnforcingCache(Cache delegate, CachePolicy policy, StringRedisTemplate redisTemplate) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.redisTemplate = redisTemplate;
+        this.keysKey = keysKey(delegate.getName());
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null && !policy.isCacheNullValues()) {
+            return;
+        }
+        delegate.put(key, value);
+        trackKey(key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (value == null && !policy.isCacheNullValues()) {
+            return delegate.get(key);
+        }
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            trackKey(key);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        untrackKey(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        untrackKey(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        if (policy.isKeyLimited()) {
+            safely(() -> redisTemplate.delete(keysKey));
+        }
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = delegate.invalidate();
+        if (policy.isKeyLimited()) {
+            safely(() -> redisTemplate.delete(keysKey));
+        }
+        return invalidated;
+    }
+
+    private void trackKey(Object key) {
+        if (!policy.isKeyLimited()) {
+            return;
+        }
+        safely(() -> {
+            ZSetOperations<String, String> zSet = redisTemplate.opsForZSet();
+            zSet.add(keysKey, TwoLevelCache.localKey(key), System.currentTimeMillis());
+            // 键集合本身也设置过期，缓存长期不写入时随之清理
+            redisTemplate.expire(keysKey, policy.getTtl().multipliedBy(2));
+            Long size = zSet.zCard(keysKey);
+            if (size != null && size > policy.getMaxKeys()) {
+                evictOldest(redisTemplate, getName(), size - policy.getMaxKeys());
+            }
+        });
+    }
+
+    /**
+     * 记录缓存键写入时间的有序集合
+     */
+    static String keysKey(String cacheName) {
+        return KEYS_PREFIX + cacheName;
+    }
+
+    /**
+     * 从键集合中弹出最早写入的 count 个键并删除对应的缓存数据
+     */
+    static void evictOldest(StringRedisTemplate redisTemplate, String cacheName, long count) {
+        Set<ZSetOperations.TypedTuple<String>> oldest = redisTemplate.opsForZSet().popMin(keysKey(cacheName), count);
+        if (oldest == null || oldest.isEmpty()) {
+            return;
+        }
+        List<String> redisKeys = new ArrayList<>(oldest.size());
+        for (ZSetOperations.TypedTuple<String> tuple : oldest) {
+            // 与 RedisCacheManager 默认的 "缓存名::键" 格式一致
+            redisKeys.add(cacheName + "::" + tuple.getValue());
+        }
+        redisTemplate.delete(redisKeys);
+        log.debug("缓存 {} 超过键数量上限，淘汰最早写入的 {} 个键", cacheName, redisKeys.size());
+    }
+
+    private void untrackKey(Object key) {
+        if (policy.isKeyLimited()) {
+            safely(() -> redisTemplate.opsForZSet().remove(keysKey, TwoLevelCache.localKey(key)));
+        }
+    }
+
+    /**
+     * 键数量记录只是辅助信息，Redis 出错时不影响缓存本身的读写。
+     */
+    private void safely(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("维护缓存 {} 的键集合失败: {}", getName(), e.getMessage());
+        }
+    }
+}
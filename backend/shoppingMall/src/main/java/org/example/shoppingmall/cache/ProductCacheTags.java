@@ -0,0 +1,221 @@
+package org.example.shoppingmall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.config.CacheConfig;
+import org.example.shoppingmall.search.ProductDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * 商品缓存的依赖标签与定向失效
+ * <p>
+ * 列表页只缓存商品 id（{@link CacheConfig#PRODUCT_ID_PAGES_CACHE}），商品内容按 id 单独缓存在详情和卡片缓存中，因此：
+ * <ul>
+ *   <li>商品的展示字段变化时只需删除该商品自己的详情和卡片缓存，列表页不受影响；</li>
+ *   <li>商品的上下架、价格、分类等会改变"哪些商品出现在哪一页"的变更，再删除新旧分类和不限分类的列表页。
+ *       列表页在生成时按分类筛选条件登记到分类标签 c:{categoryId} / c:all（Redis Set，成员为缓存键）。</li>
+ * </ul>
+ * 这样修改一个商品只会删除它自己的缓存和真正受影响的列表页，而不是整个列表缓存。
+ */
+@Slf4j
+@Component
+public class ProductCacheTags {
+
+    private static final String TAG_PREFIX = "cache:tag:";
+    private static final String ALL_CATEGORIES = "all";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheManager cacheManager;
+    private final ResourceVersions resourceVersions;
+    private final Duration tagTtl;
+
+    public ProductCacheTags(StringRedisTemplate redisTemplate, CacheManager cacheManager, ResourceVersions resourceVersions,
+                            @Value("${app.cache.tags.ttl:2h}") Duration tagTtl) {
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+        this.resourceVersions = resourceVersions;
+        this.tagTtl = tagTtl;
+    }
+
+    /**
+     * 列表页的缓存键，在 @Cacheable 的 key 表达式中使用，保证失效时能拿到同一个键。
+     */
+    public static String pageKey(Object... params) {
+        StringJoiner joiner = new StringJoiner("|", "page:", "");
+        for (Object param : params) {
+            joiner.add(param == null ? "" : param instanceof BigDecimal ? ((BigDecimal) param).toPlainString() : param.toString());
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 商品详情的缓存键，与 getProductById 的 @Cacheable key 一致。
+     */
+    public static String detailKey(Long productId) {
+        return "product_" + productId;
+    }
+
+    /**
+     * 商品卡片的缓存键。
+     */
+    public static String cardKey(Long productId) {
+        return "card_" + productId;
+    }
+
+    /**
+     * 登记列表页的分类筛选条件。登记失败只记录日志：最坏情况下该页要等到 TTL 过期才会刷新。
+     */
+    public void tagPage(String cacheName, String pageKey, Integer categoryId) {
+        String tag = categoryTag(cacheName, categoryId == null ? ALL_CATEGORIES : categoryId.toString());
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] tagKey = tag.getBytes(StandardCharsets.UTF_8);
+                connection.setCommands().sAdd(tagKey, pageKey.getBytes(StandardCharsets.UTF_8));
+                connection.keyCommands().expire(tagKey, tagTtl.getSeconds());
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("登记商品缓存标签失败: cache={}, key={}, error={}", cacheName, pageKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 新增商品：只影响其所在分类和不限分类的列表页。
+     */
+    public void onProductCreated(ProductDocument created) {
+        evict(created.getProductId(), categoriesOf(null, created), true);
+    }
+
+    /**
+     * 修改商品：总是删除详情和卡片；只有影响列表成员或排序的字段变化时才删除分类列表页。
+     */
+    public void onProductUpdated(ProductDocument before, ProductDocument after) {
+        evict(after.getProductId(), categoriesOf(before, after), affectsListing(before, after));
+    }
+
+    /**
+     * 删除商品：后面的商品会前移，因此同样删除分类列表页。
+     */
+    public void onProductDeleted(ProductDocument deleted) {
+        evict(deleted.getProductId(), categoriesOf(null, deleted), true);
+    }
+
+    /**
+     * 下单、取消订单改变了库存和销量：只删除这些商品的详情和卡片，列表页的销量排序等到 TTL 过期再刷新。
+     */
+    public void onStockChanged(Collection<Long> productIds) {
+        for (Long productId : new LinkedHashSet<>(productIds)) {
+            evictEntries(productId);
+        }
+    }
+
+    /**
+     * 其他节点的商品变更已应用到本节点的搜索索引：再删除一次相关分类的列表页，
+     * 清掉本节点在收到通知之前用旧索引生成并写回 Redis 的列表页。
+     */
+    public void onRemoteIndexChanged(Collection<Long> categoryIds) {
+        Set<String> categories = new LinkedHashSet<>();
+        categories.add(ALL_CATEGORIES);
+        for (Long categoryId : categoryIds) {
+            categories.add(categoryId.toString());
+        }
+        evictPages(categories);
+    }
+
+    private void evictEntries(Long productId) {
+        evictEntry(CacheConfig.PRODUCT_DETAIL_CACHE, detailKey(productId));
+        evictEntry(CacheConfig.PRODUCT_CARD_CACHE, cardKey(productId));
+        // 先删缓存再增加版本号，见 ResourceVersions
+        resourceVersions.bump(ResourceVersions.product(productId));
+    }
+
+    private void evict(Long productId, Set<String> categories, boolean listingChanged) {
+        evictEntries(productId);
+        if (listingChanged) {
+            evictPages(categories);
+        }
+    }
+
+    private void evictPages(Set<String> categories) {
+        Cache pages = cacheManager.getCache(CacheConfig.PRODUCT_ID_PAGES_CACHE);
+        if (pages == null) {
+            return;
+        }
+        List<String> tags = new ArrayList<>(categories.size());
+        for (String category : categories) {
+            tags.add(categoryTag(CacheConfig.PRODUCT_ID_PAGES_CACHE, category));
+        }
+        try {
+            Set<String> pageKeys = new LinkedHashSet<>();
+            for (String tag : tags) {
+                Set<String> members = redisTemplate.opsForSet().members(tag);
+                if (members != null) {
+                    pageKeys.addAll(members);
+                }
+            }
+            pageKeys.forEach(pages::evict);
+            redisTemplate.delete(tags);
+            log.debug("定向失效商品列表缓存: 分类={}, 删除列表页={}", categories, pageKeys.size());
+        } catch (Exception e) {
+            // 读不到标签时无法确定受影响的页，退回到清空整个缓存区域
+            log.warn("读取商品缓存标签失败，清空缓存 {}: {}", CacheConfig.PRODUCT_ID_PAGES_CACHE, e.getMessage());
+            pages.clear();
+        }
+    }
+
+    private void evictEntry(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private static Set<String> categoriesOf(ProductDocument before, ProductDocument after) {
+        Set<String> categories = new LinkedHashSet<>();
+        categories.add(ALL_CATEGORIES);
+        if (before != null && before.getCategoryId() != null) {
+            categories.add(before.getCategoryId().toString());
+        }
+        if (after.getCategoryId() != null) {
+            categories.add(after.getCategoryId().toString());
+        }
+        return categories;
+    }
+
+    /**
+     * 是否改变了商品能被哪些列表筛选到或在列表中的位置（关键词、分类、品牌、价格、上下架、推荐）。
+     */
+    static boolean affectsListing(ProductDocument before, ProductDocument after) {
+        return !Objects.equals(before.getName(), after.getName())
+                || !Objects.equals(before.getDescription(), after.getDescription())
+                || !Objects.equals(before.getBrandId(), after.getBrandId())
+                || !Objects.equals(before.getCategoryId(), after.getCategoryId())
+                || !Objects.equals(before.getStatus(), after.getStatus())
+                || !Objects.equals(before.getFeatured(), after.getFeatured())
+                || !Objects.equals(before.getSales(), after.getSales())
+                || !samePrice(before.getPrice(), after.getPrice());
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static String categoryTag(String cacheName, String category) {
+        return TAG_PREFIX + cacheName + ":c:" + category;
+    }
+}
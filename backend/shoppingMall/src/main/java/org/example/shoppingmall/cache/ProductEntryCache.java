@@ -0,0 +1,147 @@
+package org.example.shoppingmall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 按商品 id 批量读写单条商品缓存（商品详情、商品卡片）
+ * <p>
+ * 一次 MGET 取回整页商品，未命中的由调用方批量查库后用一次管道写回。
+ * 读写的就是 @Cacheable 使用的同一批 Redis 键，键前缀、序列化器和过期时间都取自 RedisCacheManager 中该缓存的配置，
+ * 因此与 getProductById 等方法的缓存互通，删除时照常通过 Cache#evict。
+ * 策略设置了 maxKeys 的缓存，批量写入时在同一个管道里把键登记到 {@link PolicyEnforcingCache} 的键集合，超出上限后淘汰最早写入的键。
+ * Redis 不可用时读取返回空结果、写入直接跳过，调用方退化为查库。
+ */
+@Slf4j
+@Component
+public class ProductEntryCache {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisCacheManager redisCacheManager;
+    private final CachePolicyRegistry cachePolicyRegistry;
+
+    public ProductEntryCache(StringRedisTemplate redisTemplate,
+                             @Qualifier("redisCacheManager") RedisCacheManager redisCacheManager,
+                             CachePolicyRegistry cachePolicyRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.redisCacheManager = redisCacheManager;
+        this.cachePolicyRegistry = cachePolicyRegistry;
+    }
+
+    /**
+     * 批量读取，返回命中的 id 到值的映射。
+     *
+     * @param keyOf 商品 id 到缓存键的映射，与 @Cacheable 的 key 表达式一致
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<Long, T> multiGet(String cacheName, List<Long> ids, Function<Long, String> keyOf) {
+        Map<Long, T> hits = new HashMap<>();
+        RedisCacheConfiguration config = configuration(cacheName);
+        if (ids.isEmpty() || config == null) {
+            return hits;
+        }
+        byte[][] keys = new byte[ids.size()][];
+        for (int i = 0; i < ids.size(); i++) {
+            keys[i] = redisKey(config, cacheName, keyOf.apply(ids.get(i)));
+        }
+        List<byte[]> values;
+        try {
+            values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+        } catch (Exception e) {
+            log.warn("批量读取缓存 {} 失败，改为查库: {}", cacheName, e.getMessage());
+            return hits;
+        }
+        if (values == null) {
+            return hits;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            byte[] bytes = values.get(i);
+            if (bytes == null) {
+                continue;
+            }
+            try {
+                Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(bytes));
+                if (value != null) {
+                    hits.put(ids.get(i), (T) value);
+                }
+            } catch (Exception e) {
+                // 单条数据无法解析时当作未命中，稍后会被重新写入
+                log.debug("缓存 {} 中的商品 {} 解析失败: {}", cacheName, ids.get(i), e.getMessage());
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 用一次管道批量写入，过期时间按该缓存配置的 TTL 计算（含随机抖动）。
+     * 有键数量上限时同一管道内 ZADD 登记全部键并取回键集合大小，超限部分随后淘汰。
+     */
+    public <T> void multiPut(String cacheName, Map<Long, T> values, Function<Long, String> keyOf) {
+        RedisCacheConfiguration config = configuration(cacheName);
+        if (values.isEmpty() || config == null) {
+            return;
+        }
+        CachePolicy policy = cachePolicyRegistry.policyFor(cacheName);
+        byte[] keysKey = PolicyEnforcingCache.keysKey(cacheName).getBytes(StandardCharsets.UTF_8);
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                double now = System.currentTimeMillis();
+                Set<Tuple> tracked = new HashSet<>();
+                values.forEach((id, value) -> {
+                    String key = keyOf.apply(id);
+                    ByteBuffer buffer = config.getValueSerializationPair().write(value);
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+                    Expiration expiration = ttl == null || ttl.isZero() || ttl.isNegative()
+                            ? Expiration.persistent() : Expiration.from(ttl);
+                    connection.stringCommands().set(redisKey(config, cacheName, key), bytes, expiration,
+                            RedisStringCommands.SetOption.upsert());
+                    tracked.add(new DefaultTuple(key.getBytes(StandardCharsets.UTF_8), now));
+                });
+                if (policy.isKeyLimited()) {
+                    connection.zSetCommands().zAdd(keysKey, tracked);
+                    connection.keyCommands().expire(keysKey, policy.getTtl().multipliedBy(2).toSeconds());
+                    connection.zSetCommands().zCard(keysKey);
+                }
+                return null;
+            });
+            if (policy.isKeyLimited() && results.get(results.size() - 1) instanceof Long size
+                    && size > policy.getMaxKeys()) {
+                PolicyEnforcingCache.evictOldest(redisTemplate, cacheName, size - policy.getMaxKeys());
+            }
+        } catch (Exception e) {
+            log.warn("批量写入缓存 {} 失败: {}", cacheName, e.getMessage());
+        }
+    }
+
+    private RedisCacheConfiguration configuration(String cacheName) {
+        Cache cache = redisCacheManager.getCache(cacheName);
+        return cache instanceof RedisCache redisCache ? redisCache.getCacheConfiguration() : null;
+    }
+
+    private static byte[] redisKey(RedisCacheConfiguration config, String cacheName, String key) {
+        return (config.getKeyPrefixFor(cacheName) + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.shoppingmall.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商品ID布隆过滤器：按 id 查询商品前先判断 id 是否可能存在，不存在的直接返回"商品不存在"，
+ * 随机 id 的扫描请求不会再穿透到缓存和数据库。
+ * <p>
+ * <ul>
+ *   <li>启动后在后台线程按主键分批读取全部商品ID构建，完成前一律放行；</li>
+ *   <li>构建开始前记录当时最大的商品ID，大于它的 id 一律放行：商品ID自增，任何节点在构建之后新增的商品都不会被误拒，
+ *       不依赖节点间通知；本节点新增的商品在事务提交后也会加入过滤器；</li>
+ *   <li>布隆过滤器不支持删除，已删除的商品在下次定时重建（app.product.id-filter.rebuild-interval）时才会移出，
+ *       在此之前只是多放行一次查库，不影响正确性；</li>
+ *   <li>重建期间新增的商品同时写入新旧两个过滤器，切换时不会丢失。</li>
+ * </ul>
+ * 指标：product.id_filter.checks{result=rejected|false_positive}（false_positive 为放行后查库发现不存在，
+ * 实际误判率即 false_positive / (false_positive + rejected)），product.id_filter.expected_fpp（按位数组填充率估算的误判率）。
+ */
+@Slf4j
+@Component
+public class ProductIdFilter {
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+    private final double fpp;
+    private final long minCapacity;
+    private final int loadBatchSize;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private volatile Snapshot filter;              // null 表示尚未完成首次构建
+    private volatile ScalableBloomFilter building; // 重建中的新过滤器
+
+    private final Counter rejected;
+    private final Counter falsePositives;
+
+    public ProductIdFilter(ProductRepository productRepository, MeterRegistry meterRegistry,
+                           @Value("${app.product.id-filter.enabled:true}") boolean enabled,
+                           @Value("${app.product.id-filter.fpp:0.001}") double fpp,
+                           @Value("${app.product.id-filter.min-capacity:100000}") long minCapacity,
+                           @Value("${app.product.id-filter.load-batch-size:10000}") int loadBatchSize) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+        this.fpp = fpp;
+        this.minCapacity = minCapacity;
+        this.loadBatchSize = loadBatchSize;
+        this.rejected = counter(meterRegistry, "rejected");
+        this.falsePositives = counter(meterRegistry, "false_positive");
+        Gauge.builder("product.id_filter.expected_fpp", this, f -> f.filter == null ? 0 : f.filter.bloom().expectedFpp())
+                .description("Estimated false-positive rate of the product id Bloom filter")
+                .register(meterRegistry);
+        Gauge.builder("product.id_filter.size", this, f -> f.filter == null ? 0 : f.filter.bloom().size())
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("product.id_filter.checks")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * id 是否可能存在。返回 false 时该商品一定不存在；过滤器未就绪或未启用、id 大于构建时的最大ID时总是返回 true。
+     * 只做判断不计数，以便同一请求中多处调用（如 @Cacheable 的 condition 和方法体）。
+     */
+    public boolean mightExist(Long productId) {
+        Snapshot current = filter;
+        return !enabled || current == null || productId == null
+                || productId > current.maxId() || current.bloom().mightContain(productId);
+    }
+
+    /**
+     * 记录一次被过滤器拒绝的查询。
+     */
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * 过滤器放行但数据库中查不到，用于统计实际误判次数。
+     */
+    public void recordFalsePositive(Long productId) {
+        if (enabled && filter != null) {
+            falsePositives.increment();
+            log.debug("商品ID过滤器误判: productId={}", productId);
+        }
+    }
+
+    /**
+     * 新增商品，应在事务提交后调用。
+     * 其他节点不需要通知：新商品的 id 大于它们构建时记录的最大ID，本来就会放行。
+     * 这里加入本节点的过滤器，是为了覆盖事务晚于构建开始才提交、id 却不大于最大ID的商品。
+     */
+    public void onProductCreated(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        Snapshot current = filter;
+        if (current != null) {
+            current.bloom().add(productId);
+        }
+        ScalableBloomFilter next = building;
+        if (next != null) {
+            next.add(productId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("商品ID过滤器未启用");
+            return;
+        }
+        Thread loader = new Thread(this::rebuild, "product-id-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 从数据库全量重建，移出已删除的商品。容量按当前商品数的两倍起步，之后的新增超出容量时自动扩容。
+     */
+    @Scheduled(initialDelayString = "${app.product.id-filter.rebuild-interval:PT1H}",
+            fixedDelayString = "${app.product.id-filter.rebuild-interval:PT1H}")
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            ScalableBloomFilter next = new ScalableBloomFilter(Math.max(minCapacity, productRepository.count() * 2), fpp);
+            // 先记录最大ID再扫描：扫描会读到它之前的全部商品，之后新增的商品 id 更大，由 mightExist 直接放行
+            long maxId = productRepository.findMaxId();
+            // 先发布 building 再扫描：本节点在扫描期间提交的商品经 onProductCreated 写入 next
+            building = next;
+            long afterId = 0L;
+            while (true) {
+                List<Long> ids = productRepository.findIdsAfter(afterId, PageRequest.of(0, loadBatchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                ids.forEach(next::add);
+                afterId = ids.get(ids.size() - 1);
+            }
+            filter = new Snapshot(next, maxId);
+            log.info("商品ID过滤器构建完成: 商品数={}, 最大ID={}, 分级数={}, 估算误判率={}, 耗时={}ms",
+                    next.size(), maxId, next.stageCount(), String.format("%.5f", next.expectedFpp()), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("商品ID过滤器构建失败，继续使用旧的过滤器", e);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 过滤器及构建时记录的最大商品ID，两者一起切换
+     */
+    private record Snapshot(ScalableBloomFilter bloom, long maxId) {
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.shoppingmall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.config.CacheConfig;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 目录类接口的版本号与 ETag（条件 GET）
+ * <p>
+ * 每个资源在 Redis 中有一个只增不减的版本号 etag:ver:{资源}，资源内容每次变化时加一；
+ * ETag 由版本号和全局纪元 etag:epoch 组成，计算时不需要读取或序列化响应体。
+ * 纪元在首次使用时写入当前时间，Redis 数据被清空后纪元随之改变，旧 ETag 不会与归零后的版本号碰撞。
+ * <p>
+ * 顺序约定：写入方先删除缓存、再增加版本号；读取方先取版本号、再取响应体。
+ * 因此看到新版本号的请求从 Redis 或数据库读到的一定是新内容。
+ * 本地 L1 的删除靠跨节点通知，可能晚到或丢失，所以 {@link TwoLevelCache} 在每个 L1 条目上记录写入时本次请求读到的版本号，
+ * 条目版本低于当前请求读到的版本号时当作未命中，改从 Redis 读取；同一个 ETag 因此不会对应两份不同的响应体。
+ * Redis 不可用时不返回 ETag，请求照常处理。
+ */
+@Slf4j
+@Component
+public class ResourceVersions {
+
+    public static final String CATEGORIES = "categories";
+    public static final String BANNERS = "banners";
+
+    private static final String KEY_PREFIX = "etag:ver:";
+    private static final String DETAIL_KEY_PREFIX = "product_"; // 与 ProductCacheTags#detailKey 一致
+    private static final String EPOCH_KEY = "etag:epoch";
+    private static final String OBSERVED_ATTRIBUTE = ResourceVersions.class.getName() + ".observed";
+
+    private final StringRedisTemplate redisTemplate;
+
+    public ResourceVersions(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public static String product(Long productId) {
+        return "product:" + productId;
+    }
+
+    /**
+     * 写入资源的 ETag 响应头；请求的 If-None-Match 与之匹配时把响应置为 304 并返回 true，
+     * 此时 Controller 应直接返回 null，不再调用 Service。
+     */
+    public boolean checkNotModified(WebRequest request, String resource) {
+        String etag = etag(resource);
+        return etag != null && request.checkNotModified(etag);
+    }
+
+    /**
+     * 资源当前的强 ETag，Redis 不可用时返回 null。
+     */
+    public String etag(String resource) {
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(List.of(EPOCH_KEY, KEY_PREFIX + resource));
+            String epoch = values == null ? null : values.get(0);
+            if (epoch == null) {
+                redisTemplate.opsForValue().setIfAbsent(EPOCH_KEY, Long.toString(System.currentTimeMillis(), 36));
+                epoch = redisTemplate.opsForValue().get(EPOCH_KEY);
+            }
+            String version = values == null || values.get(1) == null ? "0" : values.get(1);
+            recordObserved(resource, Long.parseLong(version));
+            return "\"" + resource.replace(':', '-') + "-" + epoch + "." + version + "\"";
+        } catch (Exception e) {
+            log.warn("读取资源版本失败，本次不返回 ETag: resource={}, error={}", resource, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 当前请求计算 ETag 时读到的资源版本号；不在 Web 请求中或本次请求没有读取该资源时返回 null。
+     */
+    static Long observedVersion(String resource) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object observed = attributes.getAttribute(OBSERVED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return observed instanceof Map<?, ?> versions ? (Long) versions.get(resource) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void recordObserved(String resource, long version) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        Map<String, Long> versions = (Map<String, Long>) attributes.getAttribute(OBSERVED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (versions == null) {
+            versions = new HashMap<>();
+            attributes.setAttribute(OBSERVED_ATTRIBUTE, versions, RequestAttributes.SCOPE_REQUEST);
+        }
+        versions.put(resource, version);
+    }
+
+    /**
+     * 缓存条目对应的资源，{@link TwoLevelCache} 据此检查 L1 条目的版本；与 ETag 无关的缓存返回 null。
+     */
+    static String resourceOf(String cacheName, String localKey) {
+        return switch (cacheName) {
+            case CacheConfig.PRODUCT_DETAIL_CACHE -> localKey.startsWith(DETAIL_KEY_PREFIX)
+                    ? "product:" + localKey.substring(DETAIL_KEY_PREFIX.length()) : null;
+            case CacheConfig.CATEGORIES_CACHE -> CATEGORIES;
+            case CacheConfig.BANNER_CACHE -> BANNERS;
+            default -> null;
+        };
+    }
+
+    /**
+     * 增加资源版本号，调用前应已删除该资源的缓存。
+     */
+    public void bump(String resource) {
+        try {
+            redisTemplate.opsForValue().increment(KEY_PREFIX + resource);
+        } catch (Exception e) {
+            // 版本号没变时客户端会继续收到 304，直到下次变更
+            log.error("增加资源版本失败: resource={}, error={}", resource, e.getMessage());
+        }
+    }
+
+    /**
+     * 在当前事务提交并且所有 afterCommit 回调（包括 @CacheEvict 的延迟删除）执行完之后再增加版本号；
+     * 没有事务时立即增加。
+     */
+    public void bumpAfterCommit(String resource) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(resource);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    bump(resource);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.shoppingmall.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 可扩容的布隆过滤器（Almeida 等人的 Scalable Bloom Filter），元素为 long
+ * <p>
+ * 由若干级普通布隆过滤器组成：当前一级插满容量后追加新的一级，容量按 {@link #GROWTH} 倍增长、
+ * 误判率按 {@link #TIGHTENING} 倍收紧，使总误判率不超过 fpp / (1 - TIGHTENING)，即初始误判率的两倍左右。
+ * 查询任一级命中即认为可能存在。
+ * <p>
+ * 写入加锁，查询不加锁：位数组用 AtomicLongArray 保存，读线程总能看到已完成的写入。不支持删除。
+ */
+class ScalableBloomFilter {
+
+    static final int GROWTH = 2;
+    static final double TIGHTENING = 0.5;
+
+    private final double fpp;
+    private volatile Stage[] stages;
+    private long size;
+
+    ScalableBloomFilter(long initialCapacity, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp must be in (0, 1): " + fpp);
+        }
+        this.fpp = fpp;
+        this.stages = new Stage[]{new Stage(Math.max(initialCapacity, 64), fpp)};
+    }
+
+    boolean mightContain(long value) {
+        long hash = mix(value);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void add(long value) {
+        long hash = mix(value);
+        Stage[] current = stages;
+        for (Stage stage : current) {
+            if (stage.mightContain(hash)) {
+                return;
+            }
+        }
+        Stage last = current[current.length - 1];
+        if (last.count >= last.capacity) {
+            last = new Stage(last.capacity * GROWTH, last.fpp * TIGHTENING);
+            Stage[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = last;
+            stages = grown;
+        }
+        last.add(hash);
+        size++;
+    }
+
+    /**
+     * 已插入的元素个数（重复插入和被判为已存在的不计）。
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    int stageCount() {
+        return stages.length;
+    }
+
+    /**
+     * 按各级位数组的实际填充率估算当前的误判率：1 - Π(1 - fill_i^k_i)。
+     */
+    double expectedFpp() {
+        double pass = 1.0;
+        for (Stage stage : stages) {
+            pass *= 1.0 - Math.pow((double) stage.setBits / stage.numBits, stage.numHashes);
+        }
+        return 1.0 - pass;
+    }
+
+    double targetFpp() {
+        return fpp;
+    }
+
+    // MurmurHash3 的 fmix64，使连续的自增 ID 均匀分布
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Stage {
+        final long capacity;
+        final double fpp;
+        final long numBits;
+        final int numHashes;
+        final AtomicLongArray bits;
+        volatile long setBits;
+        long count;
+
+        Stage(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            // m = -n·ln(p) / (ln2)^2，k = m/n·ln2
+            long m = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.numBits = Math.max(64, (m + 63) / 64 * 64);
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray((int) (numBits / 64));
+        }
+
+        // 双重哈希：第 i 个位置为 h1 + i·h2（Kirsch-Mitzenmacher）
+        boolean mightContain(long hash) {
+            long h1 = hash;
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, numBits);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash) {
+            long h1 = hash;
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            long newlySet = 0;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, numBits);
+                long mask = 1L << bit;
+                long previous = bits.getAndAccumulate((int) (bit >>> 6), mask, (a, b) -> a | b);
+                if ((previous & mask) == 0) {
+                    newlySet++;
+                }
+            }
+            setBits += newlySet;
+            count++;
+        }
+    }
+}
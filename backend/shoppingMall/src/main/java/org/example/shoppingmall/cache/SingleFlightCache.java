@@ -0,0 +1,186 @@
+package org.example.shoppingmall.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 未命中合并加载的缓存装饰器
+ * <p>
+ * 用于 @Cacheable(sync = true)：同一个键同时未命中时，本节点只有一个线程（leader）执行加载，其余线程等待它的结果；
+ * leader 加载前再用 {@link CacheLoadLock} 抢跨节点短锁，没抢到的节点轮询缓存等待持锁节点写入，
+ * 这样热点条目过期时每个键只会落一次数据库查询。Redis 不可用时退化为本节点内合并。
+ * 其他读写操作直接委托给被包装的缓存。
+ */
+@Slf4j
+public class SingleFlightCache implements Cache {
+
+    private final Cache delegate;
+    private final CacheLoadLock loadLock;
+    private final SingleFlightProperties properties;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaderLoads;
+    private final Counter coalesced;
+    private final Counter remoteFills;
+    private final Counter lockTimeouts;
+
+    public SingleFlightCache(Cache delegate, CacheLoadLock loadLock, SingleFlightProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.loadLock = loadLock;
+        this.properties = properties;
+        String name = delegate.getName();
+        this.leaderLoads = counter(meterRegistry, name, "load");
+        this.coalesced = counter(meterRegistry, name, "coalesced");
+        this.remoteFills = counter(meterRegistry, name, "remote_fill");
+        this.lockTimeouts = counter(meterRegistry, name, "lock_timeout");
+    }
+
+    private static Counter counter(MeterRegistry registry, String cacheName, String result) {
+        return Counter.builder("cache.single_flight")
+                .description("未命中合并加载的次数：load=本节点实际加载，coalesced=等待本节点其他线程，"
+                        + "remote_fill=等到其他节点写入，lock_timeout=等锁超时后自行加载")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        String flightKey = TwoLevelCache.localKey(key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+        try {
+            Object value = loadAcrossNodes(key, flightKey, valueLoader);
+            flight.complete(value);
+            return (T) value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            if (e instanceof ValueRetrievalException retrievalException) {
+                throw retrievalException;
+            }
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private Object loadAcrossNodes(Object key, String flightKey, Callable<?> valueLoader) throws Exception {
+        String token;
+        try {
+            token = loadLock.tryLock(getName(), flightKey, properties.getLockTtl());
+        } catch (Exception e) {
+            log.warn("获取缓存加载锁失败，仅在本节点内合并加载: cache={}, key={}, error={}", getName(), flightKey, e.getMessage());
+            return load(key, valueLoader);
+        }
+        if (token != null) {
+            try {
+                // 抢到锁之前，上一个持锁节点可能刚好写完
+                ValueWrapper cached = delegate.get(key);
+                return cached != null ? cached.get() : load(key, valueLoader);
+            } finally {
+                try {
+                    loadLock.unlock(getName(), flightKey, token);
+                } catch (Exception e) {
+                    log.warn("释放缓存加载锁失败，等待其自动过期: cache={}, key={}, error={}", getName(), flightKey, e.getMessage());
+                }
+            }
+        }
+        long deadline = System.nanoTime() + properties.getLockWait().toNanos();
+        long pollMillis = Math.max(1, properties.getPollInterval().toMillis());
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+            ValueWrapper cached = delegate.get(key);
+            if (cached != null) {
+                remoteFills.increment();
+                return cached.get();
+            }
+        }
+        lockTimeouts.increment();
+        log.debug("等待其他节点加载缓存超时，自行加载: cache={}, key={}", getName(), flightKey);
+        return load(key, valueLoader);
+    }
+
+    private Object load(Object key, Callable<?> valueLoader) throws Exception {
+        leaderLoads.increment();
+        Object value = valueLoader.call();
+        delegate.put(key, value);
+        return value;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+}
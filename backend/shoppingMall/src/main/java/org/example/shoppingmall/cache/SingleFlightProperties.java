@@ -0,0 +1,35 @@
+package org.example.shoppingmall.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 缓存未命中合并加载 (single-flight) 配置，前缀 app.cache.single-flight
+ * <p>
+ * 只对 caches 中列出、且 @Cacheable 开启了 sync = true 的方法生效。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.single-flight")
+public class SingleFlightProperties {
+
+    /** 总开关，关闭后未命中时各线程各自加载 */
+    private boolean enabled = true;
+
+    /** 启用合并加载的缓存区域 */
+    private Set<String> caches = new LinkedHashSet<>();
+
+    /** 跨节点加载锁的过期时间，应大于一次加载的最长耗时，持锁节点宕机时由它兜底释放 */
+    private Duration lockTtl = Duration.ofSeconds(5);
+
+    /** 未抢到加载锁的节点等待其他节点写入缓存的最长时间，超时后自行加载 */
+    private Duration lockWait = Duration.ofSeconds(3);
+
+    /** 等待期间轮询缓存的间隔 */
+    private Duration pollInterval = Duration.ofMillis(50);
+}
@@ -0,0 +1,204 @@
+package org.example.shoppingmall.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 软过期 (stale-while-revalidate) 缓存装饰器
+ * <p>
+ * 用于 @Cacheable(sync = true)：命中的条目若已进入过期前的最后 staleWindow，仍立即返回旧值，
+ * 同时提交一个后台任务用同一个加载方法重新加载并写回缓存，热点条目因此不会在过期瞬间让请求集体等待数据库。
+ * 每个键同一时刻只有一个刷新任务：本节点用 refreshing 去重，跨节点用 {@link CacheLoadLock} 的短锁，没抢到锁的节点直接跳过。
+ * <p>
+ * 条目剩余寿命通过 Redis PTTL 获取，本节点按键记住算出的软过期时刻，未到期前的命中不再访问 Redis。
+ * 缓存键按 RedisCacheManager 默认的 "缓存名::键" 格式拼接。
+ */
+@Slf4j
+public class StaleWhileRevalidateCache implements Cache {
+
+    private final Cache delegate;
+    private final CacheExpiryProperties.Policy policy;
+    private final StringRedisTemplate redisTemplate;
+    private final CacheLoadLock loadLock;
+    private final Executor refreshExecutor;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Long> softDeadlines;
+    private final Map<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    private final Counter staleHits;
+    private final Counter refreshes;
+    private final Counter refreshFailures;
+
+    public StaleWhileRevalidateCache(Cache delegate, CacheExpiryProperties.Policy policy, StringRedisTemplate redisTemplate,
+                                     CacheLoadLock loadLock, Executor refreshExecutor, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.redisTemplate = redisTemplate;
+        this.loadLock = loadLock;
+        this.refreshExecutor = refreshExecutor;
+        // 记录的软过期时刻只是本地推算，定期丢弃后重新读取 PTTL，以跟上其他节点的写入
+        this.softDeadlines = Caffeine.newBuilder()
+                .maximumSize(50_000)
+                .expireAfterWrite(policy.getStaleWindow())
+                .build();
+        String name = delegate.getName();
+        this.staleHits = counter(meterRegistry, name, "stale_hit");
+        this.refreshes = counter(meterRegistry, name, "refresh");
+        this.refreshFailures = counter(meterRegistry, name, "refresh_failed");
+    }
+
+    private static Counter counter(MeterRegistry registry, String cacheName, String result) {
+        return Counter.builder("cache.stale_while_revalidate")
+                .description("软过期缓存的统计：stale_hit=返回旧值的次数，refresh=后台刷新成功，refresh_failed=后台刷新失败")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached == null) {
+            return delegate.get(key, valueLoader);
+        }
+        String localKey = TwoLevelCache.localKey(key);
+        if (isStale(localKey)) {
+            staleHits.increment();
+            scheduleRefresh(key, localKey, valueLoader);
+        }
+        return (T) cached.get();
+    }
+
+    private boolean isStale(String localKey) {
+        long now = System.currentTimeMillis();
+        Long deadline = softDeadlines.getIfPresent(localKey);
+        if (deadline != null && now < deadline) {
+            return false;
+        }
+        // 本地没有记录或已到期：以 Redis 中的剩余寿命为准（条目可能已被其他节点刷新过）
+        Long remaining;
+        try {
+            remaining = redisTemplate.getExpire(redisKey(localKey), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.debug("读取缓存剩余寿命失败，按未过期处理: cache={}, key={}, error={}", getName(), localKey, e.getMessage());
+            return false;
+        }
+        if (remaining == null || remaining < 0) {
+            // -1 表示没有过期时间，-2 表示 Redis 中已不存在（本地 L1 仍有副本），都不触发刷新
+            return false;
+        }
+        deadline = now + remaining - policy.getStaleWindow().toMillis();
+        softDeadlines.put(localKey, deadline);
+        return now >= deadline;
+    }
+
+    private void scheduleRefresh(Object key, String localKey, Callable<?> valueLoader) {
+        if (refreshing.putIfAbsent(localKey, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(key, localKey, valueLoader));
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(localKey);
+            log.debug("缓存刷新队列已满，继续返回旧值: cache={}, key={}", getName(), localKey);
+        }
+    }
+
+    private void refresh(Object key, String localKey, Callable<?> valueLoader) {
+        String token = null;
+        try {
+            token = loadLock.tryLock(getName(), "refresh:" + localKey, policy.getStaleWindow());
+            if (token == null) {
+                // 其他节点正在刷新
+                return;
+            }
+            Object value = valueLoader.call();
+            delegate.put(key, value);
+            softDeadlines.invalidate(localKey);
+            refreshes.increment();
+            log.debug("缓存后台刷新完成: cache={}, key={}", getName(), localKey);
+        } catch (Exception e) {
+            refreshFailures.increment();
+            log.warn("缓存后台刷新失败，旧值将在硬过期前继续使用: cache={}, key={}, error={}", getName(), localKey, e.getMessage());
+        } finally {
+            if (token != null) {
+                try {
+                    loadLock.unlock(getName(), "refresh:" + localKey, token);
+                } catch (Exception e) {
+                    log.debug("释放缓存刷新锁失败: cache={}, key={}, error={}", getName(), localKey, e.getMessage());
+                }
+            }
+            refreshing.remove(localKey);
+        }
+    }
+
+    private String redisKey(String localKey) {
+        return getName() + "::" + localKey;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+        softDeadlines.invalidate(TwoLevelCache.localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        softDeadlines.invalidate(TwoLevelCache.localKey(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        softDeadlines.invalidate(TwoLevelCache.localKey(key));
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        softDeadlines.invalidateAll();
+    }
+
+    @Override
+    public boolean invalidate() {
+        softDeadlines.invalidateAll();
+        return delegate.invalidate();
+    }
+}
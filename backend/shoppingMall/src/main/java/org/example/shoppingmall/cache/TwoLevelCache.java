@@ -0,0 +1,157 @@
+package org.example.shoppingmall.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 两级缓存：进程内 Caffeine (L1) + Redis (L2)
+ * <p>
+ * 读：先查 L1，未命中再查 L2，L2 命中的值回填 L1；写/删：先写 L2 再更新本地 L1，并广播失效通知让其他节点删除各自的 L1 副本。
+ * L1 中保存的是反序列化后的对象本身，调用方应把缓存返回值当作只读对象使用。
+ * <p>
+ * 带 ETag 的资源（见 {@link ResourceVersions#resourceOf}），L1 条目同时记录写入时本次请求读到的资源版本号；
+ * 当前请求读到的版本号更高时，说明失效通知还没到达本节点，该条目当作未命中，从 Redis 重新读取。
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private static final long UNKNOWN_VERSION = -1L;
+
+    private final String name;
+    private final org.springframework.cache.Cache remote;
+    private final Cache<String, Object> local;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+
+    public TwoLevelCache(String name, org.springframework.cache.Cache remote, Cache<String, Object> local,
+                         boolean allowNullValues, CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        super(allowNullValues);
+        this.name = name;
+        this.remote = remote;
+        this.local = local;
+        this.invalidationBus = invalidationBus;
+        this.l1Hits = counter(meterRegistry, name, "l1_hit");
+        this.l2Hits = counter(meterRegistry, name, "l2_hit");
+        this.misses = counter(meterRegistry, name, "miss");
+    }
+
+    private static Counter counter(MeterRegistry registry, String cacheName, String result) {
+        return Counter.builder("cache.two_level.gets")
+                .description("两级缓存的读取次数，按命中层级区分")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Long requiredVersion = requiredVersion(localKey);
+        LocalEntry entry = (LocalEntry) local.getIfPresent(localKey);
+        if (entry != null && (requiredVersion == null || entry.version() >= requiredVersion)) {
+            l1Hits.increment();
+            return entry.value();
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        Object storeValue = toStoreValue(wrapper.get());
+        local.put(localKey, new LocalEntry(storeValue, requiredVersion == null ? UNKNOWN_VERSION : requiredVersion));
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null && !isAllowNullValues()) {
+            // 不缓存 null 的区域直接丢弃，与 PolicyEnforcingCache 的处理一致
+            return;
+        }
+        remote.put(key, value);
+        String localKey = localKey(key);
+        Long requiredVersion = requiredVersion(localKey);
+        local.put(localKey, new LocalEntry(toStoreValue(value), requiredVersion == null ? UNKNOWN_VERSION : requiredVersion));
+        invalidationBus.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        invalidationBus.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        invalidationBus.publishClear(name);
+    }
+
+    void evictLocal(String localKey) {
+        local.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        local.invalidateAll();
+    }
+
+    /**
+     * 本次请求读到的资源版本号，L1 条目不低于它才算命中；与 ETag 无关的缓存或请求返回 null。
+     * 读到版本号之后才从 Redis 或数据库加载的值至少是该版本，因此也用它标记新写入的条目。
+     */
+    private Long requiredVersion(String localKey) {
+        String resource = ResourceVersions.resourceOf(name, localKey);
+        return resource == null ? null : ResourceVersions.observedVersion(resource);
+    }
+
+    /**
+     * 本地缓存和失效通知都用键的字符串形式，保证各节点对同一个缓存键得到相同的结果
+     * （@Cacheable 的键是 Long、String 或 SpEL 列表，toString 都是确定的）。
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    /**
+     * L1 条目：缓存值及写入时的资源版本号（无版本时为 -1）
+     */
+    record LocalEntry(Object value, long version) {
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.shoppingmall.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.dto.PageResult;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在 Redis 缓存管理器前叠加本地 L1 缓存的 CacheManager
+ * <p>
+ * Redis 缓存先按 {@link CachePolicyRegistry} 中的策略包一层 {@link PolicyEnforcingCache}（null 结果、键数量上限），
+ * 配置了本地规格的缓存区域再返回 {@link TwoLevelCache}，其余缓存直接使用 Redis。
+ * 在 app.cache.single-flight.caches 中列出的缓存再包一层 {@link SingleFlightCache}，合并同一个键的并发未命中加载；
+ * 在 app.cache.expiry.caches 中列出的缓存最外层包 {@link StaleWhileRevalidateCache}，软过期后返回旧值并在后台刷新。
+ * 事务感知由本类统一处理（写/删在事务提交后执行），因此被包装的 Redis 缓存管理器不应再开启 transactionAware。
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager implements DisposableBean {
+
+    private final CacheManager remoteCacheManager;
+    private final LocalCacheProperties properties;
+    private final CacheInvalidationBus invalidationBus;
+    private final SingleFlightProperties singleFlightProperties;
+    private final CacheExpiryProperties expiryProperties;
+    private final CachePolicyRegistry policyRegistry;
+    private final StringRedisTemplate redisTemplate;
+    private final CacheLoadLock loadLock;
+    private final ThreadPoolExecutor refreshExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, LocalCacheProperties properties,
+                                CacheInvalidationBus invalidationBus, SingleFlightProperties singleFlightProperties,
+                                CacheExpiryProperties expiryProperties, CachePolicyRegistry policyRegistry,
+                                StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.properties = properties;
+        this.invalidationBus = invalidationBus;
+        this.singleFlightProperties = singleFlightProperties;
+        this.expiryProperties = expiryProperties;
+        this.policyRegistry = policyRegistry;
+        this.redisTemplate = redisTemplate;
+        this.loadLock = new CacheLoadLock(redisTemplate);
+        this.refreshExecutor = createRefreshExecutor(expiryProperties);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 软过期缓存的后台刷新线程池：有界队列，排满时拒绝提交，调用方继续返回旧值。
+     */
+    private static ThreadPoolExecutor createRefreshExecutor(CacheExpiryProperties expiryProperties) {
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, expiryProperties.getRefreshThreads());
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, expiryProperties.getRefreshQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdown();
+    }
+
+    @Override
+    protected Collection<? extends org.springframework.cache.Cache> loadCaches() {
+        List<org.springframework.cache.Cache> caches = new ArrayList<>();
+        for (String name : remoteCacheManager.getCacheNames()) {
+            org.springframework.cache.Cache cache = createCache(name);
+            if (cache != null) {
+                caches.add(cache);
+            }
+        }
+        return caches;
+    }
+
+    @Override
+    protected org.springframework.cache.Cache getMissingCache(String name) {
+        return createCache(name);
+    }
+
+    private org.springframework.cache.Cache createCache(String name) {
+        org.springframework.cache.Cache cache = createTieredCache(name);
+        if (cache == null) {
+            return null;
+        }
+        if (singleFlightProperties.isEnabled() && singleFlightProperties.getCaches().contains(name)) {
+            log.info("缓存 {} 启用未命中合并加载: lockTtl={}, lockWait={}", name,
+                    singleFlightProperties.getLockTtl(), singleFlightProperties.getLockWait());
+            cache = new SingleFlightCache(cache, loadLock, singleFlightProperties, meterRegistry);
+        }
+        CacheExpiryProperties.Policy policy = expiryProperties.getCaches().get(name);
+        if (policy != null) {
+            log.info("缓存 {} 启用软过期: softTtl={}, staleWindow={}, jitter={}", name,
+                    policy.getSoftTtl(), policy.getStaleWindow(), policy.getJitter());
+            cache = new StaleWhileRevalidateCache(cache, policy, redisTemplate, loadLock, refreshExecutor, meterRegistry);
+        }
+        return cache;
+    }
+
+    private org.springframework.cache.Cache createTieredCache(String name) {
+        org.springframework.cache.Cache redisCache = remoteCacheManager.getCache(name);
+        if (redisCache == null) {
+            return null;
+        }
+        CachePolicy policy = policyRegistry.policyFor(name);
+        org.springframework.cache.Cache remote = new PolicyEnforcingCache(redisCache, policy, redisTemplate);
+        LocalCacheProperties.Spec spec = properties.getCaches().get(name);
+        if (!properties.isEnabled() || spec == null) {
+            return remote;
+        }
+        Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumWeight(spec.getMaxWeight())
+                .weigher((String key, Object value) -> weigh(value))
+                .expireAfterWrite(spec.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name + ".l1");
+        TwoLevelCache cache = new TwoLevelCache(name, remote, local, policy.isCacheNullValues(), invalidationBus, meterRegistry);
+        invalidationBus.register(cache);
+        log.info("缓存 {} 启用本地一级缓存: maxWeight={}, expireAfterWrite={}", name, spec.getMaxWeight(), spec.getExpireAfterWrite());
+        return cache;
+    }
+
+    /**
+     * 按对象里包含的元素个数估算权重，使一页 20 个商品的列表与 20 个商品详情占用相近的额度。
+     */
+    private static int weigh(Object value) {
+        if (value instanceof TwoLevelCache.LocalEntry entry) {
+            value = entry.value();
+        }
+        if (value instanceof PageResult<?> page && page.getList() != null) {
+            return Math.max(1, page.getList().size());
+        }
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Math.max(1, map.size());
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.shoppingmall.cache.codec;
+
+/**
+ * 某个缓存值类型的二进制编解码器
+ * <p>
+ * 字段按固定顺序写入，不保存字段名。新增字段只能追加在末尾，并在 {@link BinaryRedisSerializer#CURRENT_VERSION}
+ * 升级后用 {@link BinaryReader#version()} 判断旧数据中是否存在该字段。
+ */
+public interface BinaryCodec<T> {
+
+    void write(BinaryWriter out, T value);
+
+    T read(BinaryReader in);
+}
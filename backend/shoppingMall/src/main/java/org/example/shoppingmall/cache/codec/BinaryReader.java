@@ -0,0 +1,145 @@
+package org.example.shoppingmall.cache.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存二进制编码的读取端，格式见 {@link BinaryWriter}
+ * <p>
+ * version 是数据写入时的格式版本，编解码器据此决定是否读取新版本才追加的字段。
+ */
+public final class BinaryReader {
+
+    private final byte[] buf;
+    private final int limit;
+    private final int version;
+    private int pos;
+
+    public BinaryReader(byte[] buf, int offset, int limit, int version) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = limit;
+        this.version = version;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public int readByte() {
+        if (pos >= limit) {
+            throw new IllegalStateException("缓存数据已读到末尾");
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IllegalStateException("变长整数格式错误");
+            }
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public Long readLong() {
+        return readByte() == 0 ? null : readSignedVarLong();
+    }
+
+    public Integer readInt() {
+        return readByte() == 0 ? null : (int) readSignedVarLong();
+    }
+
+    public Boolean readBoolean() {
+        int flag = readByte();
+        return flag == 0 ? null : flag == 2;
+    }
+
+    public String readString() {
+        int length = (int) readVarLong() - 1;
+        if (length < 0) {
+            return null;
+        }
+        checkRemaining(length);
+        String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    public BigDecimal readDecimal() {
+        int kind = readByte();
+        if (kind == 0) {
+            return null;
+        }
+        int scale = (int) readSignedVarLong();
+        if (kind == 1) {
+            return BigDecimal.valueOf(readSignedVarLong(), scale);
+        }
+        int length = (int) readVarLong();
+        checkRemaining(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buf, pos, bytes, 0, length);
+        pos += length;
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    public LocalDateTime readDateTime() {
+        if (readByte() == 0) {
+            return null;
+        }
+        long epochSecond = readSignedVarLong();
+        int nano = (int) readVarLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    public LocalDate readDate() {
+        return readByte() == 0 ? null : LocalDate.ofEpochDay(readSignedVarLong());
+    }
+
+    public List<String> readStringList() {
+        int size = readSize();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    /**
+     * 读取集合长度，-1 表示 null。
+     */
+    public int readSize() {
+        int size = (int) readVarLong() - 1;
+        if (size > limit - pos) {
+            // 每个元素至少占一个字节，长度超出剩余字节说明数据已损坏
+            throw new IllegalStateException("集合长度超出数据范围: " + size);
+        }
+        return size;
+    }
+
+    private void checkRemaining(int length) {
+        if (length > limit - pos) {
+            throw new IllegalStateException("缓存数据长度不足");
+        }
+    }
+}
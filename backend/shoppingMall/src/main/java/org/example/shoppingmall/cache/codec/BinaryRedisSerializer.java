@@ -0,0 +1,154 @@
+package org.example.shoppingmall.cache.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 缓存值的二进制序列化器
+ * <p>
+ * 格式：魔数 0xCB | 格式版本 | 标志位 | 正文。正文由 {@link BinaryCodec} 按字段顺序编码，不含字段名；
+ * 正文达到压缩阈值时用 Deflate 压缩（标志位 0x01），压缩后的正文前写原始长度。
+ * <ul>
+ *   <li>滚动升级：读到比 {@link #CURRENT_VERSION} 更新的版本时按未命中处理（返回 null），由本节点重新加载覆盖；</li>
+ *   <li>切换序列化方式：不以魔数开头的旧数据（JSON、GZIP 压缩的 JSON）交给 fallback 读取，无需清空缓存。</li>
+ * </ul>
+ */
+@Slf4j
+public class BinaryRedisSerializer<T> implements RedisSerializer<Object> {
+
+    public static final int CURRENT_VERSION = 1;
+
+    static final byte MAGIC = (byte) 0xCB;
+    private static final int FLAG_DEFLATE = 0x01;
+    private static final int FLAG_NULL_VALUE = 0x02;
+    private static final int HEADER_LENGTH = 3;
+
+    private final BinaryCodec<T> codec;
+    private final Class<?> valueClass;
+    private final int compressThreshold;
+    private final RedisSerializer<?> fallback;
+
+    /**
+     * @param valueClass        值的顶层类型，用于在写入前检查类型
+     * @param compressThreshold 正文达到该字节数时压缩，小于 0 不压缩
+     * @param fallback          读取非二进制格式旧数据的序列化器，可为 null
+     */
+    public BinaryRedisSerializer(BinaryCodec<T> codec, Class<?> valueClass, int compressThreshold, RedisSerializer<?> fallback) {
+        this.codec = codec;
+        this.valueClass = valueClass;
+        this.compressThreshold = compressThreshold;
+        this.fallback = fallback;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof NullValue) {
+            return new byte[]{MAGIC, CURRENT_VERSION, FLAG_NULL_VALUE};
+        }
+        if (!valueClass.isInstance(value)) {
+            throw new SerializationException("缓存值类型不匹配: 期望 " + valueClass.getName() + "，实际 " + value.getClass().getName());
+        }
+        BinaryWriter out = new BinaryWriter(256);
+        out.writeByte(MAGIC);
+        out.writeByte(CURRENT_VERSION);
+        out.writeByte(0);
+        codec.write(out, (T) value);
+        int payloadLength = out.size() - HEADER_LENGTH;
+        if (compressThreshold < 0 || payloadLength < compressThreshold) {
+            return out.toByteArray();
+        }
+        return deflate(out.buffer(), payloadLength);
+    }
+
+    private static byte[] deflate(byte[] buffer, int payloadLength) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(buffer, HEADER_LENGTH, payloadLength);
+            deflater.finish();
+            BinaryWriter compressed = new BinaryWriter(payloadLength / 2 + 16);
+            compressed.writeByte(MAGIC);
+            compressed.writeByte(CURRENT_VERSION);
+            compressed.writeByte(FLAG_DEFLATE);
+            compressed.writeVarLong(payloadLength);
+            byte[] chunk = new byte[Math.min(8192, payloadLength + 64)];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                compressed.writeBytes(chunk, 0, n);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC || bytes.length < HEADER_LENGTH) {
+            return fallback != null ? fallback.deserialize(bytes) : null;
+        }
+        int version = bytes[1] & 0xFF;
+        if (version > CURRENT_VERSION) {
+            log.debug("缓存数据格式版本 {} 高于当前支持的 {}，按未命中处理", version, CURRENT_VERSION);
+            return null;
+        }
+        int flags = bytes[2] & 0xFF;
+        if ((flags & FLAG_NULL_VALUE) != 0) {
+            return NullValue.INSTANCE;
+        }
+        try {
+            if ((flags & FLAG_DEFLATE) == 0) {
+                return codec.read(new BinaryReader(bytes, HEADER_LENGTH, bytes.length, version));
+            }
+            BinaryReader header = new BinaryReader(bytes, HEADER_LENGTH, bytes.length, version);
+            int payloadLength = (int) header.readVarLong();
+            int offset = bytes.length - remaining(bytes, payloadLength);
+            byte[] payload = inflate(bytes, offset, payloadLength);
+            return codec.read(new BinaryReader(payload, 0, payload.length, version));
+        } catch (RuntimeException | DataFormatException e) {
+            throw new SerializationException("缓存二进制数据解析失败", e);
+        }
+    }
+
+    /**
+     * 压缩正文前的原始长度是一个 VarInt，返回其后剩余的字节数。
+     */
+    private static int remaining(byte[] bytes, int payloadLength) {
+        int varIntLength = 1;
+        for (long v = payloadLength; (v & ~0x7FL) != 0; v >>>= 7) {
+            varIntLength++;
+        }
+        return bytes.length - HEADER_LENGTH - varIntLength;
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int payloadLength) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] payload = new byte[payloadLength];
+            int read = 0;
+            while (read < payloadLength) {
+                int n = inflater.inflate(payload, read, payloadLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new DataFormatException("压缩数据不完整");
+                }
+                read += n;
+            }
+            return payload;
+        } finally {
+            inflater.end();
+        }
+    }
+}
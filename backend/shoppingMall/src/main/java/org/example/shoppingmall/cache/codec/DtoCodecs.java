@@ -0,0 +1,367 @@
+package org.example.shoppingmall.cache.codec;
+
+import org.example.shoppingmall.dto.BannerDto;
+import org.example.shoppingmall.dto.CategoryDTO;
+import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductCardDTO;
+import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.dto.ProductIdPage;
+import org.example.shoppingmall.dto.SearchFacets;
+import org.example.shoppingmall.dto.StatisticsDto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 缓存 DTO 的二进制编解码器（格式版本 1）
+ * <p>
+ * 字段顺序即格式本身：调整已有字段的顺序或类型必须提升 {@link BinaryRedisSerializer#CURRENT_VERSION}。
+ */
+public final class DtoCodecs {
+
+    private DtoCodecs() {
+    }
+
+    public static final BinaryCodec<ProductDTO> PRODUCT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, ProductDTO value) {
+            out.writeLong(value.getId());
+            out.writeString(value.getName());
+            out.writeLong(value.getCategoryId());
+            out.writeString(value.getCategoryName());
+            out.writeString(value.getDescription());
+            out.writeDecimal(value.getPrice());
+            out.writeDecimal(value.getOriginalPrice());
+            out.writeInt(value.getStock());
+            out.writeInt(value.getStatus());
+            out.writeString(value.getImageUrl());
+            out.writeStringList(value.getImages());
+            out.writeString(value.getDetail());
+            out.writeBoolean(value.getIsFeatured());
+            out.writeStringList(value.getParams());
+            out.writeStringList(value.getSpecs());
+            out.writeInt(value.getSales());
+            out.writeDateTime(value.getCreateTime());
+        }
+
+        @Override
+        public ProductDTO read(BinaryReader in) {
+            ProductDTO value = new ProductDTO();
+            value.setId(in.readLong());
+            value.setName(in.readString());
+            value.setCategoryId(in.readLong());
+            value.setCategoryName(in.readString());
+            value.setDescription(in.readString());
+            value.setPrice(in.readDecimal());
+            value.setOriginalPrice(in.readDecimal());
+            value.setStock(in.readInt());
+            value.setStatus(in.readInt());
+            value.setImageUrl(in.readString());
+            value.setImages(in.readStringList());
+            value.setDetail(in.readString());
+            value.setIsFeatured(in.readBoolean());
+            value.setParams(in.readStringList());
+            value.setSpecs(in.readStringList());
+            value.setSales(in.readInt());
+            value.setCreateTime(in.readDateTime());
+            return value;
+        }
+    };
+
+    public static final BinaryCodec<ProductCardDTO> PRODUCT_CARD = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, ProductCardDTO value) {
+            out.writeLong(value.getId());
+            out.writeString(value.getName());
+            out.writeDecimal(value.getPrice());
+            out.writeDecimal(value.getOriginalPrice());
+            out.writeString(value.getImageUrl());
+            out.writeInt(value.getSales());
+            out.writeBoolean(value.getInStock());
+        }
+
+        @Override
+        public ProductCardDTO read(BinaryReader in) {
+            ProductCardDTO value = new ProductCardDTO();
+            value.setId(in.readLong());
+            value.setName(in.readString());
+            value.setPrice(in.readDecimal());
+            value.setOriginalPrice(in.readDecimal());
+            value.setImageUrl(in.readString());
+            value.setSales(in.readInt());
+            value.setInStock(in.readBoolean());
+            return value;
+        }
+    };
+
+    public static final BinaryCodec<BannerDto> BANNER = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, BannerDto value) {
+            out.writeInt(value.getId());
+            out.writeString(value.getTitle());
+            out.writeString(value.getImageUrl());
+            out.writeString(value.getLinkUrl());
+            out.writeString(value.getPosition());
+            out.writeInt(value.getSortOrder());
+            out.writeBoolean(value.getIsActive());
+            out.writeString(value.getDescription());
+            out.writeDateTime(value.getStartDate());
+            out.writeDateTime(value.getEndDate());
+            out.writeDateTime(value.getCreatedAt());
+            out.writeDateTime(value.getUpdatedAt());
+        }
+
+        @Override
+        public BannerDto read(BinaryReader in) {
+            BannerDto value = new BannerDto();
+            value.setId(in.readInt());
+            value.setTitle(in.readString());
+            value.setImageUrl(in.readString());
+            value.setLinkUrl(in.readString());
+            value.setPosition(in.readString());
+            value.setSortOrder(in.readInt());
+            value.setIsActive(in.readBoolean());
+            value.setDescription(in.readString());
+            value.setStartDate(in.readDateTime());
+            value.setEndDate(in.readDateTime());
+            value.setCreatedAt(in.readDateTime());
+            value.setUpdatedAt(in.readDateTime());
+            return value;
+        }
+    };
+
+    public static final BinaryCodec<CategoryDTO> CATEGORY = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, CategoryDTO value) {
+            out.writeLong(value.getId());
+            out.writeString(value.getName());
+            out.writeString(value.getDescription());
+            out.writeInt(value.getSort());
+            out.writeInt(value.getStatus());
+        }
+
+        @Override
+        public CategoryDTO read(BinaryReader in) {
+            return new CategoryDTO(in.readLong(), in.readString(), in.readString(), in.readInt(), in.readInt());
+        }
+    };
+
+    private static final BinaryCodec<StatisticsDto.UserStatsDto> USER_STATS = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, StatisticsDto.UserStatsDto value) {
+            out.writeLong(value.getUserId());
+            out.writeString(value.getUsername());
+            out.writeInt(value.getOrderCount());
+            out.writeDecimal(value.getTotalSpent());
+        }
+
+        @Override
+        public StatisticsDto.UserStatsDto read(BinaryReader in) {
+            return new StatisticsDto.UserStatsDto(in.readLong(), in.readString(), in.readInt(), in.readDecimal());
+        }
+    };
+
+    public static final BinaryCodec<StatisticsDto> STATISTICS = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, StatisticsDto value) {
+            out.writeInt(value.getTotalOrders());
+            out.writeInt(value.getTotalProducts());
+            out.writeInt(value.getTotalUsers());
+            out.writeInt(value.getTotalCategories());
+            out.writeDecimal(value.getTotalRevenue());
+            out.writeDate(value.getStartDate());
+            out.writeDate(value.getEndDate());
+            writeMap(out, value.getDailyOrderCounts(), BinaryWriter::writeInt);
+            writeMap(out, value.getDailyRevenue(), BinaryWriter::writeDecimal);
+            list(USER_STATS).write(out, value.getTopUsers());
+        }
+
+        @Override
+        public StatisticsDto read(BinaryReader in) {
+            return StatisticsDto.builder()
+                    .totalOrders(in.readInt())
+                    .totalProducts(in.readInt())
+                    .totalUsers(in.readInt())
+                    .totalCategories(in.readInt())
+                    .totalRevenue(in.readDecimal())
+                    .startDate(in.readDate())
+                    .endDate(in.readDate())
+                    .dailyOrderCounts(readMap(in, BinaryReader::readInt))
+                    .dailyRevenue(readMap(in, BinaryReader::readDecimal))
+                    .topUsers(list(USER_STATS).read(in))
+                    .build();
+        }
+    };
+
+    private static final BinaryCodec<SearchFacets.FacetCount> FACET_COUNT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, SearchFacets.FacetCount value) {
+            out.writeLong(value.getId());
+            out.writeString(value.getName());
+            out.writeSignedVarLong(value.getCount());
+        }
+
+        @Override
+        public SearchFacets.FacetCount read(BinaryReader in) {
+            return new SearchFacets.FacetCount(in.readLong(), in.readString(), in.readSignedVarLong());
+        }
+    };
+
+    private static final BinaryCodec<SearchFacets.PriceRangeCount> PRICE_RANGE_COUNT = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, SearchFacets.PriceRangeCount value) {
+            out.writeDecimal(value.getMin());
+            out.writeDecimal(value.getMax());
+            out.writeSignedVarLong(value.getCount());
+        }
+
+        @Override
+        public SearchFacets.PriceRangeCount read(BinaryReader in) {
+            return new SearchFacets.PriceRangeCount(in.readDecimal(), in.readDecimal(), in.readSignedVarLong());
+        }
+    };
+
+    private static final BinaryCodec<SearchFacets> FACETS = nullable(new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, SearchFacets value) {
+            list(FACET_COUNT).write(out, value.getCategories());
+            list(FACET_COUNT).write(out, value.getBrands());
+            list(PRICE_RANGE_COUNT).write(out, value.getPriceRanges());
+        }
+
+        @Override
+        public SearchFacets read(BinaryReader in) {
+            return new SearchFacets(list(FACET_COUNT).read(in), list(FACET_COUNT).read(in), list(PRICE_RANGE_COUNT).read(in));
+        }
+    });
+
+    private static final BinaryCodec<Long> ID = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, Long value) {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(BinaryReader in) {
+            return in.readLong();
+        }
+    };
+
+    public static final BinaryCodec<ProductIdPage> PRODUCT_ID_PAGE = new BinaryCodec<>() {
+        @Override
+        public void write(BinaryWriter out, ProductIdPage value) {
+            list(ID).write(out, value.getIds());
+            out.writeSignedVarLong(value.getTotal());
+            out.writeSignedVarLong(value.getPageNum());
+            out.writeSignedVarLong(value.getPageSize());
+            FACETS.write(out, value.getFacets());
+        }
+
+        @Override
+        public ProductIdPage read(BinaryReader in) {
+            return new ProductIdPage(list(ID).read(in), in.readSignedVarLong(), (int) in.readSignedVarLong(),
+                    (int) in.readSignedVarLong(), FACETS.read(in));
+        }
+    };
+
+    /**
+     * 列表编解码器：长度 + 各元素，null 列表写长度 0。
+     */
+    public static <T> BinaryCodec<List<T>> list(BinaryCodec<T> elementCodec) {
+        return new BinaryCodec<>() {
+            @Override
+            public void write(BinaryWriter out, List<T> values) {
+                if (out.writeSize(values)) {
+                    for (T value : values) {
+                        elementCodec.write(out, value);
+                    }
+                }
+            }
+
+            @Override
+            public List<T> read(BinaryReader in) {
+                int size = in.readSize();
+                if (size < 0) {
+                    return null;
+                }
+                List<T> values = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    values.add(elementCodec.read(in));
+                }
+                return values;
+            }
+        };
+    }
+
+    /**
+     * 分页结果编解码器，列表元素由 elementCodec 编码。
+     */
+    public static <T> BinaryCodec<PageResult<T>> pageResult(BinaryCodec<T> elementCodec) {
+        BinaryCodec<List<T>> listCodec = list(elementCodec);
+        return new BinaryCodec<>() {
+            @Override
+            public void write(BinaryWriter out, PageResult<T> value) {
+                listCodec.write(out, value.getList());
+                out.writeSignedVarLong(value.getTotal());
+                out.writeSignedVarLong(value.getPageNum());
+                out.writeSignedVarLong(value.getPageSize());
+                out.writeSignedVarLong(value.getPages());
+                FACETS.write(out, value.getFacets());
+            }
+
+            @Override
+            public PageResult<T> read(BinaryReader in) {
+                PageResult<T> value = new PageResult<>();
+                value.setList(listCodec.read(in));
+                value.setTotal(in.readSignedVarLong());
+                value.setPageNum((int) in.readSignedVarLong());
+                value.setPageSize((int) in.readSignedVarLong());
+                value.setPages((int) in.readSignedVarLong());
+                value.setFacets(FACETS.read(in));
+                return value;
+            }
+        };
+    }
+
+    private static <T> BinaryCodec<T> nullable(BinaryCodec<T> codec) {
+        return new BinaryCodec<>() {
+            @Override
+            public void write(BinaryWriter out, T value) {
+                out.writeByte(value == null ? 0 : 1);
+                if (value != null) {
+                    codec.write(out, value);
+                }
+            }
+
+            @Override
+            public T read(BinaryReader in) {
+                return in.readByte() == 0 ? null : codec.read(in);
+            }
+        };
+    }
+
+    private static <V> void writeMap(BinaryWriter out, Map<String, V> values, BiConsumer<BinaryWriter, V> valueWriter) {
+        if (out.writeSize(values)) {
+            values.forEach((key, value) -> {
+                out.writeString(key);
+                valueWriter.accept(out, value);
+            });
+        }
+    }
+
+    private static <V> Map<String, V> readMap(BinaryReader in, Function<BinaryReader, V> valueReader) {
+        int size = in.readSize();
+        if (size < 0) {
+            return null;
+        }
+        Map<String, V> values = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.put(in.readString(), valueReader.apply(in));
+        }
+        return values;
+    }
+}
@@ -35,6 +35,12 @@ public enum ResultCode {
     // 订单相关 (1500-1599)
     ORDER_NOT_EXISTS(1501, "订单不存在"),
     ORDER_STATUS_ERROR(1502, "订单状态错误，无法进行此操作"),
+    FLASH_SALE_BUSY(1503, "抢购人数过多，请稍后再试"),
+    FLASH_SALE_LIMIT(1504, "该秒杀商品每人限购，请勿重复抢购"),
+    FLASH_SALE_TICKET_NOT_EXISTS(1505, "抢购排队凭证不存在或已过期"),
+    FLASH_SALE_ONLY(1506, "秒杀商品请通过秒杀入口下单"),
+    IDEMPOTENCY_KEY_REUSED(1507, "Idempotency-Key 已用于内容不同的请求"),
+    IDEMPOTENCY_IN_PROGRESS(1508, "相同的请求正在处理中，请稍后重试"),
 
 
     CONFLICT(409, "资源冲突或操作不允许"); // 通用冲突
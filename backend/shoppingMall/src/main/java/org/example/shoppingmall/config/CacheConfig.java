@@ -6,6 +6,7 @@ package org.example.shoppingmall.config; // 请将包名替换为您的实际项
  * 用于定义项目中所有缓存区域的名称。
  * 这样可以方便地在 @Cacheable, @CacheEvict, @CachePut 等注解中引用，
  * 避免硬编码字符串，提高代码的可维护性和一致性。
+ * 每个缓存区域的 TTL、序列化方式等策略在 {@link RedisConfig#cachePolicyRegistry} 中按这些名称登记。
  */
 public final class CacheConfig {
 
@@ -30,10 +31,26 @@ public final class CacheConfig {
     public static final String STATISTICS_CACHE = "statisticsCache";
 
     /**
-     * 示例：产品信息相关的缓存名称。
-     * (您可以根据需要添加其他缓存区域的常量)
+     * 商品列表分页缓存，只存当前页的商品 id (ProductIdPage)，键见 {@link org.example.shoppingmall.cache.ProductCacheTags#pageKey}。
+     * 商品列表和商品卡片列表的查询条件相同，共用这一份缓存，商品内容再从下面的单条缓存批量取回。
      */
-    // public static final String PRODUCTS_CACHE = "productsCache";
+    public static final String PRODUCT_ID_PAGES_CACHE = "productIdPages";
+
+    /**
+     * 商品详情缓存 (ProductDTO)，键见 {@link org.example.shoppingmall.cache.ProductCacheTags#detailKey}。
+     * 商品列表页也从这里按 id 批量取商品内容。
+     */
+    public static final String PRODUCT_DETAIL_CACHE = "productDetail";
+
+    /**
+     * 单个商品的列表卡片缓存 (ProductCardDTO)，键见 {@link org.example.shoppingmall.cache.ProductCacheTags#cardKey}。
+     */
+    public static final String PRODUCT_CARD_CACHE = "productCard";
+
+    /**
+     * 轮播图缓存 (List&lt;BannerDto&gt;)，在 {@link org.example.shoppingmall.service.impl.BannerServiceImpl} 中使用。
+     */
+    public static final String BANNER_CACHE = "bannerCache";
 
     /**
      * 示例：用户信息相关的缓存名称。
@@ -41,9 +58,9 @@ public final class CacheConfig {
     // public static final String USERS_CACHE = "usersCache";
 
     /**
-     * 示例：分类信息相关的缓存名称。
+     * 商品分类缓存 (List&lt;CategoryDTO&gt;)，在 {@link org.example.shoppingmall.service.impl.CategoryServiceImpl} 中使用。
      */
-    // public static final String CATEGORIES_CACHE = "categoriesCache";
+    public static final String CATEGORIES_CACHE = "categoriesCache";
 
     // ... 可以根据您的应用需求添加更多缓存名称常量
 }
\ No newline at end of file
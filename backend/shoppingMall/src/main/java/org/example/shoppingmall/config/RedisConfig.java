@@ -1,14 +1,30 @@
 package org.example.shoppingmall.config;
 
-import com.fasterxml.jackson.databind.JavaType; // ★ 导入 JavaType ★
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.type.TypeFactory; // ★ 导入 TypeFactory ★
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.shoppingmall.cache.CacheExpiryProperties;
+import org.example.shoppingmall.cache.CacheInvalidationBus;
+import org.example.shoppingmall.cache.CachePolicy;
+import org.example.shoppingmall.cache.CachePolicyProperties;
+import org.example.shoppingmall.cache.CachePolicyRegistry;
+import org.example.shoppingmall.cache.CacheSerializer;
+import org.example.shoppingmall.cache.CompressingRedisSerializer;
+import org.example.shoppingmall.cache.LocalCacheProperties;
+import org.example.shoppingmall.cache.SingleFlightProperties;
+import org.example.shoppingmall.cache.TwoLevelCacheManager;
+import org.example.shoppingmall.cache.codec.BinaryRedisSerializer;
+import org.example.shoppingmall.cache.codec.DtoCodecs;
 import org.example.shoppingmall.dto.PageResult; // ★ 导入 PageResult ★
+import org.example.shoppingmall.dto.ProductCardDTO;
 import org.example.shoppingmall.dto.ProductDTO; // ★ 导入 ProductDTO ★
+import org.example.shoppingmall.dto.ProductIdPage;
 import org.example.shoppingmall.dto.BannerDto;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.example.shoppingmall.dto.CategoryDTO;
+import org.example.shoppingmall.dto.StatisticsDto;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,9 +33,13 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer; // ★ 改回使用 Jackson2JsonRedisSerializer ★
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -41,34 +61,6 @@ public class RedisConfig {
         return objectMapper;
     }
 
-    /**
-     * 创建专门用于 PageResult<ProductDTO> 类型的 Jackson2JsonRedisSerializer。
-     * 通过构建精确的 JavaType，帮助 Jackson 正确反序列化泛型。
-     *
-     * @param objectMapper 上面定义的、配置好 JavaTimeModule 的 ObjectMapper
-     * @return Jackson2JsonRedisSerializer<PageResult<ProductDTO>>
-     */
-    @Bean("pageResultProductDTORedisSerializer") // 给这个特殊的序列化器一个名字
-    public Jackson2JsonRedisSerializer<PageResult<ProductDTO>> pageResultProductDTORedisSerializer(ObjectMapper objectMapper) {
-        TypeFactory typeFactory = objectMapper.getTypeFactory();
-        // 1. 构建内部 List<ProductDTO> 的类型
-        JavaType listProductDtoType = typeFactory.constructCollectionType(List.class, ProductDTO.class);
-        // 2. 构建 PageResult<List<ProductDTO>> 的类型，但由于 PageResult<T> 中的 T 是 ProductDTO，
-        //    而 PageResult 内部的 list 字段是 List<ProductDTO>，所以我们需要构建 PageResult<ProductDTO>
-        //    Jackson2JsonRedisSerializer<T> 的构造函数需要一个 Class<T> 或 JavaType。
-        //    对于 PageResult<ProductDTO>，直接使用 PageResult.class 可能不足以让Jackson知道内部List的元素类型。
-
-        // ★★★ 更准确的方式是构建 PageResult<ProductDTO> 的完整 JavaType ★★★
-        // 这是一个技巧，因为 PageResult<T> 的 'list' 字段是 List<T>
-        // 我们真正需要的是 PageResult<ProductDTO> 这个类型
-        JavaType pageResultType = typeFactory.constructParametricType(PageResult.class, ProductDTO.class);
-
-        Jackson2JsonRedisSerializer<PageResult<ProductDTO>> serializer =
-                new Jackson2JsonRedisSerializer<>(objectMapper, pageResultType); // ★ 传入构建好的 JavaType ★
-
-        return serializer;
-    }
-
     @Bean
     public RedisTemplate<String, Object> redisTemplate(
             RedisConnectionFactory factory,
@@ -105,13 +97,6 @@ public class RedisConfig {
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(pageResultProductDTORedisSerializer));
     }*/
 
-    @Bean("listBannerDtoRedisSerializer") // 给这个序列化器一个名字
-    public Jackson2JsonRedisSerializer<List<BannerDto>> listBannerDtoRedisSerializer(ObjectMapper objectMapper) {
-        TypeFactory typeFactory = objectMapper.getTypeFactory();
-        JavaType listBannerDtoType = typeFactory.constructCollectionType(List.class, BannerDto.class);
-        return new Jackson2JsonRedisSerializer<>(objectMapper, listBannerDtoType);
-    }
-
     // 如果您有其他类型的对象也需要缓存，并且它们也遇到了泛型反序列化问题，
     // 您可能需要为它们也创建类似的特定类型的 Jackson2JsonRedisSerializer bean，
     // 然后在 RedisCacheManager 中为不同的缓存名称 (cache names) 配置不同的 RedisCacheConfiguration。
@@ -134,63 +119,148 @@ public class RedisConfig {
     }
 
 
+    /**
+     * 各缓存区域的存储策略，缓存名称统一引用 {@link CacheConfig} 中的常量。
+     * 这里是默认值，可以用 app.cache.policy.caches.* 按需覆盖（值类型除外）。
+     */
     @Bean
-    public RedisCacheManager cacheManager(
-            RedisConnectionFactory factory,
-            RedisCacheConfiguration defaultCacheConfiguration, // 注入基础默认配置
-            @Qualifier("pageResultProductDTORedisSerializer") Jackson2JsonRedisSerializer<PageResult<ProductDTO>> pageResultProductDTORedisSerializer,
-            @Qualifier("listBannerDtoRedisSerializer") Jackson2JsonRedisSerializer<List<BannerDto>> listBannerDtoRedisSerializer,
-            ObjectMapper objectMapper) { // 可能需要 ObjectMapper 来创建通用的序列化器，或者直接使用 defaultCacheConfiguration 的组件
-
-        // 获取 defaultCacheConfiguration 中的通用设置
-        // 注意：您需要检查您当前版本的 RedisCacheConfiguration 提供了哪些 getter 方法
-        // 以下是一些常见的 getter 方法，您的版本可能略有不同或不全
-        Duration defaultTtl = defaultCacheConfiguration.getTtl();
-        RedisSerializationContext.SerializationPair<String> keySerializationPair = defaultCacheConfiguration.getKeySerializationPair();
-        // RedisSerializationContext.SerializationPair<Object> valueSerializationPairForDefault = defaultCacheConfiguration.getValueSerializationPair(); // 这是默认的值序列化器
-        boolean allowNullValues = defaultCacheConfiguration.getAllowCacheNullValues();
-        // Function<String, String> keyPrefixFunction = defaultCacheConfiguration.getKeyPrefixFunction(); // 如果您使用了前缀
-        // ConversionService conversionService = defaultCacheConfiguration.getConversionService(); // 如果您使用了 ConversionService
-
-
-        // 为 bannerCache 创建特定的配置
-        RedisCacheConfiguration bannerCacheConfig = RedisCacheConfiguration.defaultCacheConfig() // 从头构建
-                .entryTtl(defaultTtl) // 应用默认的 TTL
-                .serializeKeysWith(keySerializationPair); // 应用默认的 Key 序列化
-
-        if (!allowNullValues) { // 应用是否允许null值的设置
-            bannerCacheConfig = bannerCacheConfig.disableCachingNullValues();
-        }
-        // 如果有其他通用设置，例如 keyPrefix, conversionService 等，也在这里应用
-        // bannerCacheConfig = bannerCacheConfig.computePrefixWith(keyPrefixFunction);
-        // bannerCacheConfig = bannerCacheConfig.withConversionService(conversionService);
-
-        // 最后设置特定的值序列化器
-        bannerCacheConfig = bannerCacheConfig.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(listBannerDtoRedisSerializer));
-
-
-        // 为 productsCache 创建特定的配置
-        RedisCacheConfiguration productsCacheConfig = RedisCacheConfiguration.defaultCacheConfig() // 从头构建
-                .entryTtl(defaultTtl)
-                .serializeKeysWith(keySerializationPair);
-
-        if (!allowNullValues) {
-            productsCacheConfig = productsCacheConfig.disableCachingNullValues();
-        }
-        // ... 应用其他通用设置 ...
-
-        // 最后设置特定的值序列化器
-        productsCacheConfig = productsCacheConfig.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(pageResultProductDTORedisSerializer));
+    public CachePolicyRegistry cachePolicyRegistry(ObjectMapper objectMapper, CachePolicyProperties cachePolicyProperties) {
+        TypeFactory typeFactory = objectMapper.getTypeFactory();
+        CachePolicy defaultPolicy = CachePolicy.builder().ttl(Duration.ofHours(1)).build();
+
+        return new CachePolicyRegistry(defaultPolicy, cachePolicyProperties)
+                // 商品列表：按筛选条件组合出的键很多，限制键数量；每页只存 id 和分面计数，一般只有几百字节
+                .register(CacheConfig.PRODUCT_ID_PAGES_CACHE, CachePolicy.builder()
+                        .ttl(Duration.ofHours(1))
+                        .maxKeys(20_000)
+                        .compressThreshold(2048)
+                        .serializer(CacheSerializer.BINARY)
+                        .valueType(typeFactory.constructType(ProductIdPage.class))
+                        .binaryCodec(DtoCodecs.PRODUCT_ID_PAGE)
+                        .build())
+                // 商品详情：库存、价格经常变化，TTL 较短；不缓存 null，随机 id 的扫描请求不会占用 Redis
+                .register(CacheConfig.PRODUCT_DETAIL_CACHE, CachePolicy.builder()
+                        .ttl(Duration.ofMinutes(15))
+                        .maxKeys(50_000)
+                        .compressThreshold(4096)
+                        .serializer(CacheSerializer.BINARY)
+                        .valueType(typeFactory.constructType(ProductDTO.class))
+                        .binaryCodec(DtoCodecs.PRODUCT)
+                        .build())
+                // 商品卡片：每个商品一条，字段少，不压缩
+                .register(CacheConfig.PRODUCT_CARD_CACHE, CachePolicy.builder()
+                        .ttl(Duration.ofHours(1))
+                        .maxKeys(50_000)
+                        .serializer(CacheSerializer.BINARY)
+                        .valueType(typeFactory.constructType(ProductCardDTO.class))
+                        .binaryCodec(DtoCodecs.PRODUCT_CARD)
+                        .build())
+                // 轮播图：一周左右才变一次，修改时会主动清除
+                .register(CacheConfig.BANNER_CACHE, CachePolicy.builder()
+                        .ttl(Duration.ofHours(12))
+                        .maxKeys(200)
+                        .serializer(CacheSerializer.BINARY)
+                        .valueType(typeFactory.constructCollectionType(List.class, BannerDto.class))
+                        .binaryCodec(DtoCodecs.list(DtoCodecs.BANNER))
+                        .build())
+                // 商品分类：后台改动很少，修改时会主动清除
+                .register(CacheConfig.CATEGORIES_CACHE, CachePolicy.builder()
+                        .ttl(Duration.ofHours(12))
+                        .maxKeys(10)
+                        .serializer(CacheSerializer.BINARY)
+                        .valueType(typeFactory.constructCollectionType(List.class, CategoryDTO.class))
+                        .binaryCodec(DtoCodecs.list(DtoCodecs.CATEGORY))
+                        .build())
+                // 统计数据：按分钟变化；通用 JSON 反序列化不回 StatisticsDto，因此声明值类型
+                .register(CacheConfig.STATISTICS_CACHE, CachePolicy.builder()
+                        .ttl(Duration.ofMinutes(1))
+                        .maxKeys(1_000)
+                        .compressThreshold(4096)
+                        .serializer(CacheSerializer.BINARY)
+                        .valueType(typeFactory.constructType(StatisticsDto.class))
+                        .binaryCodec(DtoCodecs.STATISTICS)
+                        .build());
+    }
 
+    @Bean
+    public RedisCacheManager redisCacheManager(
+            RedisConnectionFactory factory,
+            RedisCacheConfiguration defaultCacheConfiguration, // 注入基础默认配置，用于未登记策略的缓存
+            CachePolicyRegistry cachePolicyRegistry,
+            CacheExpiryProperties cacheExpiryProperties,
+            ObjectMapper objectMapper) {
 
         Map<String, RedisCacheConfiguration> cacheConfigurations = new HashMap<>();
-        cacheConfigurations.put("bannerCache", bannerCacheConfig);
-        cacheConfigurations.put("products", productsCacheConfig); // ★ 修改这里为 "products" ★
+        cachePolicyRegistry.getPolicies().forEach((cacheName, policy) -> {
+            RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig() // 从头构建
+                    .entryTtl(policy.getTtl())
+                    .serializeKeysWith(defaultCacheConfiguration.getKeySerializationPair())
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer(policy, objectMapper)));
+            // null 值由 PolicyEnforcingCache 在写入前丢弃，这里只在策略允许时保留
+            cacheConfigurations.put(cacheName, policy.isCacheNullValues() ? config : config.disableCachingNullValues());
+        });
+
+        // 配置了软过期的缓存：硬过期时间 = 软过期 + 旧值窗口 + 随机抖动，同一批写入的条目不会同时过期
+        cacheExpiryProperties.getCaches().forEach((cacheName, policy) -> {
+            RedisCacheConfiguration base = cacheConfigurations.getOrDefault(cacheName, defaultCacheConfiguration);
+            cacheConfigurations.put(cacheName, base.entryTtl((key, value) -> policy.nextHardTtl()));
+        });
 
         return RedisCacheManager.builder(factory)
                 .cacheDefaults(defaultCacheConfiguration) // 这里的 defaultCacheConfiguration 仍然是你定义的那个 Bean
                 .withInitialCacheConfigurations(cacheConfigurations)
-                .transactionAware()
+                // 不在这里开启 transactionAware：事务感知由外层的 TwoLevelCacheManager 统一处理，避免 L1 和 L2 的写入时机不一致
                 .build();
     }
+
+    /**
+     * 按策略选择值序列化器。JSON 在设置了压缩阈值时再包一层 GZIP；二进制格式自带压缩，
+     * 并用同类型的 JSON 序列化器读取切换前写入的旧数据。
+     */
+    private static RedisSerializer<Object> valueSerializer(CachePolicy policy, ObjectMapper objectMapper) {
+        return switch (policy.getSerializer()) {
+            case JSON -> {
+                RedisSerializer<Object> json = new Jackson2JsonRedisSerializer<>(objectMapper, policy.getValueType());
+                yield policy.isCompressionEnabled() ? new CompressingRedisSerializer<>(json, policy.getCompressThreshold()) : json;
+            }
+            case GENERIC_JSON -> {
+                RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer(objectMapper);
+                yield policy.isCompressionEnabled() ? new CompressingRedisSerializer<>(json, policy.getCompressThreshold()) : json;
+            }
+            case BINARY -> new BinaryRedisSerializer<>(policy.getBinaryCodec(), policy.getValueType().getRawClass(),
+                    policy.getCompressThreshold(),
+                    new CompressingRedisSerializer<>(new Jackson2JsonRedisSerializer<>(objectMapper, policy.getValueType()), Integer.MAX_VALUE));
+        };
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate stringRedisTemplate, LocalCacheProperties localCacheProperties) {
+        return new CacheInvalidationBus(stringRedisTemplate, localCacheProperties.getInvalidationChannel());
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory factory,
+                                                                            CacheInvalidationBus cacheInvalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(cacheInvalidationBus, new ChannelTopic(cacheInvalidationBus.getChannel()));
+        return container;
+    }
+
+    /**
+     * 应用实际使用的 CacheManager：在 redisCacheManager 前叠加本地一级缓存（见 app.cache.local.*），
+     * 热点数据直接从堆内返回，省掉 Redis 往返和 JSON 反序列化；热点键过期时的并发未命中按 app.cache.single-flight.* 合并加载，
+     * app.cache.expiry.* 中的缓存在软过期后先返回旧值再后台刷新。
+     */
+    @Bean
+    @Primary
+    public CacheManager cacheManager(RedisCacheManager redisCacheManager, LocalCacheProperties localCacheProperties,
+                                     CacheInvalidationBus cacheInvalidationBus, SingleFlightProperties singleFlightProperties,
+                                     CacheExpiryProperties cacheExpiryProperties, CachePolicyRegistry cachePolicyRegistry,
+                                     StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry) {
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, localCacheProperties, cacheInvalidationBus,
+                singleFlightProperties, cacheExpiryProperties, cachePolicyRegistry, stringRedisTemplate, meterRegistry);
+        cacheManager.setTransactionAware(true);
+        return cacheManager;
+    }
 }
\ No newline at end of file
@@ -34,6 +34,7 @@ public class WebSecurityConfig {
                         .requestMatchers("/static/images/**").permitAll()
                         .requestMatchers("/static/**").permitAll()
                         .requestMatchers("/css/**", "/js/**", "/favicon.ico", "/error").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
 
                         // --- 2. 公开的 API 接口 ---
                         .requestMatchers("/api/user/login", "/api/user/register").permitAll()
@@ -1,6 +1,7 @@
 package org.example.shoppingmall.controller; // 请替换为您的实际包路径
 
 import lombok.RequiredArgsConstructor;
+import org.example.shoppingmall.cache.ResourceVersions;
 import org.example.shoppingmall.common.Result; // 假设这是您项目中通用的Result包装类
 import org.example.shoppingmall.dto.BannerDto;
 import org.example.shoppingmall.service.BannerService; // 引入您定义的BannerService接口
@@ -8,6 +9,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.validation.Valid; // 用于校验请求体
 
 import java.util.List;
@@ -18,15 +20,20 @@ import java.util.List;
 public class BannerController {
 
     private final BannerService bannerService; // 注入BannerService接口
+    private final ResourceVersions resourceVersions; // 轮播图版本号，用于 ETag
 
     /**
      * 获取首页轮播图数据 (推荐)
      * 前端主要从此接口获取首页轮播图。
      * 对应 Service 中的 getHomeBanners() 方法。
      * 请求路径: GET /api/banners/home
+     * 支持条件 GET：轮播图未变化时返回 304。
      */
     @GetMapping("/home")
-    public Result<List<BannerDto>> getHomeBanners() {
+    public Result<List<BannerDto>> getHomeBanners(WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.BANNERS)) {
+            return null;
+        }
         List<BannerDto> banners = bannerService.getHomeBanners();
         return Result.success(banners);
     }
@@ -2,11 +2,13 @@ package org.example.shoppingmall.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.shoppingmall.cache.ResourceVersions;
 import org.example.shoppingmall.common.Result;
 import org.example.shoppingmall.dto.CategoryDTO;
 import org.example.shoppingmall.service.CategoryService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -17,9 +19,14 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final ResourceVersions resourceVersions;
 
     @GetMapping
-    public Result<List<CategoryDTO>> getAllCategories() {
+    public Result<List<CategoryDTO>> getAllCategories(WebRequest request) {
+        // 条件 GET：分类未变化时返回 304
+        if (resourceVersions.checkNotModified(request, ResourceVersions.CATEGORIES)) {
+            return null;
+        }
         return Result.success(categoryService.getAllCategories());
     }
 
@@ -2,6 +2,7 @@ package org.example.shoppingmall.controller; // 请替换为您的实际 control
 
 import lombok.RequiredArgsConstructor;
 import org.example.shoppingmall.dto.CommentDto;
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.service.CommentService;
 // 假设您有统一的返回结果类，例如 Result.java 或直接使用 ResponseEntity
 // import org.example.shoppingmall.common.Result;
@@ -40,6 +41,18 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    /**
+     * 获取指定商品的评论列表 (游标分页，按创建时间倒序，不返回总数)
+     * 首次请求不传 cursor，之后传上一页返回的 nextCursor
+     */
+    @GetMapping("/products/{productId}/comments/scroll")
+    public ResponseEntity<CursorResult<CommentDto>> scrollProductComments(
+            @PathVariable Integer productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(commentService.scrollProductComments(productId, cursor, size));
+    }
+
     /**
      * 创建新评论
      * 假设用户必须登录才能评论
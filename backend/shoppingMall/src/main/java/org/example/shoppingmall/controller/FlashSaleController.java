@@ -0,0 +1,70 @@
+package org.example.shoppingmall.controller;
+
+import jakarta.validation.Valid;
+import org.example.shoppingmall.common.Result;
+import org.example.shoppingmall.dto.FlashSaleTicketDto;
+import org.example.shoppingmall.dto.OrderCreateRequestDto;
+import org.example.shoppingmall.flashsale.FlashSaleService;
+import org.example.shoppingmall.util.SecurityUtils;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+/**
+ * 秒杀下单接口：提交后返回排队凭证，通过轮询或 SSE 获取下单结果
+ */
+@RestController
+@RequestMapping("/api/flash-sale")
+public class FlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+
+    public FlashSaleController(FlashSaleService flashSaleService) {
+        this.flashSaleService = flashSaleService;
+    }
+
+    /**
+     * 当前处于秒杀中的商品ID
+     */
+    @GetMapping("/products")
+    public Result<Set<Long>> getFlashSaleProducts() {
+        return Result.success(flashSaleService.getFlashSaleProductIds());
+    }
+
+    /**
+     * 设置/取消商品的秒杀标记
+     */
+    @PutMapping("/products/{productId}")
+    @PreAuthorize("hasRole('SELLER')")
+    public Result<Void> setFlashSale(@PathVariable Long productId, @RequestParam(defaultValue = "true") boolean enabled) {
+        flashSaleService.setFlashSale(productId, enabled);
+        return Result.success();
+    }
+
+    /**
+     * 提交抢购，立即返回排队凭证 (status=QUEUED)
+     */
+    @PostMapping("/orders")
+    public Result<FlashSaleTicketDto> submit(@Valid @RequestBody OrderCreateRequestDto orderRequest) {
+        return Result.success(flashSaleService.submit(SecurityUtils.getCurrentUserId(), orderRequest));
+    }
+
+    /**
+     * 轮询抢购结果
+     */
+    @GetMapping("/orders/{ticketId}")
+    public Result<FlashSaleTicketDto> getTicket(@PathVariable String ticketId) {
+        return Result.success(flashSaleService.getTicket(ticketId, SecurityUtils.getCurrentUserId()));
+    }
+
+    /**
+     * 以 SSE 订阅抢购结果，出结果后推送一次 result 事件并关闭连接
+     */
+    @GetMapping(value = "/orders/{ticketId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTicket(@PathVariable String ticketId) {
+        return flashSaleService.stream(ticketId, SecurityUtils.getCurrentUserId());
+    }
+}
@@ -2,6 +2,8 @@ package org.example.shoppingmall.controller;
 
 import jakarta.validation.Valid;
 import org.example.shoppingmall.common.Result;
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.dto.OrderCreateRequestDto;
 import org.example.shoppingmall.dto.OrderItemResponseDto;
 import org.example.shoppingmall.dto.OrderResponseDto;
@@ -13,7 +15,10 @@ import org.example.shoppingmall.dto.PaymentStatusDto;
 import org.example.shoppingmall.entity.OrderItem; // Used for temporary list creation
 import org.example.shoppingmall.entity.OrderStatus;
 import org.example.shoppingmall.entity.User; // Used to get username for createOrder, can be avoided if DTO from service is complete
+import org.example.shoppingmall.exception.ApiException;
 import org.example.shoppingmall.exception.UnauthorizedException;
+import org.example.shoppingmall.flashsale.FlashSaleService;
+import org.example.shoppingmall.idempotency.IdempotencyGuard;
 import org.example.shoppingmall.service.OrderService;
 import org.example.shoppingmall.service.ProductService;
 import org.example.shoppingmall.service.UserService;
@@ -37,18 +42,24 @@ public class OrderController {
     private final OrderService orderService;
     private final ProductService productService;
     private final UserService userService;
+    private final FlashSaleService flashSaleService;
+    private final IdempotencyGuard idempotencyGuard;
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
     @Autowired
     // 构造函数也可能需要调整，如果 ProductService 不再需要在这里注入
-    public OrderController(OrderService orderService , ProductService productService, UserService userService ) {
+    public OrderController(OrderService orderService , ProductService productService, UserService userService,
+                           FlashSaleService flashSaleService, IdempotencyGuard idempotencyGuard) {
         this.orderService = orderService;
         this.productService = productService;
         this.userService = userService;
+        this.flashSaleService = flashSaleService;
+        this.idempotencyGuard = idempotencyGuard;
     }
 
     @PostMapping
-    public Result<OrderResponseDto> createOrder(@Valid @RequestBody OrderCreateRequestDto orderRequest) {
+    public Result<OrderResponseDto> createOrder(@Valid @RequestBody OrderCreateRequestDto orderRequest,
+                                                @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
         logger.info("进入 OrderController.createOrder 方法");
         logger.info("接收到的 OrderCreateRequestDto 对象: {}", orderRequest); // Lombok @Data 会生成 toString()
         logger.info("DTO 中的 shippingAddress 值: {}", orderRequest.getShippingAddress());
@@ -59,10 +70,16 @@ public class OrderController {
             logger.error("严重错误：shippingAddress 在 OrderCreateRequestDto 中为 null！");
             // 这里可以根据情况决定是否提前返回错误，或者让后续的 @NotBlank 生效
         }
+        // 秒杀商品必须走排队入口，避免开售瞬间的请求直接压到数据库
+        if (flashSaleService.containsFlashSale(orderRequest.getItems())) {
+            throw new ApiException(ResultCode.FLASH_SALE_ONLY);
+        }
         Long currentUserId = getCurrentUserId();
         // User currentUser = userService.getUserById(currentUserId); // Not strictly needed if OrderResponseDto from service is complete
 
-        OrderResponseDto responseDto = orderService.createOrder(currentUserId, orderRequest);
+        // 客户端重试或重复点击时带同一个幂等键，只会创建一个订单，重复请求拿到第一次的结果
+        OrderResponseDto responseDto = idempotencyGuard.execute("order-create", currentUserId, idempotencyKey, orderRequest,
+                OrderResponseDto.class, () -> orderService.createOrder(currentUserId, orderRequest));
         return Result.success(responseDto);
     }
 
@@ -105,6 +122,18 @@ public class OrderController {
         return Result.success(responsePage);
     }
 
+    /**
+     * 游标分页获取当前用户订单（按创建时间倒序，不返回总数），供移动端无限滚动使用
+     */
+    @GetMapping("/scroll")
+    public Result<CursorResult<OrderResponseDto>> scrollUserOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Integer status) {
+        Long currentUserId = getCurrentUserId();
+        return Result.success(orderService.scrollUserOrders(currentUserId, status, cursor, size));
+    }
+
     @GetMapping("/id/{id}")
     public Result<OrderResponseDto> getOrderById(@PathVariable Long id) {
         Long currentUserId = getCurrentUserId();
@@ -163,13 +192,16 @@ public class OrderController {
     @PostMapping("/{id}/pay") // <--- 匹配前端的 POST /api/orders/{id}/pay 请求
     public Result<PaymentInitiationResponseDto> initiatePayment(
             @PathVariable Long id,
-            @RequestBody OrderPaymentRequestDto paymentRequest) { // <--- 从请求体获取支付方式
+            @RequestBody OrderPaymentRequestDto paymentRequest, // <--- 从请求体获取支付方式
+            @RequestHeader(value = IdempotencyGuard.HEADER, required = false) String idempotencyKey) {
 
         Long currentUserId = getCurrentUserId(); // 获取当前用户ID，用于权限验证或记录
 
         // 调用Service层处理支付初始化逻辑
         // paymentMethod 从 paymentRequest.getPaymentMethod() 获取
-        PaymentInitiationResponseDto paymentResponse = orderService.initiatePayment(id, currentUserId, paymentRequest.getPaymentMethod());
+        PaymentInitiationResponseDto paymentResponse = idempotencyGuard.execute("order-pay:" + id, currentUserId, idempotencyKey,
+                paymentRequest, PaymentInitiationResponseDto.class,
+                () -> orderService.initiatePayment(id, currentUserId, paymentRequest.getPaymentMethod()));
         // ^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^
         // 您需要在 OrderService 中创建 initiatePayment 方法
 
@@ -2,15 +2,21 @@ package org.example.shoppingmall.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.shoppingmall.cache.HotKeyRecorder;
+import org.example.shoppingmall.cache.ResourceVersions;
 import org.example.shoppingmall.common.Result;
 import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductCardDTO;
 import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.dto.SuggestionDTO;
 import org.example.shoppingmall.security.CustomUserDetails;
 import org.example.shoppingmall.service.ProductService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
@@ -22,6 +28,8 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final HotKeyRecorder hotKeyRecorder; // 记录热点商品和列表页，供下次启动预热
+    private final ResourceVersions resourceVersions;
 
     @GetMapping
     public Result<PageResult<ProductDTO>> getProducts(
@@ -29,17 +37,83 @@ public class ProductController {
             @RequestParam(required = false) Integer categoryId,
             @RequestParam(defaultValue = "1") int pageNum,
             @RequestParam(defaultValue = "10") int pageSize,
-            @RequestParam(defaultValue = "default") String sort,
+            @RequestParam(defaultValue = "default") String sort, // default/price/sales/createtime，有关键词时还支持 relevance
             @RequestParam(defaultValue = "desc") String order,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) String type) {
+        hotKeyRecorder.recordPage(false, keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
         return Result.success(productService.getProducts(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type));
     }
 
+    /**
+     * 商品列表卡片：参数与 GET /api/products 相同，只返回卡片渲染需要的字段，供前台商品列表页使用
+     */
+    @GetMapping("/cards")
+    public Result<PageResult<ProductCardDTO>> getProductCards(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(defaultValue = "1") int pageNum,
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(defaultValue = "default") String sort,
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String type) {
+        hotKeyRecorder.recordPage(true, keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+        return Result.success(productService.getProductCards(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type));
+    }
+
+    /**
+     * 游标分页（无限滚动）：首次请求不传 cursor，之后传上一页返回的 nextCursor，翻页深度不影响查询耗时
+     */
+    @GetMapping("/scroll")
+    public Result<CursorResult<ProductDTO>> scrollProducts(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(defaultValue = "default") String sort, // default/price/sales/createtime，有关键词时还支持 relevance
+            @RequestParam(defaultValue = "desc") String order,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String type) {
+        return Result.success(productService.scrollProducts(keyword, categoryId, cursor, pageSize, sort, order, minPrice, maxPrice, type));
+    }
+
+    @GetMapping("/suggest")
+    public Result<List<SuggestionDTO>> suggest(
+            @RequestParam("q") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return Result.success(productService.suggest(q, limit));
+    }
+
+    /**
+     * 批量获取商品详情，供购物车、收藏、下单确认页一次取回多个商品
+     * 请求路径: GET /api/products/batch?ids=1,2,3 ，按 ids 的顺序返回，不存在的商品会被跳过
+     */
+    @GetMapping("/batch")
+    public Result<List<ProductDTO>> getProductsByIds(@RequestParam List<Long> ids) {
+        return Result.success(productService.getProductsByIds(ids));
+    }
+
+    @GetMapping("/top-rated")
+    public Result<List<ProductDTO>> getTopRatedProducts(@RequestParam(defaultValue = "10") int limit) {
+        return Result.success(productService.getTopRatedProducts(limit));
+    }
+
+    /**
+     * 商品详情，支持条件 GET：If-None-Match 与当前 ETag 一致时返回 304，不查询也不序列化商品
+     */
     @GetMapping("/{id}")
-    public Result<ProductDTO> getProductById(@PathVariable Long id) {
-        return Result.success(productService.getProductById(id));
+    public Result<ProductDTO> getProductById(@PathVariable Long id, WebRequest request) {
+        if (resourceVersions.checkNotModified(request, ResourceVersions.product(id))) {
+            hotKeyRecorder.recordProduct(id);
+            return null;
+        }
+        ProductDTO product = productService.getProductById(id);
+        hotKeyRecorder.recordProduct(id); // 只记录存在的商品，随机 id 的扫描请求不会挤占计数名额
+        return Result.success(product);
     }
 
     @PostMapping
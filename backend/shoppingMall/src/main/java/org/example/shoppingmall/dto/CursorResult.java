@@ -0,0 +1,39 @@
+package org.example.shoppingmall.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 游标分页结果 (Slice 风格)
+ * <p>
+ * 不返回总数，也就不需要额外的 COUNT(*)；hasNext 为 true 时用 nextCursor 请求下一页。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorResult<T> {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private List<T> list;
+    private String nextCursor;
+    private boolean hasNext;
+
+    /**
+     * 调用方应多查一行 (size + 1)，据此判断是否还有下一页，下一页游标取自本页最后一行。
+     */
+    public static <E, T> CursorResult<T> of(List<E> rows, int size, Function<E, String> cursorOf, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(page.get(page.size() - 1)) : null;
+        return new CursorResult<>(page.stream().map(mapper).collect(Collectors.toList()), nextCursor, hasNext);
+    }
+
+    public static int normalizeSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+}
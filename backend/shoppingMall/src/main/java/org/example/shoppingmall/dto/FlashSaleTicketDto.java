@@ -0,0 +1,19 @@
+package org.example.shoppingmall.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 秒杀排队凭证：提交抢购后立即返回，客户端凭 ticketId 轮询或订阅结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleTicketDto {
+    private String ticketId;
+    private Long productId;
+    private String status;   // QUEUED: 排队中, SUCCESS: 下单成功, FAILED: 抢购失败
+    private String orderNo;  // 下单成功后的订单号
+    private String message;  // 失败原因
+}
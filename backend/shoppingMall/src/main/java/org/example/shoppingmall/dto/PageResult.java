@@ -1,5 +1,6 @@
 package org.example.shoppingmall.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -15,6 +16,9 @@ public class PageResult<T> {
     private int pageNum;
     private int pageSize;
     private int pages;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SearchFacets facets; // 仅商品搜索返回
     
     public static <T> PageResult<T> of(List<T> list, long total, int pageNum, int pageSize) {
         PageResult<T> result = new PageResult<>();
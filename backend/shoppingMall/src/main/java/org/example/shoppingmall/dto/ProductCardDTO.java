@@ -0,0 +1,37 @@
+package org.example.shoppingmall.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品列表卡片 (只包含列表页渲染需要的字段)
+ * <p>
+ * 由 JPA 构造器表达式或 MyBatis 直接按列投影生成，查询时不读取 detail/images/params/specs 等大字段。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCardDTO {
+    private Long id;
+
+    private String name;
+
+    private BigDecimal price;
+
+    private BigDecimal originalPrice;
+
+    private String imageUrl;
+
+    private Integer sales;
+
+    private Boolean inStock; // 是否有货，列表页不暴露具体库存
+
+    // JPQL 构造器表达式使用：SELECT new ProductCardDTO(p.id, p.name, p.price, p.originalPrice, p.imageUrl, p.sales, p.stock)
+    public ProductCardDTO(Long id, String name, BigDecimal price, BigDecimal originalPrice,
+                          String imageUrl, Integer sales, Integer stock) {
+        this(id, name, price, originalPrice, imageUrl, sales != null ? sales : 0, stock != null && stock > 0);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.shoppingmall.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 商品列表查询结果的缓存形式：只保存当前页按顺序排列的商品 id 和分页信息
+ * <p>
+ * 商品内容按 id 单独缓存，列表页读取时再批量取回（见 ProductServiceImpl#getProducts / getProductCards），
+ * 同一个商品不会在成千上万个列表缓存中重复存放，修改商品也只需删除该商品自己的缓存。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductIdPage {
+    private List<Long> ids;
+    private long total;
+    private int pageNum;
+    private int pageSize;
+    private SearchFacets facets; // 仅走商品索引时有值
+
+    /**
+     * 用取回的商品内容组装分页结果，页数等字段与 {@link PageResult#of} 的计算一致。
+     */
+    public <T> PageResult<T> toPageResult(List<T> list) {
+        PageResult<T> result = PageResult.of(list, total, pageNum, pageSize);
+        result.setFacets(facets);
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.shoppingmall.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品搜索的分面统计，随商品列表一起返回
+ * <p>
+ * 各维度的计数均不受该维度自身的筛选条件影响（例如已选分类后，分类分面仍展示其他分类的数量），
+ * 但会受其它维度筛选条件的约束，便于前端做"切换筛选"。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFacets {
+
+    private List<FacetCount> categories = new ArrayList<>();
+
+    private List<FacetCount> brands = new ArrayList<>();
+
+    private List<PriceRangeCount> priceRanges = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private Long id;
+        private String name;
+        private long count;
+    }
+
+    /**
+     * 价格区间 [min, max)，max 为 null 表示不设上限
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceRangeCount {
+        private BigDecimal min;
+        private BigDecimal max;
+        private long count;
+    }
+}
@@ -21,7 +21,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "comments", indexes = {
         @Index(name = "idx_comment_product_user", columnList = "product_id, user_id"),
-        @Index(name = "idx_comment_order_item", columnList = "order_item_id", unique = true) // 一个订单项通常只允许一条评论
+        @Index(name = "idx_comment_order_item", columnList = "order_item_id", unique = true), // 一个订单项通常只允许一条评论
+        @Index(name = "idx_comment_product_created", columnList = "product_id, created_at, id") // 商品评论的游标分页
 })
 public class Comment {
 
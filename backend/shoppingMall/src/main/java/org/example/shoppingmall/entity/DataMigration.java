@@ -0,0 +1,28 @@
+package org.example.shoppingmall.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次性数据迁移的执行标记，主键为迁移名称
+ * 与迁移本身在同一事务内写入，多节点同时启动时只有一个节点会执行，见 migration 包
+ */
+@Entity
+@Table(name = "data_migrations")
+@Data
+@NoArgsConstructor
+public class DataMigration {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+}
@@ -0,0 +1,28 @@
+package org.example.shoppingmall.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Redis 库存引擎已回写到 products.stock 的批次记录
+ * 与库存更新在同一事务内写入，用于回写重放时去重，见 ProductStockRepository#applyStockDeltas
+ */
+@Entity
+@Table(name = "inventory_flush_batches")
+@Data
+@NoArgsConstructor
+public class InventoryFlushBatch {
+
+    @Id
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+}
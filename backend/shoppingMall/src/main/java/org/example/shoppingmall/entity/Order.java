@@ -17,7 +17,9 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_order_user_created", columnList = "user_id, created_at, id") // 用户订单列表的游标分页
+})
 public class Order {
 
     @Id
@@ -19,7 +19,10 @@ import java.util.Set;     // 导入 Set
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_product_status_create_time", columnList = "status, create_time, id"), // 默认排序的游标分页
+        @Index(name = "idx_product_update_time", columnList = "update_time") // 搜索索引的增量同步
+})
 public class Product {
 
     @Id
@@ -99,6 +102,10 @@ public class Product {
     @Column(name = "is_Featured", nullable = false,columnDefinition = "TINYINT(1) DEFAULT 0")
     private Boolean isFeatured = false;
 
+    // 秒杀商品：下单走排队入口 (/api/flash-sale/orders)，不能直接调用 POST /api/orders
+    @Column(name = "is_flash_sale", nullable = false, columnDefinition = "TINYINT(1) DEFAULT 0")
+    private Boolean isFlashSale = false;
+
     // 便捷方法添加评论 (如果需要在Product实体端管理)
     public void addComment(Comment comment) {
         if (comment != null) {
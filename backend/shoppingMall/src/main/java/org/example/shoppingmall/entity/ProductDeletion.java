@@ -0,0 +1,34 @@
+package org.example.shoppingmall.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已删除商品的墓碑记录
+ * 商品是物理删除的，增量同步按 update_time 读不到已删除的行，因此与删除在同一事务内写入一条记录，
+ * 供其他节点的内存索引补上漏掉的删除通知，过了保留期后清理，见 ProductCatalogSync
+ */
+@Entity
+@Table(name = "product_deletions", indexes = {
+        @Index(name = "idx_product_deletion_deleted_at", columnList = "deleted_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDeletion {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,53 @@
+package org.example.shoppingmall.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 商品评分汇总（只统计可见评论），由评论的增删改增量维护，
+ * 用来代替对 comments 表做 GROUP BY 求平均分。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "product_ratings")
+public class ProductRating {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "rating_count", nullable = false)
+    private Long ratingCount = 0L; // 计入统计的评论数
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L; // 评分之和
+
+    // 1~5 星各自的评论数
+    @Column(name = "star1", nullable = false)
+    private Long star1 = 0L;
+
+    @Column(name = "star2", nullable = false)
+    private Long star2 = 0L;
+
+    @Column(name = "star3", nullable = false)
+    private Long star3 = 0L;
+
+    @Column(name = "star4", nullable = false)
+    private Long star4 = 0L;
+
+    @Column(name = "star5", nullable = false)
+    private Long star5 = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public double getAverage() {
+        return ratingCount == null || ratingCount == 0 ? 0D : (double) ratingSum / ratingCount;
+    }
+}
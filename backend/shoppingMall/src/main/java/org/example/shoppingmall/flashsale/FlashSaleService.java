@@ -0,0 +1,411 @@
+package org.example.shoppingmall.flashsale;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.dto.FlashSaleTicketDto;
+import org.example.shoppingmall.dto.OrderCreateRequestDto;
+import org.example.shoppingmall.dto.OrderItemRequestDto;
+import org.example.shoppingmall.dto.OrderResponseDto;
+import org.example.shoppingmall.entity.Product;
+import org.example.shoppingmall.exception.ApiException;
+import org.example.shoppingmall.repository.ProductRepository;
+import org.example.shoppingmall.service.OrderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 秒杀下单：被标记为秒杀的商品开售时，大量请求不再各自开启事务争抢同一商品行，而是排队后由固定线程批量下单。
+ * <p>
+ * <ol>
+ *   <li>准入：内存中检查商品是否在秒杀、每人限购、剩余库存估算，不满足的请求直接拒绝，不触达数据库；
+ *       内存检查通过后再 SADD flash-sale:buyers:{productId} 登记购买资格，跨节点的重复抢购在这里拒绝；</li>
+ *   <li>排队：通过的请求放入有界队列并立即返回排队凭证，队列满时拒绝（"抢购人数过多"）；</li>
+ *   <li>下单：workers 个线程从队列一次取出至多 batch-size 个请求，同一商品的一批请求在一个事务内
+ *       只锁一次商品行、只扣减一次库存（见 {@link OrderService#createOrdersInBatch}），数据库写入速率受线程数和批大小约束；</li>
+ *   <li>结果：写入凭证并推送给 SSE 订阅者，同时写入 Redis（flash-sale:ticket:{ticketId}），请求落到其他节点时也能查询。</li>
+ * </ol>
+ * 剩余库存估算和本节点的限购记录保存在内存中，只用于挡掉明显无望的请求；最终是否有货以批量下单时的数据库/Redis 扣减为准，
+ * 每人限购以 Redis 中的购买者集合为准，下单失败时移出集合，用户可以再次抢购；Redis 不可用时不接受抢购。
+ * 商品取消秒杀后删除其购买者集合。
+ * 秒杀商品列表和剩余库存估算每 refresh-interval 从数据库刷新。
+ */
+@Slf4j
+@Service
+public class FlashSaleService {
+
+    private static final String TICKET_KEY_PREFIX = "flash-sale:ticket:";
+    private static final String BUYERS_KEY_PREFIX = "flash-sale:buyers:";
+
+    private final OrderService orderService;
+    private final ProductRepository productRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final int workers;
+    private final int batchSize;
+    private final int maxQuantityPerUser;
+    private final Duration ticketTtl;
+    private final Duration streamTimeout;
+
+    private final BlockingQueue<FlashSaleTicket> queue;
+    private final Map<Long, FlashSaleItem> items = new ConcurrentHashMap<>();
+    private final Map<String, FlashSaleTicket> tickets = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private ExecutorService workerPool;
+
+    public FlashSaleService(OrderService orderService, ProductRepository productRepository, StringRedisTemplate redisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.flash-sale.enabled:true}") boolean enabled,
+                            @Value("${app.flash-sale.queue-capacity:10000}") int queueCapacity,
+                            @Value("${app.flash-sale.workers:4}") int workers,
+                            @Value("${app.flash-sale.batch-size:50}") int batchSize,
+                            @Value("${app.flash-sale.max-quantity-per-user:1}") int maxQuantityPerUser,
+                            @Value("${app.flash-sale.ticket-ttl:PT10M}") Duration ticketTtl,
+                            @Value("${app.flash-sale.stream-timeout:PT30S}") Duration streamTimeout) {
+        this.orderService = orderService;
+        this.productRepository = productRepository;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxQuantityPerUser = maxQuantityPerUser;
+        this.ticketTtl = ticketTtl;
+        this.streamTimeout = streamTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("flash_sale.queue.size", queue, BlockingQueue::size)
+                .description("Flash-sale order requests waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("秒杀下单未启用");
+            return;
+        }
+        refresh();
+        running = true;
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "flash-sale-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::drainLoop);
+        }
+        log.info("秒杀下单已启动: 秒杀商品数={}, 工作线程={}, 批大小={}", items.size(), workers, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (workerPool == null) {
+            return;
+        }
+        running = false;
+        workerPool.shutdown();
+        workerPool.awaitTermination(10, TimeUnit.SECONDS);
+        List<FlashSaleTicket> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(ticket -> finish(ticket, null, "系统繁忙，请重新抢购"));
+    }
+
+    /**
+     * 商品是否处于秒杀中
+     */
+    public boolean isFlashSale(Long productId) {
+        return enabled && productId != null && items.containsKey(productId);
+    }
+
+    /**
+     * 订单中是否包含秒杀商品
+     */
+    public boolean containsFlashSale(Collection<OrderItemRequestDto> orderItems) {
+        return enabled && !items.isEmpty() && orderItems != null
+                && orderItems.stream().anyMatch(item -> isFlashSale(item.getProductId()));
+    }
+
+    public Set<Long> getFlashSaleProductIds() {
+        return Set.copyOf(items.keySet());
+    }
+
+    /**
+     * 提交抢购：通过准入检查后排队，立即返回凭证
+     */
+    public FlashSaleTicketDto submit(Long userId, OrderCreateRequestDto request) {
+        if (CollectionUtils.isEmpty(request.getItems()) || request.getItems().size() != 1) {
+            throw new ApiException(ResultCode.VALIDATION_ERROR, "秒杀订单只能包含一件商品");
+        }
+        if (!StringUtils.hasText(request.getShippingAddress())) {
+            throw new ApiException(ResultCode.VALIDATION_ERROR, "收货地址不能为空");
+        }
+        OrderItemRequestDto orderItem = request.getItems().get(0);
+        FlashSaleItem item = orderItem.getProductId() == null ? null : items.get(orderItem.getProductId());
+        if (!enabled || item == null) {
+            throw new ApiException(ResultCode.VALIDATION_ERROR, "该商品不在秒杀中");
+        }
+        int quantity = orderItem.getQuantity() == null ? 0 : orderItem.getQuantity();
+        if (quantity <= 0 || quantity > maxQuantityPerUser) {
+            throw new ApiException(ResultCode.VALIDATION_ERROR, "秒杀商品每人限购 " + maxQuantityPerUser + " 件");
+        }
+        if (!item.buyers.add(userId)) {
+            throw new ApiException(ResultCode.FLASH_SALE_LIMIT);
+        }
+        if (item.remaining.addAndGet(-quantity) < 0) {
+            item.remaining.addAndGet(quantity);
+            item.buyers.remove(userId);
+            throw new ApiException(ResultCode.STOCK_NOT_ENOUGH, "商品已抢光");
+        }
+        Boolean registered = registerBuyer(orderItem.getProductId(), userId);
+        if (!Boolean.TRUE.equals(registered)) {
+            item.remaining.addAndGet(quantity);
+            if (registered == null) {
+                item.buyers.remove(userId);
+                throw new ApiException(ResultCode.FLASH_SALE_BUSY);
+            }
+            // 已在其他节点抢购过，本节点的记录保留，之后的重复请求在内存中就被拒绝
+            throw new ApiException(ResultCode.FLASH_SALE_LIMIT);
+        }
+        FlashSaleTicket ticket = new FlashSaleTicket(UUID.randomUUID().toString(), userId, orderItem.getProductId(), quantity, request);
+        tickets.put(ticket.getTicketId(), ticket);
+        item.queued.addAndGet(quantity);
+        if (!queue.offer(ticket)) {
+            tickets.remove(ticket.getTicketId());
+            item.queued.addAndGet(-quantity);
+            release(ticket);
+            throw new ApiException(ResultCode.FLASH_SALE_BUSY);
+        }
+        return ticket.toDto();
+    }
+
+    /**
+     * 查询排队结果
+     */
+    public FlashSaleTicketDto getTicket(String ticketId, Long userId) {
+        FlashSaleTicket ticket = tickets.get(ticketId);
+        if (ticket != null) {
+            if (!ticket.getUserId().equals(userId)) {
+                throw new ApiException(ResultCode.FLASH_SALE_TICKET_NOT_EXISTS);
+            }
+            return ticket.toDto();
+        }
+        // 请求落在其他节点时从 Redis 读取结果：userId|status|orderNo|message
+        String value = null;
+        try {
+            value = redisTemplate.opsForValue().get(TICKET_KEY_PREFIX + ticketId);
+        } catch (Exception e) {
+            log.warn("读取秒杀结果失败: ticketId={}, error={}", ticketId, e.getMessage());
+        }
+        String[] parts = value == null ? null : value.split("\\|", 4);
+        if (parts == null || parts.length < 4 || !parts[0].equals(String.valueOf(userId))) {
+            throw new ApiException(ResultCode.FLASH_SALE_TICKET_NOT_EXISTS);
+        }
+        return new FlashSaleTicketDto(ticketId, null, parts[1],
+                parts[2].isEmpty() ? null : parts[2], parts[3].isEmpty() ? null : parts[3]);
+    }
+
+    /**
+     * 以 SSE 推送排队结果（事件名 result），有结果后连接关闭；凭证不在本节点时推送 Redis 中的结果或当前状态
+     */
+    public SseEmitter stream(String ticketId, Long userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        FlashSaleTicket ticket = tickets.get(ticketId);
+        if (ticket != null && ticket.getUserId().equals(userId)) {
+            ticket.subscribe(emitter);
+        } else {
+            FlashSaleTicket.send(emitter, getTicket(ticketId, userId));
+        }
+        return emitter;
+    }
+
+    /**
+     * 设置/取消商品的秒杀标记，其他节点在下次刷新时生效
+     */
+    @Transactional
+    public void setFlashSale(Long productId, boolean flashSale) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ApiException(ResultCode.PRODUCT_NOT_EXISTS));
+        product.setIsFlashSale(flashSale);
+        productRepository.save(product);
+        if (flashSale) {
+            items.computeIfAbsent(productId, id -> new FlashSaleItem()).remaining.set(product.getStock());
+        } else {
+            items.remove(productId);
+            deleteBuyers(productId);
+        }
+    }
+
+    /**
+     * 从数据库刷新秒杀商品列表和剩余库存估算（数据库库存 - 本节点排队中的数量）
+     */
+    @Scheduled(initialDelayString = "${app.flash-sale.refresh-interval:PT30S}",
+            fixedDelayString = "${app.flash-sale.refresh-interval:PT30S}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Map<Long, Integer> stock = productRepository.findByIsFlashSaleTrueAndStatus(1).stream()
+                    .collect(Collectors.toMap(Product::getId, Product::getStock));
+            List<Long> ended = items.keySet().stream().filter(productId -> !stock.containsKey(productId)).toList();
+            ended.forEach(productId -> {
+                items.remove(productId);
+                deleteBuyers(productId);
+            });
+            stock.forEach((productId, value) -> {
+                FlashSaleItem item = items.computeIfAbsent(productId, id -> new FlashSaleItem());
+                item.remaining.set(Math.max(0, value - item.queued.get()));
+            });
+        } catch (Exception e) {
+            log.warn("刷新秒杀商品失败: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.flash-sale.ticket-ttl:PT10M}")
+    public void evictExpiredTickets() {
+        long deadline = System.currentTimeMillis() - ticketTtl.toMillis();
+        tickets.values().removeIf(ticket -> ticket.isDone() && ticket.getCreatedAt() < deadline);
+    }
+
+    private void drainLoop() {
+        List<FlashSaleTicket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                FlashSaleTicket first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                Map<Long, List<FlashSaleTicket>> byProduct = new LinkedHashMap<>();
+                batch.forEach(ticket -> byProduct.computeIfAbsent(ticket.getProductId(), id -> new ArrayList<>()).add(ticket));
+                byProduct.forEach(this::process);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(ticket -> finish(ticket, null, "系统繁忙，请重新抢购"));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(Long productId, List<FlashSaleTicket> batch) {
+        List<OrderResponseDto> orders;
+        try {
+            orders = orderService.createOrdersInBatch(productId,
+                    batch.stream().map(FlashSaleTicket::getUserId).collect(Collectors.toList()),
+                    batch.stream().map(FlashSaleTicket::getRequest).collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.error("秒杀批量下单失败: productId={}, 请求数={}, error={}", productId, batch.size(), e.getMessage());
+            batch.forEach(ticket -> finish(ticket, null, "下单失败，请重试"));
+            return;
+        }
+        boolean soldOut = false;
+        for (int i = 0; i < batch.size(); i++) {
+            OrderResponseDto order = orders.get(i);
+            soldOut |= order == null;
+            finish(batch.get(i), order, "商品已抢光");
+        }
+        FlashSaleItem item = items.get(productId);
+        if (soldOut && item != null) {
+            item.remaining.set(0); // 库存已扣完，后续请求直接拒绝，直到下次刷新
+        }
+    }
+
+    /**
+     * 写入结果；未成功时归还准入名额，用户可以再次抢购
+     */
+    private void finish(FlashSaleTicket ticket, OrderResponseDto order, String failureMessage) {
+        FlashSaleItem item = items.get(ticket.getProductId());
+        if (item != null) {
+            item.queued.addAndGet(-ticket.getQuantity());
+        }
+        if (order == null) {
+            release(ticket);
+            ticket.complete(FlashSaleTicket.FAILED, null, failureMessage);
+        } else {
+            ticket.complete(FlashSaleTicket.SUCCESS, order.getOrderNo(), null);
+        }
+        FlashSaleTicketDto result = ticket.toDto();
+        try {
+            redisTemplate.opsForValue().set(TICKET_KEY_PREFIX + ticket.getTicketId(),
+                    ticket.getUserId() + "|" + result.getStatus() + "|" + (result.getOrderNo() == null ? "" : result.getOrderNo())
+                            + "|" + (result.getMessage() == null ? "" : result.getMessage()),
+                    ticketTtl);
+        } catch (Exception e) {
+            log.warn("保存秒杀结果失败: ticketId={}, error={}", ticket.getTicketId(), e.getMessage());
+        }
+    }
+
+    private void release(FlashSaleTicket ticket) {
+        FlashSaleItem item = items.get(ticket.getProductId());
+        if (item != null) {
+            item.remaining.addAndGet(ticket.getQuantity());
+            item.buyers.remove(ticket.getUserId());
+        }
+        try {
+            redisTemplate.opsForSet().remove(BUYERS_KEY_PREFIX + ticket.getProductId(), String.valueOf(ticket.getUserId()));
+        } catch (Exception e) {
+            // 用户会一直被当作已购买，直到秒杀结束
+            log.error("移出秒杀购买者失败: productId={}, userId={}, error={}", ticket.getProductId(), ticket.getUserId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 在 Redis 中登记购买者：登记成功返回 true，已登记（在任一节点抢购过）返回 false，Redis 不可用时返回 null
+     */
+    private Boolean registerBuyer(Long productId, Long userId) {
+        try {
+            Long added = redisTemplate.opsForSet().add(BUYERS_KEY_PREFIX + productId, String.valueOf(userId));
+            return added != null && added > 0;
+        } catch (Exception e) {
+            log.warn("登记秒杀购买者失败: productId={}, userId={}, error={}", productId, userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteBuyers(Long productId) {
+        try {
+            redisTemplate.delete(BUYERS_KEY_PREFIX + productId);
+        } catch (Exception e) {
+            log.warn("删除秒杀购买者集合失败: productId={}, error={}", productId, e.getMessage());
+        }
+    }
+
+    /**
+     * 单个秒杀商品在本节点的准入状态
+     */
+    private static final class FlashSaleItem {
+        private final AtomicInteger remaining = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Set<Long> buyers = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.shoppingmall.flashsale;
+
+import org.example.shoppingmall.dto.FlashSaleTicketDto;
+import org.example.shoppingmall.dto.OrderCreateRequestDto;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次排队中的抢购请求，由工作线程处理后写入结果并通知订阅的 SSE 连接
+ */
+class FlashSaleTicket {
+
+    static final String QUEUED = "QUEUED";
+    static final String SUCCESS = "SUCCESS";
+    static final String FAILED = "FAILED";
+
+    private final String ticketId;
+    private final Long userId;
+    private final Long productId;
+    private final int quantity;
+    private final OrderCreateRequestDto request;
+    private final long createdAt = System.currentTimeMillis();
+    private final List<SseEmitter> listeners = new ArrayList<>();
+
+    private String status = QUEUED;
+    private String orderNo;
+    private String message;
+
+    FlashSaleTicket(String ticketId, Long userId, Long productId, int quantity, OrderCreateRequestDto request) {
+        this.ticketId = ticketId;
+        this.userId = userId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.request = request;
+    }
+
+    String getTicketId() {
+        return ticketId;
+    }
+
+    Long getUserId() {
+        return userId;
+    }
+
+    Long getProductId() {
+        return productId;
+    }
+
+    int getQuantity() {
+        return quantity;
+    }
+
+    OrderCreateRequestDto getRequest() {
+        return request;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    synchronized FlashSaleTicketDto toDto() {
+        return new FlashSaleTicketDto(ticketId, productId, status, orderNo, message);
+    }
+
+    synchronized boolean isDone() {
+        return !QUEUED.equals(status);
+    }
+
+    /**
+     * 写入最终结果并推送给所有订阅者，只有第一次调用生效
+     */
+    void complete(String status, String orderNo, String message) {
+        List<SseEmitter> toNotify;
+        FlashSaleTicketDto result;
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            this.status = status;
+            this.orderNo = orderNo;
+            this.message = message;
+            toNotify = new ArrayList<>(listeners);
+            listeners.clear();
+            result = toDto();
+        }
+        toNotify.forEach(emitter -> send(emitter, result));
+    }
+
+    /**
+     * 订阅结果：已有结果时立即推送并结束，否则等待 complete
+     */
+    void subscribe(SseEmitter emitter) {
+        FlashSaleTicketDto result;
+        synchronized (this) {
+            if (!isDone()) {
+                listeners.add(emitter);
+                emitter.onCompletion(() -> unsubscribe(emitter));
+                emitter.onTimeout(() -> unsubscribe(emitter));
+                return;
+            }
+            result = toDto();
+        }
+        send(emitter, result);
+    }
+
+    private synchronized void unsubscribe(SseEmitter emitter) {
+        listeners.remove(emitter);
+    }
+
+    static void send(SseEmitter emitter, FlashSaleTicketDto result) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(result));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+}
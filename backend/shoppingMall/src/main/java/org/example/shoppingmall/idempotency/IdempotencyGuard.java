@@ -0,0 +1,288 @@
+package org.example.shoppingmall.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.exception.ApiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 基于 Idempotency-Key 请求头的幂等执行
+ * <p>
+ * 每个 (接口, 用户, 幂等键) 在 Redis 中对应一条记录 {@code idempotency:{scope}:{userId}:{key}}：
+ * <ul>
+ *   <li>第一个请求写入 PROCESSING 记录（带持有者令牌和请求体摘要）后执行业务，成功后把响应 JSON 写回记录并改为 COMPLETED，
+ *       保留 retention 后由 Redis 过期删除；</li>
+ *   <li>之后的重复请求直接返回记录中的响应；仍在处理中时，本节点的重复请求等待同一个 Future，
+ *       其他节点的重复请求轮询记录，都不会再执行一次业务；</li>
+ *   <li>同一个键配上不同的请求体返回 {@link ResultCode#IDEMPOTENCY_KEY_REUSED}；</li>
+ *   <li>业务执行失败时删除记录，客户端可以用同一个键重试；持有者进程崩溃时 PROCESSING 记录在 lock-timeout 后过期。</li>
+ * </ul>
+ * 请求未携带幂等键时直接执行；Redis 不可用时退化为直接执行。
+ * 指标：idempotency.requests，result=executed/replayed/coalesced/conflict/timeout。
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    static final String KEY_PREFIX = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final String COMPLETED = "COMPLETED";
+
+    /**
+     * KEYS: record；ARGV: token, fingerprint, lockTtlMillis。
+     * 记录不存在时写入 PROCESSING 并返回空表；已存在时返回 {state, fingerprint, response}。
+     */
+    private static final RedisScript<List<Object>> ACQUIRE_SCRIPT = listScript(
+            "if redis.call('exists', KEYS[1]) == 1 then\n" +
+            "  local record = redis.call('hmget', KEYS[1], 'state', 'fingerprint', 'response')\n" +
+            "  return {record[1] or '', record[2] or '', record[3] or ''}\n" +
+            "end\n" +
+            "redis.call('hset', KEYS[1], 'state', 'PROCESSING', 'token', ARGV[1], 'fingerprint', ARGV[2])\n" +
+            "redis.call('pexpire', KEYS[1], ARGV[3])\n" +
+            "return {}");
+
+    /**
+     * KEYS: record；ARGV: token, response, retentionMillis。只有持有者能写入结果。
+     */
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hget', KEYS[1], 'token') ~= ARGV[1] then return 0 end\n" +
+            "redis.call('hset', KEYS[1], 'state', 'COMPLETED', 'response', ARGV[2])\n" +
+            "redis.call('hdel', KEYS[1], 'token')\n" +
+            "redis.call('pexpire', KEYS[1], ARGV[3])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * KEYS: record；ARGV: token。业务失败时由持有者删除记录。
+     */
+    private static final RedisScript<Long> ABORT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('hget', KEYS[1], 'token') == ARGV[1] then return redis.call('del', KEYS[1]) end\n" +
+            "return 0",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration retention;
+    private final Duration lockTimeout;
+    private final Duration waitTimeout;
+    private final Duration pollInterval;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter coalesced;
+    private final Counter conflicts;
+    private final Counter timeouts;
+
+    public IdempotencyGuard(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${app.idempotency.enabled:true}") boolean enabled,
+                            @Value("${app.idempotency.retention:PT24H}") Duration retention,
+                            @Value("${app.idempotency.lock-timeout:PT30S}") Duration lockTimeout,
+                            @Value("${app.idempotency.wait-timeout:PT10S}") Duration waitTimeout,
+                            @Value("${app.idempotency.poll-interval:PT0.05S}") Duration pollInterval) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.retention = retention;
+        this.lockTimeout = lockTimeout;
+        this.waitTimeout = waitTimeout;
+        this.pollInterval = pollInterval;
+        this.executed = counter(meterRegistry, "executed");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.coalesced = counter(meterRegistry, "coalesced");
+        this.conflicts = counter(meterRegistry, "conflict");
+        this.timeouts = counter(meterRegistry, "timeout");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("idempotency.requests")
+                .description("携带幂等键的请求：executed=实际执行，replayed=返回已保存的响应，coalesced=等待本节点正在执行的同一请求，"
+                        + "conflict=键被用于不同请求，timeout=等待其他节点执行超时")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * 按幂等键执行 action，同一个键只执行一次并返回第一次的结果
+     *
+     * @param scope          接口标识，不同接口的同名键互不影响
+     * @param userId         当前用户ID，幂等键只在同一用户内有效
+     * @param idempotencyKey 请求头中的幂等键，为空时直接执行
+     * @param request        请求内容，用于识别同一个键被用于不同请求
+     * @param responseType   响应类型，用于反序列化已保存的响应
+     */
+    public <T> T execute(String scope, Long userId, String idempotencyKey, Object request,
+                         Class<T> responseType, Supplier<T> action) {
+        if (!enabled || !StringUtils.hasText(idempotencyKey)) {
+            return action.get();
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ApiException(ResultCode.VALIDATION_ERROR, HEADER + " 长度不能超过 " + MAX_KEY_LENGTH);
+        }
+        String recordKey = KEY_PREFIX + scope + ":" + userId + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Flight flight = new Flight(fingerprint, new CompletableFuture<>());
+        Flight existing = inFlight.putIfAbsent(recordKey, flight);
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                conflicts.increment();
+                throw new ApiException(ResultCode.IDEMPOTENCY_KEY_REUSED);
+            }
+            coalesced.increment();
+            try {
+                return responseType.cast(existing.result.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
+        try {
+            T result = executeAcrossNodes(recordKey, fingerprint, responseType, action);
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(recordKey, flight);
+        }
+    }
+
+    private <T> T executeAcrossNodes(String recordKey, String fingerprint, Class<T> responseType, Supplier<T> action) {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            String token = UUID.randomUUID().toString();
+            List<Object> record;
+            try {
+                record = redisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(recordKey),
+                        token, fingerprint, String.valueOf(lockTimeout.toMillis()));
+            } catch (Exception e) {
+                log.warn("读取幂等记录失败，直接执行请求: key={}, error={}", recordKey, e.getMessage());
+                executed.increment();
+                return action.get();
+            }
+            if (record == null || record.isEmpty()) {
+                return executeAsOwner(recordKey, token, action);
+            }
+            T replay = replayOrNull(recordKey, fingerprint, responseType, record);
+            if (replay != null) {
+                return replay;
+            }
+            // 其他节点正在处理，等它写入结果；记录消失（对方失败或崩溃后过期）时重新抢占
+            while (true) {
+                if (System.nanoTime() >= deadline) {
+                    timeouts.increment();
+                    throw new ApiException(ResultCode.IDEMPOTENCY_IN_PROGRESS);
+                }
+                sleep();
+                List<Object> polled = redisTemplate.opsForHash().multiGet(recordKey, List.of("state", "fingerprint", "response"));
+                if (polled.get(0) == null) {
+                    break;
+                }
+                replay = replayOrNull(recordKey, fingerprint, responseType, polled);
+                if (replay != null) {
+                    return replay;
+                }
+            }
+        }
+    }
+
+    private <T> T executeAsOwner(String recordKey, String token, Supplier<T> action) {
+        executed.increment();
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            try {
+                redisTemplate.execute(ABORT_SCRIPT, Collections.singletonList(recordKey), token);
+            } catch (Exception redisError) {
+                log.warn("删除幂等记录失败，等待其自动过期: key={}, error={}", recordKey, redisError.getMessage());
+            }
+            throw e;
+        }
+        try {
+            Long saved = redisTemplate.execute(COMPLETE_SCRIPT, Collections.singletonList(recordKey),
+                    token, objectMapper.writeValueAsString(result), String.valueOf(retention.toMillis()));
+            if (saved == null || saved == 0) {
+                log.warn("保存幂等响应时记录已过期或被其他请求占用，处理时间可能超过了 lock-timeout: key={}", recordKey);
+            }
+        } catch (Exception e) {
+            log.warn("保存幂等响应失败: key={}, error={}", recordKey, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 记录已完成时返回保存的响应，仍在处理中返回 null；请求体摘要不一致时抛出冲突
+     */
+    private <T> T replayOrNull(String recordKey, String fingerprint, Class<T> responseType, List<?> record) {
+        if (!fingerprint.equals(record.get(1))) {
+            conflicts.increment();
+            throw new ApiException(ResultCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        if (!COMPLETED.equals(record.get(0))) {
+            return null;
+        }
+        replayed.increment();
+        try {
+            return objectMapper.readValue((String) record.get(2), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("幂等记录中的响应无法解析: " + recordKey, e);
+        }
+    }
+
+    /**
+     * DefaultRedisScript 只接受 Class 作为结果类型，泛型转换集中在这里
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static RedisScript<List<Object>> listScript(String script) {
+        return (RedisScript<List<Object>>) (RedisScript) new DefaultRedisScript<>(script, List.class);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("计算请求摘要失败", e);
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(Math.max(1, pollInterval.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(ResultCode.IDEMPOTENCY_IN_PROGRESS);
+        }
+    }
+
+    private record Flight(String fingerprint, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.shoppingmall.inventory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.cache.CacheLoadLock;
+import org.example.shoppingmall.cache.ProductCacheTags;
+import org.example.shoppingmall.repository.ProductStockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Redis 库存引擎的异步回写与对账
+ * <p>
+ * <ul>
+ *   <li>回写：每 flush-interval 把已确认的净扣减（inventory:pending）整批写入 products.stock，一批一个事务、一次 JDBC 批量提交。
+ *       批次号随库存更新一起落库，进程在"数据库已提交、Redis 未清理"之间崩溃时，下次重放同一批次会被跳过；</li>
+ *   <li>对账：每 reconcile-interval 先完成回写，再以数据库库存为准，检查 Redis 可售库存是否等于 数据库 - 预占 - 待回写，
+ *       不一致的直接修正并记录偏差（如后台直接修改了库存、Redis 数据丢失或脚本执行中断）。</li>
+ * </ul>
+ * 两个任务在多节点间用 Redis 短锁互斥，同一时刻只有一个节点回写。
+ * 指标：inventory.write_behind.items（回写的商品行数），inventory.reconcile.drift（被修正的商品数）。
+ */
+@Slf4j
+@Component
+public class InventoryWriteBehind {
+
+    private static final String LOCK_NAME = "inventory";
+    private static final String LOCK_KEY = "write-behind";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(1);
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private final RedisInventory redisInventory;
+    private final ProductStockRepository productStockRepository;
+    private final ProductCacheTags productCacheTags;
+    private final CacheLoadLock lock;
+    private final Duration batchRetention;
+    private final Counter flushedItems;
+    private final Counter drift;
+
+    public InventoryWriteBehind(RedisInventory redisInventory, ProductStockRepository productStockRepository,
+                                ProductCacheTags productCacheTags, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                                @Value("${app.inventory.redis.batch-retention:P7D}") Duration batchRetention) {
+        this.redisInventory = redisInventory;
+        this.productStockRepository = productStockRepository;
+        this.productCacheTags = productCacheTags;
+        this.lock = new CacheLoadLock(redisTemplate);
+        this.batchRetention = batchRetention;
+        this.flushedItems = Counter.builder("inventory.write_behind.items").register(meterRegistry);
+        this.drift = Counter.builder("inventory.reconcile.drift").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.redis.flush-interval:PT5S}")
+    public void flush() {
+        if (!redisInventory.isEnabled()) {
+            return;
+        }
+        withLock(this::flushPending);
+    }
+
+    @Scheduled(initialDelayString = "${app.inventory.redis.reconcile-interval:PT5M}",
+            fixedDelayString = "${app.inventory.redis.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (!redisInventory.isEnabled()) {
+            return;
+        }
+        withLock(() -> {
+            // 对账要求 inflight 为空，否则已提交未清理的批次会被重复扣除
+            if (!flushPending()) {
+                return;
+            }
+            List<Long> productIds = redisInventory.trackedProductIds();
+            int corrected = 0;
+            for (int from = 0; from < productIds.size(); from += RECONCILE_BATCH_SIZE) {
+                List<Long> batch = productIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, productIds.size()));
+                Map<Long, Long> deviations = redisInventory.reconcile(batch);
+                if (!deviations.isEmpty()) {
+                    log.warn("库存对账发现偏差并已修正 (商品ID=Redis比期望多出的数量): {}", deviations);
+                    corrected += deviations.size();
+                    productCacheTags.onStockChanged(new ArrayList<>(deviations.keySet()));
+                }
+            }
+            drift.increment(corrected);
+            productStockRepository.deleteFlushBatchesBefore(LocalDateTime.now().minus(batchRetention));
+            log.info("库存对账完成: 商品数={}, 修正数={}", productIds.size(), corrected);
+        });
+    }
+
+    /**
+     * 回写一批已确认的扣减，没有数据或回写成功返回 true
+     */
+    private boolean flushPending() {
+        RedisInventory.WriteBehindBatch batch = redisInventory.beginFlush(UUID.randomUUID().toString());
+        if (batch == null) {
+            return true;
+        }
+        try {
+            boolean applied = productStockRepository.applyStockDeltas(batch.batchId(), batch.deltas());
+            redisInventory.endFlush(batch.batchId());
+            if (applied) {
+                flushedItems.increment(batch.deltas().size());
+                productCacheTags.onStockChanged(new ArrayList<>(batch.deltas().keySet()));
+                log.debug("库存回写完成: batch={}, 商品数={}", batch.batchId(), batch.deltas().size());
+            } else {
+                log.info("库存回写批次已提交过，跳过重放: batch={}", batch.batchId());
+            }
+            return true;
+        } catch (Exception e) {
+            // 批次保留在 inflight，下次原样重试
+            log.error("库存回写失败，稍后重试: batch={}, error={}", batch.batchId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void withLock(Runnable task) {
+        String token;
+        try {
+            token = lock.tryLock(LOCK_NAME, LOCK_KEY, LOCK_TTL);
+        } catch (Exception e) {
+            log.warn("获取库存回写锁失败: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            return;
+        }
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("库存回写/对账任务失败", e);
+        } finally {
+            lock.unlock(LOCK_NAME, LOCK_KEY, token);
+        }
+    }
+}
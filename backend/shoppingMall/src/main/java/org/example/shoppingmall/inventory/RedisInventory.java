@@ -0,0 +1,332 @@
+package org.example.shoppingmall.inventory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.repository.ProductStockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Redis 库存引擎：实时可售库存放在 Redis，下单时用一个 Lua 脚本原子预占订单全部商品，热点商品行不再被数据库行锁串行化。
+ * <p>
+ * Redis 中的数据（均为 Hash，field 为商品ID）：
+ * <ul>
+ *   <li>{@code inventory:available}：可售库存，首次访问时按 数据库库存 - 预占 - 待回写 懒加载；</li>
+ *   <li>{@code inventory:reserved}：已预占、尚未支付的数量；</li>
+ *   <li>{@code inventory:pending}：已确认（支付）但尚未回写到 products.stock 的净扣减量，取消已支付订单时为负数；</li>
+ *   <li>{@code inventory:reservation:{orderNo}}：单个订单的预占明细，{@code inventory:deadlines} 按支付截止时间排序，
+ *       截止时间与订单支付超时（app.order.payment-timeout.timeout）相同。</li>
+ * </ul>
+ * 预占 → 支付后确认（reserved 转入 pending）或取消/超时释放（归还 available）。pending 由 {@link InventoryWriteBehind}
+ * 批量回写数据库，并定期与数据库对账修正偏差。
+ */
+@Slf4j
+@Component
+public class RedisInventory {
+
+    static final String AVAILABLE_KEY = "inventory:available";
+    static final String RESERVED_KEY = "inventory:reserved";
+    static final String PENDING_KEY = "inventory:pending";
+    static final String INFLIGHT_KEY = "inventory:inflight";
+    static final String INFLIGHT_BATCH_KEY = "inventory:inflight:batch";
+    static final String DEADLINES_KEY = "inventory:deadlines";
+    private static final String RESERVATION_KEY_PREFIX = "inventory:reservation:";
+
+    private static final String OK = "OK";
+    private static final String MISSING = "MISSING";
+
+    /**
+     * KEYS: available, reserved, reservation, deadlines；ARGV: orderNo, deadline, (商品ID, 数量)...
+     * 返回 {OK} / {MISSING, 未加载的商品ID...} / {SHORT, 库存不足的商品ID...}。同一订单重复预占直接返回 OK。
+     */
+    private static final RedisScript<List<String>> RESERVE_SCRIPT = listScript(
+            "if redis.call('exists', KEYS[3]) == 1 then return {'OK'} end\n" +
+            "local missing = {'MISSING'}\n" +
+            "local short = {'SHORT'}\n" +
+            "for i = 3, #ARGV, 2 do\n" +
+            "  local available = redis.call('hget', KEYS[1], ARGV[i])\n" +
+            "  if not available then missing[#missing + 1] = ARGV[i]\n" +
+            "  elseif tonumber(available) < tonumber(ARGV[i + 1]) then short[#short + 1] = ARGV[i] end\n" +
+            "end\n" +
+            "if #missing > 1 then return missing end\n" +
+            "if #short > 1 then return short end\n" +
+            "for i = 3, #ARGV, 2 do\n" +
+            "  redis.call('hincrby', KEYS[1], ARGV[i], -tonumber(ARGV[i + 1]))\n" +
+            "  redis.call('hincrby', KEYS[2], ARGV[i], ARGV[i + 1])\n" +
+            "  redis.call('hset', KEYS[3], ARGV[i], ARGV[i + 1])\n" +
+            "end\n" +
+            "redis.call('zadd', KEYS[4], ARGV[2], ARGV[1])\n" +
+            "return {'OK'}");
+
+    /**
+     * KEYS: reserved, reservation, deadlines, target；ARGV: orderNo。
+     * 释放和确认共用：预占量从 reserved 移到 target（释放时为 available，确认时为 pending）。预占不存在时返回 0，可重复调用。
+     */
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>(
+            "local items = redis.call('hgetall', KEYS[2])\n" +
+            "for i = 1, #items, 2 do\n" +
+            "  redis.call('hincrby', KEYS[1], items[i], -tonumber(items[i + 1]))\n" +
+            "  redis.call('hincrby', KEYS[4], items[i], items[i + 1])\n" +
+            "end\n" +
+            "redis.call('del', KEYS[2])\n" +
+            "redis.call('zrem', KEYS[3], ARGV[1])\n" +
+            "return #items / 2",
+            Long.class);
+
+    /**
+     * KEYS: available, pending；ARGV: (商品ID, 数量)...  已支付订单取消后归还库存，并抵消待回写的扣减。
+     */
+    private static final RedisScript<Long> RESTOCK_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #ARGV, 2 do\n" +
+            "  if redis.call('hexists', KEYS[1], ARGV[i]) == 1 then redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1]) end\n" +
+            "  redis.call('hincrby', KEYS[2], ARGV[i], -tonumber(ARGV[i + 1]))\n" +
+            "end\n" +
+            "return #ARGV / 2",
+            Long.class);
+
+    /**
+     * KEYS: available, reserved, pending, inflight；ARGV: mode(load/reconcile), (商品ID, 数据库库存)...
+     * mode=load 时只初始化尚未加载的商品；mode=reconcile 时只修正已加载且与 数据库 - 预占 - 待回写 不一致的商品，返回 "商品ID:偏差"。
+     */
+    private static final RedisScript<List<String>> SYNC_SCRIPT = listScript(
+            "local drift = {}\n" +
+            "local function num(key, field) return tonumber(redis.call('hget', key, field) or '0') end\n" +
+            "for i = 2, #ARGV, 2 do\n" +
+            "  local id = ARGV[i]\n" +
+            "  local expected = tonumber(ARGV[i + 1]) - num(KEYS[2], id) - num(KEYS[3], id) - num(KEYS[4], id)\n" +
+            "  local current = redis.call('hget', KEYS[1], id)\n" +
+            "  if ARGV[1] == 'load' then\n" +
+            "    if not current then redis.call('hset', KEYS[1], id, expected) end\n" +
+            "  elseif current and tonumber(current) ~= expected then\n" +
+            "    redis.call('hset', KEYS[1], id, expected)\n" +
+            "    drift[#drift + 1] = id .. ':' .. (tonumber(current) - expected)\n" +
+            "  end\n" +
+            "end\n" +
+            "return drift");
+
+    /**
+     * KEYS: pending, inflight, inflight:batch；ARGV: 新批次号。
+     * 上一批未确认完成时原样返回上一批（批次号不变，数据库端据此去重）；否则把 pending 整体改名为 inflight 作为新批次。
+     * 返回 {批次号, 商品ID, 扣减量, ...}，没有待回写数据时返回空列表。
+     */
+    private static final RedisScript<List<String>> FLUSH_BEGIN_SCRIPT = listScript(
+            "local batch = redis.call('get', KEYS[3])\n" +
+            "if not batch or redis.call('exists', KEYS[2]) == 0 then\n" +
+            "  if redis.call('exists', KEYS[1]) == 0 then return {} end\n" +
+            "  redis.call('rename', KEYS[1], KEYS[2])\n" +
+            "  batch = ARGV[1]\n" +
+            "  redis.call('set', KEYS[3], batch)\n" +
+            "end\n" +
+            "local result = {batch}\n" +
+            "local items = redis.call('hgetall', KEYS[2])\n" +
+            "for i = 1, #items do result[#result + 1] = items[i] end\n" +
+            "return result");
+
+    private static final RedisScript<Long> FLUSH_END_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[2]) == ARGV[1] then return redis.call('del', KEYS[1], KEYS[2]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ProductStockRepository productStockRepository;
+    private final boolean enabled;
+    private final Duration reservationTimeout;
+
+    public RedisInventory(StringRedisTemplate redisTemplate, ProductStockRepository productStockRepository,
+                          @Value("${app.inventory.redis.enabled:false}") boolean enabled,
+                          @Value("${app.order.payment-timeout.timeout:PT30M}") Duration reservationTimeout) {
+        this.redisTemplate = redisTemplate;
+        this.productStockRepository = productStockRepository;
+        this.enabled = enabled;
+        this.reservationTimeout = reservationTimeout;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 原子预占一个订单的全部商品：要么全部扣减成功，要么一个都不扣。
+     *
+     * @param quantities 商品ID -> 数量（同一商品已合并）
+     * @return 库存不足的商品ID，全部预占成功时为空列表
+     */
+    public List<Long> reserve(String orderNo, Map<Long, Integer> quantities) {
+        List<String> keys = List.of(AVAILABLE_KEY, RESERVED_KEY, reservationKey(orderNo), DEADLINES_KEY);
+        List<String> args = new ArrayList<>();
+        args.add(orderNo);
+        args.add(String.valueOf(System.currentTimeMillis() + reservationTimeout.toMillis()));
+        new TreeMap<>(quantities).forEach((id, qty) -> {
+            args.add(String.valueOf(id));
+            args.add(String.valueOf(qty));
+        });
+        List<String> result = execute(RESERVE_SCRIPT, keys, args);
+        if (MISSING.equals(result.get(0))) {
+            // 首次访问的商品按数据库库存加载后重试一次，加载脚本只填充不存在的字段，并发加载不会互相覆盖
+            load(toIds(result));
+            result = execute(RESERVE_SCRIPT, keys, args);
+        }
+        if (OK.equals(result.get(0))) {
+            return List.of();
+        }
+        if (MISSING.equals(result.get(0))) {
+            // 数据库中也不存在的商品，由调用方按库存不足处理
+            log.warn("预占库存时商品不存在: orderNo={}, productIds={}", orderNo, toIds(result));
+        }
+        return toIds(result);
+    }
+
+    /**
+     * 未支付的订单取消或超时，预占的库存归还为可售。
+     *
+     * @return 释放的商品种数，预占不存在（已释放/已确认）时为 0
+     */
+    public long release(String orderNo) {
+        return settle(orderNo, AVAILABLE_KEY);
+    }
+
+    /**
+     * 订单已支付，预占转为待回写数据库的扣减。
+     *
+     * @return 确认的商品种数，预占不存在时为 0
+     */
+    public long confirm(String orderNo) {
+        return settle(orderNo, PENDING_KEY);
+    }
+
+    /**
+     * 已支付（已确认扣减）的订单取消后归还库存。
+     */
+    public void restock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>();
+        quantities.forEach((id, qty) -> {
+            args.add(String.valueOf(id));
+            args.add(String.valueOf(qty));
+        });
+        redisTemplate.execute(RESTOCK_SCRIPT, List.of(AVAILABLE_KEY, PENDING_KEY), args.toArray());
+    }
+
+    /**
+     * 支付截止时间已过 overdue 以上的订单号，按截止时间升序。
+     */
+    public Set<String> expiredReservations(int limit, Duration overdue) {
+        Set<String> orderNos = redisTemplate.opsForZSet()
+                .rangeByScore(DEADLINES_KEY, 0, System.currentTimeMillis() - overdue.toMillis(), 0, limit);
+        return orderNos == null ? Set.of() : orderNos;
+    }
+
+    /**
+     * 开始一批回写：返回批次号和待回写的 商品ID -> 净扣减量，没有数据时返回 null。
+     */
+    public WriteBehindBatch beginFlush(String newBatchId) {
+        List<String> result = execute(FLUSH_BEGIN_SCRIPT, List.of(PENDING_KEY, INFLIGHT_KEY, INFLIGHT_BATCH_KEY),
+                List.of(newBatchId));
+        if (result.isEmpty()) {
+            return null;
+        }
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            int delta = Integer.parseInt(result.get(i + 1));
+            if (delta != 0) {
+                deltas.put(Long.parseLong(result.get(i)), delta);
+            }
+        }
+        return new WriteBehindBatch(result.get(0), deltas);
+    }
+
+    /**
+     * 数据库已提交该批次，删除 inflight。
+     */
+    public void endFlush(String batchId) {
+        redisTemplate.execute(FLUSH_END_SCRIPT, List.of(INFLIGHT_KEY, INFLIGHT_BATCH_KEY), batchId);
+    }
+
+    /**
+     * 已加载到 Redis 的商品ID。
+     */
+    public List<Long> trackedProductIds() {
+        return redisTemplate.opsForHash().keys(AVAILABLE_KEY).stream()
+                .map(key -> Long.parseLong((String) key))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 以数据库库存为准修正 Redis 可售库存，应在回写完成（inflight 为空）后调用。
+     *
+     * @return 发生偏差的 商品ID -> 偏差（Redis - 期望值）
+     */
+    public Map<Long, Long> reconcile(Collection<Long> productIds) {
+        Map<Long, Long> drift = new LinkedHashMap<>();
+        for (String entry : sync("reconcile", productIds)) {
+            String[] parts = entry.split(":");
+            drift.put(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        }
+        return drift;
+    }
+
+    private void load(Collection<Long> productIds) {
+        sync("load", productIds);
+    }
+
+    private List<String> sync(String mode, Collection<Long> productIds) {
+        Map<Long, Integer> stock = productStockRepository.findStock(productIds);
+        if (stock.isEmpty()) {
+            return List.of();
+        }
+        List<String> args = new ArrayList<>();
+        args.add(mode);
+        stock.forEach((id, value) -> {
+            args.add(String.valueOf(id));
+            args.add(String.valueOf(value));
+        });
+        return execute(SYNC_SCRIPT, List.of(AVAILABLE_KEY, RESERVED_KEY, PENDING_KEY, INFLIGHT_KEY), args);
+    }
+
+    private long settle(String orderNo, String targetKey) {
+        Long settled = redisTemplate.execute(SETTLE_SCRIPT,
+                List.of(RESERVED_KEY, reservationKey(orderNo), DEADLINES_KEY, targetKey), orderNo);
+        return settled == null ? 0 : settled;
+    }
+
+    private List<String> execute(RedisScript<List<String>> script, List<String> keys, List<String> args) {
+        List<String> result = redisTemplate.execute(script, keys, args.toArray());
+        return result == null ? List.of() : result;
+    }
+
+    /**
+     * 返回字符串数组的脚本。DefaultRedisScript 只接受 Class 作为结果类型，泛型转换集中在这里
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static RedisScript<List<String>> listScript(String script) {
+        return (RedisScript<List<String>>) (RedisScript) new DefaultRedisScript<>(script, List.class);
+    }
+
+    private static List<Long> toIds(List<String> result) {
+        return result.stream().skip(1).map(Long::parseLong).collect(Collectors.toList());
+    }
+
+    private static String reservationKey(String orderNo) {
+        return RESERVATION_KEY_PREFIX + orderNo;
+    }
+
+    /**
+     * 一批待回写数据库的库存扣减
+     */
+    public record WriteBehindBatch(String batchId, Map<Long, Integer> deltas) {
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.shoppingmall.inventory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.service.OrderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * 修复遗留的 Redis 预占：订单已支付、已取消或下单事务已回滚，但事务提交后的 Redis 确认/释放没有执行成功
+ * <p>
+ * 只处理支付截止时间已过 repair-grace 的预占，补做确认或释放，不改订单状态；
+ * 仍待付款的订单由支付超时时间轮（{@link org.example.shoppingmall.order.PaymentTimeoutJob}）取消，这里跳过。
+ * 多节点同时扫描到同一订单时，Lua 确认/释放都是幂等的，只会生效一次。
+ */
+@Slf4j
+@Component
+public class ReservationRepairJob {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final RedisInventory redisInventory;
+    private final OrderService orderService;
+    private final Duration grace;
+
+    public ReservationRepairJob(RedisInventory redisInventory, OrderService orderService,
+                                @Value("${app.inventory.redis.repair-grace:PT5M}") Duration grace) {
+        this.redisInventory = redisInventory;
+        this.orderService = orderService;
+        this.grace = grace;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.redis.repair-interval:PT1M}")
+    public void repair() {
+        if (!redisInventory.isEnabled()) {
+            return;
+        }
+        Set<String> orderNos;
+        try {
+            orderNos = redisInventory.expiredReservations(BATCH_SIZE, grace);
+        } catch (Exception e) {
+            log.warn("读取超时预占失败: {}", e.getMessage());
+            return;
+        }
+        int repaired = 0;
+        for (String orderNo : orderNos) {
+            try {
+                if (orderService.repairReservation(orderNo)) {
+                    repaired++;
+                }
+            } catch (Exception e) {
+                log.error("修复遗留预占失败: orderNo={}, error={}", orderNo, e.getMessage());
+            }
+        }
+        if (repaired > 0) {
+            log.info("遗留预占修复: 到期预占={}, 已修复={}", orderNos.size(), repaired);
+        }
+    }
+}
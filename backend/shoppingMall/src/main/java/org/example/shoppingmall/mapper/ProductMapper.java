@@ -3,6 +3,7 @@ package org.example.shoppingmall.mapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.example.shoppingmall.dto.ProductCardDTO;
 import org.example.shoppingmall.dto.ProductSearchDto;
 import org.example.shoppingmall.entity.Product;
 import org.springframework.data.domain.Pageable;
@@ -27,6 +28,9 @@ public interface ProductMapper {
     
     // 分页查询
     List<Product> selectByPage(@Param("offset") int offset, @Param("limit") int limit);
+
+    // 分页查询上架商品的列表卡片 (只查卡片需要的列，不读取 detail/images/params/specs)
+    List<ProductCardDTO> selectCardsByPage(@Param("offset") int offset, @Param("limit") int limit);
     
     // 计数
     int count();
@@ -66,13 +70,13 @@ public interface ProductMapper {
     List<Product> selectByIsActiveTrueOrderByCreatedAtDesc(@Param("limit") int limit);
     
     // 查询评分最高的商品 - 添加注解实现
-    @Select("SELECT p.*, u.username as seller_username, AVG(c.rating) as avg_rating " +
-           "FROM products p " +
+    // 评分取自增量维护的 product_ratings 汇总表，避免 JOIN comments 再 GROUP BY
+    @Select("SELECT p.*, u.username as seller_username, r.rating_sum / r.rating_count as avg_rating " +
+           "FROM product_ratings r " +
+           "JOIN products p ON p.id = r.product_id " +
            "LEFT JOIN users u ON p.seller_id = u.id " +
-           "LEFT JOIN comments c ON p.id = c.product_id " +
-           "WHERE p.is_active = 1 " +
-           "GROUP BY p.id " +
-           "ORDER BY avg_rating DESC " +
+           "WHERE p.status = 1 AND r.rating_count > 0 " +
+           "ORDER BY avg_rating DESC, r.rating_count DESC, p.id DESC " +
            "LIMIT #{limit}")
     List<Product> selectTopRatedActiveProducts(@Param("limit") int limit);
 
@@ -0,0 +1,59 @@
+package org.example.shoppingmall.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.repository.ProductRatingRepository;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 一次性迁移：从评论表初始化 product_ratings 汇总表中的历史评分
+ * <p>
+ * 是否已执行由 data_migrations 中的标记行决定，不看汇总表是否为空（启动期间新写入的评论会先插入汇总行）。
+ * 标记行与重建在同一事务内写入：多节点同时启动时，后到的节点在插入标记时等待先到节点提交，随后因主键冲突跳过；
+ * 重建失败则整体回滚，下次启动重试。
+ * 重建以评论表为准覆盖已有的汇总行，迁移前后并发写入的增量不会被重复计算。
+ * 在应用就绪之前执行，好评榜和缓存预热读到的已经是完整数据；与好评榜是否启用无关。
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ProductRatingBackfill implements ApplicationRunner {
+
+    static final String MIGRATION_NAME = "product_ratings_backfill_v1";
+
+    private final ProductRatingRepository productRatingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductRatingBackfill(ProductRatingRepository productRatingRepository, JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate) {
+        this.productRatingRepository = productRatingRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            Integer rebuilt = transactionTemplate.execute(status -> {
+                try {
+                    jdbcTemplate.update("INSERT INTO data_migrations (name, applied_at) VALUES (?, NOW())", MIGRATION_NAME);
+                } catch (DuplicateKeyException e) {
+                    return null;
+                }
+                return productRatingRepository.rebuildFromComments();
+            });
+            if (rebuilt != null) {
+                log.info("已从评论表初始化商品评分汇总: 商品数={}", rebuilt);
+            }
+        } catch (Exception e) {
+            log.error("初始化商品评分汇总失败，下次启动时重试", e);
+        }
+    }
+}
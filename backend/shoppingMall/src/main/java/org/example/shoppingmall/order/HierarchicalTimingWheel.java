@@ -0,0 +1,167 @@
+package org.example.shoppingmall.order;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮：按键登记到期时间，添加、替换、取消均为 O(1)
+ * <p>
+ * 共 LEVELS 层，每层 WHEEL_SIZE(64) 个槽，第 i 层一个槽跨 64^i 个刻度。任务按距离到期的刻度数放入能容纳它的最低一层，
+ * 槽位由到期刻度的绝对值决定；低层转完一圈时把上一层当前槽中的任务重新分配到更低的层（级联），最终在第 0 层到期。
+ * 超出最高层范围的任务暂放在最高层，级联时按真实到期时间重新放置。
+ * 每个槽是双向链表，另有 键→节点 的索引，取消时直接摘链。
+ * <p>
+ * 已到期（到期时间不晚于上次推进到的刻度）的任务在下一个刻度到期。所有方法由同一把对象锁保护。
+ */
+public class HierarchicalTimingWheel<K> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 5;
+    private static final long MAX_SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickMs;
+    private final Node<K>[][] slots;
+    private final Map<K, Node<K>> index = new HashMap<>();
+    /** 下一个待处理的刻度 */
+    private long nextTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMs, long startMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("刻度必须大于 0: " + tickMs);
+        }
+        this.tickMs = tickMs;
+        this.slots = new Node[LEVELS][WHEEL_SIZE];
+        for (Node<K>[] level : slots) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = Node.sentinel();
+            }
+        }
+        this.nextTick = Math.floorDiv(startMs, tickMs) + 1;
+    }
+
+    /**
+     * 登记（或替换）一个任务的到期时间
+     */
+    public synchronized void add(K key, long deadlineMs) {
+        Node<K> existing = index.get(key);
+        if (existing != null) {
+            existing.unlink();
+        }
+        // 向上取整：到期时间落在刻度中间时在下一个刻度触发，保证不提前
+        Node<K> node = existing != null ? existing : new Node<>(key);
+        node.expireTick = Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+        place(node);
+        index.put(key, node);
+    }
+
+    /**
+     * 取消任务，任务存在返回 true
+     */
+    public synchronized boolean cancel(K key) {
+        Node<K> node = index.remove(key);
+        if (node == null) {
+            return false;
+        }
+        node.unlink();
+        return true;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 推进到 nowMs，返回期间到期的任务键（已从时间轮移除）
+     */
+    public synchronized List<K> advance(long nowMs) {
+        long targetTick = Math.floorDiv(nowMs, tickMs);
+        List<K> expired = new ArrayList<>();
+        while (nextTick <= targetTick) {
+            long tick = nextTick;
+            // 第 0 层转完一圈时，从第 1 层开始逐层级联，上一层仍处在一圈的起点时继续向上
+            for (int level = 1; level < LEVELS && slotIndex(tick, level - 1) == 0; level++) {
+                cascade(level, slotIndex(tick, level));
+            }
+            Node<K> head = slots[0][slotIndex(tick, 0)];
+            for (Node<K> node = head.next; node != head; ) {
+                Node<K> next = node.next;
+                node.unlink();
+                index.remove(node.key);
+                expired.add(node.key);
+                node = next;
+            }
+            nextTick = tick + 1;
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int slot) {
+        Node<K> head = slots[level][slot];
+        Node<K> node = head.next;
+        head.next = head;
+        head.prev = head;
+        while (node != head) {
+            Node<K> next = node.next;
+            node.prev = null;
+            node.next = null;
+            place(node);
+            node = next;
+        }
+    }
+
+    private void place(Node<K> node) {
+        long tick = Math.max(node.expireTick, nextTick);
+        long delta = tick - nextTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        if (delta >= MAX_SPAN) {
+            tick = nextTick + MAX_SPAN - 1;
+        }
+        slots[level][slotIndex(tick, level)].append(node);
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private long expireTick;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key) {
+            this.key = key;
+        }
+
+        private static <K> Node<K> sentinel() {
+            Node<K> head = new Node<>(null);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        private void append(Node<K> node) {
+            node.prev = prev;
+            node.next = this;
+            prev.next = node;
+            prev = node;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.shoppingmall.order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.service.OrderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 支付超时自动取消：每个刻度推进一次时间轮，把到期订单分批取消并归还库存
+ * <p>
+ * 每批一个事务：锁定仍为待付款的订单行、改为已取消、合并所有订单项后一次批量归还库存。
+ * 某批失败时整批在 retry-delay 后重新到期。
+ * 指标：order.payment_timeout.expired（被自动取消的订单数）。
+ */
+@Slf4j
+@Component
+public class PaymentTimeoutJob {
+
+    private final PaymentTimeoutWheel paymentTimeoutWheel;
+    private final OrderService orderService;
+    private final int batchSize;
+    private final Duration retryDelay;
+    private final Counter expiredOrders;
+
+    public PaymentTimeoutJob(PaymentTimeoutWheel paymentTimeoutWheel, OrderService orderService, MeterRegistry meterRegistry,
+                             @Value("${app.order.payment-timeout.batch-size:200}") int batchSize,
+                             @Value("${app.order.payment-timeout.retry-delay:PT30S}") Duration retryDelay) {
+        this.paymentTimeoutWheel = paymentTimeoutWheel;
+        this.orderService = orderService;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+        this.expiredOrders = Counter.builder("order.payment_timeout.expired").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.order.payment-timeout.tick:PT1S}")
+    public void tick() {
+        if (!paymentTimeoutWheel.isEnabled()) {
+            return;
+        }
+        List<String> due = paymentTimeoutWheel.advance();
+        if (due.isEmpty()) {
+            return;
+        }
+        int cancelled = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<String> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                cancelled += orderService.expireUnpaidOrders(batch);
+            } catch (Exception e) {
+                log.error("批量取消支付超时订单失败，稍后重试: 订单数={}, error={}", batch.size(), e.getMessage());
+                paymentTimeoutWheel.retryLater(batch, retryDelay);
+            }
+        }
+        expiredOrders.increment(cancelled);
+        log.info("支付超时处理: 到期订单={}, 取消订单={}", due.size(), cancelled);
+    }
+}
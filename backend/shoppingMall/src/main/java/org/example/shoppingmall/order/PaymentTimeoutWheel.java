@@ -0,0 +1,205 @@
+package org.example.shoppingmall.order;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.entity.OrderStatus;
+import org.example.shoppingmall.repository.OrderRepository;
+import org.example.shoppingmall.util.OrderNoGenerator;
+import org.example.shoppingmall.util.OrderNoNodeLease;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * 待付款订单的支付截止时间表，基于内存中的 {@link HierarchicalTimingWheel}
+ * <p>
+ * 每个订单归属于生成它的节点（订单号第 18~21 位的节点号，见 {@link OrderNoGenerator}），每个节点只管理自己的订单：
+ * 启动完成后按主键分页扫描本节点号的 PENDING_PAYMENT 订单重建（截止时间 = 下单时间 + timeout）；
+ * 运行期间本节点下单后登记，支付、取消后移除，登记和移除都是 O(1)。时间轮的大小只与本节点的待付款订单数有关，
+ * 每个订单也只在一个节点到期。到期订单由 {@link PaymentTimeoutJob} 批量取消，数据库行锁和状态条件保证只取消一次。
+ * <p>
+ * 兜底：
+ * <ul>
+ *   <li>每 rescan-interval 扫描一次本节点号已过支付截止时间仍待付款的订单补登（处理失败、改租节点号等漏掉的订单）；</li>
+ *   <li>节点宕机且节点号租约过期后没有节点再管理它的订单，持有 Redis 清扫租约的一个节点同时补登节点号无人租用的
+ *       （以及旧格式订单号的）过期订单，下一个刻度即被取消。节点号被新进程租用后由新进程启动时接管。</li>
+ * </ul>
+ * 指标：order.payment_timeout.pending（时间轮中待到期的订单数）。
+ */
+@Slf4j
+@Component
+public class PaymentTimeoutWheel {
+
+    private static final int REBUILD_PAGE_SIZE = 5000;
+    static final String SWEEPER_KEY = "payment-timeout:sweeper";
+
+    // 清扫租约：不存在时占用，已由本节点持有时续期
+    private static final RedisScript<Long> SWEEPER_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end " +
+            "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('pexpire', KEYS[1], ARGV[2]) return 1 end " +
+            "return 0",
+            Long.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderNoGenerator orderNoGenerator;
+    private final OrderNoNodeLease nodeLease;
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final Duration timeout;
+    private final Duration sweeperTtl;
+    private final String token = UUID.randomUUID().toString();
+    private final HierarchicalTimingWheel<String> wheel;
+
+    public PaymentTimeoutWheel(OrderRepository orderRepository, OrderNoGenerator orderNoGenerator, OrderNoNodeLease nodeLease,
+                               StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+                               @Value("${app.order.payment-timeout.enabled:true}") boolean enabled,
+                               @Value("${app.order.payment-timeout.timeout:PT30M}") Duration timeout,
+                               @Value("${app.order.payment-timeout.tick:PT1S}") Duration tick,
+                               @Value("${app.order.payment-timeout.rescan-interval:PT5M}") Duration rescanInterval) {
+        this.orderRepository = orderRepository;
+        this.orderNoGenerator = orderNoGenerator;
+        this.nodeLease = nodeLease;
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.timeout = timeout;
+        // 持有者连续错过一次扫描仍保有租约，宕机后至多两个周期由其他节点接手
+        this.sweeperTtl = rescanInterval.multipliedBy(2);
+        this.wheel = new HierarchicalTimingWheel<>(tick.toMillis(), System.currentTimeMillis());
+        Gauge.builder("order.payment_timeout.pending", wheel, HierarchicalTimingWheel::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 登记订单的支付截止时间，createdAt 为下单时间
+     */
+    public void schedule(String orderNo, LocalDateTime createdAt) {
+        if (enabled) {
+            wheel.add(orderNo, toEpochMilli(createdAt == null ? LocalDateTime.now() : createdAt) + timeout.toMillis());
+        }
+    }
+
+    /**
+     * 处理失败的订单延后重试
+     */
+    public void retryLater(List<String> orderNos, Duration delay) {
+        long deadline = System.currentTimeMillis() + delay.toMillis();
+        orderNos.forEach(orderNo -> wheel.add(orderNo, deadline));
+    }
+
+    public void cancel(String orderNo) {
+        if (enabled) {
+            wheel.cancel(orderNo);
+        }
+    }
+
+    /**
+     * 推进到当前时间，返回已过支付截止时间的订单号
+     */
+    public List<String> advance() {
+        return wheel.advance(System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        String node = OrderNoGenerator.nodeField(orderNoGenerator.getNodeId());
+        int loaded = load((afterId, page) -> orderRepository.findDeadlineKeysByStatusAndNodeAfterId(
+                OrderStatus.PENDING_PAYMENT, node, afterId, page));
+        log.info("支付超时时间轮重建完成: 节点号={}, 待付款订单={}, 耗时={}ms", node, loaded, System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * 补登本节点（以及持有清扫租约时无人管理的节点）已过支付截止时间仍待付款的订单
+     */
+    @Scheduled(initialDelayString = "${app.order.payment-timeout.rescan-interval:PT5M}",
+            fixedDelayString = "${app.order.payment-timeout.rescan-interval:PT5M}")
+    public void rescanOverdue() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime createdBefore = LocalDateTime.now().minus(timeout);
+        try {
+            String node = OrderNoGenerator.nodeField(orderNoGenerator.getNodeId());
+            int loaded = load((afterId, page) -> orderRepository.findDeadlineKeysByStatusCreatedBeforeAndNodeAfterId(
+                    OrderStatus.PENDING_PAYMENT, createdBefore, node, afterId, page));
+            if (loaded > 0) {
+                log.info("补登本节点已过支付截止时间的订单: {}", loaded);
+            }
+        } catch (Exception e) {
+            log.warn("扫描已过支付截止时间的订单失败: {}", e.getMessage());
+        }
+        try {
+            if (holdSweeper()) {
+                sweepOrphans(createdBefore);
+            }
+        } catch (Exception e) {
+            log.warn("扫描无人管理的过期订单失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean holdSweeper() {
+        Long held = redisTemplate.execute(SWEEPER_SCRIPT, Collections.singletonList(SWEEPER_KEY),
+                token, String.valueOf(sweeperTtl.toMillis()));
+        return held != null && held > 0;
+    }
+
+    private void sweepOrphans(LocalDateTime createdBefore) {
+        List<String> liveNodes = new ArrayList<>();
+        for (int nodeId : nodeLease.leasedNodeIds(OrderNoGenerator.MAX_NODE_ID)) {
+            liveNodes.add(OrderNoGenerator.nodeField(nodeId));
+        }
+        // 本节点一定存活，同时避免 NOT IN 空列表
+        liveNodes.add(OrderNoGenerator.nodeField(orderNoGenerator.getNodeId()));
+        int loaded = load((afterId, page) -> orderRepository.findOrphanDeadlineKeys(
+                OrderStatus.PENDING_PAYMENT, createdBefore, OrderNoGenerator.LENGTH, liveNodes, afterId, page));
+        if (loaded > 0) {
+            log.info("补登节点号无人管理的过期订单: {}", loaded);
+        }
+    }
+
+    /**
+     * 按主键分页读取 (id, orderNo, createdAt) 并登记，返回登记的订单数
+     */
+    private int load(BiFunction<Long, Pageable, List<Object[]>> pageLoader) {
+        long afterId = 0;
+        int loaded = 0;
+        while (true) {
+            List<Object[]> rows = pageLoader.apply(afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+            for (Object[] row : rows) {
+                schedule((String) row[1], (LocalDateTime) row[2]);
+            }
+            loaded += rows.size();
+            if (rows.size() < REBUILD_PAGE_SIZE) {
+                return loaded;
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
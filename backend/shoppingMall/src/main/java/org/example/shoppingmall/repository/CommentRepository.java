@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,6 +47,19 @@ public interface CommentRepository extends JpaRepository<Comment, Long> { // 主
     @EntityGraph(attributePaths = {"user", "product"})
     List<Comment> findTop5ByProduct_IdAndVisibleTrueOrderByCreatedAtDesc(Long productId); // visible = true 由方法名隐含
 
+    // 游标分页：第一页 (传 PageRequest.of(0, size + 1)，返回 List 不会触发 COUNT 查询)
+    @EntityGraph(attributePaths = {"user", "product"})
+    List<Comment> findByProduct_IdAndVisibleTrueOrderByCreatedAtDescIdDesc(Long productId, Pageable pageable);
+
+    // 游标分页：从上一页最后一条 (createdAt, id) 之后继续读取
+    @EntityGraph(attributePaths = {"user", "product"})
+    @Query("SELECT c FROM Comment c WHERE c.product.id = :productId AND c.visible = true AND " +
+            "(c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Comment> findVisibleByProductIdBefore(@Param("productId") Long productId,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id, Pageable pageable);
+
     @Override
     @EntityGraph(attributePaths = {"user", "product", "orderItem"})
     Optional<Comment> findById(Long id);
@@ -0,0 +1,68 @@
+package org.example.shoppingmall.repository;
+
+import org.example.shoppingmall.entity.OrderItem;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单项的 JDBC 批量插入
+ * <p>
+ * order_items 的主键是自增列（IDENTITY），Hibernate 对这类实体无法批量插入，级联保存 N 个订单项就是 N 次往返。
+ * 这里用一条 PreparedStatement 批量提交全部订单项（MySQL 连接开启 rewriteBatchedStatements 后合并为多值 INSERT），
+ * 并按顺序回填自增主键和创建时间。调用方负责保证这些订单项不再由 Hibernate 级联保存。
+ */
+@Repository
+public class OrderItemBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO order_items (order_id, product_id, product_name, product_image, "
+            + "product_specs, quantity, unit_price, subtotal, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 批量插入订单项，item.getOrder() 必须已经持久化（有 ID）
+     */
+    public void insertAll(List<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (OrderItem item : items) {
+                    ps.setLong(1, item.getOrder().getId());
+                    ps.setLong(2, item.getProduct().getId());
+                    ps.setString(3, item.getProductName());
+                    ps.setString(4, item.getProductImage());
+                    ps.setString(5, item.getProductSpecs());
+                    ps.setInt(6, item.getQuantity());
+                    ps.setBigDecimal(7, item.getUnitPrice());
+                    ps.setBigDecimal(8, item.getSubtotal());
+                    ps.setTimestamp(9, createdAt);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (int i = 0; i < items.size() && keys.next(); i++) {
+                        items.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+        items.forEach(item -> item.setCreatedAt(now));
+    }
+}
@@ -1,17 +1,20 @@
 package org.example.shoppingmall.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.shoppingmall.entity.Order;
 import org.example.shoppingmall.entity.OrderStatus; // 导入OrderStatus
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph; // 导入EntityGraph
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -94,4 +97,50 @@ public interface OrderRepository extends JpaRepository<Order, Long> { // 主键
     @Query("SELECT COUNT(o) FROM Order o WHERE o.buyer.id = :buyerId")
     Long countByBuyerId(@Param("buyerId") Long buyerId);
 
+    // --- 游标分页：按 (createdAt, id) 倒序定位，只查当前页的订单ID，不做 COUNT ---
+    // 详情再按ID批量加载，避免集合抓取 (items) 与 LIMIT 同时使用时 Hibernate 退化为内存分页
+    @Query("SELECT o.id FROM Order o WHERE o.buyer.id = :buyerId AND (:status IS NULL OR o.status = :status) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findIdsByBuyerId(@Param("buyerId") Long buyerId, @Param("status") OrderStatus status, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.buyer.id = :buyerId AND (:status IS NULL OR o.status = :status) AND " +
+            "(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findIdsByBuyerIdBefore(@Param("buyerId") Long buyerId, @Param("status") OrderStatus status,
+                                      @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"buyer", "items", "items.product"})
+    @Query("SELECT DISTINCT o FROM Order o WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") List<Long> ids);
+
+    // --- 支付超时 ---
+    // 按主键分页读取订单号第 18~21 位（节点号）为 node 的 (id, orderNo, createdAt)，用于启动时重建本节点的支付超时时间轮
+    @Query("SELECT o.id, o.orderNo, o.createdAt FROM Order o WHERE o.status = :status " +
+            "AND SUBSTRING(o.orderNo, 18, 4) = :node AND o.id > :afterId ORDER BY o.id")
+    List<Object[]> findDeadlineKeysByStatusAndNodeAfterId(@Param("status") OrderStatus status, @Param("node") String node,
+                                                          @Param("afterId") Long afterId, Pageable pageable);
+
+    // 同上，只取下单时间早于 createdBefore 的订单，用于定期补登本节点已过支付截止时间的订单
+    @Query("SELECT o.id, o.orderNo, o.createdAt FROM Order o WHERE o.status = :status AND o.createdAt < :createdBefore " +
+            "AND SUBSTRING(o.orderNo, 18, 4) = :node AND o.id > :afterId ORDER BY o.id")
+    List<Object[]> findDeadlineKeysByStatusCreatedBeforeAndNodeAfterId(@Param("status") OrderStatus status,
+                                                                       @Param("createdBefore") LocalDateTime createdBefore,
+                                                                       @Param("node") String node,
+                                                                       @Param("afterId") Long afterId, Pageable pageable);
+
+    // 已过支付截止时间、且节点号不属于任何存活节点（或旧格式订单号）的订单，由持有清扫租约的节点补登
+    @Query("SELECT o.id, o.orderNo, o.createdAt FROM Order o WHERE o.status = :status AND o.createdAt < :createdBefore " +
+            "AND (LENGTH(o.orderNo) <> :length OR SUBSTRING(o.orderNo, 18, 4) NOT IN :liveNodes) " +
+            "AND o.id > :afterId ORDER BY o.id")
+    List<Object[]> findOrphanDeadlineKeys(@Param("status") OrderStatus status,
+                                          @Param("createdBefore") LocalDateTime createdBefore,
+                                          @Param("length") int length, @Param("liveNodes") Collection<String> liveNodes,
+                                          @Param("afterId") Long afterId, Pageable pageable);
+
+    // 锁定仍处于指定状态的订单行（SELECT ... FOR UPDATE），多节点同时处理同一批订单时只有先拿到锁的一方能看到并修改
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = {"items"})
+    @Query("SELECT o FROM Order o WHERE o.orderNo IN :orderNos AND o.status = :status ORDER BY o.id")
+    List<Order> findForUpdateByOrderNoInAndStatus(@Param("orderNos") List<String> orderNos, @Param("status") OrderStatus status);
+
 }
@@ -0,0 +1,25 @@
+package org.example.shoppingmall.repository;
+
+import org.example.shoppingmall.entity.ProductDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductDeletionRepository extends JpaRepository<ProductDeletion, Long> {
+
+    @Query("SELECT d.productId FROM ProductDeletion d WHERE d.deletedAt >= :since")
+    List<Long> findProductIdsDeletedSince(@Param("since") LocalDateTime since);
+
+    // 清理过了保留期的墓碑记录
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductDeletion d WHERE d.deletedAt < :time")
+    int deleteDeletedBefore(@Param("time") LocalDateTime time);
+}
@@ -0,0 +1,53 @@
+package org.example.shoppingmall.repository;
+
+import org.example.shoppingmall.entity.ProductRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Long> {
+
+    // updated_at 不早于 since 的汇总行（供好评榜定时增量同步其他节点写入的评分）
+    List<ProductRating> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
+
+    /**
+     * 原子地累加评分增量（行不存在时插入），并发写同一商品时由 MySQL 行锁保证计数正确。
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO product_ratings " +
+            "(product_id, rating_count, rating_sum, star1, star2, star3, star4, star5, updated_at) " +
+            "VALUES (:productId, :count, :sum, :star1, :star2, :star3, :star4, :star5, NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "rating_count = rating_count + VALUES(rating_count), rating_sum = rating_sum + VALUES(rating_sum), " +
+            "star1 = star1 + VALUES(star1), star2 = star2 + VALUES(star2), star3 = star3 + VALUES(star3), " +
+            "star4 = star4 + VALUES(star4), star5 = star5 + VALUES(star5), updated_at = NOW()",
+            nativeQuery = true)
+    int applyDelta(@Param("productId") Long productId, @Param("count") long count, @Param("sum") long sum,
+                   @Param("star1") long star1, @Param("star2") long star2, @Param("star3") long star3,
+                   @Param("star4") long star4, @Param("star5") long star5);
+
+    /**
+     * 从 comments 表重建全部汇总，已有的汇总行以评论表为准覆盖（仅由一次性迁移 ProductRatingBackfill 调用）。
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO product_ratings " +
+            "(product_id, rating_count, rating_sum, star1, star2, star3, star4, star5, updated_at) " +
+            "SELECT c.product_id, COUNT(*), SUM(c.rating), " +
+            "SUM(c.rating = 1), SUM(c.rating = 2), SUM(c.rating = 3), SUM(c.rating = 4), SUM(c.rating = 5), NOW() " +
+            "FROM comments c WHERE c.is_visible = 1 AND c.rating BETWEEN 1 AND 5 GROUP BY c.product_id " +
+            "ON DUPLICATE KEY UPDATE " +
+            "rating_count = VALUES(rating_count), rating_sum = VALUES(rating_sum), " +
+            "star1 = VALUES(star1), star2 = VALUES(star2), star3 = VALUES(star3), " +
+            "star4 = VALUES(star4), star5 = VALUES(star5), updated_at = NOW()",
+            nativeQuery = true)
+    int rebuildFromComments();
+}
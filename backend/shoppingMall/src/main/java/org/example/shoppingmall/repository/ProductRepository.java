@@ -1,22 +1,26 @@
 package org.example.shoppingmall.repository;
 
+import org.example.shoppingmall.dto.ProductCardDTO;
 import org.example.shoppingmall.entity.Product;
+import org.example.shoppingmall.search.ProductDocument;
 // import org.example.shoppingmall.entity.Category; // 确保 Category 实体已定义
 // import org.example.shoppingmall.entity.User; // 确保 User 实体已定义
 // import org.example.shoppingmall.entity.Brand; // 确保 Brand 实体已定义
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> { // Product ID 是 Long
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> { // Product ID 是 Long
 
     // 根据卖家ID查找商品 (分页)
     // 假设 Product 实体有: private User seller;
@@ -47,6 +51,9 @@ public interface ProductRepository extends JpaRepository<Product, Long> { // Pro
 
     Page<Product> findByIsFeaturedTrueAndStatus(Integer status, Pageable pageable);
 
+    // 查询所有上架的秒杀商品
+    List<Product> findByIsFlashSaleTrueAndStatus(Integer status);
+
     // 按分类ID查询上架商品 (自定义查询，修正了 categories -> category 和 isActive -> status)
     // Category ID 是 Integer
     @Query("SELECT p FROM Product p WHERE p.status = 1 AND (:categoryId IS NULL OR p.category.id = :categoryId)")
@@ -83,12 +90,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> { // Pro
     @Query("SELECT p FROM Product p WHERE p.status = 1 ORDER BY p.createTime DESC")
     List<Product> findActiveOrderByCreateTimeDesc(Pageable pageable);
 
-    // 查询评分最高的上架商品 (修正了 isActive -> status 和 GROUP BY 中的 updatedAt -> updateTime)
-    // 假设 Product 实体有: private Set<Comment> comments; (Comment 实体有 Integer rating;)
-    // 假设 Product 实体有: private User seller; (用于 GROUP BY)
-    @Query("SELECT p FROM Product p LEFT JOIN p.comments c WHERE p.status = 1 " +
-            "GROUP BY p.id, p.name, p.category, p.brand, p.seller, p.description, p.price, p.originalPrice, p.stock, p.status, p.imageUrl, p.images, p.detail, p.params, p.specs, p.sales, p.createTime, p.updateTime " + // <--- 修改了 p.updatedAt 为 p.updateTime，并确保所有非聚合列都在此
-            "ORDER BY COALESCE(AVG(c.rating), 0) DESC, COUNT(c) DESC") // 按平均分和评论数排序
+    // 查询评分最高的上架商品：直接读取增量维护的 product_ratings 汇总表，不再 JOIN 评论表做 GROUP BY
+    // (好评榜未加载完成时的回退查询，正常情况下由 ProductRatingLeaderboard 在内存中给出)
+    @Query("SELECT p FROM Product p, ProductRating r WHERE r.productId = p.id AND p.status = 1 AND r.ratingCount > 0 " +
+            "ORDER BY (r.ratingSum * 1.0 / r.ratingCount) DESC, r.ratingCount DESC, p.id DESC") // 按平均分和评论数排序
     List<Product> findTopRatedActiveProducts(Pageable pageable);
 
 
@@ -106,8 +111,94 @@ public interface ProductRepository extends JpaRepository<Product, Long> { // Pro
             Pageable pageable
     );
 
+    // --- 列表卡片投影：只查询卡片需要的列，不加载 detail/images/params/specs 大字段 ---
+    // 查询条件与上面对应的整实体查询保持一致
+
+    String CARD_SELECT = "SELECT new org.example.shoppingmall.dto.ProductCardDTO(" +
+            "p.id, p.name, p.price, p.originalPrice, p.imageUrl, p.sales, p.stock) ";
+
+    @Query(CARD_SELECT + "FROM Product p WHERE p.id IN :ids")
+    List<ProductCardDTO> findCardsByIdIn(@Param("ids") List<Long> ids);
+
+    @Query(value = CARD_SELECT + "FROM Product p WHERE p.status = 1",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.status = 1")
+    Page<ProductCardDTO> findActiveCards(Pageable pageable);
+
+    @Query(value = CARD_SELECT + "FROM Product p LEFT JOIN p.category c LEFT JOIN p.brand b WHERE p.status = 1 AND " +
+            "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(b.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
+            "(:categoryId IS NULL OR c.id = :categoryId) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice)",
+            countQuery = "SELECT COUNT(p) FROM Product p LEFT JOIN p.category c LEFT JOIN p.brand b WHERE p.status = 1 AND " +
+            "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(b.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
+            "(:categoryId IS NULL OR c.id = :categoryId) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice)")
+    Page<ProductCardDTO> advancedSearchCards(
+            @Param("keyword") String keyword,
+            @Param("categoryId") Integer categoryId,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            Pageable pageable);
+
+    @Query(value = CARD_SELECT + "FROM Product p WHERE " +
+            "p.isFeatured = true AND p.status = 1 AND " +
+            "(:keyword IS NULL OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%) AND " +
+            "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice)",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE " +
+            "p.isFeatured = true AND p.status = 1 AND " +
+            "(:keyword IS NULL OR p.name LIKE %:keyword% OR p.description LIKE %:keyword%) AND " +
+            "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice)")
+    Page<ProductCardDTO> findFeaturedCardsWithFilters(
+            @Param("keyword") String keyword,
+            @Param("categoryId") Integer categoryId,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            Pageable pageable);
+
     // 根据卖家ID和状态查询商品 (分页)
     // Seller ID (User ID) 是 Long
     Page<Product> findBySeller_IdAndStatus(Long sellerId, Integer status, Pageable pageable);
 
+    // 按主键游标分批读取上架商品的索引快照 (供搜索索引启动时全量构建，避免 OFFSET 深翻页)
+    @Query("SELECT new org.example.shoppingmall.search.ProductDocument(" +
+            "p.id, p.name, p.description, b.id, b.name, c.id, c.name, p.price, p.status, p.isFeatured, p.sales, p.createTime) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c " +
+            "WHERE p.status = 1 AND p.id > :afterId ORDER BY p.id")
+    List<ProductDocument> findIndexDocumentsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // 按主键游标分批读取 update_time 不早于 since 的商品（含下架商品，供搜索索引定时增量同步）
+    @Query("SELECT new org.example.shoppingmall.search.ProductDocument(" +
+            "p.id, p.name, p.description, b.id, b.name, c.id, c.name, p.price, p.status, p.isFeatured, p.sales, p.createTime) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c " +
+            "WHERE p.updateTime >= :since AND p.id > :afterId ORDER BY p.id")
+    List<ProductDocument> findIndexDocumentsUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId,
+                                                         Pageable pageable);
+
+    // 单个商品的索引快照（含下架商品，供其他节点收到变更通知后读取最新数据）
+    @Query("SELECT new org.example.shoppingmall.search.ProductDocument(" +
+            "p.id, p.name, p.description, b.id, b.name, c.id, c.name, p.price, p.status, p.isFeatured, p.sales, p.createTime) " +
+            "FROM Product p LEFT JOIN p.brand b LEFT JOIN p.category c WHERE p.id = :id")
+    Optional<ProductDocument> findIndexDocument(@Param("id") Long id);
+
+    // 按主键游标分批读取全部商品ID（含下架商品，供商品ID布隆过滤器重建）
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // 当前最大的商品ID，没有商品时为 0（商品ID布隆过滤器以它为界放行之后新增的商品）
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Product p")
+    long findMaxId();
+
+    // 按主键批量读取商品，同时取回分类和品牌（收藏列表需要品牌信息，避免逐个懒加载）
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.brand WHERE p.id IN :ids")
+    List<Product> findWithCategoryAndBrandByIdIn(@Param("ids") List<Long> ids);
+
 }
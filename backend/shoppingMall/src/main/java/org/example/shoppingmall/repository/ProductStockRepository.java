@@ -0,0 +1,150 @@
+package org.example.shoppingmall.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 商品库存的原子增减
+ * <p>
+ * 扣减使用条件更新 {@code stock = stock - ? WHERE id = ? AND stock >= ?}，由数据库在行锁内完成"检查 + 扣减"，
+ * 不再先读库存再整行回写，因此并发下单不会超卖，也不会丢失更新。
+ * 一个订单的所有商品通过一次 JDBC 批量提交，并按商品 ID 升序执行，使并发事务以相同顺序加行锁，避免死锁。
+ * 需在调用方事务内使用：扣减失败时由调用方抛出异常回滚已扣减的行。
+ * 销量随库存在同一条 UPDATE 中反向增减，update_time 随之更新，搜索索引的增量同步据此读到新的销量。
+ */
+@Repository
+public class ProductStockRepository {
+
+    private static final String DECREASE_SQL =
+            "UPDATE products SET stock = stock - ?, sales = COALESCE(sales, 0) + ?, update_time = ? WHERE id = ? AND stock >= ?";
+    private static final String INCREASE_SQL =
+            "UPDATE products SET stock = stock + ?, sales = GREATEST(COALESCE(sales, 0) - ?, 0), update_time = ? WHERE id = ?";
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE products SET stock = stock - ?, sales = GREATEST(COALESCE(sales, 0) + ?, 0), update_time = ? WHERE id = ?";
+    private static final String INSERT_FLUSH_BATCH_SQL =
+            "INSERT INTO inventory_flush_batches (batch_id, applied_at) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 批量扣减库存
+     *
+     * @param quantities 商品 ID -> 扣减数量（同一商品已合并）
+     * @return 库存不足（或商品不存在）而未扣减的商品 ID，全部成功时为空列表
+     */
+    public List<Long> decreaseStock(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = jdbcTemplate.batchUpdate(DECREASE_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setInt(2, entry.getValue());
+            ps.setTimestamp(3, now);
+            ps.setLong(4, entry.getKey());
+            ps.setInt(5, entry.getValue());
+        })[0];
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 1) {
+                failed.add(entries.get(i).getKey());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 批量归还库存（取消订单等场景）
+     *
+     * @param quantities 商品 ID -> 归还数量（同一商品已合并）
+     */
+    public void increaseStock(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INCREASE_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setInt(2, entry.getValue());
+            ps.setTimestamp(3, now);
+            ps.setLong(4, entry.getKey());
+        });
+    }
+
+    /**
+     * 在当前事务内锁定商品行并返回库存（SELECT ... FOR UPDATE），商品不存在时返回 null。
+     * 用于秒杀批量下单：一批订单只加一次行锁，在锁内按排队顺序分配库存。
+     */
+    public Integer lockStock(Long productId) {
+        List<Integer> stock = jdbcTemplate.queryForList("SELECT stock FROM products WHERE id = ? FOR UPDATE", Integer.class, productId);
+        return stock.isEmpty() ? null : stock.get(0);
+    }
+
+    /**
+     * 查询商品当前库存，不存在的商品不在结果中
+     */
+    public Map<Long, Integer> findStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new LinkedHashMap<>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        String placeholders = String.join(",", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, stock FROM products WHERE id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> stock.put(rs.getLong(1), rs.getInt(2)), productIds.toArray());
+        return stock;
+    }
+
+    /**
+     * 回写一批 Redis 库存引擎已确认的扣减（deltas 为净扣减量，可为负数）。
+     * <p>
+     * 批次号与库存更新在同一事务内写入 inventory_flush_batches，同一批次重放时（上次提交后未来得及清理 Redis）直接跳过，
+     * 保证每批只生效一次。这里不加 stock >= ? 条件：是否超卖已由 Redis 预占把关，回写只负责让数据库追平。
+     *
+     * @return 本次是否实际更新了库存，批次已回写过时返回 false
+     */
+    @Transactional
+    public boolean applyStockDeltas(String batchId, Map<Long, Integer> deltas) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.update(INSERT_FLUSH_BATCH_SQL, batchId, now);
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+        if (!entries.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, entries, entries.size(), (ps, entry) -> {
+                        ps.setInt(1, entry.getValue());
+                        ps.setInt(2, entry.getValue());
+                        ps.setTimestamp(3, now);
+                        ps.setLong(4, entry.getKey());
+                    });
+        }
+        return true;
+    }
+
+    /**
+     * 清理早于指定时间的回写批次记录
+     */
+    public int deleteFlushBatchesBefore(LocalDateTime time) {
+        return jdbcTemplate.update("DELETE FROM inventory_flush_batches WHERE applied_at < ?", Timestamp.valueOf(time));
+    }
+}
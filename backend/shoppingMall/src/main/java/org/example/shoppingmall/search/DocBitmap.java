@@ -0,0 +1,64 @@
+package org.example.shoppingmall.search;
+
+import java.util.Arrays;
+
+/**
+ * 以文档号为下标的位图
+ * <p>
+ * 与 {@link java.util.BitSet} 相比只多了一个能力：两个位图求交集计数时不需要复制出新位图，
+ * 分面统计时每个分面值都要做一次交集计数，这样可以避免大量临时对象。
+ */
+final class DocBitmap {
+
+    private long[] words;
+
+    DocBitmap() {
+        this(64);
+    }
+
+    DocBitmap(int capacityBits) {
+        words = new long[Math.max(1, (capacityBits + 63) >>> 6)];
+    }
+
+    void set(int doc) {
+        int index = doc >>> 6;
+        if (index >= words.length) {
+            words = Arrays.copyOf(words, Math.max(index + 1, words.length * 2));
+        }
+        words[index] |= 1L << doc;
+    }
+
+    void clear(int doc) {
+        int index = doc >>> 6;
+        if (index < words.length) {
+            words[index] &= ~(1L << doc);
+        }
+    }
+
+    boolean get(int doc) {
+        int index = doc >>> 6;
+        return index < words.length && (words[index] & (1L << doc)) != 0;
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 与另一个位图交集的元素个数。
+     */
+    int andCardinality(DocBitmap other) {
+        long[] a = words;
+        long[] b = other.words;
+        int n = Math.min(a.length, b.length);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.shoppingmall.search;
+
+import org.example.shoppingmall.dto.SearchFacets;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分面位图：按分类、品牌、价格区间分别维护一组上架商品的文档号位图
+ * <p>
+ * 一次查询的全部分面计数只需要把命中结果位图与各分面值位图做交集计数，不再需要逐个分面值 COUNT。
+ * 与 {@link ProductSearchIndex} 共用文档号，由其读写锁保护。
+ */
+final class FacetIndex {
+
+    /** 价格区间的分界点（分），升序；区间为 [bounds[i-1], bounds[i]) */
+    private final long[] priceBoundsCents;
+    private final Map<Long, DocBitmap> categoryDocs = new HashMap<>();
+    private final Map<Long, DocBitmap> brandDocs = new HashMap<>();
+    private final DocBitmap[] priceBucketDocs;
+    private final Map<Long, String> categoryNames = new HashMap<>();
+    private final Map<Long, String> brandNames = new HashMap<>();
+
+    FacetIndex(BigDecimal[] priceBounds) {
+        this.priceBoundsCents = new long[priceBounds.length];
+        for (int i = 0; i < priceBounds.length; i++) {
+            priceBoundsCents[i] = priceBounds[i].movePointRight(2).longValue();
+        }
+        this.priceBucketDocs = new DocBitmap[priceBounds.length + 1];
+        for (int i = 0; i < priceBucketDocs.length; i++) {
+            priceBucketDocs[i] = new DocBitmap();
+        }
+    }
+
+    /**
+     * 登记一个文档；id 为 null 的维度不登记，名称为 null 时沿用已有名称。
+     */
+    void add(int doc, Long categoryId, String categoryName, Long brandId, String brandName, Long priceCents) {
+        if (categoryId != null) {
+            categoryDocs.computeIfAbsent(categoryId, id -> new DocBitmap()).set(doc);
+            if (categoryName != null) {
+                categoryNames.put(categoryId, categoryName);
+            }
+        }
+        if (brandId != null) {
+            brandDocs.computeIfAbsent(brandId, id -> new DocBitmap()).set(doc);
+            if (brandName != null) {
+                brandNames.put(brandId, brandName);
+            }
+        }
+        if (priceCents != null) {
+            priceBucketDocs[bucketOf(priceCents)].set(doc);
+        }
+    }
+
+    void remove(int doc, Long categoryId, Long brandId, Long priceCents) {
+        if (categoryId != null && categoryDocs.containsKey(categoryId)) {
+            categoryDocs.get(categoryId).clear(doc);
+        }
+        if (brandId != null && brandDocs.containsKey(brandId)) {
+            brandDocs.get(brandId).clear(doc);
+        }
+        if (priceCents != null) {
+            priceBucketDocs[bucketOf(priceCents)].clear(doc);
+        }
+    }
+
+    /**
+     * 清空全部位图（索引压缩后按新文档号重新登记），名称保留。
+     */
+    void clearDocs() {
+        categoryDocs.clear();
+        brandDocs.clear();
+        for (int i = 0; i < priceBucketDocs.length; i++) {
+            priceBucketDocs[i] = new DocBitmap();
+        }
+    }
+
+    /**
+     * 计算分面计数，每个维度使用排除了自身筛选条件的命中位图。
+     */
+    SearchFacets count(DocBitmap categoryBase, DocBitmap brandBase, DocBitmap priceBase) {
+        SearchFacets facets = new SearchFacets();
+        facets.setCategories(countValues(categoryDocs, categoryNames, categoryBase));
+        facets.setBrands(countValues(brandDocs, brandNames, brandBase));
+        List<SearchFacets.PriceRangeCount> ranges = new ArrayList<>();
+        for (int i = 0; i < priceBucketDocs.length; i++) {
+            int count = priceBucketDocs[i].andCardinality(priceBase);
+            if (count > 0) {
+                BigDecimal min = i == 0 ? BigDecimal.valueOf(0, 2) : BigDecimal.valueOf(priceBoundsCents[i - 1], 2);
+                BigDecimal max = i == priceBoundsCents.length ? null : BigDecimal.valueOf(priceBoundsCents[i], 2);
+                ranges.add(new SearchFacets.PriceRangeCount(min, max, count));
+            }
+        }
+        facets.setPriceRanges(ranges);
+        return facets;
+    }
+
+    private static List<SearchFacets.FacetCount> countValues(Map<Long, DocBitmap> docsByValue,
+                                                             Map<Long, String> names, DocBitmap base) {
+        List<SearchFacets.FacetCount> counts = new ArrayList<>();
+        for (Map.Entry<Long, DocBitmap> entry : docsByValue.entrySet()) {
+            int count = entry.getValue().andCardinality(base);
+            if (count > 0) {
+                counts.add(new SearchFacets.FacetCount(entry.getKey(), names.get(entry.getKey()), count));
+            }
+        }
+        counts.sort(Comparator.comparingLong(SearchFacets.FacetCount::getCount).reversed()
+                .thenComparing(SearchFacets.FacetCount::getId));
+        return counts;
+    }
+
+    private int bucketOf(long priceCents) {
+        int bucket = 0;
+        while (bucket < priceBoundsCents.length && priceCents >= priceBoundsCents[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
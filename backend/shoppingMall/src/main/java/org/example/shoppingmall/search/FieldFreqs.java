@@ -0,0 +1,39 @@
+package org.example.shoppingmall.search;
+
+/**
+ * 字段词频的打包表示
+ * <p>
+ * 一个词在名称、描述、品牌、分类四个字段中的词频各占 4 位，打包成一个 int 存入倒排表。
+ * 单字段词频封顶为 15，BM25 的词频饱和效应使得更高的词频对得分几乎没有影响。
+ */
+final class FieldFreqs {
+
+    static final int NAME = 0;
+    static final int DESCRIPTION = 1;
+    static final int BRAND = 2;
+    static final int CATEGORY = 3;
+    static final int FIELD_COUNT = 4;
+
+    private static final int BITS = 4;
+    private static final int MAX_FREQ = (1 << BITS) - 1;
+
+    private FieldFreqs() {
+        // 工具类，不应被实例化
+    }
+
+    /**
+     * 指定字段词频加一（封顶）。
+     */
+    static int increment(int packed, int field) {
+        int shift = field * BITS;
+        int freq = (packed >>> shift) & MAX_FREQ;
+        if (freq == MAX_FREQ) {
+            return packed;
+        }
+        return packed + (1 << shift);
+    }
+
+    static int get(int packed, int field) {
+        return (packed >>> (field * BITS)) & MAX_FREQ;
+    }
+}
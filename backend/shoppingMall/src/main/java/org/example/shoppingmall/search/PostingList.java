@@ -0,0 +1,127 @@
+package org.example.shoppingmall.search;
+
+import java.util.Arrays;
+
+/**
+ * 倒排表（压缩存储）
+ * <p>
+ * 文档号只会递增追加，因此按"差值 + 变长字节 (VByte)"编码存放在一个 byte[] 中，
+ * 每个文档号后紧跟一个同样按 VByte 编码的词频字（各字段词频打包，见 {@link FieldFreqs}），
+ * 常见的小差值和小词频各只占 1~2 个字节，比直接存 int[] 节省大半内存。
+ * 该类本身不是线程安全的，由 {@link ProductSearchIndex} 的读写锁保护。
+ */
+final class PostingList {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int byteLength;
+    private int size;
+    private int lastDoc = -1;
+
+    /**
+     * 追加一个文档号及其打包词频，要求文档号严格大于上一次追加的文档号。
+     */
+    void append(int doc, int freqs) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("文档号必须递增追加: last=" + lastDoc + ", doc=" + doc);
+        }
+        ensureCapacity(byteLength + 10);
+        writeVInt(lastDoc < 0 ? doc : doc - lastDoc);
+        writeVInt(freqs);
+        lastDoc = doc;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int lastDoc() {
+        return lastDoc;
+    }
+
+    /**
+     * 解码为升序的文档号数组。
+     */
+    int[] toArray() {
+        int[] docs = new int[size];
+        decode(docs, null);
+        return docs;
+    }
+
+    /**
+     * 解码文档号和打包词频到调用方提供的数组（长度不小于 {@link #size()}），freqs 可为 null。
+     */
+    void decode(int[] docs, int[] freqs) {
+        int pos = 0;
+        int doc = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            int freq = 0;
+            shift = 0;
+            do {
+                b = data[pos++];
+                freq |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            doc = i == 0 ? delta : doc + delta;
+            docs[i] = doc;
+            if (freqs != null) {
+                freqs[i] = freq;
+            }
+        }
+    }
+
+    /**
+     * 按映射表重写文档号（用于压缩索引时剔除已删除文档）。
+     * 映射必须保持单调递增，值为 -1 的文档会被丢弃。
+     */
+    PostingList remap(int[] docMapping) {
+        int[] docs = new int[size];
+        int[] freqs = new int[size];
+        decode(docs, freqs);
+        PostingList remapped = new PostingList();
+        for (int i = 0; i < size; i++) {
+            int newDoc = docMapping[docs[i]];
+            if (newDoc >= 0) {
+                remapped.append(newDoc, freqs[i]);
+            }
+        }
+        return remapped;
+    }
+
+    /**
+     * 当前占用的字节数，便于估算索引内存。
+     */
+    int byteLength() {
+        return byteLength;
+    }
+
+    void trimToSize() {
+        if (data.length != byteLength) {
+            data = Arrays.copyOf(data, Math.max(byteLength, 1));
+        }
+    }
+
+    private void writeVInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            data[byteLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[byteLength++] = (byte) value;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length + (data.length >> 1)));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.shoppingmall.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.cache.CacheInvalidationBus;
+import org.example.shoppingmall.cache.ProductCacheTags;
+import org.example.shoppingmall.entity.ProductDeletion;
+import org.example.shoppingmall.repository.ProductDeletionRepository;
+import org.example.shoppingmall.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 商品快照同步：启动后在后台线程从数据库按主键分批读取一次全部上架商品，
+ * 分发给所有 {@link ProductDocumentListener}；运行期间的增量变更也由这里统一分发，
+ * 避免每个内存结构各自扫一遍 products 表。
+ * <p>
+ * 内存结构是每个节点各一份，因此本节点的变更还会通过 {@link CacheInvalidationBus} 广播 "操作|商品ID|分类ID"，
+ * 其他节点收到后从数据库重新读取该商品再应用（不信任消息里的内容，乱序也不会回退）。
+ * Pub/Sub 会丢消息，另有定时任务按 update_time 增量同步（包括下单、取消订单带来的库存和销量变化），
+ * 删除则通过与删除同一事务写入的 product_deletions 墓碑补上。
+ */
+@Slf4j
+@Component
+public class ProductCatalogSync {
+
+    private static final String TOPIC = "product-catalog";
+    private static final String OP_UPSERT = "U";
+    private static final String OP_REMOVE = "D";
+
+    private final ProductRepository productRepository;
+    private final ProductDeletionRepository productDeletionRepository;
+    private final List<ProductDocumentListener> listeners;
+    private final CacheInvalidationBus invalidationBus;
+    private final ProductCacheTags productCacheTags;
+    private final Duration resyncOverlap;
+    private final Duration deletionRetention;
+
+    @Value("${app.search.index.load-batch-size:1000}")
+    private int loadBatchSize;
+
+    // 下一次增量同步读取 update_time 不早于该时间的商品，全量加载完成前为 null
+    private volatile LocalDateTime resyncFrom;
+
+    public ProductCatalogSync(ProductRepository productRepository, ProductDeletionRepository productDeletionRepository,
+                              List<ProductDocumentListener> listeners, CacheInvalidationBus invalidationBus,
+                              ProductCacheTags productCacheTags,
+                              @Value("${app.search.index.resync-overlap:PT1M}") Duration resyncOverlap,
+                              @Value("${app.search.index.deletion-retention:PT24H}") Duration deletionRetention) {
+        this.productRepository = productRepository;
+        this.productDeletionRepository = productDeletionRepository;
+        this.listeners = listeners;
+        this.invalidationBus = invalidationBus;
+        this.productCacheTags = productCacheTags;
+        this.resyncOverlap = resyncOverlap;
+        this.deletionRetention = deletionRetention;
+        invalidationBus.subscribe(TOPIC, this::onRemoteChange);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        List<ProductDocumentListener> enabled = enabledListeners();
+        if (enabled.isEmpty()) {
+            log.info("没有启用的商品内存结构，跳过商品快照加载");
+            return;
+        }
+        Thread loader = new Thread(() -> loadAll(enabled), "product-catalog-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 新增或更新商品，应在事务提交后调用。
+     */
+    public void upsert(ProductDocument document) {
+        applyUpsert(document);
+        invalidationBus.publish(TOPIC, message(OP_UPSERT, document));
+    }
+
+    /**
+     * 删除商品，应在事务提交后调用；删除事务内还需调用 {@link #recordDeletion}。
+     */
+    public void remove(ProductDocument deleted) {
+        applyRemove(deleted.getProductId());
+        invalidationBus.publish(TOPIC, message(OP_REMOVE, deleted));
+    }
+
+    /**
+     * 在删除商品的事务内写入墓碑，供错过删除通知的节点在增量同步时补上。
+     */
+    public void recordDeletion(Long productId) {
+        productDeletionRepository.save(new ProductDeletion(productId, LocalDateTime.now()));
+    }
+
+    /**
+     * 按 update_time 增量同步：读取上次同步以来变更过的商品和墓碑，重新应用到本节点的内存结构。
+     * 起点向前多取 resync-overlap，覆盖事务提交晚于 update_time 以及节点间的时钟偏差；重复应用是幂等的。
+     */
+    @Scheduled(fixedDelayString = "${app.search.index.resync-interval:PT30S}")
+    public void resync() {
+        LocalDateTime since = resyncFrom;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime start = LocalDateTime.now();
+        try {
+            long afterId = 0L;
+            int updated = 0;
+            while (true) {
+                List<ProductDocument> batch = productRepository.findIndexDocumentsUpdatedSince(
+                        since, afterId, PageRequest.of(0, loadBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(this::applyUpsert);
+                updated += batch.size();
+                afterId = batch.get(batch.size() - 1).getProductId();
+            }
+            List<Long> deleted = productDeletionRepository.findProductIdsDeletedSince(since);
+            deleted.forEach(this::applyRemove);
+            productDeletionRepository.deleteDeletedBefore(start.minus(deletionRetention));
+            resyncFrom = start.minus(resyncOverlap);
+            log.debug("商品快照增量同步完成: 变更商品数={}, 删除商品数={}", updated, deleted.size());
+        } catch (Exception e) {
+            // 不推进起点，下次从同一位置重试
+            log.warn("商品快照增量同步失败: {}", e.getMessage());
+        }
+    }
+
+    private void onRemoteChange(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length < 3 || enabledListeners().isEmpty()) {
+            return;
+        }
+        Long productId = Long.valueOf(parts[1]);
+        Set<Long> categoryIds = new HashSet<>();
+        if (!parts[2].isEmpty()) {
+            categoryIds.add(Long.valueOf(parts[2]));
+        }
+        ProductDocument document = OP_UPSERT.equals(parts[0])
+                ? productRepository.findIndexDocument(productId).orElse(null) : null;
+        if (document == null) {
+            applyRemove(productId);
+        } else {
+            applyUpsert(document);
+            if (document.getCategoryId() != null) {
+                categoryIds.add(document.getCategoryId());
+            }
+        }
+        productCacheTags.onRemoteIndexChanged(categoryIds);
+    }
+
+    private void applyUpsert(ProductDocument document) {
+        for (ProductDocumentListener listener : listeners) {
+            if (listener.isEnabled()) {
+                listener.upsert(document);
+            }
+        }
+    }
+
+    private void applyRemove(Long productId) {
+        for (ProductDocumentListener listener : listeners) {
+            if (listener.isEnabled()) {
+                listener.remove(productId);
+            }
+        }
+    }
+
+    private static String message(String op, ProductDocument document) {
+        return op + "|" + document.getProductId() + "|" + (document.getCategoryId() == null ? "" : document.getCategoryId());
+    }
+
+    private void loadAll(List<ProductDocumentListener> targets) {
+        long start = System.currentTimeMillis();
+        LocalDateTime loadStart = LocalDateTime.now();
+        targets.forEach(ProductDocumentListener::beginBulkLoad);
+        try {
+            long afterId = 0L;
+            int loaded = 0;
+            while (true) {
+                List<ProductDocument> batch =
+                        productRepository.findIndexDocumentsAfter(afterId, PageRequest.of(0, loadBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (ProductDocumentListener listener : targets) {
+                    listener.bulkLoad(batch);
+                }
+                loaded += batch.size();
+                afterId = batch.get(batch.size() - 1).getProductId();
+            }
+            targets.forEach(ProductDocumentListener::completeBulkLoad);
+            // 加载期间错过的变更由第一次增量同步补上
+            resyncFrom = loadStart.minus(resyncOverlap);
+            log.info("商品快照加载完成: 商品数={}, 耗时={}ms", loaded, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("商品快照加载失败，相关查询将继续使用数据库", e);
+            targets.forEach(ProductDocumentListener::abortBulkLoad);
+        }
+    }
+
+    private List<ProductDocumentListener> enabledListeners() {
+        return listeners.stream().filter(ProductDocumentListener::isEnabled).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.shoppingmall.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.example.shoppingmall.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 进入搜索索引的商品快照
+ * <p>
+ * 只包含检索、过滤和排序需要的字段，不含 detail/images/params/specs 等大字段。
+ * 字段顺序与 {@link org.example.shoppingmall.repository.ProductRepository#findIndexDocumentsAfter}
+ * 中的 JPQL 构造器表达式保持一致。
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProductDocument {
+
+    private final Long productId;
+    private final String name;
+    private final String description;
+    private final Long brandId;
+    private final String brandName;
+    private final Long categoryId;
+    private final String categoryName;
+    private final BigDecimal price;
+    private final Integer status;
+    private final Boolean featured;
+    private final Integer sales;
+    private final LocalDateTime createTime;
+
+    /**
+     * 从商品实体构建快照，需要在事务内调用（会访问懒加载的分类与品牌）。
+     */
+    public static ProductDocument from(Product product) {
+        Long brandId = null;
+        String brandName = null;
+        if (product.getBrand() != null) {
+            brandId = product.getBrand().getId();
+            brandName = product.getBrand().getName();
+        }
+        Long categoryId = null;
+        String categoryName = null;
+        if (product.getCategory() != null) {
+            categoryId = product.getCategory().getId();
+            categoryName = product.getCategory().getName();
+        }
+        return new ProductDocument(product.getId(), product.getName(), product.getDescription(),
+                brandId, brandName, categoryId, categoryName, product.getPrice(), product.getStatus(),
+                product.getIsFeatured(), product.getSales(), product.getCreateTime());
+    }
+
+    /**
+     * 是否为上架商品（索引只收录上架商品）。
+     */
+    public boolean isActive() {
+        return status != null && status == 1;
+    }
+}
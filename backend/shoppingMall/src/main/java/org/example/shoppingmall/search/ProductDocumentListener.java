@@ -0,0 +1,33 @@
+package org.example.shoppingmall.search;
+
+import java.util.List;
+
+/**
+ * 商品快照的内存消费方（搜索索引、联想词等），由 {@link ProductCatalogSync} 统一驱动。
+ * <p>
+ * 启动时先经历一次全量加载：begin -> 若干批 bulkLoad -> complete/abort；
+ * 之后以及全量加载期间，商品的增删改都通过 upsert/remove 增量通知。
+ * 实现方需要自行处理"加载期间已被增量更新的商品不应被旧快照覆盖"的问题。
+ */
+public interface ProductDocumentListener {
+
+    /**
+     * 是否启用；未启用的消费方不会收到任何通知。
+     */
+    boolean isEnabled();
+
+    void beginBulkLoad();
+
+    void bulkLoad(List<ProductDocument> batch);
+
+    void completeBulkLoad();
+
+    void abortBulkLoad();
+
+    /**
+     * 新增或更新一个商品；非上架商品应被移除。
+     */
+    void upsert(ProductDocument document);
+
+    void remove(Long productId);
+}
@@ -0,0 +1,303 @@
+package org.example.shoppingmall.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.entity.ProductRating;
+import org.example.shoppingmall.repository.ProductRatingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品好评榜
+ * <p>
+ * 按平均分降序、评论数降序（再按商品ID降序保证次序稳定）维护所有上架且有评分的商品，
+ * 取前 K 名只需顺序遍历有序集合的前 K 个元素，不再扫描评论表。
+ * 评分数据来自 product_ratings 汇总表：启动时全量读取一次，之后评论变更提交后按商品重新读取该商品的汇总行；
+ * 其他节点上的评论变更由定时任务按 updated_at 增量读取。
+ * 汇总表的历史数据由一次性迁移 {@link org.example.shoppingmall.migration.ProductRatingBackfill} 在应用就绪前初始化。
+ * 上架状态由 {@link ProductCatalogSync} 同步。
+ */
+@Slf4j
+@Component
+public class ProductRatingLeaderboard implements ProductDocumentListener {
+
+    private static final Comparator<Score> BY_RANK = (a, b) -> {
+        // 比较 sum/count 时交叉相乘，避免浮点误差导致同分商品次序不稳定
+        int cmp = Long.compare(b.sum * a.count, a.sum * b.count);
+        if (cmp != 0) {
+            return cmp;
+        }
+        cmp = Long.compare(b.count, a.count);
+        return cmp != 0 ? cmp : Long.compare(b.productId, a.productId);
+    };
+
+    private final ProductRatingRepository productRatingRepository;
+    private final boolean enabled;
+    private final long minRatingCount;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    // ---- 以下字段均受 lock 保护 ----
+    private final Set<Long> activeProducts = new HashSet<>();
+    private final Map<Long, Score> scores = new HashMap<>();
+    private final TreeSet<Score> ranking = new TreeSet<>(BY_RANK);
+    private Set<Long> touchedWhileLoading;
+    private Set<Long> refreshedWhileLoading;
+
+    private final Duration resyncOverlap;
+    // 下一次增量同步读取 updated_at 不早于该时间的汇总行，加载完成前为 null
+    private volatile LocalDateTime resyncFrom;
+
+    public ProductRatingLeaderboard(ProductRatingRepository productRatingRepository,
+                                    @Value("${app.rating.leaderboard.enabled:true}") boolean enabled,
+                                    @Value("${app.rating.leaderboard.min-count:1}") long minRatingCount,
+                                    @Value("${app.rating.leaderboard.resync-overlap:PT1M}") Duration resyncOverlap) {
+        this.productRatingRepository = productRatingRepository;
+        this.enabled = enabled;
+        this.minRatingCount = Math.max(1, minRatingCount);
+        this.resyncOverlap = resyncOverlap;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 榜单是否已完成初始加载，未就绪时调用方应回退到数据库查询。
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * 好评榜前 limit 名的商品ID。
+     */
+    public List<Long> topRated(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>(Math.min(limit, ranking.size()));
+            Iterator<Score> it = ranking.iterator();
+            while (ids.size() < limit && it.hasNext()) {
+                ids.add(it.next().productId);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在当前事务提交后重新读取该商品的评分汇总（没有事务时立即读取）。
+     * 读取的是汇总行的最终值而不是增量，重复或乱序执行也不会算错。
+     */
+    public void refreshAfterCommit(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(productId);
+                }
+            });
+        } else {
+            refresh(productId);
+        }
+    }
+
+    /**
+     * 按 updated_at 增量读取汇总行，补上其他节点提交的评论变更（refreshAfterCommit 只刷新本节点）。
+     * 读取的是汇总行的最终值，起点向前多取 resync-overlap 覆盖时钟偏差，重复应用不会算错。
+     */
+    @Scheduled(fixedDelayString = "${app.rating.leaderboard.resync-interval:PT30S}")
+    public void resync() {
+        LocalDateTime since = resyncFrom;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime start = LocalDateTime.now();
+        try {
+            List<ProductRating> ratings = productRatingRepository.findByUpdatedAtGreaterThanEqual(since);
+            lock.writeLock().lock();
+            try {
+                for (ProductRating rating : ratings) {
+                    putScore(rating.getProductId(), rating);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            resyncFrom = start.minus(resyncOverlap);
+        } catch (Exception e) {
+            log.warn("商品好评榜增量同步失败: {}", e.getMessage());
+        }
+    }
+
+    private void refresh(Long productId) {
+        ProductRating rating = productRatingRepository.findById(productId).orElse(null);
+        lock.writeLock().lock();
+        try {
+            if (refreshedWhileLoading != null) {
+                refreshedWhileLoading.add(productId);
+            }
+            putScore(productId, rating);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = new HashSet<>();
+            refreshedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bulkLoad(List<ProductDocument> batch) {
+        lock.writeLock().lock();
+        try {
+            for (ProductDocument document : batch) {
+                if (!touchedWhileLoading.contains(document.getProductId()) && document.isActive()) {
+                    activeProducts.add(document.getProductId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void completeBulkLoad() {
+        LocalDateTime loadStart = LocalDateTime.now();
+        List<ProductRating> ratings = productRatingRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            for (ProductRating rating : ratings) {
+                if (!refreshedWhileLoading.contains(rating.getProductId())) {
+                    putScore(rating.getProductId(), rating);
+                }
+            }
+            touchedWhileLoading = null;
+            refreshedWhileLoading = null;
+            ready = true;
+            resyncFrom = loadStart.minus(resyncOverlap);
+            log.info("商品好评榜加载完成: 有评分商品数={}, 上榜商品数={}", scores.size(), ranking.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void abortBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = null;
+            refreshedWhileLoading = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(ProductDocument document) {
+        if (!enabled || document == null || document.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(document.getProductId());
+            if (document.isActive()) {
+                activeProducts.add(document.getProductId());
+            } else {
+                activeProducts.remove(document.getProductId());
+            }
+            rerank(document.getProductId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(productId);
+            activeProducts.remove(productId);
+            Score old = scores.remove(productId);
+            if (old != null) {
+                ranking.remove(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markTouched(Long productId) {
+        if (touchedWhileLoading != null) {
+            touchedWhileLoading.add(productId);
+        }
+    }
+
+    private void putScore(Long productId, ProductRating rating) {
+        Score old = scores.remove(productId);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        if (rating != null && rating.getRatingCount() != null && rating.getRatingCount() > 0) {
+            scores.put(productId, new Score(productId, rating.getRatingCount(), rating.getRatingSum()));
+            rerank(productId);
+        }
+    }
+
+    private void rerank(Long productId) {
+        Score score = scores.get(productId);
+        if (score == null) {
+            return;
+        }
+        ranking.remove(score);
+        if (score.count >= minRatingCount && activeProducts.contains(productId)) {
+            ranking.add(score);
+        }
+    }
+
+    private static final class Score {
+        final long productId;
+        final long count;
+        final long sum;
+
+        Score(long productId, long count, long sum) {
+            this.productId = productId;
+            this.count = count;
+            this.sum = sum;
+        }
+    }
+}
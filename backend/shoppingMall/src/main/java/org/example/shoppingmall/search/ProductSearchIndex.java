@@ -0,0 +1,701 @@
+package org.example.shoppingmall.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.dto.SearchFacets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内商品倒排索引
+ * <p>
+ * 对上架商品的名称、描述、品牌名、分类名建立倒排表，分类/价格/推荐/排序字段以原始类型数组列式存放，
+ * 使 {@code getProducts} 的关键词检索、过滤、排序和分页全部在内存中完成，不再对 products 表做 LIKE 全表扫描。
+ * 有关键词时可按 BM25F 相关度排序：各字段词频按字段长度归一化后加权求和，名称和品牌权重更高。
+ * 分类、品牌、价格区间的分面计数由 {@link FacetIndex} 的位图交集得出。
+ * <p>
+ * 文档号只追加不复用：商品更新时旧文档号置为删除，新内容追加为新文档号，保证倒排表始终有序；
+ * 删除文档累计过多时整体压缩一次。启动后由 {@link ProductCatalogSync} 全量加载，加载完成前
+ * {@link #isReady()} 返回 false，调用方应回退到数据库查询。
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex implements ProductDocumentListener {
+
+    private static final int INITIAL_DOC_CAPACITY = 1024;
+    /** 删除文档数超过该值且多于存活文档时触发压缩 */
+    private static final int COMPACT_MIN_DELETED = 4096;
+    /** 最后一个词按前缀匹配时最多展开的词项数 */
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    /** 无价格商品的占位值，价格过滤时不会命中 */
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    private static final long NO_ID = -1L;
+
+    // BM25F 参数，下标对应 FieldFreqs 中的字段
+    private static final float K1 = 1.2f;
+    private static final float[] FIELD_BOOSTS = {3.0f, 1.0f, 2.0f, 1.5f};
+    private static final float[] FIELD_B = {0.75f, 0.75f, 0.5f, 0.5f};
+
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    // ---- 以下字段均受 lock 保护 ----
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> docByProductId = new HashMap<>();
+    private final BitSet liveDocs = new BitSet();
+    private final BitSet featuredDocs = new BitSet();
+    private long[] productIds = new long[INITIAL_DOC_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_DOC_CAPACITY];
+    private long[] brandIds = new long[INITIAL_DOC_CAPACITY];
+    private long[] priceCents = new long[INITIAL_DOC_CAPACITY];
+    private int[] sales = new int[INITIAL_DOC_CAPACITY];
+    private long[] createTimes = new long[INITIAL_DOC_CAPACITY];
+    /** 各字段的词数，按 doc * FIELD_COUNT + field 平铺存放 */
+    private int[] fieldLengths = new int[INITIAL_DOC_CAPACITY * FieldFreqs.FIELD_COUNT];
+    /** 存活文档各字段词数之和，用于计算平均字段长度 */
+    private final long[] fieldLengthSums = new long[FieldFreqs.FIELD_COUNT];
+    private final FacetIndex facetIndex;
+    private int maxDoc;
+    private int deletedDocs;
+    /** 全量加载期间已被增量更新过的商品，加载线程不得用旧快照覆盖它们 */
+    private Set<Long> touchedWhileLoading;
+
+    public ProductSearchIndex(@Value("${app.search.index.enabled:true}") boolean enabled,
+                              @Value("${app.search.facet.price-bounds:50,100,200,500,1000,2000,5000}") BigDecimal[] priceBounds) {
+        this.enabled = enabled;
+        this.facetIndex = new FacetIndex(priceBounds);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 索引是否已完成全量加载、可以直接回答查询。
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bulkLoad(List<ProductDocument> batch) {
+        lock.writeLock().lock();
+        try {
+            for (ProductDocument document : batch) {
+                if (!touchedWhileLoading.contains(document.getProductId())) {
+                    addDocument(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void completeBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = null;
+            postings.values().forEach(PostingList::trimToSize);
+            ready = true;
+            log.info("商品搜索索引加载完成: 商品数={}, 词项数={}", docByProductId.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void abortBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或更新一个商品；非上架商品会从索引中移除。
+     */
+    @Override
+    public void upsert(ProductDocument document) {
+        if (!enabled || document == null || document.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(document.getProductId());
+            deleteDocument(document.getProductId());
+            if (document.isActive()) {
+                addDocument(document);
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从索引中移除一个商品。
+     */
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(productId);
+            deleteDocument(productId);
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 执行查询，返回当前页的商品ID（已排序）、命中总数，以及按需计算的分面计数。
+     */
+    public ProductSearchResult search(ProductSearchQuery query) {
+        lock.readLock().lock();
+        try {
+            FacetBases facetBases = query.isWithFacets() ? new FacetBases(maxDoc) : null;
+            Hits hits = collectMatches(query, facetBases);
+            SearchFacets facets = facetBases == null ? null
+                    : facetIndex.count(facetBases.categoryBase, facetBases.brandBase, facetBases.priceBase);
+            if (query.getSearchAfter() != null) {
+                hits = seekAfter(query, hits, query.getSearchAfter());
+            }
+            int end = (int) Math.min((long) query.getOffset() + query.getLimit(), hits.size);
+            if (query.getLimit() <= 0 || query.getOffset() >= end) {
+                return new ProductSearchResult(Collections.emptyList(), hits.size, facets,
+                        query.isWithSortPositions() ? Collections.emptyList() : null);
+            }
+            int[] top = TopDocs.select(hits.size, end, comparator(query, hits));
+            List<Long> ids = new ArrayList<>(end - query.getOffset());
+            List<SortPosition> positions = query.isWithSortPositions() ? new ArrayList<>(end - query.getOffset()) : null;
+            for (int i = query.getOffset(); i < end; i++) {
+                ids.add(productIds[hits.docs[top[i]]]);
+                if (positions != null) {
+                    positions.add(sortPosition(query, hits, top[i]));
+                }
+            }
+            return new ProductSearchResult(ids, hits.size, facets, positions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前索引中的上架商品数。
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------ 查询
+
+    /**
+     * 命中结果：docs[0, size) 为升序文档号，scores 与之一一对应（不需要打分时为 null）。
+     */
+    private static final class Hits {
+        final int[] docs;
+        final float[] scores;
+        final int size;
+
+        Hits(int[] docs, float[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    private static final Hits NO_HITS = new Hits(new int[0], new float[0], 0);
+
+    /**
+     * 分面计数用的命中位图：每个维度排除自身的筛选条件，品牌没有筛选条件，即最终命中结果。
+     */
+    private static final class FacetBases {
+        final DocBitmap categoryBase;
+        final DocBitmap brandBase;
+        final DocBitmap priceBase;
+
+        FacetBases(int maxDoc) {
+            categoryBase = new DocBitmap(maxDoc);
+            brandBase = new DocBitmap(maxDoc);
+            priceBase = new DocBitmap(maxDoc);
+        }
+    }
+
+    /**
+     * 找出满足关键词与过滤条件的全部文档，facetBases 不为 null 时顺带填充分面位图。
+     */
+    private Hits collectMatches(ProductSearchQuery query, FacetBases facetBases) {
+        long minCents = query.getMinPrice() == null ? NO_PRICE : toCents(query.getMinPrice(), RoundingMode.CEILING);
+        long maxCents = query.getMaxPrice() == null ? NO_PRICE : toCents(query.getMaxPrice(), RoundingMode.FLOOR);
+        long categoryId = query.getCategoryId() == null ? NO_ID : query.getCategoryId();
+        boolean featuredOnly = query.isFeaturedOnly();
+
+        Hits candidates;
+        if (StringUtils.hasText(query.getKeyword())) {
+            boolean scoring = query.getSortField() == ProductSearchQuery.SortField.RELEVANCE;
+            candidates = matchKeyword(query.getKeyword(), scoring);
+        } else {
+            candidates = new Hits(liveDocs.stream().toArray(), null, docByProductId.size());
+        }
+        int[] docs = candidates.docs;
+        float[] scores = candidates.scores;
+        int count = 0;
+        // 原地过滤，candidates 是本次查询新分配的数组
+        for (int i = 0; i < candidates.size; i++) {
+            int doc = docs[i];
+            if (!liveDocs.get(doc) || (featuredOnly && !featuredDocs.get(doc))) {
+                continue;
+            }
+            boolean categoryMatched = categoryId == NO_ID || categoryIds[doc] == categoryId;
+            boolean priceMatched = priceInRange(priceCents[doc], minCents, maxCents);
+            if (facetBases != null) {
+                if (priceMatched) {
+                    facetBases.categoryBase.set(doc);
+                }
+                if (categoryMatched) {
+                    facetBases.priceBase.set(doc);
+                }
+            }
+            if (categoryMatched && priceMatched) {
+                if (facetBases != null) {
+                    facetBases.brandBase.set(doc);
+                }
+                docs[count] = doc;
+                if (scores != null) {
+                    scores[count] = scores[i];
+                }
+                count++;
+            }
+        }
+        return new Hits(docs, scores, count);
+    }
+
+    private static boolean priceInRange(long price, long minCents, long maxCents) {
+        if (minCents != NO_PRICE && (price == NO_PRICE || price < minCents)) {
+            return false;
+        }
+        return maxCents == NO_PRICE || (price != NO_PRICE && price <= maxCents);
+    }
+
+    /**
+     * 所有查询词的倒排表求交集，得分为各词 BM25F 得分之和。最后一个拉丁词按前缀匹配，以支持边输入边搜索。
+     */
+    private Hits matchKeyword(String keyword, boolean scoring) {
+        List<String> terms = ProductTokenizer.tokenizeQuery(keyword);
+        if (terms.isEmpty()) {
+            return NO_HITS;
+        }
+        float[] avgFieldLengths = scoring ? averageFieldLengths() : null;
+        List<Hits> lists = new ArrayList<>(terms.size());
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            boolean prefix = i == terms.size() - 1 && !ProductTokenizer.isCjk(term.codePointAt(0));
+            Hits hits = prefix ? prefixHits(term, avgFieldLengths) : termHits(postings.get(term), avgFieldLengths);
+            if (hits.size == 0) {
+                return NO_HITS;
+            }
+            lists.add(hits);
+        }
+        // 从最短的倒排表开始求交，中间结果只会越来越小
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Hits result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 解码一个词的倒排表，avgFieldLengths 不为 null 时同时计算每个文档的得分。
+     */
+    private Hits termHits(PostingList list, float[] avgFieldLengths) {
+        if (list == null || list.size() == 0) {
+            return NO_HITS;
+        }
+        int n = list.size();
+        int[] docs = new int[n];
+        if (avgFieldLengths == null) {
+            list.decode(docs, null);
+            return new Hits(docs, null, n);
+        }
+        int[] freqs = new int[n];
+        list.decode(docs, freqs);
+        float idf = idf(n);
+        float[] scores = new float[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = idf * saturatedFreq(docs[i], freqs[i], avgFieldLengths);
+        }
+        return new Hits(docs, scores, n);
+    }
+
+    private Hits prefixHits(String prefix, float[] avgFieldLengths) {
+        NavigableMap<String, PostingList> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        Hits result = NO_HITS;
+        int expanded = 0;
+        for (PostingList list : range.values()) {
+            if (expanded++ == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            result = result.size == 0 ? termHits(list, avgFieldLengths) : union(result, termHits(list, avgFieldLengths));
+        }
+        return result;
+    }
+
+    /**
+     * BM25 的 idf，df 取倒排表长度（含尚未压缩掉的删除文档，与 Lucene 的做法一致）。
+     */
+    private float idf(int docFreq) {
+        int docCount = Math.max(docByProductId.size(), docFreq);
+        return (float) Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    /**
+     * BM25F：各字段词频按字段长度归一化后加权求和，再做一次词频饱和。
+     */
+    private float saturatedFreq(int doc, int packedFreqs, float[] avgFieldLengths) {
+        float tf = 0f;
+        int base = doc * FieldFreqs.FIELD_COUNT;
+        for (int field = 0; field < FieldFreqs.FIELD_COUNT; field++) {
+            int freq = FieldFreqs.get(packedFreqs, field);
+            if (freq == 0) {
+                continue;
+            }
+            float b = FIELD_B[field];
+            float norm = 1 - b + b * fieldLengths[base + field] / avgFieldLengths[field];
+            tf += FIELD_BOOSTS[field] * freq / norm;
+        }
+        return tf * (K1 + 1) / (tf + K1);
+    }
+
+    private float[] averageFieldLengths() {
+        float[] averages = new float[FieldFreqs.FIELD_COUNT];
+        int docCount = Math.max(docByProductId.size(), 1);
+        for (int field = 0; field < FieldFreqs.FIELD_COUNT; field++) {
+            averages[field] = Math.max(1f, (float) fieldLengthSums[field] / docCount);
+        }
+        return averages;
+    }
+
+    private static Hits intersect(Hits a, Hits b) {
+        int n = Math.min(a.size, b.size);
+        int[] docs = new int[n];
+        float[] scores = a.scores != null ? new float[n] : null;
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.size && j < b.size) {
+            int docA = a.docs[i];
+            int docB = b.docs[j];
+            if (docA == docB) {
+                docs[count] = docA;
+                if (scores != null) {
+                    scores[count] = a.scores[i] + b.scores[j];
+                }
+                count++;
+                i++;
+                j++;
+            } else if (docA < docB) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new Hits(docs, scores, count);
+    }
+
+    /**
+     * 前缀展开后的多个词取并集，同一文档取各词中的最高得分。
+     */
+    private static Hits union(Hits a, Hits b) {
+        int[] docs = new int[a.size + b.size];
+        float[] scores = a.scores != null ? new float[docs.length] : null;
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.size || j < b.size) {
+            int docA = i < a.size ? a.docs[i] : Integer.MAX_VALUE;
+            int docB = j < b.size ? b.docs[j] : Integer.MAX_VALUE;
+            if (docA == docB) {
+                docs[count] = docA;
+                if (scores != null) {
+                    scores[count] = Math.max(a.scores[i], b.scores[j]);
+                }
+                i++;
+                j++;
+            } else if (docA < docB) {
+                docs[count] = docA;
+                if (scores != null) {
+                    scores[count] = a.scores[i];
+                }
+                i++;
+            } else {
+                docs[count] = docB;
+                if (scores != null) {
+                    scores[count] = b.scores[j];
+                }
+                j++;
+            }
+            count++;
+        }
+        return new Hits(docs, scores, count);
+    }
+
+    /**
+     * 与 ProductServiceImpl#createSort 保持一致的排序，同值时按商品ID倒序保证分页稳定。
+     * 相关度排序按得分降序，同分时销量高的在前；没有得分（无关键词）时退化为按创建时间倒序。
+     */
+    private TopDocs.DocComparator comparator(ProductSearchQuery query, Hits hits) {
+        int[] docs = hits.docs;
+        float[] scores = hits.scores;
+        ProductSearchQuery.SortField sortField = query.getSortField();
+        if (sortField == ProductSearchQuery.SortField.RELEVANCE) {
+            if (scores == null) {
+                return (a, b) -> {
+                    int c = Long.compare(createTimes[docs[b]], createTimes[docs[a]]);
+                    return c != 0 ? c : Long.compare(productIds[docs[b]], productIds[docs[a]]);
+                };
+            }
+            return (a, b) -> {
+                int c = Float.compare(scores[b], scores[a]);
+                if (c == 0) {
+                    c = Integer.compare(sales[docs[b]], sales[docs[a]]);
+                }
+                return c != 0 ? c : Long.compare(productIds[docs[b]], productIds[docs[a]]);
+            };
+        }
+        int direction = query.isAscending() ? 1 : -1;
+        return (a, b) -> {
+            int docA = docs[a];
+            int docB = docs[b];
+            int c = Long.compare(sortKey(sortField, docA), sortKey(sortField, docB));
+            if (c != 0) {
+                return c * direction;
+            }
+            return Long.compare(productIds[docB], productIds[docA]);
+        };
+    }
+
+    /**
+     * 非相关度排序（以及没有得分的相关度排序）使用的排序键
+     */
+    private long sortKey(ProductSearchQuery.SortField sortField, int doc) {
+        switch (sortField) {
+            case PRICE:
+                return priceCents[doc];
+            case SALES:
+                return sales[doc];
+            default:
+                return createTimes[doc];
+        }
+    }
+
+    private SortPosition sortPosition(ProductSearchQuery query, Hits hits, int index) {
+        int doc = hits.docs[index];
+        if (query.getSortField() == ProductSearchQuery.SortField.RELEVANCE && hits.scores != null) {
+            return new SortPosition(hits.scores[index], sales[doc], productIds[doc]);
+        }
+        return new SortPosition(0f, sortKey(query.getSortField(), doc), productIds[doc]);
+    }
+
+    /**
+     * 只保留按 comparator 的顺序严格排在 position 之后的命中。
+     * 游标续读时不必跳过前面的结果，堆的大小只与页大小有关。
+     */
+    private Hits seekAfter(ProductSearchQuery query, Hits hits, SortPosition position) {
+        int[] docs = hits.docs;
+        float[] scores = hits.scores;
+        ProductSearchQuery.SortField sortField = query.getSortField();
+        boolean relevance = sortField == ProductSearchQuery.SortField.RELEVANCE;
+        int direction = relevance || !query.isAscending() ? -1 : 1;
+        int count = 0;
+        for (int i = 0; i < hits.size; i++) {
+            int doc = docs[i];
+            int c;
+            if (relevance && scores != null) {
+                c = Float.compare(position.getScore(), scores[i]);
+                if (c == 0) {
+                    c = Long.compare(position.getSortKey(), sales[doc]);
+                }
+            } else {
+                c = Long.compare(sortKey(sortField, doc), position.getSortKey()) * direction;
+            }
+            if (c == 0) {
+                c = Long.compare(position.getProductId(), productIds[doc]);
+            }
+            if (c > 0) {
+                docs[count] = doc;
+                if (scores != null) {
+                    scores[count] = scores[i];
+                }
+                count++;
+            }
+        }
+        return new Hits(docs, scores, count);
+    }
+
+    // ------------------------------------------------------------------ 写入
+
+    private void markTouched(Long productId) {
+        if (touchedWhileLoading != null) {
+            touchedWhileLoading.add(productId);
+        }
+    }
+
+    private void addDocument(ProductDocument document) {
+        deleteDocument(document.getProductId());
+        int doc = maxDoc++;
+        ensureDocCapacity(maxDoc);
+        productIds[doc] = document.getProductId();
+        categoryIds[doc] = document.getCategoryId() == null ? NO_ID : document.getCategoryId();
+        brandIds[doc] = document.getBrandId() == null ? NO_ID : document.getBrandId();
+        priceCents[doc] = document.getPrice() == null ? NO_PRICE : toCents(document.getPrice(), RoundingMode.HALF_UP);
+        sales[doc] = document.getSales() == null ? 0 : document.getSales();
+        createTimes[doc] = document.getCreateTime() == null ? 0L
+                : document.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        featuredDocs.set(doc, Boolean.TRUE.equals(document.getFeatured()));
+        liveDocs.set(doc);
+        docByProductId.put(document.getProductId(), doc);
+        facetIndex.add(doc, document.getCategoryId(), document.getCategoryName(),
+                document.getBrandId(), document.getBrandName(), priceOrNull(doc));
+
+        Map<String, Integer> termFreqs = new HashMap<>();
+        indexField(doc, FieldFreqs.NAME, document.getName(), termFreqs);
+        indexField(doc, FieldFreqs.DESCRIPTION, document.getDescription(), termFreqs);
+        indexField(doc, FieldFreqs.BRAND, document.getBrandName(), termFreqs);
+        indexField(doc, FieldFreqs.CATEGORY, document.getCategoryName(), termFreqs);
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new PostingList()).append(doc, entry.getValue());
+        }
+    }
+
+    private void indexField(int doc, int field, String text, Map<String, Integer> termFreqs) {
+        List<String> tokens = ProductTokenizer.tokenize(text);
+        for (String token : tokens) {
+            termFreqs.merge(token, FieldFreqs.increment(0, field),
+                    (packed, ignored) -> FieldFreqs.increment(packed, field));
+        }
+        fieldLengths[doc * FieldFreqs.FIELD_COUNT + field] = tokens.size();
+        fieldLengthSums[field] += tokens.size();
+    }
+
+    private void deleteDocument(Long productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc != null) {
+            liveDocs.clear(doc);
+            featuredDocs.clear(doc);
+            facetIndex.remove(doc, idOrNull(categoryIds[doc]), idOrNull(brandIds[doc]), priceOrNull(doc));
+            for (int field = 0; field < FieldFreqs.FIELD_COUNT; field++) {
+                fieldLengthSums[field] -= fieldLengths[doc * FieldFreqs.FIELD_COUNT + field];
+            }
+            deletedDocs++;
+        }
+    }
+
+    private void maybeCompact() {
+        if (deletedDocs < COMPACT_MIN_DELETED || deletedDocs < docByProductId.size()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int[] mapping = new int[maxDoc];
+        int newMaxDoc = 0;
+        for (int doc = 0; doc < maxDoc; doc++) {
+            if (liveDocs.get(doc)) {
+                int target = newMaxDoc++;
+                mapping[doc] = target;
+                productIds[target] = productIds[doc];
+                categoryIds[target] = categoryIds[doc];
+                brandIds[target] = brandIds[doc];
+                priceCents[target] = priceCents[doc];
+                sales[target] = sales[doc];
+                createTimes[target] = createTimes[doc];
+                System.arraycopy(fieldLengths, doc * FieldFreqs.FIELD_COUNT,
+                        fieldLengths, target * FieldFreqs.FIELD_COUNT, FieldFreqs.FIELD_COUNT);
+                featuredDocs.set(target, featuredDocs.get(doc));
+            } else {
+                mapping[doc] = -1;
+            }
+        }
+        featuredDocs.clear(newMaxDoc, maxDoc);
+        liveDocs.clear();
+        liveDocs.set(0, newMaxDoc);
+        docByProductId.clear();
+        facetIndex.clearDocs();
+        for (int doc = 0; doc < newMaxDoc; doc++) {
+            docByProductId.put(productIds[doc], doc);
+            facetIndex.add(doc, idOrNull(categoryIds[doc]), null, idOrNull(brandIds[doc]), null, priceOrNull(doc));
+        }
+        postings.replaceAll((term, list) -> list.remap(mapping));
+        postings.values().removeIf(list -> list.size() == 0);
+        postings.values().forEach(PostingList::trimToSize);
+        log.info("商品搜索索引压缩完成: 清理删除文档={}, 存活文档={}, 耗时={}ms",
+                deletedDocs, newMaxDoc, System.currentTimeMillis() - start);
+        maxDoc = newMaxDoc;
+        deletedDocs = 0;
+    }
+
+    private void ensureDocCapacity(int required) {
+        if (required <= productIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, productIds.length + (productIds.length >> 1));
+        productIds = Arrays.copyOf(productIds, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        brandIds = Arrays.copyOf(brandIds, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        sales = Arrays.copyOf(sales, capacity);
+        createTimes = Arrays.copyOf(createTimes, capacity);
+        fieldLengths = Arrays.copyOf(fieldLengths, capacity * FieldFreqs.FIELD_COUNT);
+    }
+
+    private Long priceOrNull(int doc) {
+        return priceCents[doc] == NO_PRICE ? null : priceCents[doc];
+    }
+
+    private static Long idOrNull(long id) {
+        return id == NO_ID ? null : id;
+    }
+
+    private static long toCents(BigDecimal amount, RoundingMode roundingMode) {
+        return amount.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+}
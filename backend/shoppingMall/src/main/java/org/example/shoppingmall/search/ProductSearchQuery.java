@@ -0,0 +1,52 @@
+package org.example.shoppingmall.search;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * 索引查询条件，对应 {@link org.example.shoppingmall.service.ProductService#getProducts} 的参数。
+ */
+@Getter
+@Builder
+@ToString
+public class ProductSearchQuery {
+
+    /**
+     * 排序字段：前三个与 ProductServiceImpl#createSort 支持的字段一致，
+     * RELEVANCE 按 BM25 相关度降序，仅在有关键词时生效
+     */
+    public enum SortField {
+        CREATE_TIME, PRICE, SALES, RELEVANCE
+    }
+
+    private final String keyword;
+    private final Long categoryId;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final boolean featuredOnly;
+
+    @Builder.Default
+    private final SortField sortField = SortField.CREATE_TIME;
+    private final boolean ascending;
+
+    private final int offset;
+    private final int limit;
+
+    /**
+     * 游标续读：只返回排序上严格位于该位置之后的结果，此时 offset 通常为 0
+     */
+    private final SortPosition searchAfter;
+
+    /**
+     * 是否同时返回每条结果的排序位置，供调用方生成下一页游标
+     */
+    private final boolean withSortPositions;
+
+    /**
+     * 是否同时计算分类/品牌/价格区间的分面计数
+     */
+    private final boolean withFacets;
+}
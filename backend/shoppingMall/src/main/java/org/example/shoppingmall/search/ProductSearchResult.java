@@ -0,0 +1,20 @@
+package org.example.shoppingmall.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.shoppingmall.dto.SearchFacets;
+
+import java.util.List;
+
+/**
+ * 索引查询结果：当前页的商品ID（已按排序规则排列）、命中总数，以及按需计算的分面计数和排序位置。
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSearchResult {
+
+    private final List<Long> productIds;
+    private final long total;
+    private final SearchFacets facets; // 未要求分面时为 null
+    private final List<SortPosition> sortPositions; // 与 productIds 一一对应，未要求时为 null
+}
@@ -0,0 +1,498 @@
+package org.example.shoppingmall.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.dto.SuggestionDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 搜索联想词（边输入边提示）
+ * <p>
+ * 联想词来自商品名称、品牌名和分类名，权重为对应上架商品的销量之和。
+ * 所有联想词放在一棵前缀树中，每个节点预先保存其子树内权重最高的 K 个联想词，
+ * 查询时只需沿前缀走到对应节点直接返回，耗时与商品数量无关。
+ * <p>
+ * 内存有上界：键长超过 {@link #MAX_KEY_LENGTH} 的部分不进入前缀树，联想词总数超过上限时淘汰权重最低的。
+ */
+@Slf4j
+@Component
+public class ProductSuggester implements ProductDocumentListener {
+
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_BRAND = "brand";
+    public static final String TYPE_CATEGORY = "category";
+
+    /** 前缀树键的最大长度，用户输入超过该长度后的部分不再缩小候选范围 */
+    static final int MAX_KEY_LENGTH = 24;
+    /** 一个联想词最多从几个词首位置建立前缀（如 "Apple iPhone 15" 输入 "iph" 也能命中） */
+    private static final int MAX_KEYS_PER_ENTRY = 3;
+
+    private static final Comparator<Entry> BY_RANK = Comparator
+            .comparingLong((Entry e) -> e.weight).reversed()
+            .thenComparingInt(e -> e.text.length())
+            .thenComparing(e -> e.id);
+    private static final Comparator<Entry> BY_WEIGHT_ASC = Comparator
+            .comparingLong((Entry e) -> e.weight)
+            .thenComparing(e -> e.id);
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int topK;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ---- 以下字段均受 lock 保护 ----
+    private final Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** 按权重升序，用于超出上限时淘汰 */
+    private final TreeSet<Entry> entriesByWeight = new TreeSet<>(BY_WEIGHT_ASC);
+    /** 每个商品当前贡献给了哪些联想词、贡献了多少销量 */
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+    private Set<Long> touchedWhileLoading;
+
+    public ProductSuggester(@Value("${app.search.suggest.enabled:true}") boolean enabled,
+                            @Value("${app.search.suggest.max-entries:200000}") int maxEntries,
+                            @Value("${app.search.suggest.top-k:10}") int topK) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.topK = topK;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 返回以 prefix 开头的联想词，按权重降序。
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String key = truncate(normalize(prefix));
+        if (!enabled || key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            int n = Math.min(limit, node.topSize);
+            List<SuggestionDTO> suggestions = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Entry entry = node.top[i];
+                suggestions.add(new SuggestionDTO(entry.text, entry.type));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前联想词数量。
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void bulkLoad(List<ProductDocument> batch) {
+        lock.writeLock().lock();
+        try {
+            for (ProductDocument document : batch) {
+                if (!touchedWhileLoading.contains(document.getProductId())) {
+                    removeContribution(document.getProductId());
+                    addContribution(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void completeBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = null;
+            log.info("搜索联想词加载完成: 联想词数={}", entries.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void abortBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            touchedWhileLoading = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(ProductDocument document) {
+        if (!enabled || document == null || document.getProductId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(document.getProductId());
+            removeContribution(document.getProductId());
+            if (document.isActive()) {
+                addContribution(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(productId);
+            removeContribution(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------ 商品贡献
+
+    private static final class Contribution {
+        final Entry[] entries;
+        final long sales;
+
+        Contribution(Entry[] entries, long sales) {
+            this.entries = entries;
+            this.sales = sales;
+        }
+    }
+
+    private void markTouched(Long productId) {
+        if (touchedWhileLoading != null) {
+            touchedWhileLoading.add(productId);
+        }
+    }
+
+    private void addContribution(ProductDocument document) {
+        long sales = document.getSales() == null ? 0L : Math.max(0, document.getSales());
+        List<Entry> contributed = new ArrayList<>(3);
+        addTo(contributed, TYPE_PRODUCT, document.getName(), sales);
+        addTo(contributed, TYPE_BRAND, document.getBrandName(), sales);
+        addTo(contributed, TYPE_CATEGORY, document.getCategoryName(), sales);
+        contributions.put(document.getProductId(), new Contribution(contributed.toArray(new Entry[0]), sales));
+        while (entries.size() > maxEntries) {
+            removeEntry(entriesByWeight.first());
+        }
+    }
+
+    private void addTo(List<Entry> contributed, String type, String text, long sales) {
+        if (!StringUtils.hasText(text)) {
+            return;
+        }
+        String id = type + ':' + normalize(text);
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            entry = new Entry(id, text.trim(), type);
+            entry.refs = 1;
+            entry.weight = sales;
+            entries.put(id, entry);
+            entriesByWeight.add(entry);
+            insertEntry(entry);
+        } else {
+            entry.refs++;
+            changeWeight(entry, entry.weight + sales);
+        }
+        contributed.add(entry);
+    }
+
+    private void removeContribution(Long productId) {
+        Contribution contribution = contributions.remove(productId);
+        if (contribution == null) {
+            return;
+        }
+        for (Entry entry : contribution.entries) {
+            if (entries.get(entry.id) != entry) {
+                // 已因超出上限被淘汰（之后可能又以新对象重新加入，不能误减它的计数）
+                continue;
+            }
+            if (--entry.refs <= 0) {
+                removeEntry(entry);
+            } else if (contribution.sales != 0) {
+                changeWeight(entry, entry.weight - contribution.sales);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ 前缀树
+
+    private static final class Entry {
+        final String id;
+        final String text;
+        final String type;
+        final String[] keys;
+        long weight;
+        int refs;
+
+        Entry(String id, String text, String type) {
+            this.id = id;
+            this.text = text;
+            this.type = type;
+            this.keys = keysOf(text);
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        /** 子节点按字符升序排列，查找用二分 */
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        /** 子树内排名最高的联想词，已排序 */
+        Entry[] top = NO_ENTRIES;
+        int topSize;
+        /** 键恰好在此结束的联想词 */
+        List<Entry> terminals;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, 0, childCount, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, 0, childCount, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            Node node = new Node();
+            keys[insertAt] = c;
+            children[insertAt] = node;
+            childCount++;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, 0, childCount, c);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(keys, index + 1, keys, index, childCount - index - 1);
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            children[--childCount] = null;
+        }
+
+        boolean isEmpty() {
+            return childCount == 0 && (terminals == null || terminals.isEmpty());
+        }
+
+        int indexOf(Entry entry) {
+            for (int i = 0; i < topSize; i++) {
+                if (top[i] == entry) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private void insertEntry(Entry entry) {
+        for (String key : entry.keys) {
+            Node node = root;
+            offer(node, entry);
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                offer(node, entry);
+            }
+            if (node.terminals == null) {
+                node.terminals = new ArrayList<>(1);
+            }
+            node.terminals.add(entry);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        entries.remove(entry.id);
+        entriesByWeight.remove(entry);
+        for (String key : entry.keys) {
+            Node[] path = pathOf(key);
+            Node leaf = path[path.length - 1];
+            if (leaf.terminals != null) {
+                leaf.terminals.remove(entry);
+            }
+            // 自底向上：剪掉空节点，再补齐被移除联想词所在节点的 Top-K
+            for (int depth = path.length - 1; depth >= 0; depth--) {
+                Node node = path[depth];
+                if (depth > 0 && node.isEmpty()) {
+                    path[depth - 1].removeChild(key.charAt(depth - 1));
+                    continue;
+                }
+                if (node.indexOf(entry) >= 0) {
+                    recompute(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * 调整权重：增加时只需在路径上重新排序或挤入 Top-K；减少时该联想词可能被其它词超过，需要从子节点重新汇总。
+     */
+    private void changeWeight(Entry entry, long newWeight) {
+        entriesByWeight.remove(entry);
+        boolean increased = newWeight >= entry.weight;
+        entry.weight = newWeight;
+        entriesByWeight.add(entry);
+        for (String key : entry.keys) {
+            Node[] path = pathOf(key);
+            for (int depth = path.length - 1; depth >= 0; depth--) {
+                if (increased) {
+                    offer(path[depth], entry);
+                } else if (path[depth].indexOf(entry) >= 0) {
+                    recompute(path[depth]);
+                }
+            }
+        }
+    }
+
+    private Node[] pathOf(String key) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+        }
+        return path;
+    }
+
+    private void offer(Node node, Entry entry) {
+        int index = node.indexOf(entry);
+        if (index < 0) {
+            if (node.topSize < topK) {
+                if (node.top.length == node.topSize) {
+                    node.top = Arrays.copyOf(node.top, Math.min(topK, Math.max(2, node.topSize * 2)));
+                }
+                index = node.topSize++;
+            } else if (BY_RANK.compare(entry, node.top[topK - 1]) < 0) {
+                index = topK - 1;
+            } else {
+                return;
+            }
+            node.top[index] = entry;
+        }
+        // 插入排序：只有 index 位置可能失序
+        while (index > 0 && BY_RANK.compare(node.top[index], node.top[index - 1]) < 0) {
+            swap(node.top, index, index - 1);
+            index--;
+        }
+        while (index < node.topSize - 1 && BY_RANK.compare(node.top[index], node.top[index + 1]) > 0) {
+            swap(node.top, index, index + 1);
+            index++;
+        }
+    }
+
+    /**
+     * 由子节点的 Top-K 和本节点结束的联想词重新汇总本节点的 Top-K。
+     */
+    private void recompute(Node node) {
+        Set<Entry> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (node.terminals != null) {
+            candidates.addAll(node.terminals);
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            Node child = node.children[i];
+            candidates.addAll(Arrays.asList(child.top).subList(0, child.topSize));
+        }
+        List<Entry> sorted = new ArrayList<>(candidates);
+        sorted.sort(BY_RANK);
+        int n = Math.min(topK, sorted.size());
+        node.top = sorted.subList(0, n).toArray(new Entry[0]);
+        node.topSize = n;
+    }
+
+    private static void swap(Entry[] array, int i, int j) {
+        Entry tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * 联想词的前缀键：整串，以及后续若干个词首开始的后缀，均截断到 {@link #MAX_KEY_LENGTH}。
+     */
+    private static String[] keysOf(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>(MAX_KEYS_PER_ENTRY);
+        keys.add(truncate(normalized));
+        for (int i = 1; i < normalized.length() && keys.size() < MAX_KEYS_PER_ENTRY; i++) {
+            if (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ') {
+                String key = truncate(normalized.substring(i));
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * 统一小写、去掉首尾空白并把连续空白压成一个空格。
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String key) {
+        return key.length() <= MAX_KEY_LENGTH ? key : key.substring(0, MAX_KEY_LENGTH);
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.shoppingmall.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 商品文本分词器
+ * <p>
+ * 拉丁字母与数字按连续片段切分并转小写；汉字等 CJK 字符按连续片段切分成二元组 (bigram)。
+ * 建索引时 CJK 片段同时输出单字和二元组，查询时长度不小于 2 的片段只用二元组，
+ * 单个汉字的查询退化为单字匹配。这样既能用相邻字对区分"手机"和"机手"，
+ * 又不会漏掉单字查询，效果接近原先 LIKE '%关键词%' 的子串匹配。
+ */
+public final class ProductTokenizer {
+
+    private ProductTokenizer() {
+        // 工具类，不应被实例化
+    }
+
+    /**
+     * 对文档文本分词，保留重复词。
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        split(text, tokens, true);
+        return tokens;
+    }
+
+    /**
+     * 对查询关键词分词并去重，保持出现顺序。
+     */
+    public static List<String> tokenizeQuery(String keyword) {
+        List<String> tokens = new ArrayList<>();
+        split(keyword, tokens, false);
+        return new ArrayList<>(new LinkedHashSet<>(tokens));
+    }
+
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void split(String text, List<String> tokens, boolean indexing) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        int cjkStart = -1;
+        int i = 0;
+        while (i < lower.length()) {
+            int cp = lower.codePointAt(i);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                if (cjkStart < 0) {
+                    cjkStart = i;
+                }
+            } else {
+                if (cjkStart >= 0) {
+                    emitCjk(lower, cjkStart, i, tokens, indexing);
+                    cjkStart = -1;
+                }
+                if (Character.isLetterOrDigit(cp)) {
+                    word.appendCodePoint(cp);
+                } else {
+                    flushWord(word, tokens);
+                }
+            }
+            i += Character.charCount(cp);
+        }
+        if (cjkStart >= 0) {
+            emitCjk(lower, cjkStart, lower.length(), tokens, indexing);
+        }
+        flushWord(word, tokens);
+    }
+
+    private static void emitCjk(String text, int start, int end, List<String> tokens, boolean indexing) {
+        int first = start;
+        int second = first + Character.charCount(text.codePointAt(first));
+        if (second >= end) {
+            tokens.add(text.substring(first, end));
+            return;
+        }
+        if (indexing) {
+            tokens.add(text.substring(first, second));
+        }
+        while (second < end) {
+            int third = second + Character.charCount(text.codePointAt(second));
+            tokens.add(text.substring(first, third));
+            if (indexing) {
+                tokens.add(text.substring(second, third));
+            }
+            first = second;
+            second = third;
+        }
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+}
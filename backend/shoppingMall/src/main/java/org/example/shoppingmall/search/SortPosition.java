@@ -0,0 +1,46 @@
+package org.example.shoppingmall.search;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 一条命中结果在当前排序下的位置，用于游标续读（search after）。
+ * <p>
+ * 相关度排序时 score 为 BM25F 得分、sortKey 为销量；其他排序时 score 不使用，
+ * sortKey 为排序字段在索引中的取值（价格为分，创建时间为毫秒时间戳）。同值时按商品ID倒序。
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class SortPosition {
+
+    private static final char SEPARATOR = ':';
+
+    private final float score;
+    private final long sortKey;
+    private final long productId;
+
+    /**
+     * 游标中保存的排序键部分，商品ID由游标单独保存
+     */
+    public String format() {
+        return Float.toString(score) + SEPARATOR + sortKey;
+    }
+
+    /**
+     * format 的逆过程
+     *
+     * @throws IllegalArgumentException 格式非法
+     */
+    public static SortPosition parse(String value, long productId) {
+        int separator = value.indexOf(SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("非法的排序位置: " + value);
+        }
+        return new SortPosition(Float.parseFloat(value.substring(0, separator)),
+                Long.parseLong(value.substring(separator + 1)), productId);
+    }
+}
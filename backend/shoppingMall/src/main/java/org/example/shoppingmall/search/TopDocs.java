@@ -0,0 +1,83 @@
+package org.example.shoppingmall.search;
+
+/**
+ * 基于二叉堆的 Top-K 选择，避免为了取一页数据而对全部命中文档做装箱排序。
+ * 参与比较的是命中结果中的下标 [0, n)，由比较器自行映射到文档号、得分等列。
+ */
+final class TopDocs {
+
+    /**
+     * 命中下标比较器：返回负数表示 a 应排在 b 前面。
+     */
+    @FunctionalInterface
+    interface DocComparator {
+        int compare(int a, int b);
+    }
+
+    private TopDocs() {
+        // 工具类，不应被实例化
+    }
+
+    /**
+     * 从下标 [0, n) 中选出排序最靠前的 k 个，按顺序返回。
+     */
+    static int[] select(int n, int k, DocComparator cmp) {
+        k = Math.min(k, n);
+        if (k <= 0) {
+            return new int[0];
+        }
+        // 堆顶始终是当前 k 个候选里排序最靠后的一个
+        int[] heap = new int[k];
+        int size = 0;
+        for (int entry = 0; entry < n; entry++) {
+            if (size < k) {
+                heap[size] = entry;
+                siftUp(heap, size++, cmp);
+            } else if (cmp.compare(entry, heap[0]) < 0) {
+                heap[0] = entry;
+                siftDown(heap, 0, size, cmp);
+            }
+        }
+        int[] sorted = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, 0, size, cmp);
+        }
+        return sorted;
+    }
+
+    private static void siftUp(int[] heap, int index, DocComparator cmp) {
+        int entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (cmp.compare(entry, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = entry;
+    }
+
+    private static void siftDown(int[] heap, int index, int size, DocComparator cmp) {
+        if (size == 0) {
+            return;
+        }
+        int entry = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && cmp.compare(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (cmp.compare(entry, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = entry;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.shoppingmall.service;
 
 import org.example.shoppingmall.dto.CommentDto;
+import org.example.shoppingmall.dto.CursorResult;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -19,6 +20,9 @@ public interface CommentService {
     CommentDto getCommentById(Integer commentId);
     
     Page<CommentDto> getProductComments(Integer productId, Pageable pageable);
+
+    // 游标分页获取商品评论 (按创建时间倒序，不统计总数)，cursor 为空表示第一页
+    CursorResult<CommentDto> scrollProductComments(Integer productId, String cursor, int size);
     
     Page<CommentDto> getUserComments(Long userId, Pageable pageable);
     
@@ -1,5 +1,6 @@
 package org.example.shoppingmall.service;
 
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.dto.OrderCreateRequestDto; // 如果创建订单用DTO
 import org.example.shoppingmall.dto.OrderResponseDto;
 import org.example.shoppingmall.dto.PaymentInitiationResponseDto;
@@ -19,14 +20,26 @@ public interface OrderService {
     // 这里暂时保留 List<OrderItem> items，但service内部创建新的OrderItem持久化对象
     OrderResponseDto createOrder(Long userId, OrderCreateRequestDto orderRequestDto);
 
+    // 秒杀批量下单：同一商品的一批请求在一个事务内按顺序分配库存并创建订单，
+    // 返回与请求一一对应的订单，库存不足（或用户不存在）的位置为 null
+    List<OrderResponseDto> createOrdersInBatch(Long productId, List<Long> userIds, List<OrderCreateRequestDto> requests);
+
     OrderResponseDto getOrderDetails(Long id);
 
     Page<OrderResponseDto> getUserOrders(Long userId, Integer status, Pageable pageable);
+    // 游标分页获取用户订单 (按创建时间倒序，不统计总数)，cursor 为空表示第一页
+    CursorResult<OrderResponseDto> scrollUserOrders(Long userId, Integer status, String cursor, int size);
 
     OrderResponseDto updateOrderStatus(String orderId, OrderStatus status);
 
     OrderResponseDto cancelOrder(String orderId, Long userId); // 添加userId进行权限校验
 
+    // 修复遗留的 Redis 预占：已支付/已取消/不存在的订单补做库存确认或释放，返回是否做了修复；待付款订单由支付超时处理，直接返回 false
+    boolean repairReservation(String orderNo);
+
+    // 支付超时批量取消：一个事务内锁定仍待付款的订单、改为已取消并一次批量归还库存，返回取消的订单数
+    int expireUnpaidOrders(List<String> orderNos);
+
     OrderResponseDto getOrderDetailsByOrderNo(String orderNo, Long userId);
 
     PaymentInitiationResponseDto initiatePayment(Long orderId, Long userId, String paymentMethod);
@@ -1,7 +1,10 @@
 package org.example.shoppingmall.service;
 
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductCardDTO;
 import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.dto.SuggestionDTO;
 import org.example.shoppingmall.entity.Product;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -10,6 +13,9 @@ import java.util.List;
 
 public interface ProductService {
 
+    // getProductsByIds 单次最多查询的商品数
+    int MAX_BATCH_SIZE = 100;
+
     /**
      * 获取商品列表（支持搜索和筛选）
      * @param keyword 搜索关键词
@@ -25,6 +31,37 @@ public interface ProductService {
     PageResult<ProductDTO> getProducts(String keyword, Integer categoryId, int pageNum, int pageSize,
                                        String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type);
 
+    /**
+     * 获取商品列表卡片（参数与 getProducts 相同，只返回列表页渲染需要的字段）
+     * @return 分页商品卡片
+     */
+    PageResult<ProductCardDTO> getProductCards(String keyword, Integer categoryId, int pageNum, int pageSize,
+                                               String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type);
+
+    /**
+     * 游标分页获取商品列表（不统计总数，翻页深度不影响查询耗时）
+     * @param cursor 上一页返回的 nextCursor，为空表示第一页
+     * @param size 每页数量
+     * @return 商品列表及下一页游标
+     */
+    CursorResult<ProductDTO> scrollProducts(String keyword, Integer categoryId, String cursor, int size,
+                                            String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type);
+
+    /**
+     * 搜索联想词（边输入边提示）
+     * @param prefix 用户已输入的前缀
+     * @param limit 最多返回条数
+     * @return 按销量排序的联想词
+     */
+    List<SuggestionDTO> suggest(String prefix, int limit);
+
+    /**
+     * 好评榜：平均分最高的上架商品
+     * @param limit 返回条数
+     * @return 按平均分、评论数降序的商品列表
+     */
+    List<ProductDTO> getTopRatedProducts(int limit);
+
     /**
      * 根据ID获取商品
      * @param id 商品ID
@@ -32,6 +69,13 @@ public interface ProductService {
      */
     ProductDTO getProductById(Long id);
 
+    /**
+     * 批量获取商品：先从商品详情缓存批量读取，未命中的再一次性查库
+     * @param ids 商品ID列表，最多 100 个，重复的只返回一次
+     * @return 按请求顺序排列的商品信息，不存在的商品会被跳过
+     */
+    List<ProductDTO> getProductsByIds(List<Long> ids);
+
     /**
      * 根据ID获取商品实体
      * @param id 商品ID
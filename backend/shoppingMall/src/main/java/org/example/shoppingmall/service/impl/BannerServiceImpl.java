@@ -1,6 +1,8 @@
 package org.example.shoppingmall.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.example.shoppingmall.cache.ResourceVersions;
+import org.example.shoppingmall.config.CacheConfig;
 import org.example.shoppingmall.dto.BannerDto;
 import org.example.shoppingmall.entity.Banner;
 import org.example.shoppingmall.repository.BannerRepository;
@@ -21,16 +23,17 @@ import java.util.stream.Collectors;
 public class BannerServiceImpl implements BannerService {
 
     private final BannerRepository bannerRepository;
+    private final ResourceVersions resourceVersions;
     
-    private static final String BANNER_CACHE = "bannerCache";
     private static final String ALL_BANNERS_CACHE_KEY = "'all'";
     private static final String HOME_BANNERS_CACHE_KEY = "'home'";
     private static final String POSITION_BANNERS_CACHE_KEY = "'position:'";
 
     @Override
     @Transactional
-    @CacheEvict(value = BANNER_CACHE, allEntries = true)
+    @CacheEvict(value = CacheConfig.BANNER_CACHE, allEntries = true)
     public BannerDto createBanner(BannerDto bannerDto) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.BANNERS);
         Banner banner = new Banner();
         BeanUtils.copyProperties(bannerDto, banner);
         Banner savedBanner = bannerRepository.save(banner);
@@ -41,8 +44,9 @@ public class BannerServiceImpl implements BannerService {
 
     @Override
     @Transactional
-    @CacheEvict(value = BANNER_CACHE, allEntries = true)
+    @CacheEvict(value = CacheConfig.BANNER_CACHE, allEntries = true)
     public BannerDto updateBanner(Integer id, BannerDto bannerDto) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.BANNERS);
         Banner banner = bannerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Banner not found with id: " + id));
         
@@ -56,8 +60,9 @@ public class BannerServiceImpl implements BannerService {
 
     @Override
     @Transactional
-    @CacheEvict(value = BANNER_CACHE, allEntries = true)
+    @CacheEvict(value = CacheConfig.BANNER_CACHE, allEntries = true)
     public void deleteBanner(Integer id) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.BANNERS);
         bannerRepository.deleteById(id);
     }
 
@@ -74,7 +79,7 @@ public class BannerServiceImpl implements BannerService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = BANNER_CACHE, key = ALL_BANNERS_CACHE_KEY)
+    @Cacheable(value = CacheConfig.BANNER_CACHE, sync = true, key = ALL_BANNERS_CACHE_KEY)
     public List<BannerDto> getAllActiveBanners() {
         return bannerRepository.findByIsActiveTrueOrderBySortOrder().stream()
                 .map(this::convertToDto)
@@ -83,7 +88,7 @@ public class BannerServiceImpl implements BannerService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = BANNER_CACHE, key = POSITION_BANNERS_CACHE_KEY + " + #position")
+    @Cacheable(value = CacheConfig.BANNER_CACHE, sync = true, key = POSITION_BANNERS_CACHE_KEY + " + #position")
     public List<BannerDto> getActiveBannersByPosition(String position) {
         return bannerRepository.findByPositionAndIsActiveTrueOrderBySortOrder(position).stream()
                 .map(this::convertToDto)
@@ -99,7 +104,7 @@ public class BannerServiceImpl implements BannerService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = BANNER_CACHE, key = HOME_BANNERS_CACHE_KEY)
+    @Cacheable(value = CacheConfig.BANNER_CACHE, sync = true, key = HOME_BANNERS_CACHE_KEY)
     public List<BannerDto> getHomeBanners() {
         return bannerRepository.findTop5ByPositionAndIsActiveTrueOrderBySortOrder("home").stream()
                 .map(this::convertToDto)
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.shoppingmall.common.ResultCode;
 import org.example.shoppingmall.dto.CartItemDTO;
+import org.example.shoppingmall.dto.ProductDTO;
 import org.example.shoppingmall.entity.Cart;
 import org.example.shoppingmall.entity.CartItem;
 import org.example.shoppingmall.entity.Product;
@@ -14,6 +15,7 @@ import org.example.shoppingmall.repository.CartRepository; // 新增 CartReposit
 import org.example.shoppingmall.repository.ProductRepository;
 import org.example.shoppingmall.repository.UserRepository;
 import org.example.shoppingmall.service.CartService;
+import org.example.shoppingmall.service.ProductService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -23,7 +25,10 @@ import org.springframework.util.CollectionUtils;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -36,6 +41,7 @@ public class CartServiceImpl implements CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductService productService;
 
     /**
      * 获取或创建当前用户的购物车。
@@ -69,9 +75,7 @@ public class CartServiceImpl implements CartService {
         if (cartOptional.isEmpty() || CollectionUtils.isEmpty(cartOptional.get().getItems())) {
             return new ArrayList<>();
         }
-        return cartOptional.get().getItems().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(cartOptional.get().getItems());
     }
 
     @Override
@@ -226,9 +230,7 @@ public class CartServiceImpl implements CartService {
         cart.getItems().forEach(item -> item.setSelected(selected));
         cartRepository.save(cart); // 保存Cart会级联更新所有CartItem
 
-        return cart.getItems().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(cart.getItems());
     }
 
     private User getCurrentUser() {
@@ -242,6 +244,46 @@ public class CartServiceImpl implements CartService {
                 .orElseThrow(() -> new ApiException(ResultCode.USER_NOT_EXISTS, "当前登录用户不存在: " + username));
     }
 
+    /**
+     * 批量转换购物车项：商品信息通过 ProductService#getProductsByIds 取回（优先读缓存），
+     * 每次最多 MAX_BATCH_SIZE 个，不再逐项懒加载商品实体。缓存和数据库中都已不存在的商品退回到实体上的信息。
+     */
+    private List<CartItemDTO> convertToDTOs(List<CartItem> cartItems) {
+        // 读取代理对象的 id 不会触发懒加载
+        List<Long> productIds = cartItems.stream()
+                .map(CartItem::getProduct)
+                .filter(Objects::nonNull)
+                .map(Product::getId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, ProductDTO> products = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += ProductService.MAX_BATCH_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + ProductService.MAX_BATCH_SIZE, productIds.size()));
+            productService.getProductsByIds(chunk).forEach(product -> products.put(product.getId(), product));
+        }
+
+        List<CartItemDTO> dtos = new ArrayList<>(cartItems.size());
+        for (CartItem cartItem : cartItems) {
+            ProductDTO product = cartItem.getProduct() == null ? null : products.get(cartItem.getProduct().getId());
+            if (product == null) {
+                dtos.add(convertToDTO(cartItem));
+                continue;
+            }
+            CartItemDTO dto = new CartItemDTO();
+            dto.setId(cartItem.getId());
+            dto.setQuantity(cartItem.getQuantity());
+            dto.setSelected(cartItem.getSelected());
+            dto.setProductId(product.getId());
+            dto.setProductName(product.getName());
+            dto.setProductImage(product.getImageUrl());
+            dto.setProductPrice(product.getPrice());
+            dto.setProductStock(product.getStock());
+            dto.setProductStatus(product.getStatus());
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
     private CartItemDTO convertToDTO(CartItem cartItem) {
         if (cartItem == null) return null;
         CartItemDTO dto = new CartItemDTO();
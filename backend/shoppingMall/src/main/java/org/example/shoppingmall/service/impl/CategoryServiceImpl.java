@@ -2,7 +2,9 @@ package org.example.shoppingmall.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.cache.ResourceVersions;
 import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.config.CacheConfig;
 import org.example.shoppingmall.dto.CategoryDTO;
 import org.example.shoppingmall.entity.Category;
 import org.example.shoppingmall.exception.ApiException;
@@ -10,6 +12,8 @@ import org.example.shoppingmall.repository.CategoryRepository;
 import org.example.shoppingmall.service.CategoryService;
 import org.example.shoppingmall.service.FileService;
 import org.springframework.beans.BeanUtils;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,8 +28,12 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final FileService fileService;
+    private final ResourceVersions resourceVersions;
+
+    private static final String ALL_CATEGORIES_CACHE_KEY = "'all'";
 
     @Override
+    @Cacheable(value = CacheConfig.CATEGORIES_CACHE, sync = true, key = ALL_CATEGORIES_CACHE_KEY)
     public List<CategoryDTO> getAllCategories() {
         List<Category> categories = categoryRepository.findAll();
         return categories.stream()
@@ -42,7 +50,9 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, allEntries = true)
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
         // 检查分类名称是否已存在
         if (categoryRepository.existsByName(categoryDTO.getName())) {
             throw new ApiException(ResultCode.CATEGORY_EXISTS);
@@ -57,7 +67,9 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, allEntries = true)
     public CategoryDTO updateCategory(Long id, CategoryDTO categoryDTO) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ApiException(ResultCode.CATEGORY_NOT_EXISTS));
         
@@ -86,7 +98,9 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, allEntries = true)
     public void deleteCategory(Long id) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
         if (!categoryRepository.existsById(id)) {
             throw new ApiException(ResultCode.CATEGORY_NOT_EXISTS);
         }
@@ -98,7 +112,9 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, allEntries = true)
     public CategoryDTO updateCategoryStatus(Long id, Integer status) {
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ApiException(ResultCode.CATEGORY_NOT_EXISTS));
         
@@ -3,17 +3,22 @@ package org.example.shoppingmall.service.impl;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.example.shoppingmall.dto.CommentDto;
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.entity.Comment;
 import org.example.shoppingmall.entity.OrderItem;
 import org.example.shoppingmall.entity.Product;
 import org.example.shoppingmall.entity.User;
 import org.example.shoppingmall.repository.CommentRepository;
 import org.example.shoppingmall.repository.OrderItemRepository;
+import org.example.shoppingmall.repository.ProductRatingRepository;
 import org.example.shoppingmall.repository.ProductRepository;
 import org.example.shoppingmall.repository.UserRepository;
+import org.example.shoppingmall.search.ProductRatingLeaderboard;
 import org.example.shoppingmall.service.CommentService;
+import org.example.shoppingmall.util.CursorCodec;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -32,10 +37,14 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CommentServiceImpl implements CommentService {
 
+    private static final String COMMENT_CURSOR_TAG = "createdAt,desc";
+
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final OrderItemRepository orderItemRepository;
+    private final ProductRatingRepository productRatingRepository;
+    private final ProductRatingLeaderboard productRatingLeaderboard;
 
     // --- 统一的实体转DTO辅助方法 ---
     private CommentDto convertEntityToDto(Comment comment) {
@@ -142,6 +151,7 @@ public class CommentServiceImpl implements CommentService {
         comment.setIsAnonymous(commentDto.getIsAnonymous() != null ? commentDto.getIsAnonymous() : false);
 
         Comment savedComment = commentRepository.save(comment);
+        updateRatingSummary(product.getId(), null, savedComment);
         return convertEntityToDto(savedComment);
     }
 
@@ -154,6 +164,10 @@ public class CommentServiceImpl implements CommentService {
         if (!Objects.equals(comment.getUser().getId(), userId)) {
             throw new AccessDeniedException("无权修改此评论");
         }
+        // 修改前的评分状态，用于计算汇总增量
+        Comment before = new Comment();
+        before.setRating(comment.getRating());
+        before.setVisible(comment.getVisible());
 
         comment.setRating(commentDto.getRating());
         comment.setContent(commentDto.getContent());
@@ -173,6 +187,7 @@ public class CommentServiceImpl implements CommentService {
 
 
         Comment updatedComment = commentRepository.save(comment);
+        updateRatingSummary(comment.getProduct().getId(), before, updatedComment);
         return convertEntityToDto(updatedComment);
     }
 
@@ -187,6 +202,34 @@ public class CommentServiceImpl implements CommentService {
             throw new AccessDeniedException("无权删除此评论");
         }
         commentRepository.deleteById(commentId.longValue());
+        updateRatingSummary(comment.getProduct().getId(), comment, null);
+    }
+
+    /**
+     * 按评论修改前后的状态增量更新商品评分汇总（只有可见且评分在 1~5 的评论计入），
+     * 并在事务提交后刷新好评榜。before/after 为 null 分别表示新增/删除。
+     */
+    private void updateRatingSummary(Long productId, Comment before, Comment after) {
+        long[] delta = new long[7]; // [0]=评论数, [1]=评分和, [2..6]=1~5星数量
+        accumulateRating(delta, before, -1);
+        accumulateRating(delta, after, 1);
+        if (delta[0] == 0 && delta[1] == 0) {
+            return; // 计入统计的评分没有变化（例如只修改了内容）
+        }
+        productRatingRepository.applyDelta(productId, delta[0], delta[1],
+                delta[2], delta[3], delta[4], delta[5], delta[6]);
+        productRatingLeaderboard.refreshAfterCommit(productId);
+    }
+
+    private void accumulateRating(long[] delta, Comment comment, int sign) {
+        if (comment == null || !Boolean.TRUE.equals(comment.getVisible()) || comment.getRating() == null
+                || comment.getRating() < 1 || comment.getRating() > 5) {
+            return;
+        }
+        long rating = comment.getRating();
+        delta[0] += sign;
+        delta[1] += sign * rating;
+        delta[1 + (int) rating] += sign;
     }
 
     @Override
@@ -237,6 +280,22 @@ public class CommentServiceImpl implements CommentService {
                 .map(this::convertEntityToDto);
     }
 
+    @Override
+    public CursorResult<CommentDto> scrollProductComments(Integer productId, String cursor, int size) {
+        if (!productRepository.existsById(productId.longValue())) {
+            throw new EntityNotFoundException("商品不存在，ID: " + productId);
+        }
+        int pageSize = CursorResult.normalizeSize(size);
+        CursorCodec.Cursor position = CursorCodec.decode(cursor, COMMENT_CURSOR_TAG);
+        // 多取一条用于判断是否还有下一页
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Comment> rows = position == null
+                ? commentRepository.findByProduct_IdAndVisibleTrueOrderByCreatedAtDescIdDesc(productId.longValue(), limit)
+                : commentRepository.findVisibleByProductIdBefore(productId.longValue(), position.asDateTime(), position.getId(), limit);
+        return CursorResult.of(rows, pageSize,
+                c -> CursorCodec.encode(COMMENT_CURSOR_TAG, c.getCreatedAt(), c.getId()), this::convertEntityToDto);
+    }
+
     @Override
     public Page<CommentDto> getUserComments(Long userId, Pageable pageable) { // userId 参数已是 Long
         if (!userRepository.existsById(userId)) {
@@ -15,6 +15,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class FavoriteServiceImpl implements FavoriteService {
@@ -78,11 +83,18 @@ public class FavoriteServiceImpl implements FavoriteService {
             throw new EntityNotFoundException("用户不存在，ID: " + userId);
         }
         
-        // 获取用户收藏的商品
-        return favoriteRepository.findByUserId(userId, pageable)
+        // 获取用户收藏的商品：当前页的商品连同分类、品牌用一次查询取回，不再逐条懒加载
+        Page<Favorite> favorites = favoriteRepository.findByUserId(userId, pageable);
+        List<Long> productIds = favorites.getContent().stream()
+                .map(favorite -> favorite.getProduct().getId())
+                .collect(Collectors.toList());
+        Map<Long, Product> products = productIds.isEmpty() ? Map.of()
+                : productRepository.findWithCategoryAndBrandByIdIn(productIds).stream()
+                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return favorites
                 .map(favorite -> {
                     ProductResponseDto dto = new ProductResponseDto();
-                    Product product = favorite.getProduct();
+                    Product product = products.getOrDefault(favorite.getProduct().getId(), favorite.getProduct());
                     
                     dto.setId(product.getId());
                     dto.setName(product.getName());
@@ -1,6 +1,10 @@
 package org.example.shoppingmall.service.impl;
 
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.example.shoppingmall.cache.ProductCacheTags;
 import org.example.shoppingmall.controller.OrderController;
 import org.example.shoppingmall.dto.*;
 // 假设 OrderCreateRequestDto 和 OrderItemCreateDto (用于createOrder的items参数) 已定义
@@ -10,15 +14,24 @@ import org.example.shoppingmall.dto.OrderItemResponseDto;
 import org.example.shoppingmall.dto.OrderCreateRequestDto;
 import org.example.shoppingmall.entity.*;
 import org.example.shoppingmall.exception.UnauthorizedException;
+import org.example.shoppingmall.inventory.RedisInventory;
+import org.example.shoppingmall.order.PaymentTimeoutWheel;
+import org.example.shoppingmall.repository.OrderItemBatchRepository;
 import org.example.shoppingmall.repository.OrderRepository;
 import org.example.shoppingmall.repository.ProductRepository;
+import org.example.shoppingmall.repository.ProductStockRepository;
 import org.example.shoppingmall.repository.UserRepository;
 import org.example.shoppingmall.service.OrderService;
+import org.example.shoppingmall.util.CursorCodec;
+import org.example.shoppingmall.util.OrderNoGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils; // 用于检查字符串
 import org.slf4j.Logger;
@@ -27,9 +40,12 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,17 +55,39 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final ProductStockRepository productStockRepository;
+    private final OrderItemBatchRepository orderItemBatchRepository;
+    private final ProductCacheTags productCacheTags;
+    private final RedisInventory redisInventory;
+    private final OrderNoGenerator orderNoGenerator;
+    private final PaymentTimeoutWheel paymentTimeoutWheel;
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
+    private static final String ORDER_CURSOR_TAG = "createdAt,desc";
+
+    @PersistenceContext
+    private EntityManager entityManager;
     // ... 您的 @Autowired 依赖注入 ...
     // 考虑注入 CartService 或 CartItemRepository 用于清空购物车等操作
 
     @Autowired
     public OrderServiceImpl(OrderRepository orderRepository,
                             UserRepository userRepository,
-                            ProductRepository productRepository) {
+                            ProductRepository productRepository,
+                            ProductStockRepository productStockRepository,
+                            OrderItemBatchRepository orderItemBatchRepository,
+                            ProductCacheTags productCacheTags,
+                            RedisInventory redisInventory,
+                            OrderNoGenerator orderNoGenerator,
+                            PaymentTimeoutWheel paymentTimeoutWheel) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
+        this.productStockRepository = productStockRepository;
+        this.orderItemBatchRepository = orderItemBatchRepository;
+        this.productCacheTags = productCacheTags;
+        this.redisInventory = redisInventory;
+        this.orderNoGenerator = orderNoGenerator;
+        this.paymentTimeoutWheel = paymentTimeoutWheel;
     }
 
     @Override
@@ -65,9 +103,107 @@ public class OrderServiceImpl implements OrderService {
             throw new RuntimeException("收货地址不能为空 (来自Service校验)");
         }
 
+        Order newOrder = newOrder(buyer, orderRequestDto);
+
+        // 订单中的商品一次查出，不再在循环里逐个 findById
+        Map<Long, Product> products = productRepository.findAllById(orderRequestDto.getItems().stream()
+                        .map(OrderItemRequestDto::getProductId).filter(Objects::nonNull).distinct().collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // 先校验全部订单项并按商品合并数量，再一次性批量条件扣减库存
+        Map<Long, Integer> quantities = mergeQuantities(orderRequestDto, products);
+
+        // stock >= 需求 的判断在 UPDATE 内完成，任一商品扣减失败即抛异常回滚整个订单（含已扣减的行）；
+        // 启用 Redis 库存引擎时改为在 Redis 中原子预占，数据库库存在支付确认后异步回写
+        List<Long> outOfStock;
+        if (redisInventory.isEnabled()) {
+            outOfStock = redisInventory.reserve(newOrder.getOrderNo(), quantities);
+            if (outOfStock.isEmpty()) {
+                releaseReservationOnRollback(newOrder.getOrderNo());
+            }
+        } else {
+            outOfStock = productStockRepository.decreaseStock(quantities);
+        }
+        if (!outOfStock.isEmpty()) {
+            Product product = products.get(outOfStock.get(0));
+            throw new RuntimeException("商品 '" + product.getName() + "' 库存不足 (需求: " + quantities.get(product.getId()) + ")");
+        }
+
+        List<OrderItem> items = buildItems(newOrder, orderRequestDto, products);
+
+        Order savedOrder = orderRepository.save(newOrder);
+        saveItems(List.of(savedOrder), items);
+        schedulePaymentTimeoutAfterCommit(List.of(savedOrder));
+        evictProductsAfterCommit(orderRequestDto.getItems().stream()
+                .map(OrderItemRequestDto::getProductId).collect(Collectors.toList()));
+        return convertToOrderResponseDto(savedOrder);
+    }
+
+    @Override
+    public List<OrderResponseDto> createOrdersInBatch(Long productId, List<Long> userIds, List<OrderCreateRequestDto> requests) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("商品不存在 (ID: " + productId + ")"));
+        Map<Long, Product> products = Map.of(productId, product);
+        Map<Long, User> buyers = userRepository.findAllById(userIds.stream().distinct().collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+
+        // 按排队顺序分配库存：Redis 库存引擎下逐单 Lua 预占；否则整批只锁一次商品行、只扣减一次
+        Integer lockedStock = redisInventory.isEnabled() ? null : productStockRepository.lockStock(productId);
+        int remaining = lockedStock == null ? 0 : lockedStock;
+        int allocated = 0;
+        List<OrderResponseDto> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Order> orders = new ArrayList<>();
+        List<OrderItem> items = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            User buyer = buyers.get(userIds.get(i));
+            OrderCreateRequestDto request = requests.get(i);
+            if (buyer == null) {
+                continue;
+            }
+            Map<Long, Integer> quantities = mergeQuantities(request, products);
+            int quantity = quantities.getOrDefault(productId, 0);
+            Order order = newOrder(buyer, request);
+            if (redisInventory.isEnabled()) {
+                if (!redisInventory.reserve(order.getOrderNo(), quantities).isEmpty()) {
+                    continue;
+                }
+                releaseReservationOnRollback(order.getOrderNo());
+            } else {
+                if (quantity > remaining - allocated) {
+                    continue;
+                }
+                allocated += quantity;
+            }
+            items.addAll(buildItems(order, request, products));
+            orders.add(order);
+            positions.add(i);
+        }
+        if (allocated > 0 && !productStockRepository.decreaseStock(Map.of(productId, allocated)).isEmpty()) {
+            // 行锁已持有，正常不会走到这里
+            throw new RuntimeException("商品 '" + product.getName() + "' 库存不足 (需求: " + allocated + ")");
+        }
+
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        saveItems(savedOrders, items);
+        schedulePaymentTimeoutAfterCommit(savedOrders);
+        for (int i = 0; i < savedOrders.size(); i++) {
+            results.set(positions.get(i), convertToOrderResponseDto(savedOrders.get(i)));
+        }
+        if (!savedOrders.isEmpty()) {
+            evictProductsAfterCommit(List.of(productId));
+        }
+        logger.info("批量下单完成 - productId: {}, 请求数: {}, 成功: {}", productId, requests.size(), savedOrders.size());
+        return results;
+    }
+
+    /**
+     * 按请求中的收货信息创建待付款订单（不含订单项）
+     */
+    private Order newOrder(User buyer, OrderCreateRequestDto orderRequestDto) {
         Order newOrder = new Order();
         newOrder.setBuyer(buyer);
-        newOrder.setOrderNo(generateOrderNo());
+        newOrder.setOrderNo(orderNoGenerator.next(buyer.getId()));
         newOrder.setStatus(OrderStatus.PENDING_PAYMENT);
 
         // 从 DTO 设置所有相关字段
@@ -85,8 +221,14 @@ public class OrderServiceImpl implements OrderService {
         if (orderRequestDto.getPaymentMethod() != null) { // 假设DTO中 paymentMethod 是 Integer
             newOrder.setPayType(orderRequestDto.getPaymentMethod());
         }
+        return newOrder;
+    }
 
-        BigDecimal totalAmountCalculated = BigDecimal.ZERO;
+    /**
+     * 校验订单项并按商品合并数量
+     */
+    private Map<Long, Integer> mergeQuantities(OrderCreateRequestDto orderRequestDto, Map<Long, Product> products) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (OrderItemRequestDto itemDto : orderRequestDto.getItems()) {
             if (itemDto.getProductId() == null) { // 假设 OrderItemRequestDto 中有 getProductId()
                 throw new RuntimeException("订单项中的商品ID缺失");
@@ -94,16 +236,23 @@ public class OrderServiceImpl implements OrderService {
             if (itemDto.getQuantity() == null || itemDto.getQuantity() <= 0) { // 假设有 getQuantity()
                 throw new RuntimeException("订单项中的商品数量无效");
             }
-
-            Product product = productRepository.findById(itemDto.getProductId())
-                    .orElseThrow(() -> new RuntimeException("商品不存在 (ID: " + itemDto.getProductId() + ")"));
-
-            if (product.getStock() < itemDto.getQuantity()) {
-                throw new RuntimeException("商品 '" + product.getName() + "' 库存不足 (需求: " + itemDto.getQuantity() + ", 现有: " + product.getStock() + ")");
+            if (!products.containsKey(itemDto.getProductId())) {
+                throw new RuntimeException("商品不存在 (ID: " + itemDto.getProductId() + ")");
             }
+            quantities.merge(itemDto.getProductId(), itemDto.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
 
-            product.setStock(product.getStock() - itemDto.getQuantity()); // 使用 product.setStock()
-            productRepository.save(product);
+    /**
+     * 按商品快照生成订单项，并计算商品总额、运费和应付金额。
+     * 订单项只关联订单、不加入 order.items，由 {@link #saveItems} 批量插入，避免 Hibernate 逐条级联 INSERT。
+     */
+    private List<OrderItem> buildItems(Order newOrder, OrderCreateRequestDto orderRequestDto, Map<Long, Product> products) {
+        List<OrderItem> items = new ArrayList<>();
+        BigDecimal totalAmountCalculated = BigDecimal.ZERO;
+        for (OrderItemRequestDto itemDto : orderRequestDto.getItems()) {
+            Product product = products.get(itemDto.getProductId());
 
             OrderItem persistentOrderItem = new OrderItem();
             persistentOrderItem.setProduct(product);
@@ -115,15 +264,24 @@ public class OrderServiceImpl implements OrderService {
             persistentOrderItem.calculateSubtotal();
 
             totalAmountCalculated = totalAmountCalculated.add(persistentOrderItem.getSubtotal());
-            newOrder.addItem(persistentOrderItem);
+            persistentOrderItem.setOrder(newOrder);
+            items.add(persistentOrderItem);
         }
 
         newOrder.setTotalAmount(totalAmountCalculated);
         newOrder.setFreightAmount(calculateFreight(newOrder));
         newOrder.setPayAmount(newOrder.getTotalAmount().add(newOrder.getFreightAmount()));
+        return items;
+    }
 
-        Order savedOrder = orderRepository.save(newOrder);
-        return convertToOrderResponseDto(savedOrder);
+    /**
+     * 批量插入已保存订单的订单项，再把订单从持久化上下文中分离后挂上订单项用于返回，
+     * 避免提交时 Hibernate 把这些订单项当作新实体再级联保存一次。
+     */
+    private void saveItems(List<Order> savedOrders, List<OrderItem> items) {
+        orderItemBatchRepository.insertAll(items);
+        savedOrders.forEach(entityManager::detach);
+        items.forEach(item -> item.getOrder().addItem(item));
     }
 
     @Override
@@ -137,11 +295,6 @@ public class OrderServiceImpl implements OrderService {
         return convertToOrderResponseDto(order);
     }
 
-    private String generateOrderNo() {
-        return LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS")) +
-                UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-    }
-
     private BigDecimal calculateFreight(Order order) {
         // 示例运费计算逻辑，例如满额包邮，或根据地区计算
         if (order.getTotalAmount().compareTo(new BigDecimal("99")) >= 0) {
@@ -186,10 +339,34 @@ public class OrderServiceImpl implements OrderService {
         return ordersPage.map(this::convertToOrderResponseDto); // 假设有 DTO 转换方法
     }
 
+    @Override
+    public CursorResult<OrderResponseDto> scrollUserOrders(Long userId, Integer status, String cursor, int size) {
+        int pageSize = CursorResult.normalizeSize(size);
+        // 与 getUserOrders 一致：status 为空、0 或无法识别时查询全部订单
+        OrderStatus orderStatusEnum = (status != null && status != 0) ? mapIntegerToOrderStatus(status) : null;
+        CursorCodec.Cursor position = CursorCodec.decode(cursor, ORDER_CURSOR_TAG);
+        Pageable limit = PageRequest.of(0, pageSize + 1); // 多取一条用于判断是否还有下一页
+        List<Long> ids = position == null
+                ? orderRepository.findIdsByBuyerId(userId, orderStatusEnum, limit)
+                : orderRepository.findIdsByBuyerIdBefore(userId, orderStatusEnum, position.asDateTime(), position.getId(), limit);
+        logger.info("游标分页查询用户订单 - userId: {}, status: {}, cursor: {}, 命中 {} 条", userId, orderStatusEnum, cursor, ids.size());
+
+        List<Order> orders = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            Map<Long, Order> orderMap = orderRepository.findAllWithItemsByIdIn(ids).stream()
+                    .collect(Collectors.toMap(Order::getId, Function.identity()));
+            // IN 查询不保证顺序，按游标查询得到的ID顺序还原
+            ids.stream().map(orderMap::get).filter(Objects::nonNull).forEach(orders::add);
+        }
+        return CursorResult.of(orders, pageSize,
+                o -> CursorCodec.encode(ORDER_CURSOR_TAG, o.getCreatedAt(), o.getId()), this::convertToOrderResponseDto);
+    }
+
     @Override
     public OrderResponseDto updateOrderStatus(String orderId, OrderStatus status) {
         Order order = orderRepository.findByOrderNo(orderId)
                 .orElseThrow(() -> new RuntimeException("订单不存在 (ID: " + orderId + ")"));
+        lockIfPendingPayment(order);
 
         if (order.getStatus() == OrderStatus.COMPLETED || order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.REFUNDED) {
             throw new RuntimeException("订单已终结 (完成/取消/已退款)，无法更改状态至 " + status);
@@ -205,7 +382,18 @@ public class OrderServiceImpl implements OrderService {
         //     // ... more cases
         // }
 
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(status);
+        if (previousStatus == OrderStatus.PENDING_PAYMENT && status != OrderStatus.PENDING_PAYMENT) {
+            String orderNo = order.getOrderNo();
+            runAfterCommit(() -> paymentTimeoutWheel.cancel(orderNo));
+        }
+        if (redisInventory.isEnabled() && previousStatus == OrderStatus.PENDING_PAYMENT
+                && status != OrderStatus.CANCELLED && status != OrderStatus.FAILED) {
+            // 已支付：预占转为待回写数据库的扣减
+            String orderNo = order.getOrderNo();
+            runAfterCommit(() -> redisInventory.confirm(orderNo));
+        }
         if (status == OrderStatus.AWAITING_SHIPMENT && order.getPayTime() == null) { // 假设 AWAITING_SHIPMENT 表示已付款
             order.setPayTime(LocalDateTime.now());
         } else if (status == OrderStatus.SHIPPED && order.getDeliveryTime() == null) {
@@ -226,26 +414,146 @@ public class OrderServiceImpl implements OrderService {
     public OrderResponseDto cancelOrder(String orderId, Long userId) {
         Order order = orderRepository.findByOrderNoAndBuyerId(orderId, userId)
                 .orElseThrow(() -> new RuntimeException("订单不存在或无权操作 (OrderID: " + orderId + ")"));
+        lockIfPendingPayment(order);
 
         if (order.getStatus() != OrderStatus.PENDING_PAYMENT && order.getStatus() != OrderStatus.AWAITING_SHIPMENT) {
             throw new RuntimeException("订单状态为 " + order.getStatus() + "，不符合取消条件");
         }
 
-        if (!CollectionUtils.isEmpty(order.getItems())) {
+        boolean paid = order.getStatus() != OrderStatus.PENDING_PAYMENT;
+        order.setStatus(OrderStatus.CANCELLED);
+        Order cancelledOrder = orderRepository.save(order);
+        restoreStock(List.of(order), paid);
+        if (!paid) {
+            runAfterCommit(() -> paymentTimeoutWheel.cancel(orderId));
+        }
+        return convertToOrderResponseDto(cancelledOrder);
+    }
+
+    @Override
+    public boolean repairReservation(String orderNo) {
+        if (!redisInventory.isEnabled()) {
+            return false;
+        }
+        Order order = orderRepository.findByOrderNo(orderNo).orElse(null);
+        if (order == null) {
+            // 下单事务已回滚但回滚回调未能释放预占
+            runAfterCommit(() -> redisInventory.release(orderNo));
+            return true;
+        }
+        if (order.getStatus() == OrderStatus.PENDING_PAYMENT) {
+            return false;
+        }
+        // 订单已取消或已支付，但事务提交后的 Redis 释放/确认没有执行成功，这里补做（均幂等）
+        if (order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.FAILED) {
+            runAfterCommit(() -> redisInventory.release(orderNo));
+        } else {
+            runAfterCommit(() -> redisInventory.confirm(orderNo));
+        }
+        return true;
+    }
+
+    @Override
+    public int expireUnpaidOrders(List<String> orderNos) {
+        if (orderNos.isEmpty()) {
+            return 0;
+        }
+        // 行锁 + 状态条件：其他节点或并发的支付/取消已改变状态的订单不会被查出，保证每个订单只取消、归还一次
+        List<Order> orders = orderRepository.findForUpdateByOrderNoInAndStatus(orderNos, OrderStatus.PENDING_PAYMENT);
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        orders.forEach(order -> order.setStatus(OrderStatus.CANCELLED));
+        restoreStock(orders, false);
+        List<String> expired = orders.stream().map(Order::getOrderNo).collect(Collectors.toList());
+        runAfterCommit(() -> expired.forEach(paymentTimeoutWheel::cancel));
+        logger.info("订单支付超时，已自动取消 {} 个: {}", expired.size(), expired);
+        return orders.size();
+    }
+
+    /**
+     * 取消订单后归还库存，多个订单的订单项按商品合并后一次批量更新。
+     * Redis 库存引擎下，未支付订单释放预占，已支付订单归还可售库存并抵消待回写的扣减，均在事务提交后执行。
+     */
+    private void restoreStock(List<Order> orders, boolean paid) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (Order order : orders) {
+            if (CollectionUtils.isEmpty(order.getItems())) {
+                continue;
+            }
             for (OrderItem item : order.getItems()) {
-                Product product = item.getProduct(); // 已经是急加载的，或者再次查询确保最新
-                if (product != null) {
-                    product.setStock(product.getStock() + item.getQuantity());
-                    productRepository.save(product);
+                if (item.getProduct() != null) {
+                    quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
                 }
             }
         }
+        if (quantities.isEmpty()) {
+            return;
+        }
+        if (!redisInventory.isEnabled()) {
+            productStockRepository.increaseStock(quantities);
+        } else if (paid) {
+            runAfterCommit(() -> redisInventory.restock(quantities));
+        } else {
+            List<String> orderNos = orders.stream().map(Order::getOrderNo).collect(Collectors.toList());
+            runAfterCommit(() -> orderNos.forEach(redisInventory::release));
+        }
+        evictProductsAfterCommit(new ArrayList<>(quantities.keySet()));
+    }
 
-        order.setStatus(OrderStatus.CANCELLED);
-        Order cancelledOrder = orderRepository.save(order);
-        return convertToOrderResponseDto(cancelledOrder);
+    /**
+     * 待付款订单在修改前加行锁并重新读取状态，与支付超时取消互斥
+     */
+    private void lockIfPendingPayment(Order order) {
+        if (order.getStatus() == OrderStatus.PENDING_PAYMENT) {
+            entityManager.refresh(order, LockModeType.PESSIMISTIC_WRITE);
+        }
+    }
+
+    /**
+     * 下单事务提交后登记支付截止时间
+     */
+    private void schedulePaymentTimeoutAfterCommit(List<Order> orders) {
+        List<Order> scheduled = new ArrayList<>(orders);
+        runAfterCommit(() -> scheduled.forEach(order -> paymentTimeoutWheel.schedule(order.getOrderNo(), order.getCreatedAt())));
     }
 
+    /**
+     * 下单事务回滚时释放已在 Redis 中预占的库存
+     */
+    private void releaseReservationOnRollback(String orderNo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    redisInventory.release(orderNo);
+                }
+            }
+        });
+    }
+
+    /**
+     * 库存变化后删除这些商品的详情缓存，并使其 ETag 失效
+     */
+    private void evictProductsAfterCommit(List<Long> productIds) {
+        runAfterCommit(() -> productCacheTags.onStockChanged(productIds));
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 
     private OrderResponseDto convertToOrderResponseDto(Order order) {
         if (order == null) {
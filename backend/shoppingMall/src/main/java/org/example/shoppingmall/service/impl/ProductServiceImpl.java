@@ -3,29 +3,55 @@ package org.example.shoppingmall.service.impl; // 请确认这是你正确的包
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.shoppingmall.cache.ProductCacheTags;
+import org.example.shoppingmall.cache.ProductEntryCache;
+import org.example.shoppingmall.cache.ProductIdFilter;
+import org.example.shoppingmall.config.CacheConfig;
 import org.example.shoppingmall.common.ResultCode; // 假设你有这个枚举或类
+import org.example.shoppingmall.dto.CursorResult;
 import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductCardDTO;
 import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.dto.ProductIdPage;
+import org.example.shoppingmall.dto.SuggestionDTO;
 import org.example.shoppingmall.entity.Category;
 import org.example.shoppingmall.entity.Product;
 import org.example.shoppingmall.exception.ApiException;
 import org.example.shoppingmall.repository.CategoryRepository;
 import org.example.shoppingmall.repository.ProductRepository;
+import org.example.shoppingmall.search.ProductCatalogSync;
+import org.example.shoppingmall.search.ProductDocument;
+import org.example.shoppingmall.search.ProductRatingLeaderboard;
+import org.example.shoppingmall.search.ProductSearchIndex;
+import org.example.shoppingmall.search.ProductSearchQuery;
+import org.example.shoppingmall.search.ProductSearchResult;
+import org.example.shoppingmall.search.ProductSuggester;
+import org.example.shoppingmall.search.SortPosition;
 import org.example.shoppingmall.service.FileService;
 import org.example.shoppingmall.service.ProductService;
+import org.example.shoppingmall.util.CursorCodec;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils; // 用于检查字符串是否为空
 import org.springframework.web.multipart.MultipartFile;
 import org.example.shoppingmall.entity.User; // 确保导入 User 实体
@@ -39,8 +65,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -53,6 +84,14 @@ public class ProductServiceImpl implements ProductService {
     private final FileService fileService;
     private final ObjectMapper objectMapper;
     private final UserRepository userRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final ProductCatalogSync productCatalogSync;
+    private final ProductRatingLeaderboard productRatingLeaderboard;
+    private final ProductCacheTags productCacheTags;
+    private final ProductEntryCache productEntryCache;
+    private final ProductIdFilter productIdFilter;
+    private final CacheManager cacheManager;
 
     @Value("${app.image.storage-path:./uploads/product-images/}") // 图片存储物理路径，提供默认值
     private String imageStoragePath;
@@ -127,48 +166,381 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    @Cacheable(value = "products", key = "{#keyword, #categoryId, #pageNum, #pageSize, #sort, #order, #minPrice, #maxPrice, #type}")
     public PageResult<ProductDTO> getProducts(String keyword, Integer categoryId, int pageNum, int pageSize,
                                               String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
         log.info("获取商品列表参数: keyword='{}', categoryId={}, pageNum={}, pageSize={}, sort='{}', order='{}', minPrice={}, maxPrice={}, type='{}'",
                 keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
 
-        Sort sortObj = createSort(sort, order);
-        Pageable pageable = PageRequest.of(pageNum > 0 ? pageNum - 1 : 0, pageSize, sortObj);
-        Page<Product> productPage;
+        ProductIdPage page = getProductIdPage(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+        return page.toPageResult(hydrateProducts(page.getIds()));
+    }
+
+    @Override
+    public CursorResult<ProductDTO> scrollProducts(String keyword, Integer categoryId, String cursor, int size,
+                                                   String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        int pageSize = CursorResult.normalizeSize(size);
+        if (StringUtils.hasText(keyword) && productSearchIndex.isReady()) {
+            return scrollIndex(keyword, categoryId, cursor, pageSize, sort, order, minPrice, maxPrice, type);
+        }
+        // 关键词滚动只在索引加载完成前走下面的 LIKE 查询；索引就绪后两条路径的游标互不通用，旧游标会被判为非法
+        // 排序字段与 createSort 保持一致，id 作为同值时的次序，保证游标位置唯一
+        String sortProperty = isValidSortField(sort) ? toSortProperty(sort) : "createTime";
+        Sort.Direction direction = isValidSortField(sort) && "asc".equalsIgnoreCase(order) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        String sortTag = sortProperty + "," + direction.name().toLowerCase();
+        CursorCodec.Cursor position = CursorCodec.decode(cursor, sortTag);
+        log.debug("游标分页获取商品: keyword='{}', categoryId={}, sort={}, cursor={}, size={}", keyword, categoryId, sortTag, cursor, pageSize);
+
+        Specification<Product> spec = productFilter(keyword, categoryId, minPrice, maxPrice, "featured".equalsIgnoreCase(type));
+        if (position != null) {
+            spec = spec.and(seekAfter(sortProperty, direction, position));
+        }
+        List<Product> rows = productRepository.findBy(spec, q -> q
+                .sortBy(Sort.by(direction, sortProperty).and(Sort.by(direction, "id")))
+                .limit(pageSize + 1)
+                .all());
+        return CursorResult.of(rows, pageSize,
+                p -> CursorCodec.encode(sortTag, sortValue(p, sortProperty), p.getId()), this::convertToDTO);
+    }
+
+    /**
+     * 关键词滚动走搜索索引：按 (得分或排序键, id) 续读，不再对商品表做 LIKE 全表扫描。
+     * 支持相关度排序，游标中保存上一页最后一条的排序位置。
+     */
+    private CursorResult<ProductDTO> scrollIndex(String keyword, Integer categoryId, String cursor, int pageSize,
+                                                 String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        ProductSearchQuery.SortField sortField = toSortField(sort, keyword);
+        boolean ascending = sortField != ProductSearchQuery.SortField.RELEVANCE
+                && isValidSortField(sort) && "asc".equalsIgnoreCase(order);
+        String sortTag = "search:" + sortField.name().toLowerCase() + "," + (ascending ? "asc" : "desc");
+        CursorCodec.Cursor position = CursorCodec.decode(cursor, sortTag);
+
+        ProductSearchQuery query = indexQuery(keyword, categoryId, sort, order, minPrice, maxPrice, type)
+                .searchAfter(position == null ? null : position.as(value -> SortPosition.parse(value, position.getId())))
+                .withSortPositions(true)
+                .limit(pageSize + 1)
+                .build();
+        ProductSearchResult result = productSearchIndex.search(query);
+        log.debug("游标分页检索商品索引: query={}, rows={}", query, result.getProductIds().size());
+
+        List<Long> ids = result.getProductIds();
+        List<SortPosition> positions = result.getSortPositions();
+        Map<Long, ProductDTO> products = hydrateProducts(ids).stream()
+                .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+        List<Integer> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            rows.add(i);
+        }
+        CursorResult<ProductDTO> page = CursorResult.of(rows, pageSize,
+                i -> CursorCodec.encode(sortTag, positions.get(i).format(), ids.get(i)), i -> products.get(ids.get(i)));
+        // 检索与回表之间被删除的商品直接跳过，游标位置不受影响
+        page.getList().removeIf(Objects::isNull);
+        return page;
+    }
+
+    // 过滤条件与上面 advancedSearch / findFeaturedProductsWithFilters 一致
+    private Specification<Product> productFilter(String keyword, Integer categoryId, BigDecimal minPrice,
+                                                 BigDecimal maxPrice, boolean featured) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("status"), 1));
+            if (featured) {
+                predicates.add(cb.isTrue(root.get("isFeatured")));
+            }
+            if (StringUtils.hasText(keyword)) {
+                String pattern = "%" + keyword.trim().toLowerCase() + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("name")), pattern),
+                        cb.like(cb.lower(root.get("description")), pattern),
+                        cb.like(cb.lower(root.join("brand", JoinType.LEFT).get("name")), pattern)));
+            }
+            if (categoryId != null) {
+                predicates.add(cb.equal(root.get("category").get("id"), categoryId.longValue()));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            if (maxPrice != null && (featured || maxPrice.compareTo(BigDecimal.ZERO) > 0)) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * 游标定位条件：(排序键, id) 严格位于上一页最后一行之后，
+     * 即倒序时 key < v OR (key = v AND id < lastId)，正序时方向相反。
+     */
+    private Specification<Product> seekAfter(String sortProperty, Sort.Direction direction, CursorCodec.Cursor position) {
+        boolean asc = direction.isAscending();
+        return (root, query, cb) -> {
+            Expression<Long> id = root.get("id");
+            switch (sortProperty) {
+                case "price":
+                    return seek(cb, root.get("price"), position.asDecimal(), id, position.getId(), asc);
+                case "sales":
+                    return seek(cb, root.get("sales"), position.asInteger(), id, position.getId(), asc);
+                default:
+                    return seek(cb, root.get("createTime"), position.asDateTime(), id, position.getId(), asc);
+            }
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate seek(CriteriaBuilder cb, Expression<Y> key, Y value,
+                                                                  Expression<Long> id, long lastId, boolean asc) {
+        if (asc) {
+            return cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, lastId)));
+        }
+        return cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, lastId)));
+    }
+
+    private Object sortValue(Product product, String sortProperty) {
+        switch (sortProperty) {
+            case "price":
+                return product.getPrice();
+            case "sales":
+                return product.getSales() != null ? product.getSales() : 0;
+            default:
+                return product.getCreateTime();
+        }
+    }
+
+    private String toSortProperty(String sort) {
+        switch (sort.toLowerCase()) {
+            case "price":
+                return "price";
+            case "sales":
+                return "sales";
+            default:
+                return "createTime";
+        }
+    }
+
+    @Override
+    public PageResult<ProductCardDTO> getProductCards(String keyword, Integer categoryId, int pageNum, int pageSize,
+                                                      String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        log.info("获取商品卡片列表参数: keyword='{}', categoryId={}, pageNum={}, pageSize={}, sort='{}', order='{}', minPrice={}, maxPrice={}, type='{}'",
+                keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+
+        ProductIdPage page = getProductIdPage(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+        return page.toPageResult(hydrateCards(page.getIds()));
+    }
+
+    /**
+     * 列表页的 id 缓存，getProducts 与 getProductCards 共用。
+     * 经由 CacheManager 读写，未命中时同样有单飞加载和过期前的后台刷新（见 TwoLevelCacheManager）。
+     */
+    private ProductIdPage getProductIdPage(String keyword, Integer categoryId, int pageNum, int pageSize,
+                                           String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        String cacheKey = ProductCacheTags.pageKey(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+        Callable<ProductIdPage> loader = () -> {
+            ProductIdPage page = loadProductIdPage(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+            productCacheTags.tagPage(CacheConfig.PRODUCT_ID_PAGES_CACHE, cacheKey, categoryId);
+            return page;
+        };
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_ID_PAGES_CACHE);
+        if (cache == null) {
+            return loadProductIdPage(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+        }
+        try {
+            return cache.get(cacheKey, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            // 与 @Cacheable(sync = true) 一致：把加载过程中的业务异常原样抛出
+            ReflectionUtils.rethrowRuntimeException(e.getCause());
+            throw e;
+        }
+    }
+
+    private ProductIdPage loadProductIdPage(String keyword, Integer categoryId, int pageNum, int pageSize,
+                                            String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        if (productSearchIndex.isReady()) {
+            ProductSearchQuery query = buildIndexQuery(keyword, categoryId, pageNum, pageSize, sort, order, minPrice, maxPrice, type);
+            ProductSearchResult result = productSearchIndex.search(query);
+            log.debug("商品索引检索: query={}, total={}", query, result.getTotal());
+            return new ProductIdPage(result.getProductIds(), result.getTotal(), pageNum, pageSize, result.getFacets());
+        }
 
+        // 数据库分支用卡片投影查询，字段少；查到的卡片顺带写入卡片缓存
+        Pageable pageable = PageRequest.of(pageNum > 0 ? pageNum - 1 : 0, pageSize, createSort(sort, order));
+        String trimmedKeyword = StringUtils.hasText(keyword) ? keyword.trim() : null;
+        Page<ProductCardDTO> cardPage;
         if ("featured".equalsIgnoreCase(type)) {
             log.debug("执行获取 'featured' 类型商品的查询");
-            productPage = productRepository.findFeaturedProductsWithFilters(
-                    (StringUtils.hasText(keyword)) ? keyword.trim() : null,
-                    categoryId, minPrice, maxPrice, pageable);
+            cardPage = productRepository.findFeaturedCardsWithFilters(trimmedKeyword, categoryId, minPrice, maxPrice, pageable);
+        } else if (StringUtils.hasText(keyword) || categoryId != null || minPrice != null ||
+                (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0)) {
+            log.debug("执行高级搜索，条件: keyword='{}', categoryId={}, minPrice={}, maxPrice={}", keyword, categoryId, minPrice, maxPrice);
+            cardPage = productRepository.advancedSearchCards(trimmedKeyword, categoryId, minPrice, maxPrice, pageable);
         } else {
-            boolean hasFilters = StringUtils.hasText(keyword) || categoryId != null || minPrice != null ||
-                    (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0);
-            if (hasFilters) {
-                log.debug("执行高级搜索，条件: keyword='{}', categoryId={}, minPrice={}, maxPrice={}", keyword, categoryId, minPrice, maxPrice);
-                productPage = productRepository.advancedSearch(
-                        (StringUtils.hasText(keyword)) ? keyword.trim() : null,
-                        categoryId, minPrice, maxPrice, pageable);
-            } else {
-                log.debug("执行无条件基础查询 (仅按状态和分页排序)");
-                productPage = productRepository.findByStatus(1, pageable); // 假设1代表上架
-            }
+            log.debug("执行无条件基础查询 (仅按状态和分页排序)");
+            cardPage = productRepository.findActiveCards(pageable);
         }
-        List<ProductDTO> productDTOs = productPage.getContent().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        return PageResult.of(productDTOs, productPage.getTotalElements(), pageNum, pageSize);
+        Map<Long, ProductCardDTO> cards = new LinkedHashMap<>();
+        cardPage.getContent().forEach(card -> cards.put(card.getId(), card));
+        productEntryCache.multiPut(CacheConfig.PRODUCT_CARD_CACHE, cards, ProductCacheTags::cardKey);
+        return new ProductIdPage(new ArrayList<>(cards.keySet()), cardPage.getTotalElements(), pageNum, pageSize, null);
+    }
+
+    /**
+     * 按 id 顺序取回商品详情：一次 MGET 读取详情缓存，未命中的一次 IN 查询回表后批量写回。
+     * 列表缓存生成后被删除的商品直接跳过。
+     */
+    private List<ProductDTO> hydrateProducts(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductDTO> products = productEntryCache.multiGet(CacheConfig.PRODUCT_DETAIL_CACHE, ids, ProductCacheTags::detailKey);
+        List<Long> missing = ids.stream().filter(id -> !products.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            Map<Long, ProductDTO> loaded = findAllByIdInOrder(missing).stream()
+                    .map(this::convertToDTO)
+                    .collect(Collectors.toMap(ProductDTO::getId, Function.identity()));
+            productEntryCache.multiPut(CacheConfig.PRODUCT_DETAIL_CACHE, loaded, ProductCacheTags::detailKey);
+            products.putAll(loaded);
+            log.debug("商品列表回表: 命中缓存 {} 个, 查库 {} 个", ids.size() - missing.size(), missing.size());
+        }
+        return ids.stream().map(products::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * 同 hydrateProducts，取的是卡片缓存和卡片投影。
+     */
+    private List<ProductCardDTO> hydrateCards(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductCardDTO> cards = productEntryCache.multiGet(CacheConfig.PRODUCT_CARD_CACHE, ids, ProductCacheTags::cardKey);
+        List<Long> missing = ids.stream().filter(id -> !cards.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            Map<Long, ProductCardDTO> loaded = productRepository.findCardsByIdIn(missing).stream()
+                    .collect(Collectors.toMap(ProductCardDTO::getId, Function.identity()));
+            productEntryCache.multiPut(CacheConfig.PRODUCT_CARD_CACHE, loaded, ProductCacheTags::cardKey);
+            cards.putAll(loaded);
+        }
+        return ids.stream().map(cards::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private ProductSearchQuery buildIndexQuery(String keyword, Integer categoryId, int pageNum, int pageSize,
+                                               String sort, String order, BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        int page = pageNum > 0 ? pageNum - 1 : 0;
+        return indexQuery(keyword, categoryId, sort, order, minPrice, maxPrice, type)
+                .offset(page * pageSize)
+                .limit(pageSize)
+                .withFacets(true)
+                .build();
+    }
+
+    private ProductSearchQuery.ProductSearchQueryBuilder indexQuery(String keyword, Integer categoryId, String sort, String order,
+                                                                   BigDecimal minPrice, BigDecimal maxPrice, String type) {
+        boolean featured = "featured".equalsIgnoreCase(type);
+        return ProductSearchQuery.builder()
+                .keyword(StringUtils.hasText(keyword) ? keyword.trim() : null)
+                .categoryId(categoryId != null ? categoryId.longValue() : null)
+                .minPrice(minPrice)
+                .maxPrice(featured || (maxPrice != null && maxPrice.compareTo(BigDecimal.ZERO) > 0) ? maxPrice : null)
+                .featuredOnly(featured)
+                .sortField(toSortField(sort, keyword))
+                .ascending(isValidSortField(sort) && "asc".equalsIgnoreCase(order));
+    }
+
+    private List<Product> findAllByIdInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> productMap = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        // 索引与数据库之间存在极短的更新间隙，已被删除的商品直接跳过
+        return ids.stream().map(productMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private ProductSearchQuery.SortField toSortField(String sort, String keyword) {
+        if (!StringUtils.hasText(sort)) {
+            return ProductSearchQuery.SortField.CREATE_TIME;
+        }
+        switch (sort.toLowerCase()) {
+            case "price":
+                return ProductSearchQuery.SortField.PRICE;
+            case "sales":
+                return ProductSearchQuery.SortField.SALES;
+            case "relevance":
+                // 相关度只对关键词搜索有意义，没有关键词时按默认的创建时间倒序
+                return StringUtils.hasText(keyword)
+                        ? ProductSearchQuery.SortField.RELEVANCE : ProductSearchQuery.SortField.CREATE_TIME;
+            default:
+                return ProductSearchQuery.SortField.CREATE_TIME;
+        }
+    }
+
+    // 与 createSort 一致：只有合法的排序字段才使用传入的排序方向
+    private boolean isValidSortField(String sort) {
+        return StringUtils.hasText(sort) && List.of("price", "sales", "createtime").contains(sort.toLowerCase());
+    }
+
+    /**
+     * 在当前事务提交后执行（没有事务时立即执行），避免回滚的修改进入搜索索引。
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        // 联想词完全由内存前缀树提供，不访问数据库，也无需缓存
+        return productSuggester.suggest(prefix, limit);
     }
 
     @Override
-    @Cacheable(value = "products", key = "'product_' + #id")
+    public List<ProductDTO> getTopRatedProducts(int limit) {
+        int size = Math.min(Math.max(limit, 1), 100);
+        List<Product> products;
+        if (productRatingLeaderboard.isReady()) {
+            products = findAllByIdInOrder(productRatingLeaderboard.topRated(size));
+        } else {
+            log.debug("好评榜尚未加载完成，回退到数据库查询");
+            products = productRepository.findTopRatedActiveProducts(PageRequest.of(0, size));
+        }
+        return products.stream().map(this::convertToDTO).collect(Collectors.toList());
+    }
+
+    @Override
+    // 布隆过滤器判定不存在的 id 不经过缓存，直接在方法内拒绝
+    @Cacheable(value = CacheConfig.PRODUCT_DETAIL_CACHE, sync = true, key = "T(org.example.shoppingmall.cache.ProductCacheTags).detailKey(#id)",
+            condition = "@productIdFilter.mightExist(#id)")
     public ProductDTO getProductById(Long id) {
+        if (!productIdFilter.mightExist(id)) {
+            productIdFilter.recordRejected();
+            throw new ApiException(ResultCode.PRODUCT_NOT_EXISTS);
+        }
         Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ApiException(ResultCode.PRODUCT_NOT_EXISTS));
+                .orElseThrow(() -> {
+                    productIdFilter.recordFalsePositive(id);
+                    return new ApiException(ResultCode.PRODUCT_NOT_EXISTS);
+                });
         return convertToDTO(product);
     }
 
+    @Override
+    public List<ProductDTO> getProductsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new ApiException(ResultCode.VALIDATION_ERROR, "一次最多查询 " + MAX_BATCH_SIZE + " 个商品");
+        }
+        // 布隆过滤器判定不存在的 id 不必读缓存和查库
+        distinctIds.removeIf(id -> !productIdFilter.mightExist(id));
+        return hydrateProducts(distinctIds);
+    }
+
     @Override
     public Product getProductEntityById(Long id) {
         return productRepository.findById(id)
@@ -316,15 +688,21 @@ public class ProductServiceImpl implements ProductService {
             throw new ApiException(ResultCode.ERROR, "保存商品时发生未知错误，请联系管理员。");
         }
 
+        ProductDocument document = ProductDocument.from(savedProduct);
+        afterCommit(() -> {
+            productCatalogSync.upsert(document);
+            productCacheTags.onProductCreated(document);
+            productIdFilter.onProductCreated(document.getProductId());
+        });
         return convertToDTO(savedProduct);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
     public ProductDTO updateProduct(Long id, ProductDTO productDTO) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ApiException(ResultCode.PRODUCT_NOT_EXISTS));
+        ProductDocument before = ProductDocument.from(product);
 
         // 仅复制非图片、非分类、非列表的简单属性
         // 注意：如果有些字段不允许在更新时修改，需要在此处或DTO中处理
@@ -396,12 +774,16 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        ProductDocument document = ProductDocument.from(updatedProduct);
+        afterCommit(() -> {
+            productCatalogSync.upsert(document);
+            productCacheTags.onProductUpdated(before, document);
+        });
         return convertToDTO(updatedProduct);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ApiException(ResultCode.PRODUCT_NOT_EXISTS));
@@ -413,7 +795,13 @@ public class ProductServiceImpl implements ProductService {
         //         for (String url : imageUrls) { fileService.deleteFileByUrl(url, publicBaseUrl, imageStoragePath); }
         //     } catch (JsonProcessingException e) { log.error("删除产品附图时解析JSON失败", e); }
         // }
+        ProductDocument deleted = ProductDocument.from(product);
         productRepository.deleteById(id);
+        productCatalogSync.recordDeletion(id);
+        afterCommit(() -> {
+            productCatalogSync.remove(deleted);
+            productCacheTags.onProductDeleted(deleted);
+        });
     }
 
     @Override
@@ -34,7 +34,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final CategoryRepository categoryRepository;
 
     @Override
-    @Cacheable(value = CacheConfig.STATISTICS_CACHE, key = "'overview'")
+    @Cacheable(value = CacheConfig.STATISTICS_CACHE, sync = true, key = "'overview'")
     @Transactional(readOnly = true)
     public StatisticsDto getOverviewStatistics() {
         // 获取当前日期
@@ -62,7 +62,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     }
 
     @Override
-    @Cacheable(value = CacheConfig.STATISTICS_CACHE, key = "'detailed_' + #startDate + '_' + #endDate + '_' + #topCount")
+    @Cacheable(value = CacheConfig.STATISTICS_CACHE, sync = true, key = "'detailed_' + #startDate + '_' + #endDate + '_' + #topCount")
     @Transactional(readOnly = true)
     public StatisticsDto getDetailedStatistics(LocalDate startDate, LocalDate endDate, int topCount) {
         // 转换为LocalDateTime
@@ -0,0 +1,110 @@
+package org.example.shoppingmall.util;
+
+import lombok.Getter;
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.exception.ApiException;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * 游标分页的续读令牌编解码
+ * <p>
+ * 令牌内容为 "排序标识|最后一行的排序键|最后一行的ID"，整体做 URL 安全的 Base64 编码，对前端是不透明的。
+ * 排序标识用于校验令牌与本次请求的排序方式一致，避免换了排序后继续用旧游标得到错乱的结果。
+ */
+public final class CursorCodec {
+
+    private static final char SEPARATOR = '|';
+
+    public static String encode(String sortTag, Object lastValue, Long lastId) {
+        String raw = sortTag + SEPARATOR + (lastValue instanceof BigDecimal
+                ? ((BigDecimal) lastValue).toPlainString() : String.valueOf(lastValue)) + SEPARATOR + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标，cursor 为空表示从第一页开始，返回 null。
+     *
+     * @throws ApiException 游标格式非法或与本次排序方式不一致
+     */
+    public static Cursor decode(String cursor, String expectedSortTag) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        int first = raw.indexOf(SEPARATOR);
+        int last = raw.lastIndexOf(SEPARATOR);
+        if (first < 0 || first == last || !raw.substring(0, first).equals(expectedSortTag)) {
+            throw invalid();
+        }
+        try {
+            return new Cursor(raw.substring(first + 1, last), Long.parseLong(raw.substring(last + 1)));
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static ApiException invalid() {
+        return new ApiException(ResultCode.VALIDATION_ERROR, "无效的分页游标");
+    }
+
+    @Getter
+    public static class Cursor {
+        private final String value;
+        private final long id;
+
+        Cursor(String value, long id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        public LocalDateTime asDateTime() {
+            try {
+                return LocalDateTime.parse(value);
+            } catch (RuntimeException e) {
+                throw invalid();
+            }
+        }
+
+        public BigDecimal asDecimal() {
+            try {
+                return new BigDecimal(value);
+            } catch (RuntimeException e) {
+                throw invalid();
+            }
+        }
+
+        public Integer asInteger() {
+            try {
+                return Integer.valueOf(value);
+            } catch (RuntimeException e) {
+                throw invalid();
+            }
+        }
+
+        /**
+         * 按调用方给出的格式解析排序键，解析失败同样视为非法游标
+         */
+        public <T> T as(Function<String, T> parser) {
+            try {
+                return parser.apply(value);
+            } catch (RuntimeException e) {
+                throw invalid();
+            }
+        }
+    }
+
+    private CursorCodec() {
+        throw new IllegalStateException("Utility class");
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.shoppingmall.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake 风格的订单号生成器：毫秒时间戳 + 节点号 + 毫秒内序号，多节点无需协调即可保证唯一
+ * <p>
+ * 订单号为 29 位定长数字串：{@code yyyyMMddHHmmssSSS}(17, UTC) + 节点号(4) + 序号(4) + 买家路由位(4)，
+ * 字典序即时间序。买家路由位 = 买家ID mod 1024，按买家分库分表后，只凭订单号即可定位所在分片，无需再查一次映射。
+ * <p>
+ * 上次发号的逻辑时间和序号打包在一个 AtomicLong 中，通过 CAS 循环推进，不加锁：
+ * <ul>
+ *   <li>当前时钟大于逻辑时间时从新毫秒的 0 号开始；</li>
+ *   <li>同一毫秒内或时钟回拨时沿用逻辑时间、序号加一；序号用尽（4096）时进位到下一毫秒，即向未来"借"时间，
+ *       回拨期间订单号依然单调递增，等真实时钟追上后自然恢复。</li>
+ * </ul>
+ * 节点号可以通过 app.order-no.node-id 为每个节点显式配置；未配置时启动期间从 Redis 租用（见 {@link OrderNoNodeLease}），
+ * 租用失败则启动失败。进程重启时逻辑时间不会保留，应避免在时钟回拨尚未恢复时重启节点。
+ */
+@Slf4j
+@Component
+public class OrderNoGenerator {
+
+    public static final int LENGTH = 29;
+    public static final int ROUTING_SLOTS = 1024;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long ROLLBACK_WARN_MS = 1000;
+    private static final DateTimeFormatter SECOND_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final IntSupplier nodeId;
+    private final LongSupplier clock;
+    /** (逻辑毫秒时间戳 << SEQUENCE_BITS) | 序号 */
+    private final AtomicLong state = new AtomicLong();
+    private volatile SecondPrefix secondPrefix = new SecondPrefix(Long.MIN_VALUE, "");
+    private volatile long lastRollbackWarnAt;
+
+    @Autowired
+    public OrderNoGenerator(@Value("${app.order-no.node-id:-1}") int nodeId, OrderNoNodeLease nodeLease) {
+        this(nodeId < 0 ? leaseNodeId(nodeLease) : claimNodeId(nodeId, nodeLease), System::currentTimeMillis);
+    }
+
+    OrderNoGenerator(int nodeId, LongSupplier clock) {
+        this(checkNodeId(nodeId), clock);
+    }
+
+    private OrderNoGenerator(IntSupplier nodeId, LongSupplier clock) {
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    private static IntSupplier checkNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在 0~" + MAX_NODE_ID + " 之间: " + nodeId);
+        }
+        return () -> nodeId;
+    }
+
+    private static IntSupplier claimNodeId(int nodeId, OrderNoNodeLease nodeLease) {
+        IntSupplier checked = checkNodeId(nodeId);
+        nodeLease.claim(nodeId);
+        return checked;
+    }
+
+    private static IntSupplier leaseNodeId(OrderNoNodeLease nodeLease) {
+        int leased = nodeLease.acquire(MAX_NODE_ID);
+        log.info("未配置 app.order-no.node-id，已从 Redis 租用节点号: {}", leased);
+        // 租约失效后续租会换成新的节点号，每次发号时读取
+        return nodeLease::getNodeId;
+    }
+
+    /**
+     * 为指定买家生成订单号
+     */
+    public String next(Long buyerId) {
+        long now = clock.getAsLong();
+        long current;
+        long next;
+        do {
+            current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            // 序号溢出时 current + 1 直接进位到逻辑时间的下一毫秒
+            next = now > lastTimestamp ? now << SEQUENCE_BITS : current + 1;
+        } while (!state.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        if (timestamp - now > ROLLBACK_WARN_MS && now - lastRollbackWarnAt > ROLLBACK_WARN_MS) {
+            lastRollbackWarnAt = now;
+            log.warn("检测到时钟回拨，订单号沿用逻辑时间继续递增: 逻辑时间领先 {} ms", timestamp - now);
+        }
+        return format(timestamp, next & SEQUENCE_MASK, routingHint(buyerId));
+    }
+
+    /**
+     * 本节点当前的节点号
+     */
+    public int getNodeId() {
+        return nodeId.getAsInt();
+    }
+
+    /**
+     * 节点号在订单号中的 4 位表示（第 18~21 位）
+     */
+    public static String nodeField(int nodeId) {
+        StringBuilder builder = new StringBuilder(4);
+        appendPadded(builder, nodeId, 4);
+        return builder.toString();
+    }
+
+    /**
+     * 买家ID对应的路由位，与订单号末 4 位一致
+     */
+    public static int routingHint(Long buyerId) {
+        return buyerId == null ? 0 : (int) Math.floorMod(buyerId, (long) ROUTING_SLOTS);
+    }
+
+    /**
+     * 从订单号中取出买家路由位，旧格式的订单号不含路由位，返回 -1
+     */
+    public static int routingHint(String orderNo) {
+        if (orderNo == null || orderNo.length() != LENGTH) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(orderNo.substring(LENGTH - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String format(long timestamp, long sequence, int hint) {
+        long second = Math.floorDiv(timestamp, 1000L);
+        SecondPrefix prefix = secondPrefix;
+        if (prefix.second != second) {
+            prefix = new SecondPrefix(second, LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC)
+                    .format(SECOND_FORMATTER));
+            secondPrefix = prefix;
+        }
+        StringBuilder builder = new StringBuilder(LENGTH).append(prefix.text);
+        appendPadded(builder, Math.floorMod(timestamp, 1000L), 3);
+        appendPadded(builder, nodeId.getAsInt(), 4);
+        appendPadded(builder, sequence, 4);
+        appendPadded(builder, hint, 4);
+        return builder.toString();
+    }
+
+    private static void appendPadded(StringBuilder builder, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            builder.append('0');
+        }
+        builder.append(digits);
+    }
+
+    private record SecondPrefix(long second, String text) {
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.shoppingmall.util;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 从 Redis 租用订单号节点号，未配置 app.order-no.node-id 时由 {@link OrderNoGenerator} 使用
+ * <p>
+ * 每个节点号对应一个键 order-no:node:{节点号}，值为本进程的随机令牌：
+ * <ul>
+ *   <li>租用：INCR order-no:node-cursor 得到起点，从起点开始依次 SET NX PX 尝试，第一个成功的即本节点的节点号；</li>
+ *   <li>续租：每 lease-renew-interval 比较令牌后延长过期时间；发现租约已被其他进程占用（本节点与 Redis 断开超过 lease-ttl）
+ *       时改租一个新的节点号，新旧节点号生成的订单号都不会与其他节点重复；</li>
+ *   <li>释放：进程正常关闭时删除，节点号立即可被复用；进程崩溃时在 lease-ttl 后过期。</li>
+ * </ul>
+ * 显式配置了节点号的节点也以同样的键登记并续租（不改换节点号），
+ * 因此租约键是否存在即表示该节点号对应的节点是否存活，见 {@link org.example.shoppingmall.order.PaymentTimeoutWheel}。
+ */
+@Slf4j
+@Component
+public class OrderNoNodeLease {
+
+    static final String KEY_PREFIX = "order-no:node:";
+    static final String CURSOR_KEY = "order-no:node-cursor";
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+    private final String token = UUID.randomUUID().toString();
+    private volatile int nodeId = -1;
+    // 节点号来自配置时续租失败只重新登记同一个节点号
+    private volatile boolean configured;
+
+    public OrderNoNodeLease(StringRedisTemplate redisTemplate,
+                            @Value("${app.order-no.lease-ttl:PT5M}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    /**
+     * 当前租用的节点号，未租用时为 -1
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 租用一个空闲的节点号；节点号全部被占用或 Redis 不可用时抛出 IllegalStateException，
+     * 启动时由此失败，而不是带着可能重复的节点号继续运行
+     */
+    public synchronized int acquire(int maxNodeId) {
+        try {
+            Long cursor = redisTemplate.opsForValue().increment(CURSOR_KEY);
+            long start = cursor == null ? 0 : cursor;
+            for (int i = 0; i <= maxNodeId; i++) {
+                int candidate = (int) Math.floorMod(start + i, (long) maxNodeId + 1);
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + candidate, token, ttl))) {
+                    nodeId = candidate;
+                    return candidate;
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("无法从 Redis 租用订单号节点号，请检查 Redis 或配置 app.order-no.node-id", e);
+        }
+        throw new IllegalStateException("订单号节点号已全部被占用（共 " + (maxNodeId + 1) + " 个）");
+    }
+
+    /**
+     * 登记显式配置的节点号；Redis 不可用时只记录日志，由续租重试
+     */
+    public synchronized void claim(int configuredNodeId) {
+        nodeId = configuredNodeId;
+        configured = true;
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + configuredNodeId, token, ttl);
+        } catch (Exception e) {
+            log.warn("登记订单号节点号失败: nodeId={}, error={}", configuredNodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * 当前有租约（节点存活）的节点号
+     */
+    public Set<Integer> leasedNodeIds(int maxNodeId) {
+        List<String> keys = new ArrayList<>(maxNodeId + 1);
+        for (int i = 0; i <= maxNodeId; i++) {
+            keys.add(KEY_PREFIX + i);
+        }
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        Set<Integer> leased = new HashSet<>();
+        for (int i = 0; values != null && i < values.size(); i++) {
+            if (values.get(i) != null) {
+                leased.add(i);
+            }
+        }
+        return leased;
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-no.lease-renew-interval:PT1M}")
+    public void renew() {
+        int current = nodeId;
+        if (current < 0) {
+            return;
+        }
+        Long renewed;
+        try {
+            renewed = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(KEY_PREFIX + current),
+                    token, String.valueOf(ttl.toMillis()));
+        } catch (Exception e) {
+            // 在 lease-ttl 内恢复即可，超过后其他进程可能租走同一个节点号
+            log.error("订单号节点号续租失败: nodeId={}, error={}", current, e.getMessage());
+            return;
+        }
+        if (renewed != null && renewed > 0) {
+            return;
+        }
+        if (configured) {
+            log.warn("订单号节点号租约已失效，重新登记配置的节点号: {}", current);
+            claim(current);
+            return;
+        }
+        try {
+            int next = acquire(OrderNoGenerator.MAX_NODE_ID);
+            log.warn("订单号节点号租约已失效，改用新的节点号: {} -> {}", current, next);
+        } catch (IllegalStateException e) {
+            log.error("订单号节点号租约已失效且无法重新租用，继续使用 {}: {}", current, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        int current = nodeId;
+        if (current < 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(KEY_PREFIX + current), token);
+        } catch (Exception e) {
+            log.warn("释放订单号节点号失败，等待其自动过期: nodeId={}, error={}", current, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.shoppingmall.cache;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 热点键记录：本地计数定时累加到 Redis 并只保留排名靠前的键，列表页只记录可重放的浏览页，
+ * 跟踪的键数量达到上限后新键不再计数。
+ * 使用 embedded-redis 启动的真实 redis-server。
+ */
+class HotKeyRecorderTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void flushAccumulatesCountsAndKeepsTopKeys() {
+        HotKeyRecorder recorder = recorder(true, 100, 2);
+        record(recorder, 1L, 3);
+        record(recorder, 2L, 1);
+        recorder.flush();
+        record(recorder, 2L, 5);
+        record(recorder, 3L, 2);
+
+        recorder.flush();
+
+        // 两轮累加后商品 2、1、3 分别为 6、3、2 次，只保留前 2 个
+        assertEquals(List.of(2L, 1L), recorder.topProducts(10));
+        assertEquals(List.of(2L), recorder.topProducts(1));
+        assertTrue(recorder.topProducts(0).isEmpty());
+        Long ttl = redisTemplate.getExpire("cache:hot:" + HotKeyRecorder.PRODUCTS);
+        assertTrue(ttl > 0 && ttl <= Duration.ofDays(7).getSeconds());
+        // 已写入的计数不会在下一轮重复累加
+        recorder.flush();
+        assertEquals(6.0, redisTemplate.opsForZSet().score("cache:hot:" + HotKeyRecorder.PRODUCTS, "2"));
+    }
+
+    @Test
+    void onlyReplayableBrowsePagesAreRecorded() {
+        HotKeyRecorder recorder = recorder(true, 100, 100);
+        recorder.recordPage(true, null, 3, 1, 20, "price", "asc", null, null, null);
+        recorder.recordPage(true, null, 3, 1, 20, "price", "asc", null, null, null);
+        recorder.recordPage(false, null, null, 2, 10, null, null, null, null, "new");
+        recorder.recordPage(true, "耳机", null, 1, 20, null, null, null, null, null);
+        recorder.recordPage(true, null, null, 1, 20, null, null, BigDecimal.ONE, null, null);
+        recorder.recordPage(true, null, null, 1, 20, "price|desc", null, null, null, null);
+        recorder.recordPage(true, null, null, 0, 20, null, null, null, null, null);
+
+        recorder.flush();
+
+        assertEquals(List.of(new HotKeyRecorder.PageKey(true, 3, 1, 20, "price", "asc", null),
+                        new HotKeyRecorder.PageKey(false, null, 2, 10, null, null, "new")),
+                recorder.topPages(10));
+    }
+
+    @Test
+    void pageKeyRoundTripsAndRejectsMalformedValues() {
+        HotKeyRecorder.PageKey page = new HotKeyRecorder.PageKey(false, null, 2, 10, "sales", null, "hot");
+
+        assertEquals("products||2|10|sales||hot", page.encode());
+        assertEquals(page, HotKeyRecorder.PageKey.decode(page.encode()));
+        assertNull(HotKeyRecorder.PageKey.decode("cards|1|2"));
+        assertNull(HotKeyRecorder.PageKey.decode("cards|x|1|20|||"));
+        assertFalse(new HotKeyRecorder.PageKey(true, null, 1, 20, "a".repeat(33), null, null).isReplayable());
+    }
+
+    @Test
+    void trackingLimitAndDisabledRecorderDropNewKeys() {
+        HotKeyRecorder limited = recorder(true, 2, 100);
+        record(limited, 1L, 1);
+        record(limited, 2L, 1);
+        record(limited, 3L, 5);
+        record(limited, 1L, 1);
+        limited.flush();
+        assertEquals(List.of(1L, 2L), limited.topProducts(10));
+
+        redisTemplate.delete("cache:hot:" + HotKeyRecorder.PRODUCTS);
+        HotKeyRecorder disabled = recorder(false, 100, 100);
+        record(disabled, 1L, 1);
+        disabled.flush();
+        assertTrue(disabled.topProducts(10).isEmpty());
+    }
+
+    @Test
+    void redisFailureIsIgnored() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("down"));
+        when(broken.opsForZSet()).thenThrow(new RedisConnectionFailureException("down"));
+        HotKeyRecorder recorder = new HotKeyRecorder(broken, true, 100, 100, Duration.ofDays(7));
+        record(recorder, 1L, 1);
+
+        recorder.flushOnShutdown();
+
+        assertTrue(recorder.topProducts(10).isEmpty());
+        assertTrue(recorder.topPages(10).isEmpty());
+    }
+
+    private static HotKeyRecorder recorder(boolean enabled, int maxTracked, int maxKeys) {
+        return new HotKeyRecorder(redisTemplate, enabled, maxTracked, maxKeys, Duration.ofDays(7));
+    }
+
+    private static void record(HotKeyRecorder recorder, Long productId, int times) {
+        for (int i = 0; i < times; i++) {
+            recorder.recordProduct(productId);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.shoppingmall.cache;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 缓存策略：登记表合并配置覆盖并校验序列化方式，Redis 缓存上按策略丢弃 null 结果、超出键数量上限时淘汰最早写入的键。
+ * 键集合使用 embedded-redis 启动的真实 redis-server，被包装的 RedisCache 用允许 null 的 ConcurrentMapCache 代替。
+ */
+class PolicyEnforcingCacheTest {
+
+    private static final String CACHE = "productDetail";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final ConcurrentMapCache delegate = new ConcurrentMapCache(CACHE, true);
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void registryMergesOverridesAndFallsBackToDefault() {
+        CachePolicyProperties properties = new CachePolicyProperties();
+        CachePolicyProperties.Override override = new CachePolicyProperties.Override();
+        override.setTtl(Duration.ofMinutes(15));
+        override.setMaxKeys(50000L);
+        properties.getCaches().put(CACHE, override);
+        CachePolicy defaultPolicy = CachePolicy.builder().build();
+        CachePolicyRegistry registry = new CachePolicyRegistry(defaultPolicy, properties)
+                .register(CACHE, CachePolicy.builder().ttl(Duration.ofHours(2)).cacheNullValues(true).compressThreshold(512).build())
+                .register("categories", CachePolicy.builder().ttl(Duration.ofHours(6)).build());
+
+        CachePolicy detail = registry.policyFor(CACHE);
+        assertEquals(Duration.ofMinutes(15), detail.getTtl());
+        assertEquals(50000L, detail.getMaxKeys());
+        // 配置中未写的项沿用代码登记的值
+        assertTrue(detail.isCacheNullValues());
+        assertEquals(512, detail.getCompressThreshold());
+        assertEquals(Duration.ofHours(6), registry.policyFor("categories").getTtl());
+        assertSame(defaultPolicy, registry.policyFor("unknown"));
+        assertEquals(List.of(CACHE, "categories"), List.copyOf(registry.getPolicies().keySet()));
+    }
+
+    @Test
+    void registryRejectsTypedSerializerWithoutType() {
+        CachePolicyRegistry registry = new CachePolicyRegistry(CachePolicy.builder().build(), new CachePolicyProperties());
+
+        assertThrows(IllegalStateException.class,
+                () -> registry.register("cards", CachePolicy.builder().serializer(CacheSerializer.JSON).build()));
+        assertThrows(IllegalStateException.class, () -> registry.register("cards", CachePolicy.builder()
+                .serializer(CacheSerializer.BINARY)
+                .valueType(TypeFactory.defaultInstance().constructType(String.class))
+                .build()));
+
+        // 配置把通用 JSON 改成 JSON 时同样要求值类型
+        CachePolicyProperties properties = new CachePolicyProperties();
+        CachePolicyProperties.Override override = new CachePolicyProperties.Override();
+        override.setSerializer(CacheSerializer.JSON);
+        properties.getCaches().put("banners", override);
+        assertThrows(IllegalStateException.class,
+                () -> new CachePolicyRegistry(CachePolicy.builder().build(), properties).register("banners", CachePolicy.builder().build()));
+    }
+
+    @Test
+    void nullResultsAreDroppedUnlessAllowed() {
+        PolicyEnforcingCache cache = new PolicyEnforcingCache(delegate, CachePolicy.builder().build(), redisTemplate);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.put("product_1", null);
+        assertNull(delegate.get("product_1"));
+        assertNull(cache.get("product_1", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.putIfAbsent("product_1", null));
+        assertNull(delegate.get("product_1"));
+        assertEquals(1, loads.get());
+
+        PolicyEnforcingCache nullable = new PolicyEnforcingCache(delegate,
+                CachePolicy.builder().cacheNullValues(true).build(), redisTemplate);
+        nullable.put("product_2", null);
+        assertNotNull(delegate.get("product_2"));
+        assertNull(delegate.get("product_2").get());
+    }
+
+    @Test
+    void oldestKeysAreEvictedBeyondMaxKeys() {
+        PolicyEnforcingCache cache = new PolicyEnforcingCache(delegate,
+                CachePolicy.builder().maxKeys(2).build(), redisTemplate);
+        String keysKey = PolicyEnforcingCache.keysKey(CACHE);
+
+        for (int i = 1; i <= 3; i++) {
+            // RedisCache 写入的 "缓存名::键"
+            redisTemplate.opsForValue().set(CACHE + "::product_" + i, "detail");
+            cache.put("product_" + i, "detail " + i);
+            sleep(2);
+        }
+
+        assertEquals(Set.of("product_2", "product_3"), redisTemplate.opsForZSet().range(keysKey, 0, -1));
+        assertFalse(redisTemplate.hasKey(CACHE + "::product_1"));
+        assertTrue(redisTemplate.hasKey(CACHE + "::product_3"));
+        assertTrue(redisTemplate.getExpire(keysKey) > 0);
+
+        cache.evict("product_2");
+        assertEquals(Set.of("product_3"), redisTemplate.opsForZSet().range(keysKey, 0, -1));
+        cache.clear();
+        assertFalse(redisTemplate.hasKey(keysKey));
+        assertNull(delegate.get("product_3"));
+    }
+
+    @Test
+    void keyTrackingFailureDoesNotFailWrites() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.opsForZSet()).thenThrow(new RedisConnectionFailureException("down"));
+        PolicyEnforcingCache cache = new PolicyEnforcingCache(delegate, CachePolicy.builder().maxKeys(2).build(), broken);
+
+        cache.put("product_1", "detail");
+        assertEquals("detail", cache.get("product_1").get());
+        cache.evict("product_1");
+        assertNull(cache.get("product_1"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.shoppingmall.cache;
+
+import org.example.shoppingmall.config.CacheConfig;
+import org.example.shoppingmall.search.ProductDocument;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品缓存的定向失效：展示字段变化只删除该商品的详情和卡片，影响列表的变化再按分类标签删除新旧分类和不限分类的列表页。
+ * 标签使用 embedded-redis 启动的真实 redis-server，缓存区域用 ConcurrentMapCacheManager 代替。
+ */
+class ProductCacheTagsTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private ConcurrentMapCacheManager cacheManager;
+    private ResourceVersions resourceVersions;
+    private ProductCacheTags tags;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        cacheManager = new ConcurrentMapCacheManager();
+        resourceVersions = new ResourceVersions(redisTemplate);
+        tags = new ProductCacheTags(redisTemplate, cacheManager, resourceVersions, Duration.ofHours(2));
+
+        cachePage("page:all", null);
+        cachePage("page:c1", 1);
+        cachePage("page:c2", 2);
+        cachePage("page:c3", 3);
+        cache(CacheConfig.PRODUCT_DETAIL_CACHE).put(ProductCacheTags.detailKey(5L), "detail");
+        cache(CacheConfig.PRODUCT_CARD_CACHE).put(ProductCacheTags.cardKey(5L), "card");
+        cache(CacheConfig.PRODUCT_DETAIL_CACHE).put(ProductCacheTags.detailKey(6L), "other detail");
+    }
+
+    @Test
+    void displayOnlyChangeKeepsListPages() {
+        String etag = resourceVersions.etag(ResourceVersions.product(5L));
+
+        tags.onProductUpdated(document(1L, "9.90", "旧图"), document(1L, "9.90", "新图"));
+
+        assertNull(cache(CacheConfig.PRODUCT_DETAIL_CACHE).get(ProductCacheTags.detailKey(5L)));
+        assertNull(cache(CacheConfig.PRODUCT_CARD_CACHE).get(ProductCacheTags.cardKey(5L)));
+        assertNotNull(cache(CacheConfig.PRODUCT_DETAIL_CACHE).get(ProductCacheTags.detailKey(6L)));
+        assertPagesCached("page:all", "page:c1", "page:c2", "page:c3");
+        assertFalse(etag.equals(resourceVersions.etag(ResourceVersions.product(5L))));
+    }
+
+    @Test
+    void listingChangeEvictsOldAndNewCategoryPages() {
+        tags.onProductUpdated(document(1L, "9.90", null), document(2L, "19.90", null));
+
+        assertPagesEvicted("page:all", "page:c1", "page:c2");
+        assertPagesCached("page:c3");
+        // 标签随页一起删除，重新生成的页会再次登记
+        assertFalse(redisTemplate.hasKey("cache:tag:" + CacheConfig.PRODUCT_ID_PAGES_CACHE + ":c:1"));
+        assertTrue(redisTemplate.hasKey("cache:tag:" + CacheConfig.PRODUCT_ID_PAGES_CACHE + ":c:3"));
+    }
+
+    @Test
+    void createDeleteAndRemoteChangesEvictTheirCategories() {
+        tags.onProductCreated(document(3L, "9.90", null));
+        assertPagesEvicted("page:all", "page:c3");
+        assertPagesCached("page:c1", "page:c2");
+
+        tags.onProductDeleted(document(1L, "9.90", null));
+        assertPagesEvicted("page:c1");
+        assertPagesCached("page:c2");
+
+        tags.onRemoteIndexChanged(List.of(2L));
+        assertPagesEvicted("page:c2");
+    }
+
+    @Test
+    void stockChangeEvictsOnlyEntries() {
+        tags.onStockChanged(List.of(5L, 5L, 6L));
+
+        assertNull(cache(CacheConfig.PRODUCT_DETAIL_CACHE).get(ProductCacheTags.detailKey(5L)));
+        assertNull(cache(CacheConfig.PRODUCT_DETAIL_CACHE).get(ProductCacheTags.detailKey(6L)));
+        assertPagesCached("page:all", "page:c1", "page:c2", "page:c3");
+    }
+
+    @Test
+    void onlyListingFieldsAffectListing() {
+        ProductDocument before = document(1L, "9.90", null);
+
+        assertFalse(ProductCacheTags.affectsListing(before, document(1L, "9.900", "新图")));
+        assertTrue(ProductCacheTags.affectsListing(before, document(1L, "9.91", null)));
+        assertTrue(ProductCacheTags.affectsListing(before, new ProductDocument(5L, "商品", null, null, null, 1L, null,
+                new BigDecimal("9.90"), 0, false, 0, LocalDateTime.of(2024, 5, 1, 0, 0))));
+    }
+
+    @Test
+    void unreadableTagsClearWholePageCache() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.opsForSet()).thenThrow(new RedisConnectionFailureException("down"));
+        ProductCacheTags fallback = new ProductCacheTags(broken, cacheManager, mock(ResourceVersions.class), Duration.ofHours(2));
+
+        fallback.onProductCreated(document(1L, "9.90", null));
+
+        assertPagesEvicted("page:all", "page:c1", "page:c2", "page:c3");
+    }
+
+    private void cachePage(String key, Integer categoryId) {
+        cache(CacheConfig.PRODUCT_ID_PAGES_CACHE).put(key, key);
+        tags.tagPage(CacheConfig.PRODUCT_ID_PAGES_CACHE, key, categoryId);
+    }
+
+    private void assertPagesCached(String... keys) {
+        for (String key : keys) {
+            assertNotNull(cache(CacheConfig.PRODUCT_ID_PAGES_CACHE).get(key), key);
+        }
+    }
+
+    private void assertPagesEvicted(String... keys) {
+        for (String key : keys) {
+            assertNull(cache(CacheConfig.PRODUCT_ID_PAGES_CACHE).get(key), key);
+        }
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+
+    /**
+     * 商品 5 的快照；品牌名不参与列表判断，用来模拟只改了展示字段
+     */
+    private static ProductDocument document(Long categoryId, String price, String brandName) {
+        return new ProductDocument(5L, "商品", null, 9L, brandName, categoryId, null,
+                new BigDecimal(price), 1, false, 0, LocalDateTime.of(2024, 5, 1, 0, 0));
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.shoppingmall.cache;
+
+import org.example.shoppingmall.config.CacheConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 单条商品缓存的批量读写：一次 MGET 取回整页，写入的键与 @Cacheable 互通并带过期时间，
+ * 有键数量上限的缓存批量写入时同样登记键并淘汰最早写入的键，Redis 出错时退化为全部未命中。
+ * 使用 embedded-redis 启动的真实 redis-server 和按该缓存配置构建的 RedisCacheManager。
+ */
+class ProductEntryCacheTest {
+
+    private static final String CACHE = CacheConfig.PRODUCT_CARD_CACHE;
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private RedisCacheManager redisCacheManager;
+    private CachePolicyRegistry registry;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(10))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
+        redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .withInitialCacheConfigurations(Map.of(CACHE, config))
+                .build();
+        redisCacheManager.initializeCaches();
+        registry = new CachePolicyRegistry(CachePolicy.builder().build(), new CachePolicyProperties());
+    }
+
+    @Test
+    void multiGetReturnsOnlyHitsSharedWithCacheable() {
+        ProductEntryCache entryCache = new ProductEntryCache(redisTemplate, redisCacheManager, registry);
+        // @Cacheable 通过 RedisCache 写入的条目
+        redisCacheManager.getCache(CACHE).put(ProductCacheTags.cardKey(1L), "card 1");
+        redisTemplate.opsForValue().set(CACHE + "::" + ProductCacheTags.cardKey(3L), "not json");
+
+        Map<Long, String> hits = entryCache.multiGet(CACHE, List.of(1L, 2L, 3L), ProductCacheTags::cardKey);
+
+        assertEquals(Map.of(1L, "card 1"), hits);
+        assertTrue(entryCache.multiGet(CACHE, List.of(), ProductCacheTags::cardKey).isEmpty());
+    }
+
+    @Test
+    void multiPutWritesWithTtlInOnePipeline() {
+        ProductEntryCache entryCache = new ProductEntryCache(redisTemplate, redisCacheManager, registry);
+        Map<Long, String> values = new LinkedHashMap<>();
+        values.put(1L, "card 1");
+        values.put(2L, "card 2");
+
+        entryCache.multiPut(CACHE, values, ProductCacheTags::cardKey);
+
+        assertEquals(values, entryCache.multiGet(CACHE, List.of(1L, 2L), ProductCacheTags::cardKey));
+        assertEquals("card 2", redisCacheManager.getCache(CACHE).get(ProductCacheTags.cardKey(2L)).get());
+        Long ttl = redisTemplate.getExpire(CACHE + "::" + ProductCacheTags.cardKey(1L));
+        assertTrue(ttl > 0 && ttl <= 600, String.valueOf(ttl));
+        // 未设置键数量上限时不维护键集合
+        assertFalse(redisTemplate.hasKey(PolicyEnforcingCache.keysKey(CACHE)));
+    }
+
+    @Test
+    void keyLimitedCacheEvictsOldestAfterBatchWrite() throws InterruptedException {
+        registry.register(CACHE, CachePolicy.builder().maxKeys(2).build());
+        ProductEntryCache entryCache = new ProductEntryCache(redisTemplate, redisCacheManager, registry);
+
+        entryCache.multiPut(CACHE, Map.of(1L, "card 1", 2L, "card 2"), ProductCacheTags::cardKey);
+        Thread.sleep(2);
+        entryCache.multiPut(CACHE, Map.of(3L, "card 3"), ProductCacheTags::cardKey);
+
+        assertEquals(Set.of(ProductCacheTags.cardKey(2L), ProductCacheTags.cardKey(3L)),
+                redisTemplate.opsForZSet().range(PolicyEnforcingCache.keysKey(CACHE), 0, -1));
+        assertEquals(Set.of(2L, 3L), entryCache.multiGet(CACHE, List.of(1L, 2L, 3L), ProductCacheTags::cardKey).keySet());
+    }
+
+    @Test
+    void redisFailureDegradesToMisses() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.execute(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("down"));
+        when(broken.executePipelined(any(RedisCallback.class))).thenThrow(new RedisConnectionFailureException("down"));
+        ProductEntryCache entryCache = new ProductEntryCache(broken, redisCacheManager, registry);
+
+        assertTrue(entryCache.multiGet(CACHE, List.of(1L), ProductCacheTags::cardKey).isEmpty());
+        entryCache.multiPut(CACHE, Map.of(1L, "card 1"), ProductCacheTags::cardKey);
+    }
+}
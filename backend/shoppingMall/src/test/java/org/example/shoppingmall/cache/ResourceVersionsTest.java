@@ -0,0 +1,208 @@
+package org.example.shoppingmall.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.shoppingmall.config.CacheConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 资源版本与条件 GET：ETag 随版本号和纪元变化，If-None-Match 匹配时返回 304，事务内的版本号在提交后才增加；
+ * 以及两级缓存中低于本次请求所读版本号的 L1 条目当作未命中。
+ * 版本号使用 embedded-redis 启动的真实 redis-server，L2 用 ConcurrentMapCache 代替，失效通知发送到 mock 的 StringRedisTemplate。
+ */
+class ResourceVersionsTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private ResourceVersions resourceVersions;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        flushDb();
+        resourceVersions = new ResourceVersions(redisTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModified() {
+        String etag = resourceVersions.etag(ResourceVersions.product(5L));
+        assertTrue(etag.startsWith("\"product-5-") && etag.endsWith(".0\""), etag);
+
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        assertTrue(resourceVersions.checkNotModified(request(etag, notModified), ResourceVersions.product(5L)));
+        assertEquals(304, notModified.getStatus());
+
+        resourceVersions.bump(ResourceVersions.product(5L));
+        MockHttpServletResponse modified = new MockHttpServletResponse();
+        assertFalse(resourceVersions.checkNotModified(request(etag, modified), ResourceVersions.product(5L)));
+        assertEquals(200, modified.getStatus());
+        assertTrue(modified.getHeader("ETag").endsWith(".1\""));
+        // 其他资源的版本号不受影响
+        assertTrue(resourceVersions.etag(ResourceVersions.CATEGORIES).endsWith(".0\""));
+    }
+
+    @Test
+    void epochChangesAfterRedisIsCleared() throws InterruptedException {
+        String before = resourceVersions.etag(ResourceVersions.BANNERS);
+        Thread.sleep(2);
+
+        flushDb();
+
+        // 版本号归零，但纪元不同，旧 ETag 不会再匹配
+        String after = resourceVersions.etag(ResourceVersions.BANNERS);
+        assertTrue(after.endsWith(".0\""));
+        assertNotEquals(before, after);
+        assertEquals(after, resourceVersions.etag(ResourceVersions.BANNERS));
+    }
+
+    @Test
+    void bumpAfterCommitWaitsForCommit() {
+        String initial = resourceVersions.etag(ResourceVersions.CATEGORIES);
+
+        TransactionSynchronizationManager.initSynchronization();
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
+        assertEquals(initial, resourceVersions.etag(ResourceVersions.CATEGORIES));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(initial, resourceVersions.etag(ResourceVersions.CATEGORIES));
+
+        TransactionSynchronizationManager.initSynchronization();
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertTrue(resourceVersions.etag(ResourceVersions.CATEGORIES).endsWith(".1\""));
+
+        // 没有事务时立即增加
+        resourceVersions.bumpAfterCommit(ResourceVersions.CATEGORIES);
+        assertTrue(resourceVersions.etag(ResourceVersions.CATEGORIES).endsWith(".2\""));
+    }
+
+    @Test
+    void redisFailureSkipsEtag() {
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        ResourceVersions unavailable = new ResourceVersions(broken);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(unavailable.etag(ResourceVersions.BANNERS));
+        assertFalse(unavailable.checkNotModified(request("\"banners-x.0\"", response), ResourceVersions.BANNERS));
+        assertNull(response.getHeader("ETag"));
+        unavailable.bump(ResourceVersions.BANNERS);
+    }
+
+    @Test
+    void cacheEntriesMapToTheirResources() {
+        assertEquals("product:5", ResourceVersions.resourceOf(CacheConfig.PRODUCT_DETAIL_CACHE, ProductCacheTags.detailKey(5L)));
+        assertNull(ResourceVersions.resourceOf(CacheConfig.PRODUCT_DETAIL_CACHE, "other"));
+        assertEquals(ResourceVersions.CATEGORIES, ResourceVersions.resourceOf(CacheConfig.CATEGORIES_CACHE, "all"));
+        assertEquals(ResourceVersions.BANNERS, ResourceVersions.resourceOf(CacheConfig.BANNER_CACHE, "all"));
+        assertNull(ResourceVersions.resourceOf(CacheConfig.PRODUCT_CARD_CACHE, ProductCacheTags.cardKey(5L)));
+    }
+
+    @Test
+    void localEntryOlderThanObservedVersionIsMiss() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrentMapCache remote = new ConcurrentMapCache(CacheConfig.PRODUCT_DETAIL_CACHE);
+        TwoLevelCache cache = new TwoLevelCache(CacheConfig.PRODUCT_DETAIL_CACHE, remote, Caffeine.newBuilder().build(), false,
+                new CacheInvalidationBus(mock(StringRedisTemplate.class), "cache:l1:invalidate"), meterRegistry);
+        String key = ProductCacheTags.detailKey(5L);
+
+        // 请求一读到版本 0 后写入 L1
+        startRequest();
+        resourceVersions.etag(ResourceVersions.product(5L));
+        cache.put(key, "v0");
+
+        // 另一节点修改了商品，失效通知尚未到达本节点
+        remote.put(key, "v1");
+        resourceVersions.bump(ResourceVersions.product(5L));
+
+        // 请求二读到版本 1，L1 中的版本 0 当作未命中
+        startRequest();
+        resourceVersions.etag(ResourceVersions.product(5L));
+        assertEquals("v1", cache.get(key).get());
+        assertEquals("v1", cache.get(key).get());
+        assertEquals(1.0, meterRegistry.get("cache.two_level.gets").tag("result", "l2_hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.two_level.gets").tag("result", "l1_hit").counter().count());
+
+        // 不计算 ETag 的读取照常使用 L1
+        RequestContextHolder.resetRequestAttributes();
+        assertEquals("v1", cache.get(key).get());
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/5");
+        request.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(request, response);
+    }
+
+    private static void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    private static void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static void flushDb() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.shoppingmall.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 未命中合并加载：同一节点内的并发未命中只加载一次，跨节点时未抢到锁的节点等待持锁节点写入，
+ * 等锁超时或 Redis 不可用时自行加载，加载失败不留下缓存也不影响下一次加载。
+ * 加载锁使用 embedded-redis 启动的真实 redis-server，被包装的缓存用 ConcurrentMapCache 代替。
+ */
+class SingleFlightCacheTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrentMapCache delegate = new ConcurrentMapCache("productDetail");
+    private CacheLoadLock loadLock;
+    private SingleFlightProperties properties;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        loadLock = new CacheLoadLock(redisTemplate);
+        properties = new SingleFlightProperties();
+        properties.setLockWait(Duration.ofMillis(500));
+        properties.setPollInterval(Duration.ofMillis(10));
+    }
+
+    @Test
+    void concurrentMissesOnOneNodeLoadOnce() throws Exception {
+        SingleFlightCache cache = new SingleFlightCache(delegate, loadLock, properties, meterRegistry);
+        int threads = 16;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> cache.get("product_1", () -> {
+                    loads.incrementAndGet();
+                    release.await();
+                    return "detail";
+                })));
+            }
+            // 等其余线程都排到 leader 的加载上
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (count("coalesced") < threads - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("detail", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, count("load"));
+        assertEquals(threads - 1.0, count("coalesced"));
+        assertEquals("detail", delegate.get("product_1").get());
+    }
+
+    @Test
+    void otherNodeWaitsForLockHolderToFill() throws Exception {
+        SingleFlightCache nodeA = new SingleFlightCache(delegate, loadLock, properties, meterRegistry);
+        SingleFlightCache nodeB = new SingleFlightCache(delegate, new CacheLoadLock(redisTemplate), properties, meterRegistry);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = pool.submit(() -> nodeA.get("product_1", () -> {
+                loading.countDown();
+                release.await();
+                return "from A";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            new Thread(() -> {
+                sleep(50);
+                release.countDown();
+            }).start();
+
+            assertEquals("from A", nodeB.get("product_1", () -> "from B"));
+            assertEquals("from A", leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1.0, count("load"));
+        assertEquals(1.0, count("remote_fill"));
+    }
+
+    @Test
+    void loadsItselfAfterLockWaitOrWithoutRedis() {
+        // 持锁节点宕机：锁还在，但没有人写入缓存
+        assertTrue(loadLock.tryLock("productDetail", "product_1", Duration.ofMinutes(1)) != null);
+        SingleFlightCache cache = new SingleFlightCache(delegate, loadLock, properties, meterRegistry);
+        assertEquals("loaded", cache.get("product_1", () -> "loaded"));
+        assertEquals(1.0, count("lock_timeout"));
+
+        CacheLoadLock broken = mock(CacheLoadLock.class);
+        when(broken.tryLock(anyString(), anyString(), any())).thenThrow(new RedisConnectionFailureException("down"));
+        SingleFlightCache withoutRedis = new SingleFlightCache(delegate, broken, properties, meterRegistry);
+        assertEquals("local", withoutRedis.get("product_2", () -> "local"));
+        assertEquals("local", delegate.get("product_2").get());
+    }
+
+    @Test
+    void failedLoadIsNotCachedAndReleasesTheLock() {
+        SingleFlightCache cache = new SingleFlightCache(delegate, loadLock, properties, meterRegistry);
+
+        Cache.ValueRetrievalException e = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("product_1", () -> {
+                    throw new IllegalStateException("db down");
+                }));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+
+        assertEquals("retry", cache.get("product_1", () -> "retry"));
+        assertEquals(0.0, count("lock_timeout"));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("cache.single_flight").tag("cache", "productDetail").tag("result", result).counter().count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
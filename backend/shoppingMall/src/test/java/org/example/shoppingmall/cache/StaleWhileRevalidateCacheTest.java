@@ -0,0 +1,188 @@
+package org.example.shoppingmall.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 软过期缓存：剩余寿命进入 staleWindow 后返回旧值并只提交一个后台刷新，跨节点刷新锁被占用、刷新失败或队列已满时继续返回旧值；
+ * 以及硬过期时间的随机抖动范围。
+ * 条目的剩余寿命由 embedded-redis 启动的真实 redis-server 提供，被包装的缓存用 ConcurrentMapCache 代替。
+ */
+class StaleWhileRevalidateCacheTest {
+
+    private static final String CACHE = "productIdPages";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrentMapCache delegate = new ConcurrentMapCache(CACHE);
+    private final CacheExpiryProperties.Policy policy = new CacheExpiryProperties.Policy();
+    private CacheLoadLock loadLock;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        loadLock = new CacheLoadLock(redisTemplate);
+        policy.setSoftTtl(Duration.ofMinutes(50));
+        policy.setStaleWindow(Duration.ofMinutes(10));
+    }
+
+    @Test
+    void freshEntryIsReturnedWithoutRefresh() {
+        StaleWhileRevalidateCache cache = newCache(Runnable::run);
+        cached("page:1", "old", Duration.ofMinutes(30));
+
+        assertEquals("old", cache.get("page:1", () -> "new"));
+        assertEquals("old", delegate.get("page:1").get());
+        assertEquals(0.0, count("stale_hit"));
+    }
+
+    @Test
+    void staleEntryReturnsOldValueAndRefreshesInBackground() {
+        StaleWhileRevalidateCache cache = newCache(Runnable::run);
+        cached("page:1", "old", Duration.ofMinutes(5));
+
+        assertEquals("old", cache.get("page:1", () -> "new"));
+
+        assertEquals("new", delegate.get("page:1").get());
+        assertEquals(1.0, count("stale_hit"));
+        assertEquals(1.0, count("refresh"));
+    }
+
+    @Test
+    void onlyOneRefreshIsQueuedPerKey() {
+        List<Runnable> queued = new ArrayList<>();
+        StaleWhileRevalidateCache cache = newCache(queued::add);
+        cached("page:1", "old", Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("old", cache.get("page:1", () -> "new-" + loads.incrementAndGet()));
+        }
+        assertEquals(1, queued.size());
+        assertEquals(3.0, count("stale_hit"));
+
+        queued.get(0).run();
+        assertEquals("new-1", delegate.get("page:1").get());
+        // 刷新结束后同一个键可以再次排队
+        cache.get("page:1", () -> "newer");
+        assertEquals(2, queued.size());
+    }
+
+    @Test
+    void refreshIsSkippedWhileAnotherNodeHoldsTheLock() {
+        StaleWhileRevalidateCache cache = newCache(Runnable::run);
+        cached("page:1", "old", Duration.ofMinutes(5));
+        assertTrue(loadLock.tryLock(CACHE, "refresh:page:1", Duration.ofMinutes(1)) != null);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("old", cache.get("page:1", () -> "new-" + loads.incrementAndGet()));
+
+        assertEquals(0, loads.get());
+        assertEquals("old", delegate.get("page:1").get());
+    }
+
+    @Test
+    void failedOrRejectedRefreshKeepsOldValue() {
+        StaleWhileRevalidateCache failing = newCache(Runnable::run);
+        cached("page:1", "old", Duration.ofMinutes(5));
+        assertEquals("old", failing.get("page:1", () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals("old", delegate.get("page:1").get());
+        assertEquals(1.0, count("refresh_failed"));
+
+        Executor full = task -> {
+            throw new RejectedExecutionException("queue full");
+        };
+        StaleWhileRevalidateCache rejecting = newCache(full);
+        assertEquals("old", rejecting.get("page:1", () -> "new"));
+        assertEquals("old", delegate.get("page:1").get());
+    }
+
+    @Test
+    void missLoadsAndEntryWithoutRedisTtlIsNeverStale() {
+        StaleWhileRevalidateCache cache = newCache(Runnable::run);
+
+        assertEquals("loaded", cache.get("page:1", () -> "loaded"));
+        // Redis 中没有该键（例如只剩本地副本），不触发刷新
+        assertEquals("loaded", cache.get("page:1", () -> "new"));
+        assertEquals(0.0, count("stale_hit"));
+    }
+
+    @Test
+    void hardTtlIsJitteredWithinRange() {
+        CacheExpiryProperties.Policy jittered = new CacheExpiryProperties.Policy();
+        jittered.setSoftTtl(Duration.ofMinutes(50));
+        jittered.setStaleWindow(Duration.ofMinutes(10));
+        assertEquals(Duration.ofMinutes(60), jittered.nextHardTtl());
+
+        jittered.setJitter(Duration.ofMinutes(10));
+        long distinct = IntStream.range(0, 100)
+                .mapToObj(i -> jittered.nextHardTtl())
+                .peek(ttl -> assertTrue(ttl.compareTo(Duration.ofMinutes(60)) >= 0 && ttl.compareTo(Duration.ofMinutes(70)) < 0))
+                .distinct()
+                .count();
+        assertTrue(distinct > 1);
+    }
+
+    private StaleWhileRevalidateCache newCache(Executor executor) {
+        return new StaleWhileRevalidateCache(delegate, policy, redisTemplate, loadLock, executor, meterRegistry);
+    }
+
+    /**
+     * 写入被包装的缓存，并在 Redis 中放一个剩余寿命为 ttl 的同名键
+     */
+    private void cached(String key, String value, Duration ttl) {
+        delegate.put(key, value);
+        redisTemplate.opsForValue().set(CACHE + "::" + key, value, ttl);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("cache.stale_while_revalidate").tag("cache", CACHE).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.shoppingmall.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 两级缓存：L1 未命中时从 L2 回填、写删同时更新两级并广播失效通知，其他节点的通知只删除本地副本。
+ * L2 用 ConcurrentMapCache 代替 Redis，失效通知发送到 mock 的 StringRedisTemplate。
+ */
+class TwoLevelCacheTest {
+
+    private static final String CHANNEL = "cache:l1:invalidate";
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConcurrentMapCache remote;
+    private CacheInvalidationBus bus;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        remote = new ConcurrentMapCache("categories", true);
+        bus = new CacheInvalidationBus(redisTemplate, CHANNEL);
+        cache = new TwoLevelCache("categories", remote, Caffeine.newBuilder().build(), false, bus, meterRegistry);
+        bus.register(cache);
+    }
+
+    @Test
+    void remoteHitIsCopiedToLocal() {
+        remote.put("all", "v1");
+
+        assertEquals("v1", cache.get("all").get());
+        // L2 已变化，L1 副本未失效时仍返回旧值
+        remote.put("all", "v2");
+        assertEquals("v1", cache.get("all").get());
+        assertNull(cache.get("missing"));
+
+        assertEquals(1.0, count("l2_hit"));
+        assertEquals(1.0, count("l1_hit"));
+        assertEquals(1.0, count("miss"));
+    }
+
+    @Test
+    void writesUpdateBothLevelsAndBroadcast() {
+        cache.put(1L, "v1");
+        assertEquals("v1", remote.get(1L).get());
+        assertEquals("v1", cache.get(1L).get());
+
+        cache.evict(1L);
+        assertNull(remote.get(1L));
+        assertNull(cache.get(1L));
+
+        cache.put(2L, "v2");
+        cache.clear();
+        assertNull(cache.get(2L));
+
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate, times(4)).convertAndSend(eq(CHANNEL), messages.capture());
+        assertEquals("E|categories|1", messages.getAllValues().get(0).split("\\|", 2)[1]);
+        assertEquals("E|categories|1", messages.getAllValues().get(1).split("\\|", 2)[1]);
+        assertEquals("C|categories|", messages.getAllValues().get(3).split("\\|", 2)[1]);
+    }
+
+    @Test
+    void otherNodeNotificationEvictsOnlyLocalCopy() {
+        cache.put("all", "v1");
+        remote.put("all", "v2");
+
+        receive("other-node|E|categories|all");
+        assertEquals("v2", cache.get("all").get());
+
+        remote.put("all", "v3");
+        receive("other-node|C|categories|");
+        assertEquals("v3", cache.get("all").get());
+        assertEquals("v3", remote.get("all").get());
+    }
+
+    @Test
+    void ownNotificationIsIgnored() {
+        cache.put("all", "v1");
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(CHANNEL), message.capture());
+        remote.put("all", "v2");
+
+        receive(message.getValue());
+
+        assertEquals("v1", cache.get("all").get());
+    }
+
+    @Test
+    void nullIsNotCachedWhenDisallowed() {
+        cache.put("all", null);
+        assertNull(remote.get("all"));
+
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("loaded", cache.get("all", () -> {
+            loads.incrementAndGet();
+            return "loaded";
+        }));
+        assertEquals("loaded", cache.get("all", () -> {
+            loads.incrementAndGet();
+            return "again";
+        }));
+        assertEquals(1, loads.get());
+
+        assertThrows(Cache.ValueRetrievalException.class, () -> cache.get("failing", () -> {
+            throw new IllegalStateException("boom");
+        }));
+    }
+
+    private void receive(String body) {
+        bus.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("cache.two_level.gets").tag("cache", "categories").tag("result", result).counter().count();
+    }
+}
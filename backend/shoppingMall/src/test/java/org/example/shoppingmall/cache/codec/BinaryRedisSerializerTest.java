@@ -0,0 +1,206 @@
+package org.example.shoppingmall.cache.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.shoppingmall.cache.CompressingRedisSerializer;
+import org.example.shoppingmall.dto.BannerDto;
+import org.example.shoppingmall.dto.CategoryDTO;
+import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductCardDTO;
+import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.dto.ProductIdPage;
+import org.example.shoppingmall.dto.SearchFacets;
+import org.example.shoppingmall.dto.StatisticsDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DtoCodecs 中每个缓存值编解码器经 BinaryRedisSerializer 的往返测试：
+ * 全部字段、null 字段、嵌套列表，不压缩与 Deflate 压缩两条路径，以及格式版本不匹配和旧 JSON 数据的回退读取。
+ */
+class BinaryRedisSerializerTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+
+    @Test
+    void productRoundTrip() {
+        ProductDTO full = new ProductDTO(1L, "华为 Mate 60 Pro", 3L, "手机", "超长续航",
+                new BigDecimal("5999.00"), new BigDecimal("6999.90"), 12, 1, "/product-images/1.jpg",
+                List.of("/product-images/1-1.jpg", "/product-images/1-2.jpg"), "<p>详情</p>", true,
+                List.of("屏幕尺寸:6.82英寸"), List.of("雅丹黑", "白沙银"), 1024, TIME);
+        assertRoundTrip(DtoCodecs.PRODUCT, ProductDTO.class, full);
+
+        ProductDTO sparse = new ProductDTO();
+        sparse.setId(2L);
+        sparse.setSales(null);
+        sparse.setImages(List.of());
+        assertRoundTrip(DtoCodecs.PRODUCT, ProductDTO.class, sparse);
+    }
+
+    @Test
+    void productCardRoundTrip() {
+        ProductCardDTO card = new ProductCardDTO(1L, "商品", new BigDecimal("19.90"), null, "/1.jpg", 0, 5);
+        assertRoundTrip(DtoCodecs.PRODUCT_CARD, ProductCardDTO.class, card);
+        assertRoundTrip(DtoCodecs.PRODUCT_CARD, ProductCardDTO.class, new ProductCardDTO());
+    }
+
+    @Test
+    void bannerListRoundTrip() {
+        BannerDto banner = new BannerDto("618 大促", "https://img/1.jpg", null, "home", 1, true, null, TIME, TIME.plusDays(7));
+        banner.setId(3);
+        banner.setCreatedAt(TIME);
+        List<BannerDto> banners = new ArrayList<>(List.of(banner, new BannerDto()));
+        assertRoundTrip(DtoCodecs.list(DtoCodecs.BANNER), List.class, banners);
+        assertRoundTrip(DtoCodecs.list(DtoCodecs.BANNER), List.class, new ArrayList<BannerDto>());
+    }
+
+    @Test
+    void categoryListRoundTrip() {
+        List<CategoryDTO> categories = List.of(new CategoryDTO(1L, "手机", "数码", 1, 1), new CategoryDTO(2L, "图书", null, null, 0));
+        assertRoundTrip(DtoCodecs.list(DtoCodecs.CATEGORY), List.class, categories);
+    }
+
+    @Test
+    void statisticsRoundTrip() {
+        Map<String, Integer> orders = new LinkedHashMap<>();
+        orders.put("2024-05-01", 10);
+        orders.put("2024-05-02", null);
+        Map<String, BigDecimal> revenue = new LinkedHashMap<>();
+        revenue.put("2024-05-01", new BigDecimal("1234.56"));
+        StatisticsDto statistics = StatisticsDto.builder()
+                .totalOrders(100).totalProducts(20).totalUsers(5).totalCategories(3)
+                .totalRevenue(new BigDecimal("99999.99"))
+                .startDate(LocalDate.of(2024, 5, 1)).endDate(LocalDate.of(2024, 5, 31))
+                .dailyOrderCounts(orders).dailyRevenue(revenue)
+                .topUsers(List.of(new StatisticsDto.UserStatsDto(1L, "alice", 3, new BigDecimal("300.00"))))
+                .build();
+        assertRoundTrip(DtoCodecs.STATISTICS, StatisticsDto.class, statistics);
+        // 概览统计不含每日数据和热门用户
+        assertRoundTrip(DtoCodecs.STATISTICS, StatisticsDto.class, StatisticsDto.builder().totalOrders(0).build());
+    }
+
+    @Test
+    void productIdPageRoundTrip() {
+        SearchFacets facets = new SearchFacets(
+                List.of(new SearchFacets.FacetCount(3L, "手机", 42)),
+                List.of(),
+                List.of(new SearchFacets.PriceRangeCount(new BigDecimal("100"), null, 7)));
+        assertRoundTrip(DtoCodecs.PRODUCT_ID_PAGE, ProductIdPage.class, new ProductIdPage(ids(500), 1_000, 2, 500, facets));
+        assertRoundTrip(DtoCodecs.PRODUCT_ID_PAGE, ProductIdPage.class, new ProductIdPage(List.of(), 0, 1, 20, null));
+    }
+
+    @Test
+    void pageResultRoundTrip() {
+        List<ProductCardDTO> cards = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            cards.add(new ProductCardDTO(id, "商品" + id, new BigDecimal("9.90"), new BigDecimal("19.90"), "/" + id + ".jpg", (int) id, 1));
+        }
+        PageResult<ProductCardDTO> page = PageResult.of(cards, 1_000, 1, 50);
+        assertRoundTrip(DtoCodecs.pageResult(DtoCodecs.PRODUCT_CARD), PageResult.class, page);
+    }
+
+    @Test
+    void compressesOnlyAboveThreshold() {
+        ProductIdPage page = new ProductIdPage(ids(1_000), 1_000, 1, 1_000, null);
+        byte[] plain = new BinaryRedisSerializer<>(DtoCodecs.PRODUCT_ID_PAGE, ProductIdPage.class, -1, null).serialize(page);
+        byte[] compressed = new BinaryRedisSerializer<>(DtoCodecs.PRODUCT_ID_PAGE, ProductIdPage.class, 64, null).serialize(page);
+        byte[] belowThreshold = new BinaryRedisSerializer<>(DtoCodecs.PRODUCT_ID_PAGE, ProductIdPage.class, plain.length, null)
+                .serialize(page);
+
+        assertEquals(0, plain[2]);
+        assertEquals(1, compressed[2]);
+        assertTrue(compressed.length < plain.length);
+        assertTrue(Arrays.equals(plain, belowThreshold));
+    }
+
+    @Test
+    void newerFormatVersionIsTreatedAsMiss() {
+        BinaryRedisSerializer<ProductCardDTO> serializer =
+                new BinaryRedisSerializer<>(DtoCodecs.PRODUCT_CARD, ProductCardDTO.class, -1, null);
+        byte[] bytes = serializer.serialize(new ProductCardDTO(1L, "商品", BigDecimal.ONE, null, null, 0, 1));
+        bytes[1] = (byte) (BinaryRedisSerializer.CURRENT_VERSION + 1);
+
+        assertNull(serializer.deserialize(bytes));
+    }
+
+    @Test
+    void corruptPayloadAndWrongTypeAreRejected() {
+        ProductDTO product = new ProductDTO();
+        product.setId(1L);
+        product.setName("华为 Mate 60 Pro");
+        product.setDetail("<p>详情</p>".repeat(20));
+        for (int threshold : new int[]{-1, 0}) {
+            BinaryRedisSerializer<ProductDTO> serializer = new BinaryRedisSerializer<>(DtoCodecs.PRODUCT, ProductDTO.class, threshold, null);
+            byte[] bytes = serializer.serialize(product);
+
+            assertThrows(SerializationException.class, () -> serializer.deserialize(Arrays.copyOf(bytes, bytes.length / 2)),
+                    "threshold=" + threshold);
+            assertThrows(SerializationException.class, () -> serializer.serialize(new ProductCardDTO()));
+        }
+    }
+
+    @Test
+    void cachedNullValueRoundTrip() {
+        BinaryRedisSerializer<ProductDTO> serializer = new BinaryRedisSerializer<>(DtoCodecs.PRODUCT, ProductDTO.class, 0, null);
+
+        assertSame(NullValue.INSTANCE, serializer.deserialize(serializer.serialize(NullValue.INSTANCE)));
+        assertNull(serializer.serialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    void legacyJsonIsReadThroughFallback() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        JavaType type = objectMapper.getTypeFactory().constructType(ProductCardDTO.class);
+        RedisSerializer<Object> json = new Jackson2JsonRedisSerializer<>(objectMapper, type);
+        BinaryRedisSerializer<ProductCardDTO> serializer = new BinaryRedisSerializer<>(DtoCodecs.PRODUCT_CARD, ProductCardDTO.class,
+                -1, new CompressingRedisSerializer<>(json, Integer.MAX_VALUE));
+        ProductCardDTO card = new ProductCardDTO(1L, "商品", new BigDecimal("19.90"), null, "/1.jpg", 3, 1);
+
+        assertEquals(card, serializer.deserialize(json.serialize(card)));
+        // 旧数据也可能是 GZIP 压缩过的 JSON
+        assertEquals(card, serializer.deserialize(new CompressingRedisSerializer<>(json, 0).serialize(card)));
+    }
+
+    /**
+     * 分别经不压缩和总是压缩两条路径往返，结果应与原值相等
+     */
+    private static <T> void assertRoundTrip(BinaryCodec<T> codec, Class<?> valueClass, T value) {
+        for (int threshold : new int[]{-1, 0}) {
+            BinaryRedisSerializer<T> serializer = new BinaryRedisSerializer<>(codec, valueClass, threshold, null);
+            byte[] bytes = serializer.serialize(value);
+            assertEquals(BinaryRedisSerializer.MAGIC, bytes[0]);
+            assertEquals(value, serializer.deserialize(bytes), "threshold=" + threshold);
+        }
+    }
+
+    private static List<Long> ids(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            ids.add(id * 7);
+        }
+        return ids;
+    }
+}
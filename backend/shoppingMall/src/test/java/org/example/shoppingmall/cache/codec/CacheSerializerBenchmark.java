@@ -0,0 +1,118 @@
+package org.example.shoppingmall.cache.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品列表缓存值的序列化基准：原来的 Jackson2JsonRedisSerializer 对比二进制编码（不压缩 / 超过 2KB 压缩）
+ * <p>
+ * 缓存值为一页 pageSize 个商品的 PageResult&lt;ProductDTO&gt;，字段内容接近真实商品。
+ * 运行方式：mvn test-compile 后直接运行 main 方法。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheSerializerBenchmark {
+
+    @Param({"20"})
+    private int pageSize;
+
+    private PageResult<ProductDTO> page;
+    private Jackson2JsonRedisSerializer<Object> json;
+    private BinaryRedisSerializer<PageResult<ProductDTO>> binary;
+    private BinaryRedisSerializer<PageResult<ProductDTO>> binaryCompressed;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+    private byte[] binaryCompressedBytes;
+
+    @Setup
+    public void setUp() {
+        // 与 RedisConfig#objectMapper 的配置一致
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        json = new Jackson2JsonRedisSerializer<>(objectMapper,
+                objectMapper.getTypeFactory().constructParametricType(PageResult.class, ProductDTO.class));
+        binary = new BinaryRedisSerializer<>(DtoCodecs.pageResult(DtoCodecs.PRODUCT), PageResult.class, -1, null);
+        binaryCompressed = new BinaryRedisSerializer<>(DtoCodecs.pageResult(DtoCodecs.PRODUCT), PageResult.class, 2048, null);
+
+        Random random = new Random(42);
+        List<ProductDTO> products = new ArrayList<>(pageSize);
+        for (long id = 1; id <= pageSize; id++) {
+            products.add(new ProductDTO(id, "华为 Mate 60 Pro 旗舰手机 12GB+512GB " + id, 3L, "手机",
+                    "超长续航，全面屏，高性能处理器，支持 5G 网络与卫星通话",
+                    BigDecimal.valueOf(100_000 + random.nextInt(900_000), 2), BigDecimal.valueOf(999_900, 2),
+                    random.nextInt(1000), 1, "/product-images/" + id + ".jpg",
+                    List.of("/product-images/" + id + "-1.jpg", "/product-images/" + id + "-2.jpg"),
+                    "<p>商品详情</p>", id % 5 == 0, List.of("屏幕尺寸:6.82英寸", "电池容量:5000mAh"),
+                    List.of("雅丹黑", "白沙银"), random.nextInt(10_000), LocalDateTime.now().minusDays(id)));
+        }
+        page = PageResult.of(products, 1_000, 1, pageSize);
+
+        jsonBytes = json.serialize(page);
+        binaryBytes = binary.serialize(page);
+        binaryCompressedBytes = binaryCompressed.serialize(page);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return json.serialize(page);
+    }
+
+    @Benchmark
+    public Object jsonDeserialize() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binary.serialize(page);
+    }
+
+    @Benchmark
+    public Object binaryDeserialize() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] binaryCompressedSerialize() {
+        return binaryCompressed.serialize(page);
+    }
+
+    @Benchmark
+    public Object binaryCompressedDeserialize() {
+        return binaryCompressed.deserialize(binaryCompressedBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CacheSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.shoppingmall.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.dto.OrderPaymentRequestDto;
+import org.example.shoppingmall.dto.PaymentInitiationResponseDto;
+import org.example.shoppingmall.exception.ApiException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 幂等执行测试：Redis 使用 embedded-redis 启动的真实 redis-server，两个 IdempotencyGuard 实例模拟两个节点。
+ */
+class IdempotencyGuardTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private IdempotencyGuard nodeA;
+    private IdempotencyGuard nodeB;
+    private AtomicInteger executions;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        nodeA = newGuard();
+        nodeB = newGuard();
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void concurrentDuplicatesExecuteOnce() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<PaymentInitiationResponseDto>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            IdempotencyGuard guard = i % 2 == 0 ? nodeA : nodeB;
+            futures.add(pool.submit(() -> {
+                start.await();
+                return pay(guard, "key-1", "alipay", slowly(() -> response("order-" + executions.incrementAndGet())));
+            }));
+        }
+        start.countDown();
+        for (Future<PaymentInitiationResponseDto> future : futures) {
+            assertEquals("order-1", future.get().getOrderNo());
+        }
+        pool.shutdown();
+
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void completedResponseIsReplayed() {
+        PaymentInitiationResponseDto first = pay(nodeA, "key-1", "alipay", () -> response("order-" + executions.incrementAndGet()));
+        PaymentInitiationResponseDto replay = pay(nodeB, "key-1", "alipay", () -> response("order-" + executions.incrementAndGet()));
+
+        assertEquals(first, replay);
+        assertEquals(1, executions.get());
+        // 不同用户、不同接口的同名键互不影响
+        nodeA.execute("order-pay:2", 1L, "key-1", request("alipay"), PaymentInitiationResponseDto.class,
+                () -> response("order-" + executions.incrementAndGet()));
+        nodeA.execute("order-pay:1", 2L, "key-1", request("alipay"), PaymentInitiationResponseDto.class,
+                () -> response("order-" + executions.incrementAndGet()));
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejected() {
+        pay(nodeA, "key-1", "alipay", () -> response("order-1"));
+
+        ApiException error = assertThrows(ApiException.class, () -> pay(nodeB, "key-1", "wechat", () -> response("order-2")));
+        assertEquals(ResultCode.IDEMPOTENCY_KEY_REUSED.getCode(), error.getErrorCode());
+    }
+
+    @Test
+    void failedRequestCanBeRetriedWithSameKey() {
+        assertThrows(IllegalStateException.class, () -> pay(nodeA, "key-1", "alipay", () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("库存不足");
+        }));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(IdempotencyGuard.KEY_PREFIX + "order-pay:1:1:key-1")));
+
+        PaymentInitiationResponseDto retried = pay(nodeB, "key-1", "alipay", () -> response("order-" + executions.incrementAndGet()));
+        assertEquals("order-2", retried.getOrderNo());
+    }
+
+    @Test
+    void requestsWithoutKeyAlwaysExecute() {
+        pay(nodeA, null, "alipay", () -> response("order-" + executions.incrementAndGet()));
+        pay(nodeA, " ", "alipay", () -> response("order-" + executions.incrementAndGet()));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void completedRecordExpiresAfterRetention() {
+        pay(nodeA, "key-1", "alipay", () -> response("order-1"));
+
+        Long ttl = redisTemplate.getExpire(IdempotencyGuard.KEY_PREFIX + "order-pay:1:1:key-1");
+        assertTrue(ttl != null && ttl > 3500 && ttl <= 3600);
+    }
+
+    private static IdempotencyGuard newGuard() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        return new IdempotencyGuard(redisTemplate, objectMapper, new SimpleMeterRegistry(), true,
+                Duration.ofHours(1), Duration.ofSeconds(30), Duration.ofSeconds(10), Duration.ofMillis(10));
+    }
+
+    private static PaymentInitiationResponseDto pay(IdempotencyGuard guard, String key, String method,
+                                                    Supplier<PaymentInitiationResponseDto> action) {
+        return guard.execute("order-pay:1", 1L, key, request(method), PaymentInitiationResponseDto.class, action);
+    }
+
+    private static OrderPaymentRequestDto request(String method) {
+        OrderPaymentRequestDto request = new OrderPaymentRequestDto();
+        request.setPaymentMethod(method);
+        return request;
+    }
+
+    private static PaymentInitiationResponseDto response(String orderNo) {
+        PaymentInitiationResponseDto response = new PaymentInitiationResponseDto();
+        response.setOrderNo(orderNo);
+        response.setQrUrl("https://example.com/pay/qr?orderNo=" + orderNo);
+        return response;
+    }
+
+    private static <T> Supplier<T> slowly(Supplier<T> action) {
+        return () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return action.get();
+        };
+    }
+}
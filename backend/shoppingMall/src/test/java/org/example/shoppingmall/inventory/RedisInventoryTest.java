@@ -0,0 +1,240 @@
+package org.example.shoppingmall.inventory;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.shoppingmall.cache.ProductCacheTags;
+import org.example.shoppingmall.repository.ProductStockRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Redis 库存引擎测试：Redis 使用 embedded-redis 在本地启动的真实 redis-server（Lua 脚本按真实语义执行），
+ * 数据库使用 H2（MySQL 模式）内存库。
+ */
+class RedisInventoryTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private RedisInventory inventory;
+    private InventoryWriteBehind writeBehind;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:inventory_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock INT NOT NULL, sales INT NOT NULL DEFAULT 0, update_time TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE inventory_flush_batches (batch_id VARCHAR(36) PRIMARY KEY, applied_at TIMESTAMP NOT NULL)");
+        insertProduct(1L, 5);
+        insertProduct(2L, 1);
+        insertProduct(3L, 300);
+        ProductStockRepository stockRepository = new ProductStockRepository(jdbcTemplate);
+        inventory = new RedisInventory(redisTemplate, stockRepository, true, Duration.ofMinutes(30));
+        writeBehind = new InventoryWriteBehind(inventory, stockRepository, mock(ProductCacheTags.class), redisTemplate,
+                new SimpleMeterRegistry(), Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    @Test
+    void reservationIsAllOrNothing() {
+        assertEquals(List.of(2L), inventory.reserve("A", Map.of(1L, 2, 2L, 2)));
+        assertEquals(5, available(1L));
+        assertEquals(1, available(2L));
+
+        assertEquals(List.of(), inventory.reserve("B", Map.of(1L, 2, 2L, 1)));
+        assertEquals(3, available(1L));
+        assertEquals(0, available(2L));
+        // 同一订单重复预占不会再扣
+        assertEquals(List.of(), inventory.reserve("B", Map.of(1L, 2, 2L, 1)));
+        assertEquals(3, available(1L));
+    }
+
+    @Test
+    void unknownProductIsRejected() {
+        assertEquals(List.of(99L), inventory.reserve("A", Map.of(1L, 1, 99L, 1)));
+        assertEquals(5, available(1L));
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int orders = 2000;
+        AtomicInteger reservedUnits = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            String orderNo = "order-" + i;
+            int quantity = 1 + i % 3;
+            futures.add(pool.submit(() -> {
+                start.await();
+                if (inventory.reserve(orderNo, Map.of(3L, quantity)).isEmpty()) {
+                    reservedUnits.addAndGet(quantity);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertTrue(reservedUnits.get() <= 300);
+        assertTrue(available(3L) >= 0);
+        assertEquals(300 - reservedUnits.get(), available(3L));
+        assertEquals(reservedUnits.get(), hashValue(RedisInventory.RESERVED_KEY, 3L));
+    }
+
+    @Test
+    void releaseReturnsStockOnce() {
+        inventory.reserve("A", Map.of(1L, 3));
+        assertEquals(1, inventory.release("A"));
+        assertEquals(0, inventory.release("A"));
+        assertEquals(5, available(1L));
+        assertEquals(0, hashValue(RedisInventory.RESERVED_KEY, 1L));
+        assertTrue(inventory.expiredReservations(10, Duration.ZERO).isEmpty());
+    }
+
+    @Test
+    void confirmedOrdersAreWrittenBackInBatches() {
+        inventory.reserve("A", Map.of(1L, 2, 3L, 10));
+        inventory.reserve("B", Map.of(3L, 5));
+        inventory.confirm("A");
+        inventory.confirm("B");
+
+        writeBehind.flush();
+
+        assertEquals(3, dbStock(1L));
+        assertEquals(285, dbStock(3L));
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey(RedisInventory.PENDING_KEY)));
+        assertEquals(3, available(1L));
+        assertEquals(285, available(3L));
+    }
+
+    @Test
+    void cancellingPaidOrderOffsetsPendingDecrement() {
+        inventory.reserve("A", Map.of(3L, 10));
+        inventory.confirm("A");
+        inventory.restock(Map.of(3L, 10));
+
+        writeBehind.flush();
+
+        assertEquals(300, dbStock(3L));
+        assertEquals(300, available(3L));
+    }
+
+    @Test
+    void replayedBatchIsAppliedOnce() {
+        inventory.reserve("A", Map.of(3L, 10));
+        inventory.confirm("A");
+        // 模拟上次回写：数据库已提交，但进程在清理 Redis 前退出
+        RedisInventory.WriteBehindBatch batch = inventory.beginFlush("batch-1");
+        assertTrue(new ProductStockRepository(jdbcTemplate).applyStockDeltas(batch.batchId(), batch.deltas()));
+
+        writeBehind.flush();
+
+        assertEquals(290, dbStock(3L));
+        assertNull(inventory.beginFlush("batch-2"));
+    }
+
+    @Test
+    void reconcileRepairsDrift() {
+        inventory.reserve("A", Map.of(1L, 2));
+        inventory.reserve("B", Map.of(3L, 4));
+        inventory.confirm("B");
+        redisTemplate.opsForHash().put(RedisInventory.AVAILABLE_KEY, "1", "100");
+        jdbcTemplate.update("UPDATE products SET stock = 200 WHERE id = 3");
+
+        writeBehind.reconcile();
+
+        // 期望值 = 数据库库存 - 预占 - 待回写（回写已先完成）
+        assertEquals(3, available(1L));
+        assertEquals(196, dbStock(3L));
+        assertEquals(196, available(3L));
+    }
+
+    @Test
+    void expiredReservationsAreListed() {
+        RedisInventory shortLived = new RedisInventory(redisTemplate, new ProductStockRepository(jdbcTemplate), true, Duration.ZERO);
+        shortLived.reserve("A", Map.of(1L, 1));
+        inventory.reserve("B", Map.of(1L, 1));
+
+        assertEquals(List.of("A"), new ArrayList<>(inventory.expiredReservations(10, Duration.ZERO)));
+        assertTrue(inventory.expiredReservations(10, Duration.ofMinutes(1)).isEmpty());
+    }
+
+    private void insertProduct(long id, int stock) {
+        jdbcTemplate.update("INSERT INTO products (id, stock, update_time) VALUES (?, ?, CURRENT_TIMESTAMP)", id, stock);
+    }
+
+    private int dbStock(long id) {
+        Integer stock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, id);
+        return stock == null ? -1 : stock;
+    }
+
+    private int available(long id) {
+        return hashValue(RedisInventory.AVAILABLE_KEY, id);
+    }
+
+    private int hashValue(String key, long id) {
+        Object value = redisTemplate.opsForHash().get(key, String.valueOf(id));
+        return value == null ? 0 : Integer.parseInt((String) value);
+    }
+}
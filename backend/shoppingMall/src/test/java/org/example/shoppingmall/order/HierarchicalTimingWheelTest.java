@@ -0,0 +1,100 @@
+package org.example.shoppingmall.order;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分层时间轮测试：到期时刻、取消与替换、跨层级联、百万级任务
+ */
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void expiresOnFirstTickAtOrAfterDeadline() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 0);
+        wheel.add("A", 2500);
+        wheel.add("B", 3000);
+
+        assertEquals(List.of(), wheel.advance(2999));
+        assertEquals(List.of("A", "B"), wheel.advance(3000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 10_000);
+        wheel.add("A", 1);
+
+        assertEquals(List.of("A"), wheel.advance(11_000));
+    }
+
+    @Test
+    void cancelAndReplace() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 0);
+        wheel.add("A", 10);
+        wheel.add("B", 10);
+        wheel.add("C", 10);
+        assertTrue(wheel.cancel("B"));
+        assertFalse(wheel.cancel("B"));
+        wheel.add("C", 100_000);
+
+        assertEquals(List.of("A"), wheel.advance(99_999));
+        assertEquals(List.of("C"), wheel.advance(100_000));
+    }
+
+    @Test
+    void randomDeadlinesCascadeToExactTick() {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1, 0);
+        Random random = new Random(7);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long deadline = random.nextInt(5) == 0 ? random.nextInt(300_000) : random.nextInt(5_000);
+            deadlines.put(i, deadline);
+            wheel.add(i, deadline);
+        }
+
+        long now = 0;
+        while (now < 300_000) {
+            now += 1 + random.nextInt(700);
+            for (Integer key : wheel.advance(now)) {
+                long deadline = deadlines.remove(key);
+                assertTrue(deadline <= now, "任务提前到期: " + key);
+            }
+            long current = now;
+            deadlines.values().forEach(deadline -> assertTrue(deadline > current, "任务漏过到期时间"));
+        }
+        assertTrue(deadlines.isEmpty());
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void millionsOfPendingDeadlines() {
+        int count = 1_000_000;
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(1000, 0);
+        for (int i = 0; i < count; i++) {
+            // 分布在 0~30 分钟内
+            wheel.add(i, (long) (i % 1800) * 1000);
+        }
+        for (int i = 0; i < count; i += 2) {
+            wheel.cancel(i);
+        }
+        assertEquals(count / 2, wheel.size());
+
+        List<Integer> expired = new ArrayList<>();
+        for (long now = 0; now <= 1800_000; now += 60_000) {
+            expired.addAll(wheel.advance(now));
+        }
+        assertEquals(count / 2, expired.size());
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.shoppingmall.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.shoppingmall.entity.OrderStatus;
+import org.example.shoppingmall.repository.OrderRepository;
+import org.example.shoppingmall.util.OrderNoGenerator;
+import org.example.shoppingmall.util.OrderNoNodeLease;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 支付超时时间轮的订单归属：每个节点只加载自己节点号的订单，节点号无人租用的过期订单只由持有清扫租约的节点补登。
+ * Redis 使用 embedded-redis 启动的真实 redis-server，订单表用 mock 的 OrderRepository 代替。
+ */
+class PaymentTimeoutWheelTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void rebuildLoadsOnlyOwnNodeOrders() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.findDeadlineKeysByStatusAndNodeAfterId(eq(OrderStatus.PENDING_PAYMENT), eq("0012"), eq(0L), any()))
+                .thenReturn(Collections.singletonList(new Object[]{1L, "order-1", LocalDateTime.now()}));
+        PaymentTimeoutWheel wheel = newWheel(orderRepository, 12, new SimpleMeterRegistry());
+
+        wheel.rebuild();
+
+        verify(orderRepository).findDeadlineKeysByStatusAndNodeAfterId(eq(OrderStatus.PENDING_PAYMENT), eq("0012"), eq(0L), any());
+        verify(orderRepository, never()).findDeadlineKeysByStatusAndNodeAfterId(any(), eq("0013"), anyLong(), any());
+    }
+
+    @Test
+    void onlySweeperHolderLoadsOrphanedOrders() {
+        OrderRepository first = mock(OrderRepository.class);
+        OrderRepository second = mock(OrderRepository.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PaymentTimeoutWheel a = newWheel(first, 1, meterRegistry);
+        PaymentTimeoutWheel b = newWheel(second, 2, new SimpleMeterRegistry());
+        LocalDateTime overdue = LocalDateTime.now().minusHours(1);
+        when(first.findOrphanDeadlineKeys(any(), any(), anyInt(), any(), eq(0L), any()))
+                .thenReturn(Collections.singletonList(new Object[]{7L, "order-7", overdue}));
+
+        a.rescanOverdue();
+        b.rescanOverdue();
+
+        verify(first).findDeadlineKeysByStatusCreatedBeforeAndNodeAfterId(any(), any(), eq("0001"), eq(0L), any());
+        verify(second).findDeadlineKeysByStatusCreatedBeforeAndNodeAfterId(any(), any(), eq("0002"), eq(0L), any());
+        verify(second, never()).findOrphanDeadlineKeys(any(), any(), anyInt(), any(), anyLong(), any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> liveNodes = ArgumentCaptor.forClass(Collection.class);
+        verify(first).findOrphanDeadlineKeys(eq(OrderStatus.PENDING_PAYMENT), any(), eq(OrderNoGenerator.LENGTH),
+                liveNodes.capture(), eq(0L), any());
+        assertTrue(liveNodes.getValue().containsAll(List.of("0001", "0002")));
+        assertEquals(1.0, meterRegistry.get("order.payment_timeout.pending").gauge().value());
+
+        // 持有者的租约过期后由其他节点接手
+        redisTemplate.delete(PaymentTimeoutWheel.SWEEPER_KEY);
+        b.rescanOverdue();
+        verify(second).findOrphanDeadlineKeys(any(), any(), anyInt(), any(), eq(0L), any());
+    }
+
+    private static PaymentTimeoutWheel newWheel(OrderRepository orderRepository, int nodeId, SimpleMeterRegistry meterRegistry) {
+        OrderNoNodeLease lease = new OrderNoNodeLease(redisTemplate, Duration.ofHours(1));
+        OrderNoGenerator generator = new OrderNoGenerator(nodeId, lease);
+        when(orderRepository.findDeadlineKeysByStatusCreatedBeforeAndNodeAfterId(any(), any(), anyString(), anyLong(), any()))
+                .thenReturn(List.of());
+        return new PaymentTimeoutWheel(orderRepository, generator, lease, redisTemplate, meterRegistry,
+                true, Duration.ofMinutes(30), Duration.ofSeconds(1), Duration.ofMinutes(5));
+    }
+}
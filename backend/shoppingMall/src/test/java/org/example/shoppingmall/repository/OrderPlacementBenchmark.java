@@ -0,0 +1,180 @@
+package org.example.shoppingmall.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.shoppingmall.entity.Order;
+import org.example.shoppingmall.entity.OrderItem;
+import org.example.shoppingmall.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单写路径的 JMH 基准：对比 1、10、50 个订单项时单个订单的耗时
+ * <p>
+ * <ul>
+ *   <li>perItem：旧写法，按请求顺序逐个 SELECT 商品、整行 UPDATE 库存、单条 INSERT 订单项（Hibernate 对自增主键实体的级联保存即如此）；</li>
+ *   <li>batched：一次 IN 查询取全部商品，{@link ProductStockRepository#decreaseStock} 按商品ID升序批量条件扣减，
+ *       {@link OrderItemBatchRepository#insertAll} 批量插入订单项。</li>
+ * </ul>
+ * 每次调用在一个事务里执行并回滚，库存不会被耗尽。数据库为 H2 内存库，没有网络往返，
+ * 测出的差距主要是语句数量带来的开销，对 MySQL 来说实际收益会明显更大。
+ * 运行方式：mvn test-compile 后直接运行 main 方法。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPlacementBenchmark {
+
+    private static final int PRODUCT_COUNT = 1000;
+    private static final String INSERT_ITEM_SQL = "INSERT INTO order_items (order_id, product_id, product_name, product_image, "
+            + "product_specs, quantity, unit_price, subtotal, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Param({"1", "10", "50"})
+    private int lineItems;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ProductStockRepository productStockRepository;
+    private OrderItemBatchRepository orderItemBatchRepository;
+    private Order order;
+    private List<Long> productIds;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:order_placement_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL, "
+                + "price DECIMAL(10, 2) NOT NULL, stock INT NOT NULL, sales INT NOT NULL DEFAULT 0, update_time TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE order_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id BIGINT NOT NULL, "
+                + "product_id BIGINT NOT NULL, product_name VARCHAR(255) NOT NULL, product_image VARCHAR(255), "
+                + "product_specs VARCHAR(500), quantity INT NOT NULL, unit_price DECIMAL(10, 2) NOT NULL, "
+                + "subtotal DECIMAL(10, 2) NOT NULL, created_at TIMESTAMP NOT NULL)");
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= PRODUCT_COUNT; id++) {
+            rows.add(new Object[]{id, "商品 " + id, BigDecimal.valueOf(1999, 2), 1_000_000});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (id, name, price, stock, update_time) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)", rows);
+        productStockRepository = new ProductStockRepository(jdbcTemplate);
+        orderItemBatchRepository = new OrderItemBatchRepository(jdbcTemplate);
+        order = new Order();
+        order.setId(1L);
+        // 请求里的商品ID故意打乱，旧写法按请求顺序加锁
+        productIds = new ArrayList<>();
+        for (int i = 0; i < lineItems; i++) {
+            productIds.add((long) (i * 37 % PRODUCT_COUNT) + 1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int perItem() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            int inserted = 0;
+            for (Long productId : productIds) {
+                Map<String, Object> product = jdbcTemplate.queryForMap(
+                        "SELECT id, name, price, stock FROM products WHERE id = ?", productId);
+                int stock = (Integer) product.get("STOCK");
+                BigDecimal price = (BigDecimal) product.get("PRICE");
+                jdbcTemplate.update("UPDATE products SET name = ?, price = ?, stock = ?, update_time = ? WHERE id = ?",
+                        product.get("NAME"), price, stock - 1, now, productId);
+                inserted += jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(INSERT_ITEM_SQL, Statement.RETURN_GENERATED_KEYS);
+                    ps.setLong(1, order.getId());
+                    ps.setLong(2, productId);
+                    ps.setString(3, (String) product.get("NAME"));
+                    ps.setString(4, null);
+                    ps.setString(5, null);
+                    ps.setInt(6, 1);
+                    ps.setBigDecimal(7, price);
+                    ps.setBigDecimal(8, price);
+                    ps.setTimestamp(9, now);
+                    return ps;
+                });
+            }
+            return inserted;
+        });
+    }
+
+    @Benchmark
+    public int batched() {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Map<Long, Product> products = new HashMap<>();
+            namedJdbcTemplate.query("SELECT id, name, price FROM products WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", productIds), rs -> {
+                        Product product = new Product();
+                        product.setId(rs.getLong("id"));
+                        product.setName(rs.getString("name"));
+                        product.setPrice(rs.getBigDecimal("price"));
+                        products.put(product.getId(), product);
+                    });
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            productIds.forEach(id -> quantities.merge(id, 1, Integer::sum));
+            if (!productStockRepository.decreaseStock(quantities).isEmpty()) {
+                throw new IllegalStateException("库存不足");
+            }
+            List<OrderItem> items = new ArrayList<>();
+            for (Long productId : productIds) {
+                Product product = products.get(productId);
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setProductName(product.getName());
+                item.setQuantity(1);
+                item.setUnitPrice(product.getPrice());
+                item.setSubtotal(product.getPrice());
+                items.add(item);
+            }
+            orderItemBatchRepository.insertAll(items);
+            return items.size();
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OrderPlacementBenchmark.class.getSimpleName()).build()).run();
+    }
+}
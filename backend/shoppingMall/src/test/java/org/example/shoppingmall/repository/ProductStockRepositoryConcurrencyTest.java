@@ -0,0 +1,156 @@
+package org.example.shoppingmall.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 条件扣减库存的并发压测
+ * <p>
+ * 使用 H2（MySQL 模式）内存库，数千个订单在多线程下同时抢购少量库存，每个订单在独立事务中批量扣减 1~3 个商品，
+ * 任一商品库存不足则整单回滚。断言库存从不为负，且成功订单的扣减总量与库存减少量逐个商品严格相等（零超卖、零丢失更新）。
+ */
+class ProductStockRepositoryConcurrencyTest {
+
+    private static final int PRODUCT_COUNT = 3;
+    private static final int INITIAL_STOCK = 500;
+    private static final int ORDER_COUNT = 5000;
+    private static final int THREADS = 64;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ProductStockRepository stockRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:stock_" + System.nanoTime() + ";MODE=MySQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(THREADS);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, stock INT NOT NULL, sales INT NOT NULL DEFAULT 0, update_time TIMESTAMP NOT NULL)");
+        for (long id = 1; id <= PRODUCT_COUNT; id++) {
+            jdbcTemplate.update("INSERT INTO products (id, stock, update_time) VALUES (?, ?, CURRENT_TIMESTAMP)", id, INITIAL_STOCK);
+        }
+        stockRepository = new ProductStockRepository(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        AtomicLongArray sold = new AtomicLongArray(PRODUCT_COUNT + 1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long demand = 0;
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Map<Long, Integer> order = randomOrder();
+            demand += order.values().stream().mapToInt(Integer::intValue).sum();
+            futures.add(pool.submit(() -> {
+                start.await();
+                boolean ok = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    if (stockRepository.decreaseStock(order).isEmpty()) {
+                        return true;
+                    }
+                    status.setRollbackOnly();
+                    return false;
+                }));
+                if (ok) {
+                    order.forEach((id, qty) -> sold.addAndGet(id.intValue(), qty));
+                    accepted.incrementAndGet();
+                } else {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(demand > (long) PRODUCT_COUNT * INITIAL_STOCK, "需求量应远超库存，才能验证超卖");
+        assertEquals(ORDER_COUNT, accepted.get() + rejected.get());
+        assertTrue(accepted.get() > 0);
+        assertTrue(rejected.get() > 0);
+        for (long id = 1; id <= PRODUCT_COUNT; id++) {
+            int stock = stockOf(id);
+            assertTrue(stock >= 0, "商品 " + id + " 库存为负: " + stock);
+            assertEquals(INITIAL_STOCK - stock, sold.get((int) id), "商品 " + id + " 扣减量与成功订单不一致");
+        }
+    }
+
+    @Test
+    void failedItemRollsBackWholeOrder() {
+        jdbcTemplate.update("UPDATE products SET stock = 0 WHERE id = 2");
+        Map<Long, Integer> order = new LinkedHashMap<>();
+        order.put(1L, 3);
+        order.put(2L, 1);
+
+        List<Long> failed = transactionTemplate.execute(status -> {
+            List<Long> result = stockRepository.decreaseStock(order);
+            if (!result.isEmpty()) {
+                status.setRollbackOnly();
+            }
+            return result;
+        });
+
+        assertEquals(List.of(2L), failed);
+        assertEquals(INITIAL_STOCK, stockOf(1L));
+        assertEquals(0, stockOf(2L));
+    }
+
+    @Test
+    void increaseStockRestoresQuantities() {
+        stockRepository.decreaseStock(Map.of(1L, 5, 3L, 2));
+        stockRepository.increaseStock(Map.of(1L, 5, 3L, 2));
+
+        assertEquals(INITIAL_STOCK, stockOf(1L));
+        assertEquals(INITIAL_STOCK, stockOf(3L));
+    }
+
+    private Map<Long, Integer> randomOrder() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Long, Integer> order = new LinkedHashMap<>();
+        int items = 1 + random.nextInt(PRODUCT_COUNT);
+        for (int i = 0; i < items; i++) {
+            order.merge(1L + random.nextInt(PRODUCT_COUNT), 1 + random.nextInt(2), Integer::sum);
+        }
+        return order;
+    }
+
+    private int stockOf(long id) {
+        Integer stock = jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, id);
+        return stock == null ? -1 : stock;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.shoppingmall.search;
+
+import org.example.shoppingmall.dto.SearchFacets;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分面位图：位图的扩容与交集计数、价格区间边界、删除文档，以及各维度排除自身筛选条件的计数
+ */
+class FacetIndexTest {
+
+    private static final BigDecimal[] PRICE_BOUNDS = {new BigDecimal("100"), new BigDecimal("500")};
+
+    @Test
+    void bitmapGrowsAndCountsIntersection() {
+        DocBitmap small = new DocBitmap(1);
+        DocBitmap large = new DocBitmap(1);
+        small.set(3);
+        small.set(63);
+        large.set(3);
+        large.set(64);
+        large.set(1000);
+
+        assertTrue(large.get(1000));
+        assertFalse(large.get(999));
+        assertFalse(small.get(5000));
+        assertEquals(3, large.cardinality());
+        // 长度不同的位图只比较公共部分
+        assertEquals(1, small.andCardinality(large));
+        assertEquals(1, large.andCardinality(small));
+
+        large.clear(3);
+        large.clear(100_000);
+        assertEquals(0, small.andCardinality(large));
+        assertEquals(2, large.cardinality());
+    }
+
+    @Test
+    void countsValuesWithinBaseOrderedByCount() {
+        FacetIndex facets = new FacetIndex(PRICE_BOUNDS);
+        facets.add(0, 1L, "手机", 10L, "华为", 99_99L);
+        facets.add(1, 1L, "手机", 11L, "小米", 100_00L);
+        facets.add(2, 2L, "耳机", 10L, null, 499_99L);
+        facets.add(3, 2L, "耳机", 10L, "华为", 500_00L);
+        facets.add(4, 3L, "配件", null, null, null);
+        DocBitmap base = bitmap(0, 1, 2, 3, 4);
+
+        SearchFacets result = facets.count(base, base, base);
+
+        assertEquals(List.of(new SearchFacets.FacetCount(1L, "手机", 2), new SearchFacets.FacetCount(2L, "耳机", 2),
+                new SearchFacets.FacetCount(3L, "配件", 1)), result.getCategories());
+        assertEquals(List.of(new SearchFacets.FacetCount(10L, "华为", 3), new SearchFacets.FacetCount(11L, "小米", 1)),
+                result.getBrands());
+        // 分界点属于上一个区间的上限、下一个区间的下限
+        assertEquals(List.of(
+                new SearchFacets.PriceRangeCount(new BigDecimal("0.00"), new BigDecimal("100.00"), 1),
+                new SearchFacets.PriceRangeCount(new BigDecimal("100.00"), new BigDecimal("500.00"), 2),
+                new SearchFacets.PriceRangeCount(new BigDecimal("500.00"), null, 1)), result.getPriceRanges());
+
+        SearchFacets narrowed = facets.count(bitmap(2), bitmap(2), bitmap(2));
+        assertEquals(List.of(new SearchFacets.FacetCount(2L, "耳机", 1)), narrowed.getCategories());
+        assertEquals(1, narrowed.getPriceRanges().size());
+    }
+
+    @Test
+    void removedAndClearedDocsAreNotCounted() {
+        FacetIndex facets = new FacetIndex(PRICE_BOUNDS);
+        facets.add(0, 1L, "手机", 10L, "华为", 50_00L);
+        facets.add(1, 1L, "手机", 10L, "华为", 50_00L);
+        DocBitmap base = bitmap(0, 1);
+
+        facets.remove(1, 1L, 10L, 50_00L);
+        SearchFacets result = facets.count(base, base, base);
+        assertEquals(1, result.getCategories().get(0).getCount());
+        assertEquals(1, result.getBrands().get(0).getCount());
+        assertEquals(1, result.getPriceRanges().get(0).getCount());
+
+        facets.clearDocs();
+        result = facets.count(base, base, base);
+        assertTrue(result.getCategories().isEmpty());
+        assertTrue(result.getPriceRanges().isEmpty());
+
+        // 名称在重新登记时保留
+        facets.add(0, 1L, null, 10L, null, null);
+        assertEquals("手机", facets.count(base, base, base).getCategories().get(0).getName());
+    }
+
+    @Test
+    void eachDimensionIgnoresItsOwnFilter() {
+        ProductSearchIndex index = new ProductSearchIndex(true, PRICE_BOUNDS);
+        index.beginBulkLoad();
+        index.bulkLoad(List.of(
+                document(1L, 1L, 10L, "99"),
+                document(2L, 1L, 11L, "199"),
+                document(3L, 2L, 10L, "199"),
+                document(4L, 2L, 10L, "899")));
+        index.completeBulkLoad();
+
+        ProductSearchResult result = index.search(ProductSearchQuery.builder().keyword("耳机").categoryId(1L)
+                .minPrice(new BigDecimal("100")).maxPrice(new BigDecimal("499")).limit(10).withFacets(true).build());
+
+        assertEquals(List.of(2L), result.getProductIds());
+        SearchFacets facets = result.getFacets();
+        // 分类计数只受价格约束：两个分类在价格区间内各有一件
+        assertEquals(List.of(new SearchFacets.FacetCount(1L, "分类1", 1), new SearchFacets.FacetCount(2L, "分类2", 1)),
+                facets.getCategories());
+        // 品牌计数受分类和价格共同约束
+        assertEquals(List.of(new SearchFacets.FacetCount(11L, "品牌11", 1)), facets.getBrands());
+        // 价格计数只受分类约束
+        assertEquals(List.of(
+                new SearchFacets.PriceRangeCount(new BigDecimal("0.00"), new BigDecimal("100.00"), 1),
+                new SearchFacets.PriceRangeCount(new BigDecimal("100.00"), new BigDecimal("500.00"), 1)),
+                facets.getPriceRanges());
+    }
+
+    private static DocBitmap bitmap(int... docs) {
+        DocBitmap bitmap = new DocBitmap();
+        for (int doc : docs) {
+            bitmap.set(doc);
+        }
+        return bitmap;
+    }
+
+    private static ProductDocument document(Long id, Long categoryId, Long brandId, String price) {
+        return new ProductDocument(id, "蓝牙耳机", null, brandId, "品牌" + brandId, categoryId, "分类" + categoryId,
+                new BigDecimal(price), 1, false, 0, LocalDateTime.of(2024, 5, 1, 0, 0));
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.shoppingmall.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 倒排表的差值 + VByte 编解码测试
+ */
+class PostingListTest {
+
+    @Test
+    void smallDeltasAndFrequenciesTakeOneByteEach() {
+        PostingList list = new PostingList();
+        for (int doc = 0; doc < 100; doc++) {
+            list.append(doc * 3, 1);
+        }
+
+        assertEquals(200, list.byteLength());
+        assertEquals(297, list.lastDoc());
+    }
+
+    @Test
+    void decodeRestoresDocsAndFrequenciesAcrossVByteBoundaries() {
+        int[] docs = {0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, Integer.MAX_VALUE};
+        int[] freqs = {0, 1, 127, 128, 0xFFFF, 1, 0x7FFFFFFF, 15, 0x8421};
+        PostingList list = new PostingList();
+        for (int i = 0; i < docs.length; i++) {
+            list.append(docs[i], freqs[i]);
+        }
+
+        int[] decodedDocs = new int[list.size()];
+        int[] decodedFreqs = new int[list.size()];
+        list.decode(decodedDocs, decodedFreqs);
+
+        assertArrayEquals(docs, decodedDocs);
+        assertArrayEquals(freqs, decodedFreqs);
+        assertArrayEquals(docs, list.toArray());
+    }
+
+    @Test
+    void randomPostingsRoundTrip() {
+        Random random = new Random(42);
+        int[] docs = new int[10_000];
+        int[] freqs = new int[docs.length];
+        PostingList list = new PostingList();
+        int doc = -1;
+        for (int i = 0; i < docs.length; i++) {
+            doc += 1 + random.nextInt(i % 100 == 0 ? 100_000 : 50);
+            docs[i] = doc;
+            freqs[i] = random.nextInt(1 << 16);
+            list.append(doc, freqs[i]);
+        }
+        list.trimToSize();
+
+        int[] decodedDocs = new int[docs.length];
+        int[] decodedFreqs = new int[docs.length];
+        list.decode(decodedDocs, decodedFreqs);
+        assertArrayEquals(docs, decodedDocs);
+        assertArrayEquals(freqs, decodedFreqs);
+    }
+
+    @Test
+    void remapDropsDeletedDocsAndKeepsFrequencies() {
+        PostingList list = new PostingList();
+        list.append(1, 10);
+        list.append(3, 30);
+        list.append(4, 40);
+
+        PostingList remapped = list.remap(new int[]{0, 0, -1, -1, 1});
+
+        int[] docs = new int[2];
+        int[] freqs = new int[2];
+        remapped.decode(docs, freqs);
+        assertArrayEquals(new int[]{0, 1}, docs);
+        assertArrayEquals(new int[]{10, 40}, freqs);
+    }
+
+    @Test
+    void docsMustBeAppendedInIncreasingOrder() {
+        PostingList list = new PostingList();
+        list.append(5, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> list.append(5, 1));
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.shoppingmall.search;
+
+import org.example.shoppingmall.cache.CacheInvalidationBus;
+import org.example.shoppingmall.cache.ProductCacheTags;
+import org.example.shoppingmall.repository.ProductDeletionRepository;
+import org.example.shoppingmall.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品快照的跨节点同步：其他节点的变更通知从数据库重读后应用，定时增量同步补上丢失的通知和删除
+ */
+class ProductCatalogSyncTest {
+
+    private static final String CHANNEL = "cache:invalidation";
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductDeletionRepository productDeletionRepository = mock(ProductDeletionRepository.class);
+    private final ProductDocumentListener listener = mock(ProductDocumentListener.class);
+    private final ProductCacheTags productCacheTags = mock(ProductCacheTags.class);
+    private CacheInvalidationBus bus;
+    private ProductCatalogSync sync;
+
+    @BeforeEach
+    void setUp() {
+        when(listener.isEnabled()).thenReturn(true);
+        bus = new CacheInvalidationBus(redisTemplate, CHANNEL);
+        sync = new ProductCatalogSync(productRepository, productDeletionRepository, List.of(listener), bus,
+                productCacheTags, Duration.ofMinutes(1), Duration.ofHours(24));
+        ReflectionTestUtils.setField(sync, "loadBatchSize", 100);
+    }
+
+    @Test
+    void localUpsertIsAppliedAndPublished() {
+        ProductDocument document = document(5L, 7L, 1);
+        sync.upsert(document);
+
+        verify(listener).upsert(document);
+        verify(redisTemplate).convertAndSend(eq(CHANNEL), matches("[^|]+\\|M\\|product-catalog\\|U\\|5\\|7"));
+    }
+
+    @Test
+    void remoteUpsertReloadsProductFromDatabase() {
+        ProductDocument current = document(5L, 8L, 1);
+        when(productRepository.findIndexDocument(5L)).thenReturn(Optional.of(current));
+
+        receive("other-node|M|product-catalog|U|5|7");
+
+        verify(listener).upsert(current);
+        verify(productCacheTags).onRemoteIndexChanged(Set.of(7L, 8L));
+    }
+
+    @Test
+    void remoteUpsertOfDeletedProductRemovesIt() {
+        when(productRepository.findIndexDocument(5L)).thenReturn(Optional.empty());
+
+        receive("other-node|M|product-catalog|U|5|");
+
+        verify(listener).remove(5L);
+        verify(listener, never()).upsert(any());
+    }
+
+    @Test
+    void remoteRemoveDoesNotQueryDatabase() {
+        receive("other-node|M|product-catalog|D|5|7");
+
+        verify(listener).remove(5L);
+        verify(productRepository, never()).findIndexDocument(anyLong());
+        verify(productCacheTags).onRemoteIndexChanged(Set.of(7L));
+    }
+
+    @Test
+    void resyncStartsAfterBulkLoadAndAdvancesWatermark() {
+        sync.resync();
+        verify(productRepository, never()).findIndexDocumentsUpdatedSince(any(), anyLong(), any());
+
+        when(productRepository.findIndexDocumentsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        sync.onApplicationReady();
+        verify(listener, timeout(5000)).completeBulkLoad();
+
+        ProductDocument changed = document(3L, 7L, 1);
+        ProductDocument unlisted = document(4L, 7L, 0);
+        when(productRepository.findIndexDocumentsUpdatedSince(any(), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(changed, unlisted));
+        when(productRepository.findIndexDocumentsUpdatedSince(any(), eq(4L), any(Pageable.class))).thenReturn(List.of());
+        when(productDeletionRepository.findProductIdsDeletedSince(any())).thenReturn(List.of(9L));
+
+        sync.resync();
+        sync.resync();
+
+        verify(listener, times(2)).upsert(changed);
+        verify(listener, times(2)).upsert(unlisted);
+        verify(listener, times(2)).remove(9L);
+        verify(productDeletionRepository, times(2)).deleteDeletedBefore(any());
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(productRepository, times(2)).findIndexDocumentsUpdatedSince(since.capture(), eq(0L), any(Pageable.class));
+        assertTrue(since.getAllValues().get(1).isAfter(since.getAllValues().get(0)));
+    }
+
+    private void receive(String body) {
+        bus.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private static ProductDocument document(Long productId, Long categoryId, int status) {
+        return new ProductDocument(productId, "商品" + productId, null, null, null, categoryId, null,
+                BigDecimal.TEN, status, false, 0, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.shoppingmall.search;
+
+import org.example.shoppingmall.entity.ProductRating;
+import org.example.shoppingmall.repository.ProductRatingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品好评榜：平均分与评论数的排序、最少评论数门槛、上下架与删除，以及加载期间的刷新不被全量数据覆盖
+ */
+class ProductRatingLeaderboardTest {
+
+    private final ProductRatingRepository productRatingRepository = mock(ProductRatingRepository.class);
+
+    @Test
+    void rankedByAverageThenCountThenId() {
+        ProductRatingLeaderboard leaderboard = newLeaderboard(2);
+        when(productRatingRepository.findAll()).thenReturn(List.of(
+                rating(1L, 3, 15),   // 5.0
+                rating(2L, 10, 45),  // 4.5
+                rating(3L, 2, 9),    // 4.5，评论数少
+                rating(4L, 2, 9),    // 4.5，与 3 完全相同，按商品ID降序
+                rating(5L, 1, 5)));  // 5.0，评论数不足门槛
+        load(leaderboard, 1L, 2L, 3L, 4L, 5L);
+
+        assertTrue(leaderboard.isReady());
+        assertEquals(List.of(1L, 2L, 4L, 3L), leaderboard.topRated(10));
+        assertEquals(List.of(1L, 2L), leaderboard.topRated(2));
+        assertTrue(leaderboard.topRated(0).isEmpty());
+    }
+
+    @Test
+    void refreshAndListingChangesRerank() {
+        ProductRatingLeaderboard leaderboard = newLeaderboard(1);
+        when(productRatingRepository.findAll()).thenReturn(List.of(rating(1L, 1, 5), rating(2L, 1, 4), rating(3L, 1, 3)));
+        load(leaderboard, 1L, 2L, 3L);
+
+        when(productRatingRepository.findById(3L)).thenReturn(Optional.of(rating(3L, 2, 10)));
+        leaderboard.refreshAfterCommit(3L);
+        assertEquals(List.of(3L, 1L, 2L), leaderboard.topRated(10));
+
+        // 下架后离榜，重新上架时沿用已有评分
+        leaderboard.upsert(document(1L, 0));
+        assertEquals(List.of(3L, 2L), leaderboard.topRated(10));
+        leaderboard.upsert(document(1L, 1));
+        assertEquals(List.of(3L, 1L, 2L), leaderboard.topRated(10));
+
+        // 评论全部删除后汇总行计数为 0
+        when(productRatingRepository.findById(3L)).thenReturn(Optional.of(rating(3L, 0, 0)));
+        leaderboard.refreshAfterCommit(3L);
+        leaderboard.remove(2L);
+        assertEquals(List.of(1L), leaderboard.topRated(10));
+    }
+
+    @Test
+    void refreshDuringLoadIsNotOverwrittenByBulkRead() {
+        ProductRatingLeaderboard leaderboard = newLeaderboard(1);
+        leaderboard.beginBulkLoad();
+        leaderboard.bulkLoad(List.of(document(1L, 1), document(2L, 1)));
+        assertFalse(leaderboard.isReady());
+
+        when(productRatingRepository.findById(1L)).thenReturn(Optional.of(rating(1L, 4, 20)));
+        leaderboard.refreshAfterCommit(1L);
+        // 全量读取在刷新之前开始，读到的是旧值
+        when(productRatingRepository.findAll()).thenReturn(List.of(rating(1L, 1, 1), rating(2L, 1, 4)));
+        leaderboard.completeBulkLoad();
+
+        assertEquals(List.of(1L, 2L), leaderboard.topRated(10));
+    }
+
+    @Test
+    void resyncAppliesRowsUpdatedOnOtherNodes() {
+        ProductRatingLeaderboard leaderboard = newLeaderboard(1);
+        leaderboard.resync();
+        verify(productRatingRepository, never()).findByUpdatedAtGreaterThanEqual(any());
+
+        when(productRatingRepository.findAll()).thenReturn(new ArrayList<>(List.of(rating(1L, 1, 5), rating(2L, 1, 4))));
+        load(leaderboard, 1L, 2L);
+        when(productRatingRepository.findByUpdatedAtGreaterThanEqual(any())).thenReturn(List.of(rating(2L, 3, 15)));
+
+        leaderboard.resync();
+
+        assertEquals(List.of(2L, 1L), leaderboard.topRated(10));
+    }
+
+    private ProductRatingLeaderboard newLeaderboard(long minRatingCount) {
+        return new ProductRatingLeaderboard(productRatingRepository, true, minRatingCount, Duration.ofMinutes(1));
+    }
+
+    private static void load(ProductRatingLeaderboard leaderboard, Long... productIds) {
+        List<ProductDocument> documents = new ArrayList<>();
+        for (Long productId : productIds) {
+            documents.add(document(productId, 1));
+        }
+        leaderboard.beginBulkLoad();
+        leaderboard.bulkLoad(documents);
+        leaderboard.completeBulkLoad();
+    }
+
+    private static ProductRating rating(Long productId, long count, long sum) {
+        ProductRating rating = new ProductRating();
+        rating.setProductId(productId);
+        rating.setRatingCount(count);
+        rating.setRatingSum(sum);
+        rating.setUpdatedAt(LocalDateTime.now());
+        return rating;
+    }
+
+    private static ProductDocument document(Long productId, int status) {
+        return new ProductDocument(productId, "商品" + productId, null, null, null, null, null,
+                BigDecimal.TEN, status, false, 0, LocalDateTime.of(2024, 5, 1, 0, 0));
+    }
+}
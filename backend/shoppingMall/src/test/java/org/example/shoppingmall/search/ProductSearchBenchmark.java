@@ -0,0 +1,98 @@
+package org.example.shoppingmall.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品索引检索与 BM25 打分的 JMH 基准
+ * <p>
+ * 构造 productCount 个中文商品，"手机" 一词命中约六成商品，用来衡量对数万候选打分并取 Top-20 的耗时。
+ * 运行方式：mvn test-compile 后直接运行 main 方法。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String[] BRANDS = {"华为", "小米", "苹果", "三星", "荣耀", "OPPO", "vivo", "联想"};
+    private static final String[] CATEGORIES = {"手机", "平板电脑", "笔记本", "智能手表", "耳机"};
+    private static final String[] ADJECTIVES = {"旗舰", "轻薄", "高性能", "超长续航", "5G", "全面屏", "游戏", "商务"};
+    private static final String[] NOUNS = {"手机", "手机壳", "充电器", "数据线", "保护膜", "蓝牙耳机", "平板", "手表"};
+
+    @Param({"50000"})
+    private int productCount;
+
+    private ProductSearchIndex index;
+    private ProductSearchQuery relevanceQuery;
+    private ProductSearchQuery createTimeQuery;
+    private ProductSearchQuery multiTermQuery;
+
+    @Setup
+    public void setUp() {
+        index = new ProductSearchIndex(true,
+                new BigDecimal[]{new BigDecimal("100"), new BigDecimal("1000"), new BigDecimal("5000")});
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= productCount; id++) {
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            String noun = random.nextInt(10) < 6 ? "手机" : NOUNS[random.nextInt(NOUNS.length)];
+            String name = brand + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + noun + " " + id;
+            String description = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + "，"
+                    + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + NOUNS[random.nextInt(NOUNS.length)];
+            long categoryId = random.nextInt(CATEGORIES.length) + 1;
+            index.upsert(new ProductDocument(id, name, description, (long) brand.hashCode(), brand,
+                    categoryId, CATEGORIES[(int) categoryId - 1], BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+                    1, random.nextInt(20) == 0, random.nextInt(10_000), now.minusMinutes(id)));
+        }
+        relevanceQuery = ProductSearchQuery.builder().keyword("手机")
+                .sortField(ProductSearchQuery.SortField.RELEVANCE).limit(20).build();
+        createTimeQuery = ProductSearchQuery.builder().keyword("手机").limit(20).build();
+        multiTermQuery = ProductSearchQuery.builder().keyword("华为 旗舰手机")
+                .sortField(ProductSearchQuery.SortField.RELEVANCE).limit(20).build();
+    }
+
+    @Benchmark
+    public ProductSearchResult relevanceSingleTerm() {
+        return index.search(relevanceQuery);
+    }
+
+    @Benchmark
+    public ProductSearchResult createTimeSingleTerm() {
+        return index.search(createTimeQuery);
+    }
+
+    @Benchmark
+    public ProductSearchResult relevanceMultiTerm() {
+        return index.search(multiTermQuery);
+    }
+
+    @Benchmark
+    public List<String> tokenizeName() {
+        return ProductTokenizer.tokenize("华为 Mate 60 Pro 旗舰手机 12GB+512GB 雅丹黑");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProductSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.shoppingmall.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 搜索索引的 BM25F 相关度排序：字段权重（名称 > 品牌 > 描述）、字段长度归一化、多词求交和前缀匹配，
+ * 以及按排序位置续读（search after）与一次取全量结果的顺序一致
+ */
+class ProductSearchIndexTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 5, 1, 0, 0);
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(true, new BigDecimal[]{new BigDecimal("100")});
+    }
+
+    @Test
+    void nameMatchOutranksBrandAndDescriptionMatch() {
+        load(document(1L, "运动水杯", "适合搭配降噪耳机使用", "乐扣", 0),
+                document(2L, "降噪耳机", "旗舰音质", "索尼", 0),
+                document(3L, "蓝牙音箱", "便携", "降噪耳机专卖", 0));
+
+        assertEquals(List.of(2L, 3L, 1L), relevance("降噪耳机"));
+    }
+
+    @Test
+    void shorterFieldOutranksLongerFieldWithSameFrequency() {
+        load(document(1L, "无线耳机 运动 跑步 防水 挂耳式 超长续航 大电量", null, null, 0),
+                document(2L, "无线耳机", null, null, 0),
+                document(3L, "无线耳机 入耳式", null, null, 0));
+
+        assertEquals(List.of(2L, 3L, 1L), relevance("无线耳机"));
+    }
+
+    @Test
+    void equalScoresAreOrderedBySalesThenProductId() {
+        load(document(1L, "机械键盘", null, null, 5),
+                document(2L, "机械键盘", null, null, 50),
+                document(3L, "机械键盘", null, null, 5));
+
+        assertEquals(List.of(2L, 3L, 1L), relevance("机械键盘"));
+    }
+
+    @Test
+    void everyQueryTermMustMatchAndLastLatinTermIsPrefix() {
+        load(document(1L, "Apple iPhone 15 手机", null, null, 0),
+                document(2L, "Apple Watch", null, null, 0),
+                document(3L, "华为手机", null, null, 0));
+
+        assertEquals(List.of(1L), relevance("apple 手机"));
+        assertEquals(List.of(1L), relevance("apple iph"));
+        assertEquals(2, search("apple", ProductSearchQuery.SortField.RELEVANCE).getTotal());
+    }
+
+    @Test
+    void unlistedAndRemovedProductsAreNotReturned() {
+        load(document(1L, "降噪耳机", null, null, 0), document(2L, "降噪耳机 Pro", null, null, 0));
+
+        index.upsert(new ProductDocument(1L, "降噪耳机", null, null, null, null, null, BigDecimal.TEN, 0, false, 0, TIME));
+        assertEquals(List.of(2L), relevance("降噪耳机"));
+
+        index.remove(2L);
+        assertEquals(List.of(), relevance("降噪耳机"));
+    }
+
+    @Test
+    void searchAfterContinuesWhereThePreviousPageEnded() {
+        List<ProductDocument> documents = new ArrayList<>();
+        for (long id = 1; id <= 25; id++) {
+            // 名称长度不同得分不同，销量有重复，用来覆盖得分、销量、商品ID三级次序
+            documents.add(document(id, "蓝牙耳机" + " 配件".repeat((int) (id % 4)), null, null, (int) (id % 3)));
+        }
+        documents.add(document(26L, "机械键盘", null, null, 0));
+        load(documents.toArray(new ProductDocument[0]));
+
+        for (ProductSearchQuery.SortField sortField : ProductSearchQuery.SortField.values()) {
+            for (boolean ascending : new boolean[]{false, true}) {
+                List<Long> expected = index.search(ProductSearchQuery.builder().keyword("蓝牙耳机")
+                        .sortField(sortField).ascending(ascending).limit(100).build()).getProductIds();
+                assertEquals(25, expected.size());
+
+                List<Long> scrolled = new ArrayList<>();
+                SortPosition after = null;
+                ProductSearchResult page;
+                do {
+                    page = index.search(ProductSearchQuery.builder().keyword("蓝牙耳机").sortField(sortField)
+                            .ascending(ascending).searchAfter(after).withSortPositions(true).limit(7).build());
+                    scrolled.addAll(page.getProductIds());
+                    List<SortPosition> positions = page.getSortPositions();
+                    assertEquals(page.getProductIds().size(), positions.size());
+                    if (!positions.isEmpty()) {
+                        SortPosition last = positions.get(positions.size() - 1);
+                        // 游标中保存的是格式化后的位置，续读前先经过一次往返
+                        after = SortPosition.parse(last.format(), last.getProductId());
+                    }
+                } while (!page.getProductIds().isEmpty());
+
+                assertEquals(expected, scrolled, sortField + (ascending ? " asc" : " desc"));
+            }
+        }
+    }
+
+    @Test
+    void searchAfterRemovedProductStillSeeksByPosition() {
+        load(document(1L, "降噪耳机", null, null, 3), document(2L, "降噪耳机", null, null, 2),
+                document(3L, "降噪耳机", null, null, 1));
+        ProductSearchResult first = index.search(ProductSearchQuery.builder().keyword("降噪耳机")
+                .sortField(ProductSearchQuery.SortField.SALES).withSortPositions(true).limit(2).build());
+        assertEquals(List.of(1L, 2L), first.getProductIds());
+
+        index.remove(2L);
+        ProductSearchResult next = index.search(ProductSearchQuery.builder().keyword("降噪耳机")
+                .sortField(ProductSearchQuery.SortField.SALES).searchAfter(first.getSortPositions().get(1)).limit(2).build());
+        assertEquals(List.of(3L), next.getProductIds());
+    }
+
+    private void load(ProductDocument... documents) {
+        index.beginBulkLoad();
+        index.bulkLoad(List.of(documents));
+        index.completeBulkLoad();
+    }
+
+    private List<Long> relevance(String keyword) {
+        return search(keyword, ProductSearchQuery.SortField.RELEVANCE).getProductIds();
+    }
+
+    private ProductSearchResult search(String keyword, ProductSearchQuery.SortField sortField) {
+        return index.search(ProductSearchQuery.builder().keyword(keyword).sortField(sortField).limit(10).build());
+    }
+
+    private static ProductDocument document(Long id, String name, String description, String brand, int sales) {
+        return new ProductDocument(id, name, description, brand == null ? null : id, brand, 1L, "数码",
+                BigDecimal.TEN, 1, false, sales, TIME);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.shoppingmall.search;
+
+import org.example.shoppingmall.dto.SuggestionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 联想词前缀树：各节点 Top-K 在销量增减、下架删除时的维护，词首前缀，超出上限时淘汰权重最低的联想词
+ */
+class ProductSuggesterTest {
+
+    @Test
+    void suggestionsAreRankedBySummedSales() {
+        ProductSuggester suggester = new ProductSuggester(true, 1000, 10);
+        suggester.upsert(document(1L, "华为手机 Mate", "华为", "手机", 10));
+        suggester.upsert(document(2L, "华为平板", "华为", "平板", 30));
+        suggester.upsert(document(3L, "华为手表", null, null, 25));
+
+        // 品牌联想词的权重是两件商品的销量之和
+        assertEquals(List.of("华为:brand", "华为平板:product", "华为手表:product", "华为手机 Mate:product"),
+                texts(suggester.suggest("华为", 10)));
+        assertEquals(List.of("华为:brand", "华为平板:product"), texts(suggester.suggest("华为", 2)));
+        assertEquals(List.of("手机:category"), texts(suggester.suggest("手", 10)));
+        assertEquals(List.of("华为手机 Mate:product"), texts(suggester.suggest(" MA ", 10)));
+    }
+
+    @Test
+    void topKIsMaintainedWhenSalesChange() {
+        ProductSuggester suggester = new ProductSuggester(true, 1000, 2);
+        suggester.upsert(document(1L, "蓝牙耳机", null, null, 30));
+        suggester.upsert(document(2L, "蓝牙音箱", null, null, 20));
+        suggester.upsert(document(3L, "蓝牙键盘", null, null, 10));
+        assertEquals(List.of("蓝牙耳机:product", "蓝牙音箱:product"), texts(suggester.suggest("蓝", 10)));
+
+        // 销量上升：挤入 Top-K
+        suggester.upsert(document(3L, "蓝牙键盘", null, null, 50));
+        assertEquals(List.of("蓝牙键盘:product", "蓝牙耳机:product"), texts(suggester.suggest("蓝牙", 10)));
+
+        // 销量下降：由子节点重新汇总，原先挤不进 Top-K 的联想词补上
+        suggester.upsert(document(3L, "蓝牙键盘", null, null, 5));
+        assertEquals(List.of("蓝牙耳机:product", "蓝牙音箱:product"), texts(suggester.suggest("蓝", 10)));
+
+        // 下架与删除：Top-K 中的联想词被移除后同样补齐
+        suggester.upsert(inactive(1L, "蓝牙耳机"));
+        suggester.remove(2L);
+        assertEquals(List.of("蓝牙键盘:product"), texts(suggester.suggest("蓝", 10)));
+        assertEquals(1, suggester.size());
+    }
+
+    @Test
+    void laterWordsAreAlsoPrefixes() {
+        ProductSuggester suggester = new ProductSuggester(true, 1000, 10);
+        suggester.upsert(document(1L, "Apple  iPhone 15 Pro", null, null, 1));
+
+        assertEquals(List.of("Apple  iPhone 15 Pro:product"), texts(suggester.suggest("IPH", 10)));
+        assertEquals(List.of("Apple  iPhone 15 Pro:product"), texts(suggester.suggest("apple iphone", 10)));
+        // 只有前 MAX_KEYS_PER_ENTRY 个词首建立前缀
+        assertTrue(suggester.suggest("pro", 10).isEmpty());
+    }
+
+    @Test
+    void prefixLongerThanKeyLengthIsTruncated() {
+        ProductSuggester suggester = new ProductSuggester(true, 1000, 10);
+        String name = "超长商品名称".repeat(6);
+        suggester.upsert(document(1L, name, null, null, 1));
+
+        assertEquals(1, suggester.suggest(name.substring(0, ProductSuggester.MAX_KEY_LENGTH + 5), 10).size());
+        assertEquals(1, suggester.suggest(name + "之后的输入不再缩小范围", 10).size());
+    }
+
+    @Test
+    void lowestWeightEntriesAreEvictedAboveMaxEntries() {
+        ProductSuggester suggester = new ProductSuggester(true, 3, 10);
+        suggester.upsert(document(1L, "键盘A", null, null, 40));
+        suggester.upsert(document(2L, "键盘B", null, null, 10));
+        suggester.upsert(document(3L, "键盘C", null, null, 30));
+        suggester.upsert(document(4L, "键盘D", null, null, 20));
+
+        assertEquals(3, suggester.size());
+        assertEquals(List.of("键盘A:product", "键盘C:product", "键盘D:product"), texts(suggester.suggest("键盘", 10)));
+
+        // 被淘汰的联想词以新对象重新加入后，旧商品的移除不能误减它的计数
+        suggester.upsert(document(5L, "键盘B", null, null, 50));
+        suggester.remove(2L);
+        assertEquals("键盘B:product", texts(suggester.suggest("键盘", 10)).get(0));
+        assertEquals(3, suggester.size());
+    }
+
+    private static List<String> texts(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(s -> s.getText() + ":" + s.getType()).collect(Collectors.toList());
+    }
+
+    private static ProductDocument document(Long id, String name, String brand, String category, int sales) {
+        return new ProductDocument(id, name, null, brand == null ? null : (long) brand.hashCode(), brand,
+                category == null ? null : (long) category.hashCode(), category, BigDecimal.TEN, 1, false, sales,
+                LocalDateTime.of(2024, 5, 1, 0, 0));
+    }
+
+    private static ProductDocument inactive(Long id, String name) {
+        return new ProductDocument(id, name, null, null, null, null, null, BigDecimal.TEN, 0, false, 0,
+                LocalDateTime.of(2024, 5, 1, 0, 0));
+    }
+}
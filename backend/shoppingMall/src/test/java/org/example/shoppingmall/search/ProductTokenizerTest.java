@@ -0,0 +1,49 @@
+package org.example.shoppingmall.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分词器测试：拉丁字母与数字按片段切分并转小写，CJK 片段建索引时输出单字和二元组，查询时只用二元组
+ */
+class ProductTokenizerTest {
+
+    @Test
+    void indexingEmitsUnigramsAndBigramsForCjk() {
+        assertEquals(List.of("华", "华为", "为", "为手", "手", "手机", "机"), ProductTokenizer.tokenize("华为手机"));
+    }
+
+    @Test
+    void queryUsesBigramsOnlyAndFallsBackToSingleCharacter() {
+        assertEquals(List.of("华为", "为手", "手机"), ProductTokenizer.tokenizeQuery("华为手机"));
+        assertEquals(List.of("机"), ProductTokenizer.tokenizeQuery("机"));
+    }
+
+    @Test
+    void latinWordsAreLowercasedAndSplitAtCjkAndPunctuation() {
+        assertEquals(List.of("iphone", "15", "pro", "手", "手机", "机", "5g"),
+                ProductTokenizer.tokenize("iPhone 15-Pro手机 5G"));
+    }
+
+    @Test
+    void queryTokensAreDeduplicatedInOrder() {
+        assertEquals(List.of("手机", "pro"), ProductTokenizer.tokenizeQuery("手机 Pro 手机 PRO"));
+    }
+
+    @Test
+    void bigramsDistinguishCharacterOrder() {
+        List<String> indexed = ProductTokenizer.tokenize("手机壳");
+        assertTrue(indexed.containsAll(ProductTokenizer.tokenizeQuery("手机")));
+        assertTrue(!indexed.containsAll(ProductTokenizer.tokenizeQuery("机手")));
+    }
+
+    @Test
+    void emptyAndNullTextHaveNoTokens() {
+        assertTrue(ProductTokenizer.tokenize(null).isEmpty());
+        assertTrue(ProductTokenizer.tokenizeQuery("  ,. ").isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.shoppingmall.service.impl;
+
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.dto.CartItemDTO;
+import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.entity.Cart;
+import org.example.shoppingmall.entity.CartItem;
+import org.example.shoppingmall.entity.Product;
+import org.example.shoppingmall.entity.User;
+import org.example.shoppingmall.exception.ApiException;
+import org.example.shoppingmall.repository.CartItemRepository;
+import org.example.shoppingmall.repository.CartRepository;
+import org.example.shoppingmall.repository.ProductRepository;
+import org.example.shoppingmall.repository.UserRepository;
+import org.example.shoppingmall.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 购物车转换测试：商品信息按 ProductService.MAX_BATCH_SIZE 分批读取，大购物车不会触发批量查询上限
+ */
+class CartServiceImplTest {
+
+    private static final int ITEMS = 250;
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ProductService productService = mock(ProductService.class);
+    private CartServiceImpl cartService;
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        cartService = new CartServiceImpl(cartRepository, mock(CartItemRepository.class), mock(ProductRepository.class),
+                userRepository, productService);
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        cart = new Cart(user);
+        for (long id = 1; id <= ITEMS; id++) {
+            Product product = new Product();
+            product.setId(id);
+            product.setName("entity-" + id);
+            CartItem item = new CartItem();
+            item.setId(id);
+            item.setProduct(product);
+            item.setQuantity(1);
+            cart.getItems().add(item);
+        }
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
+        // 与 ProductServiceImpl 相同的上限检查
+        when(productService.getProductsByIds(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            if (ids.size() > ProductService.MAX_BATCH_SIZE) {
+                throw new ApiException(ResultCode.VALIDATION_ERROR, "一次最多查询 " + ProductService.MAX_BATCH_SIZE + " 个商品");
+            }
+            return ids.stream().map(CartServiceImplTest::product).collect(Collectors.toList());
+        });
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice", null, List.of()));
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cartLargerThanBatchLimitIsLoadedInChunks() {
+        List<CartItemDTO> items = cartService.getCartList();
+
+        assertEquals(ITEMS, items.size());
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals(i + 1L, items.get(i).getProductId());
+            assertEquals("dto-" + (i + 1), items.get(i).getProductName());
+        }
+        verify(productService, times(3)).getProductsByIds(anyList());
+    }
+
+    @Test
+    void selectingAllItemsInLargeCartSucceeds() {
+        List<CartItemDTO> items = cartService.updateAllCartItemsSelected(false);
+
+        assertEquals(ITEMS, items.size());
+        assertTrue(items.stream().noneMatch(CartItemDTO::getSelected));
+    }
+
+    @Test
+    void missingProductsFallBackToEntity() {
+        cart.getItems().add(cart.getItems().get(0));
+        when(productService.getProductsByIds(anyList())).thenReturn(new ArrayList<>());
+
+        List<CartItemDTO> items = cartService.getCartList();
+
+        assertEquals(ITEMS + 1, items.size());
+        assertEquals("entity-1", items.get(0).getProductName());
+    }
+
+    private static ProductDTO product(Long id) {
+        ProductDTO product = new ProductDTO();
+        product.setId(id);
+        product.setName("dto-" + id);
+        product.setPrice(BigDecimal.ONE);
+        return product;
+    }
+}
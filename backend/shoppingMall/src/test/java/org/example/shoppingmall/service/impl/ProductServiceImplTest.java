@@ -0,0 +1,187 @@
+package org.example.shoppingmall.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.shoppingmall.cache.ProductCacheTags;
+import org.example.shoppingmall.cache.ProductEntryCache;
+import org.example.shoppingmall.cache.ProductIdFilter;
+import org.example.shoppingmall.config.CacheConfig;
+import org.example.shoppingmall.common.ResultCode;
+import org.example.shoppingmall.dto.PageResult;
+import org.example.shoppingmall.dto.ProductCardDTO;
+import org.example.shoppingmall.dto.ProductDTO;
+import org.example.shoppingmall.entity.Product;
+import org.example.shoppingmall.exception.ApiException;
+import org.example.shoppingmall.repository.CategoryRepository;
+import org.example.shoppingmall.repository.ProductRepository;
+import org.example.shoppingmall.repository.UserRepository;
+import org.example.shoppingmall.search.ProductCatalogSync;
+import org.example.shoppingmall.search.ProductRatingLeaderboard;
+import org.example.shoppingmall.search.ProductSearchIndex;
+import org.example.shoppingmall.search.ProductSearchResult;
+import org.example.shoppingmall.search.ProductSuggester;
+import org.example.shoppingmall.service.FileService;
+import org.example.shoppingmall.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品列表卡片：数据库分支只查卡片投影并顺带写入卡片缓存，索引分支按页内 id 批量读缓存、未命中的用一次投影查询回表；
+ * 按 id 批量取商品时同样先读详情缓存，布隆过滤器判定不存在的 id 直接跳过。
+ * 单条商品缓存用内存 Map 代替 Redis。
+ */
+class ProductServiceImplTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductSearchIndex productSearchIndex = mock(ProductSearchIndex.class);
+    private final ProductEntryCache productEntryCache = mock(ProductEntryCache.class);
+    private final ProductIdFilter productIdFilter = mock(ProductIdFilter.class);
+    private final Map<String, Object> entries = new HashMap<>();
+    private ProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductServiceImpl(productRepository, mock(CategoryRepository.class), mock(FileService.class),
+                new ObjectMapper(), mock(UserRepository.class), productSearchIndex, mock(ProductSuggester.class),
+                mock(ProductCatalogSync.class), mock(ProductRatingLeaderboard.class), mock(ProductCacheTags.class),
+                productEntryCache, productIdFilter, new ConcurrentMapCacheManager());
+        when(productEntryCache.multiGet(anyString(), anyList(), any())).thenAnswer(invocation -> {
+            String cacheName = invocation.getArgument(0);
+            List<Long> ids = invocation.getArgument(1);
+            Function<Long, String> keyOf = invocation.getArgument(2);
+            Map<Long, Object> hits = new HashMap<>();
+            ids.forEach(id -> {
+                Object value = entries.get(cacheName + "::" + keyOf.apply(id));
+                if (value != null) {
+                    hits.put(id, value);
+                }
+            });
+            return hits;
+        });
+        doAnswer(invocation -> {
+            String cacheName = invocation.getArgument(0);
+            Map<Long, Object> values = invocation.getArgument(1);
+            Function<Long, String> keyOf = invocation.getArgument(2);
+            values.forEach((id, value) -> entries.put(cacheName + "::" + keyOf.apply(id), value));
+            return null;
+        }).when(productEntryCache).multiPut(anyString(), anyMap(), any());
+    }
+
+    @Test
+    void databaseListingUsesCardProjectionAndFillsCardCache() {
+        when(productSearchIndex.isReady()).thenReturn(false);
+        Pageable pageable = PageRequest.of(0, 2);
+        when(productRepository.findActiveCards(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(card(2L, 5), card(1L, 0)), pageable, 3));
+
+        PageResult<ProductCardDTO> first = productService.getProductCards(null, null, 1, 2, null, null, null, null, null);
+        PageResult<ProductCardDTO> second = productService.getProductCards(null, null, 1, 2, null, null, null, null, null);
+
+        assertEquals(List.of(card(2L, 5), card(1L, 0)), first.getList());
+        assertEquals(first, second);
+        assertEquals(3, first.getTotal());
+        assertEquals(2, first.getPages());
+        // 第二次请求命中 id 页缓存和卡片缓存，不再查库，也不加载实体
+        verify(productRepository, times(1)).findActiveCards(any(Pageable.class));
+        verify(productRepository, never()).findCardsByIdIn(anyList());
+        verify(productRepository, never()).findAllById(any());
+        assertTrue(entries.containsKey(CacheConfig.PRODUCT_CARD_CACHE + "::" + ProductCacheTags.cardKey(2L)));
+    }
+
+    @Test
+    void indexListingLoadsOnlyMissingCardsInOrder() {
+        when(productSearchIndex.isReady()).thenReturn(true);
+        when(productSearchIndex.search(any())).thenReturn(new ProductSearchResult(List.of(3L, 1L, 2L), 3, null, null));
+        entries.put(CacheConfig.PRODUCT_CARD_CACHE + "::" + ProductCacheTags.cardKey(1L), card(1L, 1));
+        // 商品 2 在索引生成 id 页之后被删除
+        when(productRepository.findCardsByIdIn(List.of(3L, 2L))).thenReturn(List.of(card(3L, 7)));
+
+        PageResult<ProductCardDTO> page = productService.getProductCards("耳机", null, 1, 10, null, null, null, null, null);
+
+        assertEquals(List.of(card(3L, 7), card(1L, 1)), page.getList());
+        assertEquals(3, page.getTotal());
+        verify(productRepository).findCardsByIdIn(List.of(3L, 2L));
+        verify(productRepository, never()).findAllById(any());
+        assertEquals(card(3L, 7), entries.get(CacheConfig.PRODUCT_CARD_CACHE + "::" + ProductCacheTags.cardKey(3L)));
+    }
+
+    @Test
+    void productsByIdsReadCacheThenOneQueryForMisses() {
+        when(productIdFilter.mightExist(anyLong())).thenAnswer(invocation -> !Long.valueOf(99L).equals(invocation.getArgument(0)));
+        entries.put(CacheConfig.PRODUCT_DETAIL_CACHE + "::" + ProductCacheTags.detailKey(1L), detail(1L));
+        when(productRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(product(2L), product(3L)));
+
+        List<ProductDTO> products = productService.getProductsByIds(Arrays.asList(3L, 1L, 99L, 3L, null, 2L));
+
+        assertEquals(List.of(3L, 1L, 2L), products.stream().map(ProductDTO::getId).collect(Collectors.toList()));
+        verify(productRepository).findAllById(List.of(3L, 2L));
+        assertTrue(entries.containsKey(CacheConfig.PRODUCT_DETAIL_CACHE + "::" + ProductCacheTags.detailKey(3L)));
+        assertTrue(productService.getProductsByIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void productsByIdsRejectsOversizedBatch() {
+        List<Long> ids = LongStream.rangeClosed(1, ProductService.MAX_BATCH_SIZE + 1).boxed().collect(Collectors.toList());
+
+        ApiException e = assertThrows(ApiException.class, () -> productService.getProductsByIds(ids));
+
+        assertEquals(ResultCode.VALIDATION_ERROR.getCode(), e.getErrorCode());
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void projectionExposesOnlyStockAvailability() {
+        ProductCardDTO soldOut = new ProductCardDTO(1L, "商品", BigDecimal.ONE, null, null, null, 0);
+        ProductCardDTO unknown = new ProductCardDTO(2L, "商品", BigDecimal.ONE, null, null, 3, (Integer) null);
+
+        assertEquals(0, soldOut.getSales());
+        assertFalse(soldOut.getInStock());
+        assertFalse(unknown.getInStock());
+        assertTrue(card(3L, 1).getInStock());
+    }
+
+    private static ProductDTO detail(Long id) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        return dto;
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("商品" + id);
+        return product;
+    }
+
+    private static ProductCardDTO card(Long id, int stock) {
+        return new ProductCardDTO(id, "商品" + id, new BigDecimal("9.90"), null, "/" + id + ".jpg", 10, stock);
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.shoppingmall.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单号生成器测试：多线程唯一性、序号溢出、时钟回拨、定长与路由位
+ */
+class OrderNoGeneratorTest {
+
+    // 2026-01-02T03:04:05.678Z
+    private static final long BASE_TIME = 1767323045678L;
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void concurrentGenerationIsUniqueAndOrderedPerThread() throws Exception {
+        OrderNoGenerator generator = new OrderNoGenerator(7, System::currentTimeMillis);
+        int threads = 16;
+        int perThread = 50_000;
+        Set<String> seen = ConcurrentHashMap.newKeySet(threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long buyerId = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                String previous = "";
+                for (int i = 0; i < perThread; i++) {
+                    String orderNo = generator.next(buyerId);
+                    assertEquals(OrderNoGenerator.LENGTH, orderNo.length());
+                    assertTrue(orderNo.compareTo(previous) > 0, "同一线程内订单号必须递增");
+                    assertTrue(seen.add(orderNo), "重复的订单号: " + orderNo);
+                    previous = orderNo;
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    void layoutIsFixedWidthAndTimeFirst() {
+        OrderNoGenerator generator = new OrderNoGenerator(12, () -> BASE_TIME);
+
+        String orderNo = generator.next(2049L);
+
+        assertEquals("20260102030405678" + "0012" + "0000" + "0001", orderNo);
+        assertEquals(1, OrderNoGenerator.routingHint(orderNo));
+        assertEquals(OrderNoGenerator.routingHint(2049L), OrderNoGenerator.routingHint(orderNo));
+        assertEquals(-1, OrderNoGenerator.routingHint("20260102030405678A1B2C3"));
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextMillisecond() {
+        OrderNoGenerator generator = new OrderNoGenerator(1, () -> BASE_TIME);
+        String last = null;
+        for (int i = 0; i < 4096; i++) {
+            last = generator.next(1L);
+        }
+        assertEquals("2026010203040567800014095", last.substring(0, 25));
+
+        String borrowed = generator.next(1L);
+
+        assertEquals("2026010203040567900010000", borrowed.substring(0, 25));
+        assertTrue(borrowed.compareTo(last) > 0);
+    }
+
+    @Test
+    void clockRollbackKeepsNumbersIncreasing() {
+        AtomicLong clock = new AtomicLong(BASE_TIME);
+        OrderNoGenerator generator = new OrderNoGenerator(1, clock::get);
+        String before = generator.next(1L);
+
+        clock.set(BASE_TIME - 5000);
+        String during = generator.next(1L);
+        clock.set(BASE_TIME + 1);
+        String after = generator.next(1L);
+
+        assertTrue(during.compareTo(before) > 0);
+        assertTrue(after.compareTo(during) > 0);
+        assertEquals("20260102030405678", during.substring(0, 17));
+        assertEquals("20260102030405679", after.substring(0, 17));
+    }
+
+    @Test
+    void nodeIdMustFitInTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNoGenerator(1024, System::currentTimeMillis));
+    }
+}
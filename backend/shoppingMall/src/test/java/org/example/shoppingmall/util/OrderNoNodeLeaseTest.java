@@ -0,0 +1,118 @@
+package org.example.shoppingmall.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 订单号节点号租约测试：Redis 使用 embedded-redis 启动的真实 redis-server，多个 OrderNoNodeLease 实例模拟多个节点。
+ */
+class OrderNoNodeLeaseTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+
+    @Test
+    void nodesLeaseDistinctIdsUntilExhausted() {
+        OrderNoNodeLease a = newLease();
+        OrderNoNodeLease b = newLease();
+        OrderNoNodeLease c = newLease();
+        int first = a.acquire(1);
+        int second = b.acquire(1);
+
+        assertNotEquals(first, second);
+        assertThrows(IllegalStateException.class, () -> c.acquire(1));
+
+        a.release();
+        assertEquals(first, c.acquire(1));
+    }
+
+    @Test
+    void renewExtendsLeaseAndReplacesLostOne() {
+        OrderNoNodeLease lease = newLease();
+        int nodeId = lease.acquire(OrderNoGenerator.MAX_NODE_ID);
+        String key = OrderNoNodeLease.KEY_PREFIX + nodeId;
+        redisTemplate.expire(key, Duration.ofSeconds(10));
+
+        lease.renew();
+        assertTrue(redisTemplate.getExpire(key) > 3500);
+
+        // 断开期间租约过期并被其他进程租走
+        redisTemplate.opsForValue().set(key, "other-node");
+        lease.renew();
+        assertNotEquals(nodeId, lease.getNodeId());
+        assertEquals("other-node", redisTemplate.opsForValue().get(key));
+    }
+
+    @Test
+    void generatorUsesLeasedNodeId() {
+        OrderNoNodeLease lease = newLease();
+        OrderNoGenerator generator = new OrderNoGenerator(-1, lease);
+
+        String orderNo = generator.next(1L);
+
+        assertEquals(lease.getNodeId(), Integer.parseInt(orderNo.substring(17, 21)));
+    }
+
+    @Test
+    void configuredNodeIdIsRegisteredAndReportedAsLeased() {
+        OrderNoNodeLease configured = newLease();
+        OrderNoNodeLease leased = newLease();
+        new OrderNoGenerator(5, configured);
+        int other = leased.acquire(OrderNoGenerator.MAX_NODE_ID);
+
+        assertEquals(Set.of(5, other), leased.leasedNodeIds(OrderNoGenerator.MAX_NODE_ID));
+
+        // 配置的节点号续租失败时重新登记同一个节点号，而不是改租新的
+        redisTemplate.delete(OrderNoNodeLease.KEY_PREFIX + 5);
+        configured.renew();
+        assertEquals(5, configured.getNodeId());
+        assertTrue(leased.leasedNodeIds(OrderNoGenerator.MAX_NODE_ID).contains(5));
+    }
+
+    private static OrderNoNodeLease newLease() {
+        return new OrderNoNodeLease(redisTemplate, Duration.ofHours(1));
+    }
+}
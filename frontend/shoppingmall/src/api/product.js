@@ -18,6 +18,19 @@ export function getProducts(params) {
 		});
 }
 
+/** 
+* 获取商品列表卡片（参数同 getProducts，只返回列表页需要的字段） 
+* * @param {Object} params - 查询参数，同 getProducts 
+* * @returns {Promise} 请求的Promise对象 
+* */
+export function getProductCards(params) {
+	return request({
+		url: '/products/cards',    
+		method: 'get',    
+		params  
+		});
+}
+
 /** 
 * 获取商品详情 
 * * @param {number} id - 商品ID 
@@ -30,6 +43,19 @@ export function getProductDetail(id) {
 		});
 }
 
+/**
+ * 批量获取商品详情（购物车、收藏、下单确认页）
+ * @param {number[]} ids - 商品ID列表，最多100个
+ * @returns {Promise} 按 ids 顺序返回商品列表，不存在的商品会被跳过
+ */
+export function getProductsByIds(ids) {
+	return request({
+		url: '/products/batch',
+		method: 'get',
+		params: { ids: ids.join(',') }
+	});
+}
+
 /** 
 * 获取商品评论 
 * * @param {number} id - 商品ID 